@@ -1,22 +1,65 @@
 package smartparking;
 
+import smartparking.admission.AdmissionControlledBookingFacade;
+import smartparking.admission.AdmissionController;
+import smartparking.admission.AdmissionRejectedException;
+import smartparking.cdc.CdcPersistentManager;
+import smartparking.cdc.ChangeLog;
 import smartparking.flow.AbstractBookingFlow;
 import smartparking.flow.InteractiveBookingFlow;
+import smartparking.forecast.OccupancyForecaster;
+import smartparking.gateway.GatewayPool;
+import smartparking.gateway.ResilientPaymentGateway;
+import smartparking.gateway.RoutingPaymentGateway;
+import smartparking.geo.LotSpatialIndex;
+import smartparking.geo.NearbyLot;
+import smartparking.navigation.RoadGraph;
+import smartparking.navigation.RouteEngine;
 import smartparking.model.*;
+import smartparking.persistence.AvailabilityCache;
+import smartparking.persistence.DataCodec;
+import smartparking.persistence.DataDirectoryRecovery;
+import smartparking.persistence.EventSourcedPersistentManager;
 import smartparking.persistence.FilePersistentManager;
 import smartparking.persistence.PersistentManager;
+import smartparking.persistence.RecoveryReport;
+import smartparking.persistence.ReservationArchiver;
+import smartparking.persistence.ReservationEventStore;
+import smartparking.persistence.ShardedPersistentManager;
+import smartparking.persistence.TieredPersistentManager;
+import smartparking.pricing.DynamicPricingEngine;
+import smartparking.replication.ReadReplica;
+import smartparking.replication.ReplicationPublisher;
+import smartparking.reporting.ColumnarExporter;
+import smartparking.reporting.ParallelReportAggregator;
 import smartparking.reporting.ReportGenerator;
+import smartparking.reporting.ReportRetention;
+import smartparking.search.SearchIndex;
+import smartparking.search.SearchQuery;
 import smartparking.service.MakeReservationService;
+import smartparking.service.SnowflakeIdGenerator;
 import smartparking.strategy.DefaultPaymentStrategyRegistry;
 import smartparking.strategy.PaymentStrategyRegistry;
 import smartparking.facade.BookingFacade;
+import smartparking.feed.AvailabilityFeed;
+import smartparking.feed.AvailabilitySseServer;
 import smartparking.ui.ConsoleInput;
+import smartparking.ui.OptionSource;
 import smartparking.ui.SystemConsoleInput;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 
 /**
  * Application entry point — interactive Smart Parking System (Iteration 1).
@@ -25,25 +68,69 @@ import java.util.Optional;
  */
 public class Application {
 
+    private static final String READ_ONLY_NODE = "This node is a read-only replica; book and cancel on the primary.";
+
     public static void main(String[] args) {
-        PersistentManager persistence = new FilePersistentManager();
+        PersistentManager store = createStore();
+        EventSourcedPersistentManager eventSourced = new EventSourcedPersistentManager(
+                store, new ReservationEventStore(Paths.get("data", "reservation-events.log")));
+        CdcPersistentManager cdc = new CdcPersistentManager(eventSourced,
+                new ChangeLog(Paths.get("data", "cdc"), Integer.getInteger("smartparking.cdc.ringSize", 8192)));
+        LotSpatialIndex lotIndex = new LotSpatialIndex(createPersistence(cdc));
+        AvailabilityCache persistence = new AvailabilityCache(lotIndex);
         seedDataIfNeeded(persistence);
+        if (store instanceof TieredPersistentManager tiered) {
+            new ReservationArchiver(persistence, tiered, Long.getLong("smartparking.archive.periodMinutes"));
+        }
+        PersistentManager readPersistence = createReadPersistence(persistence);
+        boolean replicaNode = readPersistence != persistence;
+        // A replica node indexes its replica; the local change stream never sees its data
+        SearchIndex searchIndex = readPersistence instanceof ReadReplica replica
+                ? SearchIndex.follow(replica) : SearchIndex.follow(cdc);
+        // The lot index, forecaster and dynamic prices follow the local store, so a replica node goes without
+        OccupancyForecaster forecaster = null;
+        DynamicPricingEngine pricingEngine = null;
+        if (!replicaNode) {
+            forecaster = new OccupancyForecaster(persistence);
+            eventSourced.subscribe(forecaster::apply);
+            forecaster.followLots(cdc);
+            pricingEngine = new DynamicPricingEngine(persistence, forecaster,
+                    Long.getLong("smartparking.pricing.periodSeconds", 60L));
+        }
 
-        Optional<PaymentGateway> gatewayOpt = persistence.getDefaultPaymentGateway();
-        PaymentGateway gateway = gatewayOpt.orElseThrow(() -> new IllegalStateException("Payment gateway not available"));
-        PaymentStrategyRegistry paymentRegistry = new DefaultPaymentStrategyRegistry(gateway);
-        MakeReservationService makeReservationService = new MakeReservationService(persistence, paymentRegistry);
-        BookingFacade facade = new BookingFacade(persistence, makeReservationService);
+        List<PaymentGateway> gateways = persistence.getPaymentGateways();
+        if (gateways.isEmpty()) throw new IllegalStateException("Payment gateway not available");
+        List<ResilientPaymentGateway> resilientGateways = new ArrayList<>();
+        PaymentStrategyRegistry paymentRegistry = createPaymentRegistry(gateways, resilientGateways);
+        MakeReservationService makeReservationService = new MakeReservationService(
+                persistence, paymentRegistry, new SnowflakeIdGenerator(), persistence, pricingEngine);
+        BookingFacade.Builder facadeBuilder = BookingFacade.builder(persistence, makeReservationService)
+                .readPersistence(readPersistence)
+                .lotIndex(replicaNode ? null : lotIndex)
+                .routeEngine(createRouteEngine())
+                .forecaster(forecaster)
+                .searchIndex(searchIndex);
+        BookingFacade facade = Boolean.getBoolean("smartparking.admission")
+                ? new AdmissionControlledBookingFacade(facadeBuilder, new AdmissionController())
+                : facadeBuilder.build();
 
-        ConsoleInput console = new SystemConsoleInput();
+        ConsoleInput console = new SystemConsoleInput(Integer.getInteger("smartparking.ui.pageSize", 10));
 
         console.println("=== Smart Parking System — Iteration 1 (Use Case: Reserve Parking Slot) ===");
         console.println("Interactive booking: select user → select slot → confirm → pay.\n");
 
-        mainMenuLoop(facade, persistence, console);
+        mainMenuLoop(facade, readPersistence, replicaNode, console);
+        reportLateApprovals(resilientGateways);
+        searchIndex.close();
+        cdc.close();
     }
 
-    private static void mainMenuLoop(BookingFacade facade, PersistentManager persistence, ConsoleInput console) {
+    /**
+     * On a replica node (-Dsmartparking.replicaOf) all reads come from the replica, so booking and
+     * cancelling are refused: a local write would never show up in what this node reads.
+     */
+    private static void mainMenuLoop(BookingFacade facade, PersistentManager persistence, boolean replicaNode,
+                                     ConsoleInput console) {
         while (true) {
             console.println("\n--- Main Menu ---");
             int choice = console.selectOption("Choose an option:",
@@ -53,20 +140,32 @@ public class Application {
                             "View my reservations",
                             "Cancel a reservation",
                             "Generate report (file)",
+                            "Find nearest parking lot",
                             "Exit"
                     ), false);
 
-            switch (choice) {
-                case 1 -> runBookingFlow(facade, console);
-                case 2 -> showAvailableSlots(facade, console);
-                case 3 -> showMyReservations(facade, console);
-                case 4 -> cancelReservation(facade, console);
-                case 5 -> generateReport(persistence, console);
-                case 6 -> {
-                    console.println("Goodbye.");
-                    return;
+            try {
+                switch (choice) {
+                    case 1 -> {
+                        if (replicaNode) console.println(READ_ONLY_NODE);
+                        else runBookingFlow(facade, console);
+                    }
+                    case 2 -> showAvailableSlots(facade, console);
+                    case 3 -> showMyReservations(facade, console);
+                    case 4 -> {
+                        if (replicaNode) console.println(READ_ONLY_NODE);
+                        else cancelReservation(facade, console);
+                    }
+                    case 5 -> generateReport(persistence, console);
+                    case 6 -> findNearestLots(facade, console);
+                    case 7 -> {
+                        console.println("Goodbye.");
+                        return;
+                    }
+                    default -> console.println("Invalid option.");
                 }
-                default -> console.println("Invalid option.");
+            } catch (AdmissionRejectedException e) {
+                console.println("Request rejected: " + e.getMessage());
             }
         }
     }
@@ -98,23 +197,25 @@ public class Application {
             return;
         }
         for (ParkingSlot s : slots) {
-            console.println("  " + s.getSlotId() + " | " + s.getSlotNumber() + " | " + s.getSlotType() + " | $" + s.getPricePerHour() + "/hr");
+            BigDecimal rate = facade.quoteHourlyRate(s.getSlotId());
+            console.println("  " + s.getSlotId() + " | " + s.getSlotNumber() + " | " + s.getSlotType() + " | $"
+                    + (rate != null ? rate : s.getPricePerHour()) + "/hr");
         }
     }
 
     private static void showMyReservations(BookingFacade facade, ConsoleInput console) {
-        List<User> users = facade.getUsers();
-        if (users.isEmpty()) {
+        OptionSource<SearchIndex.Hit> users = (filter, offset, limit) -> {
+            SearchIndex.Result found = facade.search(SearchQuery.users(filter).offset(offset).limit(limit));
+            return OptionSource.Page.of(found.hits(), SearchIndex.Hit::label, found.totalHits());
+        };
+        if (users.page("", 0, 1).total() == 0) {
             console.println("No users.");
             return;
         }
-        List<String> options = new java.util.ArrayList<>();
-        for (User u : users) {
-            options.add(u.getUserId() + " - " + u.getName());
-        }
-        int userChoice = console.selectOption("Select user to view reservations:", options, true);
-        if (userChoice == 0) return;
-        User user = users.get(userChoice - 1);
+        SearchIndex.Hit hit = console.selectPaged("Select user to view reservations:", users, true);
+        if (hit == null) return;
+        User user = facade.getUser(hit.id()).orElse(null);
+        if (user == null) return;
         List<Reservation> reservations = facade.getReservationsByUser(user.getUserId());
         console.println("\n--- Reservations for " + user.getName() + " ---");
         if (reservations.isEmpty()) {
@@ -127,21 +228,19 @@ public class Application {
     }
 
     private static void cancelReservation(BookingFacade facade, ConsoleInput console) {
-        List<Reservation> all = facade.getAllReservations().stream()
-                .filter(r -> !Reservation.STATUS_CANCELLED.equals(r.getReservationStatus()))
-                .toList();
-        if (all.isEmpty()) {
+        OptionSource<SearchIndex.Hit> active = (filter, offset, limit) -> {
+            SearchIndex.Result found = facade.search(SearchQuery.reservations(filter)
+                    .status(Reservation.STATUS_PENDING, Reservation.STATUS_CONFIRMED).offset(offset).limit(limit));
+            return OptionSource.Page.of(found.hits(), SearchIndex.Hit::label, found.totalHits());
+        };
+        if (active.page("", 0, 1).total() == 0) {
             console.println("No active reservations to cancel.");
             return;
         }
-        List<String> options = new java.util.ArrayList<>();
-        for (Reservation r : all) {
-            options.add(r.getReservationId() + " | " + r.getSlotId() + " | " + r.getReservationStatus());
-        }
-        int choice = console.selectOption("Select reservation to cancel:", options, true);
-        if (choice == 0) return;
-        Reservation selected = all.get(choice - 1);
-        var result = facade.cancelReservation(selected.getReservationId());
+        SearchIndex.Hit selected = console.selectPaged(
+                "Select reservation to cancel (type an id, user, slot or lot to filter):", active, true);
+        if (selected == null) return;
+        var result = facade.cancelReservation(selected.id());
         if (result.isSuccess()) {
             console.println("Cancelled: " + result.getMessage());
         } else {
@@ -149,17 +248,185 @@ public class Application {
         }
     }
 
+    private static void findNearestLots(BookingFacade facade, ConsoleInput console) {
+        double latitude;
+        double longitude;
+        try {
+            latitude = Double.parseDouble(console.readLine("Your latitude (e.g. 42.3498): ", false).trim());
+            longitude = Double.parseDouble(console.readLine("Your longitude (e.g. 13.3995): ", false).trim());
+        } catch (NumberFormatException e) {
+            console.println("Invalid coordinates.");
+            return;
+        }
+        String type = console.readLine("Slot type (blank for any): ", true).trim();
+        List<NearbyLot> lots = facade.findNearestLots(latitude, longitude, type.isEmpty() ? null : type, 5);
+        console.println("\n--- Nearest Lots ---");
+        if (lots.isEmpty()) {
+            console.println("No lot with a matching free slot.");
+            return;
+        }
+        for (NearbyLot lot : lots) {
+            Optional<Navigation> navigation = facade.navigateToLot(latitude, longitude, lot.getLotId());
+            String eta = navigation.map(n -> " | " + n.getEstimatedTime() + " min drive").orElse("");
+            String forecast = "";
+            if (!type.isEmpty()) {
+                LocalDateTime arrival = LocalDateTime.now().plusMinutes(navigation.map(Navigation::getEstimatedTime).orElse(0));
+                OptionalDouble free = facade.forecastSlotFree(lot.getLotId(), type, arrival);
+                if (free.isPresent()) forecast = String.format(" | %.0f%% chance free on arrival", free.getAsDouble() * 100);
+            }
+            console.println(String.format("  %s | %s | %s | %.1f km | %d free%s%s",
+                    lot.getLotId(), lot.getName(), lot.getAddress(), lot.getDistanceMeters() / 1000.0,
+                    lot.getAvailableSlots(), eta, forecast));
+        }
+    }
+
+    /**
+     * Write the reports (compressed with -Dsmartparking.compression=gzip), then apply retention to
+     * data/reports: -Dsmartparking.reports.keep=N per kind (default 20), -Dsmartparking.reports.maxAgeDays
+     * (default 30); older reports are gzip-compressed.
+     */
     private static void generateReport(PersistentManager persistence, ConsoleInput console) {
-        ReportGenerator reportGenerator = new ReportGenerator(persistence);
+        ReportGenerator reportGenerator = new ReportGenerator(persistence, new ParallelReportAggregator(), dataCodec());
         try {
             Path summary = reportGenerator.generateSummaryReport();
             Path reservations = reportGenerator.generateReservationsReport();
-            console.println("Reports written: " + summary + ", " + reservations);
+            Path aggregate = reportGenerator.generateAggregateReport();
+            console.println("Reports written: " + summary + ", " + reservations + ", " + aggregate);
+            ReportRetention.Result retention = new ReportRetention(Paths.get("data", "reports"),
+                    Integer.getInteger("smartparking.reports.keep", 20),
+                    Duration.ofDays(Long.getLong("smartparking.reports.maxAgeDays", 30L)), true).apply();
+            if (retention.deleted() + retention.compressed() > 0) console.println("Report retention: " + retention);
+            ColumnarExporter exporter = new ColumnarExporter(persistence);
+            console.println("Columnar export: " + exporter.exportReservations() + ", " + exporter.exportPayments());
         } catch (Exception e) {
             console.println("Report generation failed: " + e.getMessage());
         }
     }
 
+    /**
+     * Store: a single data directory, or shards with -Dsmartparking.shards=N. Data files are
+     * gzip-compressed with -Dsmartparking.compression=gzip (existing files are converted either way).
+     * -Dsmartparking.groupCommitMs=N batches the single directory's file writes (group commit);
+     * -Dsmartparking.archive.periodMinutes=N moves its cancelled and ended reservations to data/archive.
+     */
+    private static PersistentManager createStore() {
+        int shards = Integer.getInteger("smartparking.shards", 1);
+        recoverDataDirectories(shards);
+        if (shards > 1) return ShardedPersistentManager.onDirectories(Paths.get("data"), shards, dataCodec());
+        FilePersistentManager files = new FilePersistentManager(
+                "data", Long.getLong("smartparking.groupCommitMs", -1L), 512, dataCodec());
+        return Long.getLong("smartparking.archive.periodMinutes") != null
+                ? new TieredPersistentManager(files, Paths.get("data", "archive"))
+                : files;
+    }
+
+    private static DataCodec dataCodec() {
+        return DataCodec.of(System.getProperty("smartparking.compression"));
+    }
+
+    /**
+     * Check the data directories before opening them (-Dsmartparking.recovery=repair|check|off,
+     * default repair): restore damaged files from backup and reconcile slot flags with reservations.
+     */
+    private static void recoverDataDirectories(int shards) {
+        String mode = System.getProperty("smartparking.recovery", "repair");
+        if ("off".equalsIgnoreCase(mode)) return;
+        List<Path> dirs = new ArrayList<>();
+        if (shards > 1) {
+            for (int i = 0; i < shards; i++) dirs.add(Paths.get("data", "shard-" + i));
+        } else {
+            dirs.add(Paths.get("data"));
+        }
+        RecoveryReport report = new DataDirectoryRecovery(!"check".equalsIgnoreCase(mode)).run(dirs);
+        if (!report.isClean()) System.err.println(report);
+        if (!report.isUsable()) throw new IllegalStateException("Data directory is damaged; see the recovery report above");
+    }
+
+    /**
+     * Store (with change capture) wrapped with the replication publisher (-Dsmartparking.replication.port=N)
+     * and the availability feed served as Server-Sent Events (-Dsmartparking.feed.port=N; loopback only
+     * unless -Dsmartparking.feed.bind=address, e.g. 0.0.0.0 for all interfaces).
+     */
+    private static PersistentManager createPersistence(PersistentManager store) {
+        PersistentManager persistence = store;
+        Integer replicationPort = Integer.getInteger("smartparking.replication.port");
+        if (replicationPort != null) {
+            persistence = new ReplicationPublisher(persistence, replicationPort);
+        }
+        Integer feedPort = Integer.getInteger("smartparking.feed.port");
+        if (feedPort != null) {
+            AvailabilityFeed feed = new AvailabilityFeed(persistence);
+            new AvailabilitySseServer(feed, feedBindAddress(), feedPort);
+            persistence = feed;
+        }
+        return persistence;
+    }
+
+    private static InetAddress feedBindAddress() {
+        String bind = System.getProperty("smartparking.feed.bind");
+        if (bind == null || bind.isBlank()) return InetAddress.getLoopbackAddress();
+        try {
+            return InetAddress.getByName(bind.trim());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown feed bind address: " + bind, e);
+        }
+    }
+
+    /**
+     * Payment strategies over the configured gateways, each transaction routed to the one ranked best
+     * by latency, success rate and fee; a gateway that does not answer fails over to the next best.
+     * With -Dsmartparking.payment.timeoutMs=N every gateway gets a deadline and a circuit breaker,
+     * optionally hedging after -Dsmartparking.payment.hedgeMs (idempotent gateways only), and each
+     * payment method its own bulkhead (-Dsmartparking.payment.bulkhead, default 16 concurrent
+     * payments); those gateways are added to {@code resilientOut}.
+     */
+    private static PaymentStrategyRegistry createPaymentRegistry(List<PaymentGateway> gateways,
+                                                                 List<ResilientPaymentGateway> resilientOut) {
+        Long timeoutMillis = Long.getLong("smartparking.payment.timeoutMs");
+        if (timeoutMillis == null) return new DefaultPaymentStrategyRegistry(new GatewayPool(gateways));
+        long hedgeMillis = Long.getLong("smartparking.payment.hedgeMs", 0L);
+        for (PaymentGateway g : gateways) resilientOut.add(new ResilientPaymentGateway(List.of(g), timeoutMillis, hedgeMillis));
+        List<PaymentGateway> resilient = List.copyOf(resilientOut);
+        return new DefaultPaymentStrategyRegistry(new RoutingPaymentGateway(new GatewayPool(resilient)),
+                Integer.getInteger("smartparking.payment.bulkhead", 16), timeoutMillis);
+    }
+
+    /**
+     * Payments that timed out for the customer but were approved by the gateway afterwards; each
+     * one was charged without a reservation and must be reconciled by hand.
+     */
+    private static void reportLateApprovals(List<ResilientPaymentGateway> resilientGateways) {
+        for (ResilientPaymentGateway gateway : resilientGateways) {
+            for (ResilientPaymentGateway.LateApproval late : gateway.drainLateApprovals()) {
+                System.err.printf("RECONCILE: %s approved %.2f at %s after the payment had timed out%n",
+                        late.gatewayId(), late.amount(), late.approvedAt());
+            }
+        }
+    }
+
+    /** Offline routing from the road graph in -Dsmartparking.roads (default data/roads.txt), if present. */
+    private static RouteEngine createRouteEngine() {
+        Path roads = Paths.get(System.getProperty("smartparking.roads", "data/roads.txt"));
+        if (!Files.exists(roads)) return null;
+        try {
+            return new RouteEngine(RoadGraph.load(roads));
+        } catch (IOException e) {
+            System.err.println("Road graph not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read side: the local store, or a replica of another instance with -Dsmartparking.replicaOf=host:port
+     * (which makes this node read-only).
+     */
+    private static PersistentManager createReadPersistence(PersistentManager primary) {
+        String replicaOf = System.getProperty("smartparking.replicaOf");
+        if (replicaOf == null || !replicaOf.contains(":")) return primary;
+        int colon = replicaOf.lastIndexOf(':');
+        return new ReadReplica(replicaOf.substring(0, colon), Integer.parseInt(replicaOf.substring(colon + 1)));
+    }
+
     private static void seedDataIfNeeded(PersistentManager p) {
         if (!p.findAllUsers().isEmpty()) return;
 
@@ -168,6 +435,8 @@ public class Application {
         p.saveUser(user);
 
         ParkingLot lot = new ParkingLot("L001", "Central Lot", "123 Main St");
+        lot.setLatitude(42.3498);
+        lot.setLongitude(13.3995);
         lot.getSlots().add(new ParkingSlot("S001", "A-01", "Standard", new BigDecimal("5.00")));
         lot.getSlots().add(new ParkingSlot("S002", "A-02", "EV", new BigDecimal("7.50")));
         lot.getSlots().add(new ParkingSlot("S003", "B-01", "Handicap", new BigDecimal("4.00")));
@@ -0,0 +1,61 @@
+package smartparking.admission;
+
+/**
+ * Global concurrency limit that adapts to observed latency (AIMD with a Vegas-style signal). It
+ * tracks the minimum latency seen (the uncongested baseline, slowly forgotten so it can rise after a
+ * workload change). A request finishing within tolerance x baseline grows the limit by 1/limit
+ * (about +1 per limit's worth of requests); a slower or failed request shrinks it by the backoff
+ * ratio. Requests beyond the current limit are rejected immediately instead of queueing, so
+ * overload turns into cheap rejections rather than rising latency for everyone.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double TOLERANCE = 2.0;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_DRIFT = 1.001;   // baseline creeps up 0.1% per sample
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private double baselineNanos = Double.MAX_VALUE;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("require 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /** Start a request if under the limit; the caller must call release() when it finishes. */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejected++;
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * @param latencyNanos time the request took
+     * @param failed       true if it failed (treated as a congestion signal)
+     */
+    public synchronized void release(long latencyNanos, boolean failed) {
+        inFlight--;
+        baselineNanos = Math.min(baselineNanos * BASELINE_DRIFT, latencyNanos);
+        if (failed || latencyNanos > baselineNanos * TOLERANCE) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (inFlight + 1 >= (int) limit) {
+            // only grow when the limit was actually reached; an idle system proves nothing
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public synchronized int getLimit() { return (int) limit; }
+    public synchronized int getInFlight() { return inFlight; }
+    public synchronized long getRejected() { return rejected; }
+}
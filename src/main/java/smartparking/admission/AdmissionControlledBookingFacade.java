@@ -0,0 +1,108 @@
+package smartparking.admission;
+
+import smartparking.command.BookingCommand;
+import smartparking.command.CommandResult;
+import smartparking.facade.BookingFacade;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.persistence.AvailabilityCache;
+import smartparking.search.SearchIndex;
+import smartparking.search.SearchQuery;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BookingFacade with admission control: bookings are limited per user and per lot, availability
+ * and search queries share the global concurrency limit. Limits apply when a make-reservation command
+ * executes, so every booking path (makeReservation, the interactive flow's commands) is covered.
+ * Rejected calls throw AdmissionRejectedException before any persistence I/O: the per-user bucket is
+ * checked first, and the slot's lot is then resolved from the AvailabilityCache in memory (the read
+ * store is consulted, once per slot, only when persistence is not a cache).
+ */
+public class AdmissionControlledBookingFacade extends BookingFacade {
+
+    private final AdmissionController admission;
+    private final AvailabilityCache availabilityCache;
+    private final Map<String, String> lotIdBySlotId = new ConcurrentHashMap<>();
+
+    /** @param builder configures the underlying facade, as for {@link BookingFacade#builder} */
+    public AdmissionControlledBookingFacade(BookingFacade.Builder builder, AdmissionController admission) {
+        super(builder);
+        this.admission = admission;
+        this.availabilityCache = getPersistence() instanceof AvailabilityCache cache ? cache : null;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    @Override
+    public List<ParkingSlot> getAvailableSlots() {
+        return admission.call(null, null, super::getAvailableSlots);
+    }
+
+    @Override
+    public List<ParkingSlot> getAvailableSlotsByType(String type) {
+        return admission.call(null, null, () -> super.getAvailableSlotsByType(type));
+    }
+
+    @Override
+    public SearchIndex.Result search(SearchQuery query) {
+        return admission.call(null, null, () -> super.search(query));
+    }
+
+    @Override
+    public BookingCommand createMakeReservationCommand(String userId, String slotId,
+                                                        LocalDateTime startTime, LocalDateTime endTime,
+                                                        String paymentMethod) {
+        return admitted(userId, slotId,
+                super.createMakeReservationCommand(userId, slotId, startTime, endTime, paymentMethod));
+    }
+
+    @Override
+    public BookingCommand createMakeReservationCommand(String userId, String slotId,
+                                                        LocalDateTime startTime, LocalDateTime endTime,
+                                                        String paymentMethod, String idempotencyKey) {
+        return admitted(userId, slotId,
+                super.createMakeReservationCommand(userId, slotId, startTime, endTime, paymentMethod, idempotencyKey));
+    }
+
+    /** The command, run through admission control each time it executes. */
+    private BookingCommand admitted(String userId, String slotId, BookingCommand command) {
+        return new BookingCommand() {
+            @Override
+            public CommandResult execute() {
+                return admission.callForLot(userId, () -> lotIdOf(slotId), command::execute);
+            }
+
+            @Override
+            public String getDescription() {
+                return command.getDescription();
+            }
+
+            @Override
+            public String getIdempotencyKey() {
+                return command.getIdempotencyKey();
+            }
+
+            @Override
+            public String getRequestFingerprint() {
+                return command.getRequestFingerprint();
+            }
+        };
+    }
+
+    private String lotIdOf(String slotId) {
+        if (slotId == null) return null;
+        if (availabilityCache != null) return availabilityCache.lotIdOfSlot(slotId);
+        String lotId = lotIdBySlotId.get(slotId);
+        if (lotId == null) {
+            lotId = getReadPersistence().findParkingLotBySlotId(slotId).map(ParkingLot::getLotId).orElse(null);
+            if (lotId != null) lotIdBySlotId.put(slotId, lotId);
+        }
+        return lotId;
+    }
+}
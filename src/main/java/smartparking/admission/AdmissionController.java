@@ -0,0 +1,84 @@
+package smartparking.admission;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the booking facade: a token bucket per user, a token bucket per lot
+ * and a global adaptive concurrency limit. Checks run cheapest first and a rejected request costs a
+ * map lookup and an exception without a stack trace; nothing touches persistence.
+ */
+public class AdmissionController {
+
+    private final KeyedRateLimiter perUser;
+    private final KeyedRateLimiter perLot;
+    private final AdaptiveConcurrencyLimiter concurrency;
+    private final Map<AdmissionRejectedException.Reason, LongAdder> rejections =
+            new EnumMap<>(AdmissionRejectedException.Reason.class);
+
+    /** Defaults: per user 10 burst / 2 per s, per lot 50 burst / 20 per s, concurrency 16 (2..256). */
+    public AdmissionController() {
+        this(new KeyedRateLimiter(10, 2), new KeyedRateLimiter(50, 20), new AdaptiveConcurrencyLimiter(16, 2, 256));
+    }
+
+    public AdmissionController(KeyedRateLimiter perUser, KeyedRateLimiter perLot, AdaptiveConcurrencyLimiter concurrency) {
+        this.perUser = perUser;
+        this.perLot = perLot;
+        this.concurrency = concurrency;
+        for (AdmissionRejectedException.Reason r : AdmissionRejectedException.Reason.values()) {
+            rejections.put(r, new LongAdder());
+        }
+    }
+
+    /**
+     * Run the action if admitted.
+     *
+     * @param userId rate-limit key for the caller (null: no per-user limit)
+     * @param lotId  rate-limit key for the lot (null: no per-lot limit)
+     * @throws AdmissionRejectedException if any limit is exceeded
+     */
+    public <T> T call(String userId, String lotId, Supplier<T> action) {
+        return callForLot(userId, () -> lotId, action);
+    }
+
+    /**
+     * As call, but the lot key is looked up only once the per-user check has passed, so a caller
+     * over its rate never pays for the lookup.
+     */
+    public <T> T callForLot(String userId, Supplier<String> lotIdLookup, Supplier<T> action) {
+        if (!perUser.tryAcquire(userId)) {
+            throw reject(AdmissionRejectedException.Reason.USER_RATE, "Too many requests for user " + userId);
+        }
+        String lotId = lotIdLookup.get();
+        if (!perLot.tryAcquire(lotId)) {
+            throw reject(AdmissionRejectedException.Reason.LOT_RATE, "Too many requests for lot " + lotId);
+        }
+        if (!concurrency.tryAcquire()) {
+            throw reject(AdmissionRejectedException.Reason.CONCURRENCY, "Server busy, try again shortly");
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = action.get();
+            failed = false;
+            return result;
+        } finally {
+            concurrency.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    public long getRejections(AdmissionRejectedException.Reason reason) {
+        return rejections.get(reason).sum();
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrency;
+    }
+
+    private AdmissionRejectedException reject(AdmissionRejectedException.Reason reason, String message) {
+        rejections.get(reason).increment();
+        return new AdmissionRejectedException(reason, message);
+    }
+}
@@ -0,0 +1,23 @@
+package smartparking.admission;
+
+/**
+ * Thrown when a request is shed by admission control. Cheap to throw (no stack trace): rejection
+ * must cost far less than serving the request.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason { USER_RATE, LOT_RATE, CONCURRENCY }
+
+    private final Reason reason;
+
+    public AdmissionRejectedException(Reason reason, String message) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,46 @@
+package smartparking.admission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One TokenBucket per key (user id, lot id). Buckets are created on first use; buckets idle long
+ * enough to have refilled completely are dropped periodically, so memory stays proportional to the
+ * number of recently active keys.
+ */
+public class KeyedRateLimiter {
+
+    private static final int SWEEP_EVERY = 4096;
+
+    private final double capacity;
+    private final double refillPerSecond;
+    private final long idleNanos;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private int calls;
+
+    /**
+     * @param capacity        burst size per key
+     * @param refillPerSecond sustained requests per second per key
+     */
+    public KeyedRateLimiter(double capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+        this.idleNanos = (long) (capacity / refillPerSecond * 1e9);
+    }
+
+    /** Take a token for the key; null keys are not limited. */
+    public boolean tryAcquire(String key) {
+        if (key == null) return true;
+        if (++calls % SWEEP_EVERY == 0) sweep();   // racy counter is fine: only paces the sweep
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, refillPerSecond)).tryAcquire();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private void sweep() {
+        long cutoff = System.nanoTime() - idleNanos;
+        buckets.values().removeIf(b -> b.isIdleSince(cutoff));
+    }
+}
@@ -0,0 +1,40 @@
+package smartparking.admission;
+
+/**
+ * Token bucket: holds up to capacity tokens, refilled continuously at refillPerSecond. Each request
+ * takes one token; a request finding the bucket empty is rejected. Allows bursts up to capacity
+ * while bounding the long-run rate.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+    private volatile long lastUsed;
+
+    public TokenBucket(double capacity, double refillPerSecond) {
+        if (capacity < 1 || refillPerSecond <= 0) throw new IllegalArgumentException("capacity >= 1 and refillPerSecond > 0 required");
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1e9;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.lastUsed = lastRefill;
+    }
+
+    /** Take one token if available. */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+        lastUsed = now;
+        if (tokens < 1.0) return false;
+        tokens -= 1.0;
+        return true;
+    }
+
+    /** True if the bucket has been idle long enough to be full again (safe to discard). */
+    boolean isIdleSince(long nanoTime) {
+        return lastUsed < nanoTime;
+    }
+}
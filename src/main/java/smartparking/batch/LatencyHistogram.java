@@ -0,0 +1,62 @@
+package smartparking.batch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Fixed-size, thread-safe latency histogram, so a run of any length is summarized in constant
+ * memory. Values are microseconds: below 1024 each has its own bucket, above that 128 buckets per
+ * power of two (under 1% error). Percentiles report the lower bound of their bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 1024;
+    private static final int SUB_BUCKETS = 128;
+    private static final int MAX_EXPONENT = 40;   // ~12 days in microseconds
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR + (MAX_EXPONENT - 9) * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucket(micros));
+        max.accumulate(micros);
+    }
+
+    private static int bucket(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int sub = (int) ((micros >>> (exponent - 7)) & (SUB_BUCKETS - 1));
+        return LINEAR + (exponent - 10) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 10;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) sub << (exponent - 7));
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < counts.length(); i++) n += counts.get(i);
+        return n;
+    }
+
+    /** Latency in microseconds at or below which the given fraction (0..1) of samples fall. */
+    public long percentileMicros(double fraction) {
+        long total = count();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(lowerBound(i), maxMicros());
+        }
+        return maxMicros();
+    }
+
+    public long maxMicros() {
+        return max.get();
+    }
+}
@@ -0,0 +1,124 @@
+package smartparking.batch;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One line of a workload file, parsed. Format (fields separated by blanks, # starts a comment):
+ * <pre>
+ *   [@offsetMs] make &lt;userId&gt; &lt;slotId&gt; &lt;start&gt; &lt;hours&gt; [method=PayPal] [key=idempotencyKey] [as=name]
+ *   [@offsetMs] cancel &lt;reservationId | $name&gt;
+ *   [@offsetMs] list available [slotType]
+ *   [@offsetMs] list user &lt;userId&gt;
+ *   [@offsetMs] list all
+ * </pre>
+ * offsetMs is the time of the operation in the recording, from its start. start is "now", "now+2h",
+ * "now+30m" (relative to when the operation runs) or an ISO date-time. A make with as=name can be
+ * cancelled later in the file as $name, since the reservation id is only known at run time.
+ * Payment methods match the registered names ignoring case and blanks (CreditCard = "Credit Card").
+ */
+public record WorkloadOperation(long offsetMillis, Type type, String[] args, Map<String, String> options, int line) {
+
+    public enum Type { MAKE, CANCEL, LIST_AVAILABLE, LIST_USER, LIST_ALL }
+
+    /** Parsed operation, or null for a blank or comment line; throws IllegalArgumentException if malformed. */
+    public static WorkloadOperation parse(String text, int line) {
+        int hash = text.indexOf('#');
+        if (hash >= 0) text = text.substring(0, hash);
+        text = text.trim();
+        if (text.isEmpty()) return null;
+        String[] words = text.split("\\s+");
+        int i = 0;
+        long offset = -1;
+        if (words[0].startsWith("@")) {
+            try {
+                offset = Long.parseLong(words[0].substring(1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("line " + line + ": bad offset '" + words[0] + "'");
+            }
+            if (offset < 0) throw new IllegalArgumentException("line " + line + ": negative offset");
+            i++;
+        }
+        if (i >= words.length) throw new IllegalArgumentException("line " + line + ": missing operation");
+        String verb = words[i++].toLowerCase(Locale.ROOT);
+        Map<String, String> options = new HashMap<>();
+        List<String> args = new ArrayList<>();
+        for (; i < words.length; i++) {
+            int eq = words[i].indexOf('=');
+            if (eq > 0) options.put(words[i].substring(0, eq).toLowerCase(Locale.ROOT), words[i].substring(eq + 1));
+            else args.add(words[i]);
+        }
+        Type type = switch (verb) {
+            case "make" -> Type.MAKE;
+            case "cancel" -> Type.CANCEL;
+            case "list" -> {
+                String what = args.isEmpty() ? "" : args.remove(0).toLowerCase(Locale.ROOT);
+                yield switch (what) {
+                    case "available" -> Type.LIST_AVAILABLE;
+                    case "user" -> Type.LIST_USER;
+                    case "all" -> Type.LIST_ALL;
+                    default -> throw new IllegalArgumentException("line " + line + ": list what? (available, user, all)");
+                };
+            }
+            default -> throw new IllegalArgumentException("line " + line + ": unknown operation '" + verb + "'");
+        };
+        int required = switch (type) {
+            case MAKE -> 4;
+            case CANCEL, LIST_USER -> 1;
+            default -> 0;
+        };
+        if (args.size() < required) {
+            throw new IllegalArgumentException("line " + line + ": " + verb + " needs " + required + " argument(s)");
+        }
+        WorkloadOperation op = new WorkloadOperation(offset, type, args.toArray(new String[0]), options, line);
+        if (type == Type.MAKE) {
+            op.startTime();   // validate now rather than on a worker thread
+            op.hours();
+        }
+        return op;
+    }
+
+    public String arg(int index) {
+        return index < args.length ? args[index] : null;
+    }
+
+    public String option(String name) {
+        return options.get(name);
+    }
+
+    /** Start time of a make, resolved now (relative forms) or as written. */
+    public LocalDateTime startTime() {
+        String value = args[2].toLowerCase(Locale.ROOT);
+        if (value.equals("now")) return LocalDateTime.now();
+        if (value.startsWith("now+") && value.length() > 5) {
+            char unit = value.charAt(value.length() - 1);
+            try {
+                long amount = Long.parseLong(value.substring(4, value.length() - 1));
+                if (unit == 'h') return LocalDateTime.now().plus(Duration.ofHours(amount));
+                if (unit == 'm') return LocalDateTime.now().plus(Duration.ofMinutes(amount));
+            } catch (NumberFormatException ignored) { }
+            throw new IllegalArgumentException("line " + line + ": bad start '" + args[2] + "' (now+2h, now+30m)");
+        }
+        try {
+            return LocalDateTime.parse(args[2]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("line " + line + ": bad start '" + args[2] + "'");
+        }
+    }
+
+    public int hours() {
+        try {
+            int hours = Integer.parseInt(args[3]);
+            if (hours < 1) throw new NumberFormatException();
+            return hours;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("line " + line + ": bad hours '" + args[3] + "'");
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package smartparking.batch;
+
+import smartparking.command.CommandResult;
+import smartparking.facade.BookingFacade;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+import smartparking.model.User;
+import smartparking.persistence.AvailabilityCache;
+import smartparking.persistence.DataCodec;
+import smartparking.persistence.FilePersistentManager;
+import smartparking.persistence.InMemoryPersistentManager;
+import smartparking.persistence.PersistentManager;
+import smartparking.persistence.ShardedPersistentManager;
+import smartparking.service.MakeReservationService;
+import smartparking.service.SnowflakeIdGenerator;
+import smartparking.strategy.DefaultPaymentStrategyRegistry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Non-interactive booking runner: replays a workload file (see WorkloadOperation for the format)
+ * through BookingFacade and prints throughput and per-operation latency percentiles. The file is
+ * streamed line by line; at most 4 x threads operations are queued, so memory stays flat however
+ * long the workload is. For the same reason only the last 10,000 as= names are remembered: a cancel
+ * of an older $name fails like a cancel of a name that was never made.
+ *
+ * The store is a copy: the data directory (--data, default data) is loaded into a fresh backend in a
+ * temporary directory, so runs never touch the real data files and backends can be compared on the
+ * same data. --extra-users and --extra-slots add synthetic users (LOAD-U1..) and a lot of Standard
+ * slots (LOAD-S1..) for workloads larger than the seed data.
+ *
+ * Pacing: with --rate N operations start at N per second (open loop); otherwise lines with an @offset
+ * start at their recorded time, divided by --speed (0 ignores offsets); otherwise as fast as the
+ * threads go. Latency is measured from the scheduled start when paced, so a backend that falls
+ * behind shows it in the percentiles.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.batch.WorkloadRunner -Dexec.args="workload.txt [options]"
+ *   --threads N  --rate OPS  --speed X  --backend memory|file|sharded  --groupCommitMs N  --shards N
+ *   --compression gzip  --data DIR  --extra-users N  --extra-slots N  --keep
+ * Generate a synthetic workload (make / cancel / list mix over the same seed):
+ *   -Dexec.args="--generate workload.txt COUNT [--rate OPS] [--extra-users N] [--extra-slots N]"
+ */
+public class WorkloadRunner {
+
+    private static final long REFERENCE_TIMEOUT_SECONDS = 30;
+    private static final int REFERENCE_WINDOW = 10_000;
+
+    private final Map<String, String> options;
+    private final Map<WorkloadOperation.Type, Stats> stats = new EnumMap<>(WorkloadOperation.Type.class);
+    private final Map<String, CompletableFuture<String>> references = new ConcurrentHashMap<>();
+    private final ArrayDeque<Map.Entry<String, CompletableFuture<String>>> referenceOrder = new ArrayDeque<>();   // reader thread only
+    private final AtomicInteger errorsShown = new AtomicInteger();
+    private BookingFacade facade;
+    private List<String> paymentMethods;
+
+    /** Counters and latency of one operation type. */
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private WorkloadRunner(Map<String, String> options) {
+        this.options = options;
+        for (WorkloadOperation.Type type : WorkloadOperation.Type.values()) stats.put(type, new Stats());
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                positional.add(args[i]);
+                continue;
+            }
+            String name = args[i].substring(2);
+            boolean flag = name.equals("keep") || name.equals("generate");
+            options.put(name, flag ? "true" : (i + 1 < args.length ? args[++i] : ""));
+        }
+        if (positional.isEmpty()) {
+            System.err.println("Usage: WorkloadRunner <workload-file> [options]   or   --generate <file> <count> [options]");
+            System.exit(2);
+        }
+        WorkloadRunner runner = new WorkloadRunner(options);
+        if (options.containsKey("generate")) {
+            long count = positional.size() > 1 ? Long.parseLong(positional.get(1)) : 10_000;
+            runner.generate(Paths.get(positional.get(0)), count);
+        } else {
+            runner.run(Paths.get(positional.get(0)));
+        }
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    private double doubleOption(String name, double defaultValue) {
+        String value = options.get(name);
+        return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+    }
+
+    // ---- backend ---------------------------------------------------------------------------------
+
+    private DataCodec codec() {
+        return DataCodec.of(options.getOrDefault("compression", System.getProperty("smartparking.compression")));
+    }
+
+    private PersistentManager openBackend(String backend, Path dir) {
+        return switch (backend) {
+            case "memory" -> new InMemoryPersistentManager();
+            case "file" -> new FilePersistentManager(dir.toString(), intOption("groupCommitMs", -1), 512, codec());
+            case "sharded" -> ShardedPersistentManager.onDirectories(dir, intOption("shards", 4), codec());
+            default -> throw new IllegalArgumentException("Unknown backend '" + backend + "' (memory, file, sharded)");
+        };
+    }
+
+    /**
+     * Copy the data directory's users, lots, reservations and payments into target, plus the synthetic
+     * extras. The files are read from a scratch copy: opening a directory with another codec converts
+     * its files, and the real data files must stay as they are.
+     */
+    private void seed(PersistentManager target) throws IOException {
+        Path data = Paths.get(options.getOrDefault("data", "data"));
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        if (Files.isDirectory(data)) {
+            Path copy = copyDataFiles(data);
+            try (FilePersistentManager source = new FilePersistentManager(copy.toString(), -1, 0,
+                    DataCodec.of(System.getProperty("smartparking.compression")))) {
+                for (ParkingLot lot : source.findAllParkingLots()) target.saveParkingLot(lot);
+                for (User user : source.findAllUsers()) target.saveUser(user);
+                if (target instanceof FilePersistentManager file) {
+                    // one batch per group commit instead of a wait per record
+                    for (Reservation r : source.findAllReservations()) pending.add(file.saveReservationAsync(r));
+                    for (Payment p : source.findAllPayments()) pending.add(file.savePaymentAsync(p));
+                } else {
+                    for (Reservation r : source.findAllReservations()) target.saveReservation(r);
+                    for (Payment p : source.findAllPayments()) target.savePayment(p);
+                }
+            } finally {
+                deleteRecursively(copy);
+            }
+        }
+        int extraUsers = intOption("extra-users", 0);
+        for (int i = 1; i <= extraUsers; i++) {
+            target.saveUser(new User("LOAD-U" + i, "Load User " + i, "load" + i + "@example.com", "0", "x"));
+        }
+        int extraSlots = intOption("extra-slots", 0);
+        if (extraSlots > 0) {
+            ParkingLot lot = new ParkingLot("LOAD-L1", "Load Test Lot", "1 Replay Road");
+            for (int i = 1; i <= extraSlots; i++) {
+                lot.getSlots().add(new ParkingSlot("LOAD-S" + i, "L-" + i, "Standard", new BigDecimal("5.00")));
+            }
+            target.saveParkingLot(lot);
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    // ---- replay ----------------------------------------------------------------------------------
+
+    private void run(Path workload) throws Exception {
+        String backend = options.getOrDefault("backend", "file").toLowerCase(Locale.ROOT);
+        int threads = intOption("threads", 4);
+        double rate = doubleOption("rate", 0);
+        double speed = doubleOption("speed", 1);
+        Path dir = Files.createTempDirectory("workload-" + backend);
+        PersistentManager store = openBackend(backend, dir);
+        try {
+            long seedStart = System.nanoTime();
+            seed(store);
+            AvailabilityCache cache = new AvailabilityCache(store);
+            MakeReservationService service = new MakeReservationService(cache,
+                    new DefaultPaymentStrategyRegistry(store.getDefaultPaymentGateway().orElseThrow()),
+                    new SnowflakeIdGenerator(), cache);
+            facade = new BookingFacade(cache, service);
+            paymentMethods = facade.getPaymentMethodNames();
+            System.out.printf("backend=%s threads=%d pacing=%s, seeded %d users and %d slots in %d ms (%s)%n",
+                    backend, threads, rate > 0 ? rate + " ops/s" : speed > 0 ? "recorded x" + speed : "none",
+                    store.findAllUsers().size(), store.findAllParkingLots().stream().mapToInt(l -> l.getSlots().size()).sum(),
+                    (System.nanoTime() - seedStart) / 1_000_000, dir);
+
+            ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "workload-worker");
+                t.setDaemon(true);
+                return t;
+            });
+            Semaphore queued = new Semaphore(threads * 4);
+            long parseErrors = 0;
+            long submitted = 0;
+            long start = System.nanoTime();
+            try (BufferedReader in = Files.newBufferedReader(workload)) {
+                String text;
+                int line = 0;
+                while ((text = in.readLine()) != null) {
+                    line++;
+                    WorkloadOperation op;
+                    try {
+                        op = WorkloadOperation.parse(text, line);
+                    } catch (IllegalArgumentException e) {
+                        if (parseErrors++ < 10) System.err.println("Skipped " + e.getMessage());
+                        continue;
+                    }
+                    if (op == null) continue;
+                    long due = rate > 0 ? (long) (submitted * 1e9 / rate)
+                            : speed > 0 && op.offsetMillis() >= 0 ? (long) (op.offsetMillis() * 1e6 / speed) : -1;
+                    if (due >= 0) {
+                        long wait = start + due - System.nanoTime();
+                        if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    CompletableFuture<String> reference = null;
+                    if (op.type() == WorkloadOperation.Type.MAKE && op.option("as") != null) {
+                        reference = remember(op.option("as"));
+                    }
+                    queued.acquire();
+                    long scheduled = due >= 0 ? start + due : -1;
+                    CompletableFuture<String> madeAs = reference;
+                    workers.execute(() -> {
+                        try {
+                            execute(op, scheduled, madeAs);
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                    submitted++;
+                }
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            long elapsed = System.nanoTime() - start;
+            printSummary(submitted, parseErrors, elapsed);
+        } finally {
+            if (store instanceof AutoCloseable closeable) closeable.close();
+            if (options.containsKey("keep")) System.out.println("Store kept in " + dir);
+            else deleteRecursively(dir);
+        }
+    }
+
+    /** Register name for a make about to be queued, forgetting the oldest names beyond the window. */
+    private CompletableFuture<String> remember(String name) {
+        CompletableFuture<String> reference = new CompletableFuture<>();
+        references.put(name, reference);
+        referenceOrder.add(Map.entry(name, reference));
+        while (referenceOrder.size() > REFERENCE_WINDOW) {
+            Map.Entry<String, CompletableFuture<String>> oldest = referenceOrder.poll();
+            references.remove(oldest.getKey(), oldest.getValue());   // unless the name was reused since
+        }
+        return reference;
+    }
+
+    /** @param reference completed with the reservation id when op is a make with as=; otherwise null */
+    private void execute(WorkloadOperation op, long scheduled, CompletableFuture<String> reference) {
+        Stats s = stats.get(op.type());
+        long begin = scheduled >= 0 ? scheduled : System.nanoTime();
+        try {
+            boolean ok = switch (op.type()) {
+                case MAKE -> make(op, reference);
+                case CANCEL -> cancel(op);
+                case LIST_AVAILABLE -> {
+                    String type = op.arg(0);
+                    yield (type == null ? facade.getAvailableSlots() : facade.getAvailableSlotsByType(type)) != null;
+                }
+                case LIST_USER -> facade.getReservationsByUser(op.arg(0)) != null;
+                case LIST_ALL -> facade.getAllReservations() != null;
+            };
+            (ok ? s.ok : s.failed).increment();
+        } catch (RuntimeException e) {
+            s.errors.increment();
+            if (errorsShown.getAndIncrement() < 10) System.err.println("line " + op.line() + ": " + e);
+        } finally {
+            s.latency.recordNanos(System.nanoTime() - begin);
+        }
+    }
+
+    private boolean make(WorkloadOperation op, CompletableFuture<String> reference) {
+        String reservationId = null;
+        try {
+            LocalDateTime startTime = op.startTime();
+            String method = paymentMethod(op.option("method"));
+            String key = op.option("key");
+            CommandResult result = key != null
+                    ? facade.makeReservation(op.arg(0), op.arg(1), startTime, startTime.plusHours(op.hours()), method, key)
+                    : facade.makeReservation(op.arg(0), op.arg(1), startTime, startTime.plusHours(op.hours()), method);
+            if (result.isSuccess() && result.getReservation() != null) reservationId = result.getReservation().getReservationId();
+            return result.isSuccess();
+        } finally {
+            if (reference != null) reference.complete(reservationId);
+        }
+    }
+
+    private boolean cancel(WorkloadOperation op) {
+        String target = op.arg(0);
+        if (target.startsWith("$")) {
+            CompletableFuture<String> reference = references.remove(target.substring(1));
+            if (reference == null) return false;   // no such make earlier in the file
+            try {
+                target = reference.get(REFERENCE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("make for " + op.arg(0) + " did not finish", e);
+            }
+            if (target == null) return false;   // that make failed
+        }
+        return facade.cancelReservation(target).isSuccess();
+    }
+
+    /** Registered method matching name ignoring case and blanks; the first registered one if name is null. */
+    private String paymentMethod(String name) {
+        if (name == null) return paymentMethods.isEmpty() ? "Credit Card" : paymentMethods.get(0);
+        String wanted = name.replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+        for (String method : paymentMethods) {
+            if (method.replaceAll("\\s", "").toLowerCase(Locale.ROOT).equals(wanted)) return method;
+        }
+        return name;
+    }
+
+    private void printSummary(long submitted, long parseErrors, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d operations in %.2f s: %.0f ops/s%s%n", submitted, seconds, submitted / seconds,
+                parseErrors > 0 ? " (" + parseErrors + " malformed lines skipped)" : "");
+        System.out.printf("%-15s %9s %9s %9s %9s %10s %10s %10s %10s%n",
+                "operation", "count", "ok", "failed", "errors", "p50 (ms)", "p90 (ms)", "p99 (ms)", "max (ms)");
+        for (Map.Entry<WorkloadOperation.Type, Stats> e : stats.entrySet()) {
+            Stats s = e.getValue();
+            long count = s.latency.count();
+            if (count == 0) continue;
+            System.out.printf("%-15s %9d %9d %9d %9d %10.2f %10.2f %10.2f %10.2f%n",
+                    e.getKey().name().toLowerCase(Locale.ROOT), count, s.ok.sum(), s.failed.sum(), s.errors.sum(),
+                    s.latency.percentileMicros(0.50) / 1000.0, s.latency.percentileMicros(0.90) / 1000.0,
+                    s.latency.percentileMicros(0.99) / 1000.0, s.latency.maxMicros() / 1000.0);
+        }
+    }
+
+    // ---- generator -------------------------------------------------------------------------------
+
+    /**
+     * Write a synthetic workload over the seed data: about 35% bookings (each named), 15% cancellations
+     * of one of the oldest open bookings (so slots keep freeing up), 30% availability listings and 20%
+     * reservation listings, with @offsets at --rate (default 100) operations per second. At most 1,000
+     * bookings are kept open for cancelling; older ones stay booked, so every $name is well inside the
+     * runner's reference window.
+     */
+    private void generate(Path file, long count) throws IOException {
+        InMemoryPersistentManager seedView = new InMemoryPersistentManager();
+        seed(seedView);
+        List<String> users = seedView.findAllUsers().stream().map(User::getUserId).sorted().toList();
+        List<String> slots = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        for (ParkingLot lot : seedView.findAllParkingLots()) {
+            for (ParkingSlot slot : lot.getSlots()) {
+                slots.add(slot.getSlotId());
+                if (slot.getSlotType() != null && !types.contains(slot.getSlotType())) types.add(slot.getSlotType());
+            }
+        }
+        if (users.isEmpty() || slots.isEmpty()) throw new IllegalStateException("No users or slots to book (try --extra-users/--extra-slots)");
+        double rate = doubleOption("rate", 100);
+        Random random = new Random(intOption("seed", 42));
+        List<String> open = new ArrayList<>();
+        long made = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("# generated: " + count + " operations at " + rate + " ops/s over " + users.size()
+                    + " users and " + slots.size() + " slots\n");
+            for (long i = 0; i < count; i++) {
+                long offset = (long) (i * 1000 / rate);
+                String user = users.get(random.nextInt(users.size()));
+                int dice = random.nextInt(100);
+                String op;
+                if (dice < 35 || (dice < 50 && open.isEmpty())) {
+                    String name = "r" + (++made);
+                    open.add(name);
+                    if (open.size() > REFERENCE_WINDOW / 10) open.remove(0);   // left booked; stay well inside the runner's window
+                    op = "make " + user + " " + slots.get(random.nextInt(slots.size())) + " now+" + (1 + random.nextInt(48))
+                            + "h " + (1 + random.nextInt(4)) + (random.nextInt(4) == 0 ? " method=PayPal" : "") + " as=" + name;
+                } else if (dice < 50) {
+                    op = "cancel $" + open.remove(random.nextInt(Math.min(open.size(), 8)));
+                } else if (dice < 80) {
+                    op = random.nextBoolean() ? "list available" : "list available " + types.get(random.nextInt(types.size()));
+                } else {
+                    op = random.nextInt(10) == 0 ? "list all" : "list user " + user;
+                }
+                out.write("@" + offset + " " + op + "\n");
+            }
+        }
+        System.out.println("Wrote " + count + " operations to " + file);
+    }
+
+    /** The top-level files of a data directory (data files, checksums, backups) copied to a temporary directory. */
+    private static Path copyDataFiles(Path data) throws IOException {
+        Path copy = Files.createTempDirectory("workload-seed");
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(data)) {
+            files = listing.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) Files.copy(file, copy.resolve(file.getFileName()));
+        return copy;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    // temp directory; leave it
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package smartparking.bench;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.PaymentGateway;
+import smartparking.model.User;
+import smartparking.persistence.InMemoryPersistentManager;
+import smartparking.persistence.PersistentManager;
+import smartparking.service.MakeReservationService;
+import smartparking.service.MakeReservationService.MakeReservationResult;
+import smartparking.strategy.DefaultPaymentStrategyRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Measures steady-state heap allocation per MakeReservationService.makeReservation call.
+ * Uses the in-memory store so the figure reflects the booking path, not JSON file I/O.
+ * Allocation is read from the JVM's per-thread allocation counter (HotSpot ThreadMXBean).
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.BookingAllocationBenchmark
+ */
+public class BookingAllocationBenchmark {
+
+    private static final int SLOTS = 1_000;
+
+    public static void main(String[] args) {
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int measured = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        PersistentManager persistence = new InMemoryPersistentManager();
+        persistence.saveUser(new User("U001", "Bench", "bench@example.com", "0", "x"));
+        ParkingLot lot = new ParkingLot("L001", "Bench Lot", "1 Bench St");
+        for (int i = 0; i < SLOTS; i++) {
+            lot.getSlots().add(new ParkingSlot("S" + i, "B-" + i, "Standard", new BigDecimal("5.00")));
+        }
+        persistence.saveParkingLot(lot);
+        PaymentGateway gateway = persistence.getDefaultPaymentGateway().orElseThrow();
+        MakeReservationService service = new MakeReservationService(persistence, new DefaultPaymentStrategyRegistry(gateway));
+
+        String[] slotIds = new String[SLOTS];
+        for (int i = 0; i < SLOTS; i++) slotIds[i] = lot.getSlots().get(i).getSlotId();
+        LocalDateTime start = LocalDateTime.now();
+        LocalDateTime end = start.plusHours(2);
+
+        run(service, lot, slotIds, start, end, warmup);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long t0 = System.nanoTime();
+        run(service, lot, slotIds, start, end, measured);
+        long elapsed = System.nanoTime() - t0;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        System.out.printf("bookings=%d  bytes/booking=%d  ns/booking=%d%n",
+                measured, allocated / measured, elapsed / measured);
+    }
+
+    private static void run(MakeReservationService service, ParkingLot lot, String[] slotIds,
+                            LocalDateTime start, LocalDateTime end, int count) {
+        for (int i = 0; i < count; i++) {
+            String slotId = slotIds[i % slotIds.length];
+            lot.getSlotById(slotId).release();
+            MakeReservationResult result = service.makeReservation("U001", slotId, start, end, "Credit Card");
+            if (!result.isSuccess()) {
+                throw new IllegalStateException("Booking failed: " + result.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package smartparking.bench;
+
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+import smartparking.persistence.DataCodec;
+import smartparking.persistence.FilePersistentManager;
+import smartparking.reporting.ParallelReportAggregator;
+import smartparking.reporting.ReportGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Plain versus gzip-compressed data files: disk footprint of the data directory (data files only,
+ * and with checksum sidecars and backups), the time to rewrite the reservations file on a save and to
+ * read it back (verify, decompress, parse), and the size of the three text reports. Each codec runs
+ * in a fresh temporary directory holding the same generated reservations and payments.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.CompressionBenchmark [-Dexec.args="reservations rounds"]
+ */
+public class CompressionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int reservations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.out.printf("%d reservations + %d payments, %d rounds%n", reservations, reservations, rounds);
+        System.out.printf("%-6s %12s %14s %12s %12s %12s %12s%n",
+                "codec", "data files", "+crc/backups", "save (ms)", "read (ms)", "read rec/s", "reports");
+        for (DataCodec codec : DataCodec.values()) {
+            run(codec, reservations, rounds);
+        }
+    }
+
+    private static void run(DataCodec codec, int count, int rounds) throws Exception {
+        Path dir = Files.createTempDirectory("compression-bench");
+        try {
+            try (FilePersistentManager loader = new FilePersistentManager(dir.toString(), 50, 1 << 20, codec)) {
+                LocalDateTime start = LocalDateTime.of(2026, 1, 1, 8, 0);
+                for (int i = 0; i < count; i++) {
+                    Reservation r = reservation(i, start.plusMinutes(17L * i));
+                    loader.saveReservationAsync(r);
+                    loader.savePaymentAsync(payment(i, r));
+                }
+            }
+
+            FilePersistentManager store = new FilePersistentManager(dir.toString(), -1, 0, codec);
+            store.findAllReservations();   // warm-up
+            long readNanos = 0;
+            for (int i = 0; i < rounds; i++) {
+                long t0 = System.nanoTime();
+                store.findAllReservations();
+                readNanos += System.nanoTime() - t0;
+            }
+            long saveNanos = 0;
+            for (int i = 0; i < rounds; i++) {
+                Reservation r = reservation(count + i, LocalDateTime.of(2026, 6, 1, 8, 0));
+                long t0 = System.nanoTime();
+                store.saveReservation(r);   // read-modify-write of the whole file
+                saveNanos += System.nanoTime() - t0;
+            }
+
+            long dataBytes = 0;
+            long allBytes = 0;
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    long size = Files.size(f);
+                    allBytes += size;
+                    if (f.getFileName().toString().endsWith(codec.fileName(".json"))) dataBytes += size;
+                }
+            }
+
+            Path reports = dir.resolve("reports");
+            ReportGenerator generator = new ReportGenerator(store, new ParallelReportAggregator(), codec, reports);
+            long reportBytes = Files.size(generator.generateSummaryReport())
+                    + Files.size(generator.generateReservationsReport())
+                    + Files.size(generator.generateAggregateReport());
+
+            double readMs = readNanos / 1e6 / rounds;
+            System.out.printf("%-6s %9.1f MB %11.1f MB %12.1f %12.1f %12.0f %9.1f MB%n", codec, dataBytes / 1e6, allBytes / 1e6,
+                    saveNanos / 1e6 / rounds, readMs, (count + rounds) / (readMs / 1000), reportBytes / 1e6);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Reservation reservation(int i, LocalDateTime start) {
+        Reservation r = new Reservation();
+        r.setReservationId(String.format("RES-%08x", i * 2654435761L & 0xffffffffL));
+        r.setUserId("U" + (i % 500));
+        r.setSlotId("S" + (i % 2000));
+        r.setStartTime(start);
+        r.setEndTime(start.plusHours(1 + i % 4));
+        r.setReservationStatus(i % 7 == 0 ? Reservation.STATUS_CANCELLED : Reservation.STATUS_CONFIRMED);
+        r.setTotalCost(new BigDecimal(5 * (1 + i % 4) + ".00"));
+        return r;
+    }
+
+    private static Payment payment(int i, Reservation r) {
+        Payment p = new Payment();
+        p.setPaymentId(String.format("PAY-%08x", i * 40503L & 0xffffffffL));
+        p.setReservationId(r.getReservationId());
+        p.setPaymentMethod(i % 3 == 0 ? "PayPal" : "Credit Card");
+        p.setPaymentStatus(i % 7 == 0 ? Payment.STATUS_REFUNDED : Payment.STATUS_SUCCESS);
+        p.setAmount(r.getTotalCost());
+        p.setPaymentTime(r.getStartTime().minusMinutes(30));
+        return p;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    // temp directory; leave it
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package smartparking.bench;
+
+import smartparking.gateway.FaultInjectingPaymentGateway;
+import smartparking.gateway.GatewayPool;
+import smartparking.gateway.RoutingPaymentGateway;
+import smartparking.model.PaymentGateway;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GatewayPool routing over three fault-injecting gateways with different latency and fees. Runs
+ * three phases (all healthy, cheapest gateway degraded, cheapest gateway recovered) and prints each
+ * gateway's share of the phase's traffic and its live averages, plus the cost of a routing decision.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.GatewayRoutingBenchmark [-Dexec.args="paymentsPerPhase"]
+ */
+public class GatewayRoutingBenchmark {
+
+    private static final int CALLERS = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        int payments = args.length > 0 ? Integer.parseInt(args[0]) : 1_500;
+
+        FaultInjectingPaymentGateway cheap = gateway("CHEAP", 1, "0.20").latency(8, 4);
+        FaultInjectingPaymentGateway fast = gateway("FAST", 2, "0.35").latency(2, 2);
+        FaultInjectingPaymentGateway slow = gateway("SLOW", 3, "0.25").latency(60, 20);
+        GatewayPool pool = new GatewayPool(List.of(cheap, fast, slow));
+        RoutingPaymentGateway router = new RoutingPaymentGateway(pool);
+
+        phase("all healthy", router, pool, payments);
+        cheap.latency(150, 50).errorRate(0.2);
+        phase("CHEAP degraded (150 ms, 20% errors)", router, pool, payments);
+        cheap.latency(8, 4).errorRate(0.0);
+        phase("CHEAP recovered", router, pool, payments);
+
+        int selects = 10_000_000;
+        long start = System.nanoTime();
+        int sink = 0;
+        for (int i = 0; i < selects; i++) sink += pool.select().getGateway().getGatewayId().length();
+        System.out.printf("%nselect(): %.1f ns per routing decision (%d)%n", (System.nanoTime() - start) / (double) selects, sink % 10);
+    }
+
+    private static FaultInjectingPaymentGateway gateway(String id, long seed, String fee) {
+        FaultInjectingPaymentGateway g = new FaultInjectingPaymentGateway(id, seed);
+        g.setTransactionFee(new BigDecimal(fee));
+        return g;
+    }
+
+    private static void phase(String name, RoutingPaymentGateway router, GatewayPool pool, int payments) throws InterruptedException {
+        long[] before = pool.getMembers().stream().mapToLong(GatewayPool.Member::getTransactions).toArray();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        for (int i = 0; i < payments; i++) {
+            callers.execute(() -> {
+                try {
+                    router.processTransaction(10.0);
+                } catch (RuntimeException e) {
+                    // injected error; already recorded by the pool
+                }
+            });
+        }
+        callers.shutdown();
+        callers.awaitTermination(10, TimeUnit.MINUTES);
+
+        System.out.printf("%n%s (best now %s)%n", name, pool.getBest().getGateway().getGatewayId());
+        List<GatewayPool.Member> members = pool.getMembers();
+        for (int i = 0; i < members.size(); i++) {
+            GatewayPool.Member m = members.get(i);
+            PaymentGateway g = m.getGateway();
+            System.out.printf("  %-6s share=%5.1f%%  score=%.3f  %s%n", g.getGatewayId(),
+                    100.0 * (m.getTransactions() - before[i]) / payments, pool.score(m), m);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package smartparking.bench;
+
+import smartparking.model.Reservation;
+import smartparking.persistence.FilePersistentManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reservation save throughput of FilePersistentManager with synchronous writes versus group commit,
+ * from several concurrent threads, each in a fresh temporary data directory. Also reports how many
+ * reservations actually ended up in the file (synchronous read-modify-write from concurrent
+ * threads can lose updates) and, for group commit, the average batch size.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.GroupCommitBenchmark [-Dexec.args="saves threads"]
+ */
+public class GroupCommitBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int saves = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        run("synchronous", saves, threads, -1, false);
+        run("group commit (5 ms), blocking saves", saves, threads, 5, false);
+        run("group commit (5 ms), async saves", saves, threads, 5, true);
+    }
+
+    private static void run(String name, int saves, int threads, long flushMillis, boolean async) throws Exception {
+        Path dir = Files.createTempDirectory("group-commit-bench");
+        try {
+            FilePersistentManager store = new FilePersistentManager(dir.toString(), flushMillis, 512);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<CompletableFuture<Void>> pending = new ArrayList<>();
+            LocalDateTime start = LocalDateTime.now();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < saves; i++) {
+                Reservation r = new Reservation();
+                r.setReservationId("R" + i);
+                r.setUserId("U" + (i % 100));
+                r.setSlotId("S" + (i % 500));
+                r.setStartTime(start);
+                r.setEndTime(start.plusHours(2));
+                r.setTotalCost(new BigDecimal("10.00"));
+                if (async) {
+                    pending.add(store.saveReservationAsync(r));
+                } else {
+                    pool.execute(() -> store.saveReservation(r));
+                }
+            }
+            pool.shutdown();
+            pool.awaitTermination(30, TimeUnit.MINUTES);
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            long[] stats = store.getGroupCommitStats();
+            store.close();
+
+            int persisted = new FilePersistentManager(dir.toString()).findAllReservations().size();
+            System.out.printf("%-38s %8.0f saves/s  persisted=%d/%d%s%n", name, saves / seconds, persisted, saves,
+                    stats != null ? String.format("  batches=%d (avg %.1f saves)", stats[0], (double) stats[1] / Math.max(1, stats[0])) : "");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                    try {
+                        Files.delete(p);
+                    } catch (IOException e) {
+                        // temp directory; leave it
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package smartparking.bench;
+
+import smartparking.geo.GeoDistance;
+import smartparking.geo.LotSpatialIndex;
+import smartparking.geo.NearbyLot;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.persistence.InMemoryPersistentManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Nearest-lot query latency: LotSpatialIndex versus a scan of every lot, over synthetic lots spread
+ * across a region of about 300 x 300 km. Each lot has a few slots; roughly one in five has an EV slot
+ * and some slots are occupied. Every indexed answer is checked against the scan.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.NearestLotBenchmark [-Dexec.args="lots queries"]
+ */
+public class NearestLotBenchmark {
+
+    private static final double MIN_LAT = 41.0, MAX_LAT = 43.7;
+    private static final double MIN_LON = 11.5, MAX_LON = 15.2;
+    private static final int K = 5;
+
+    public static void main(String[] args) {
+        int lotCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        Random random = new Random(42);
+
+        InMemoryPersistentManager store = new InMemoryPersistentManager();
+        List<ParkingLot> lots = new ArrayList<>(lotCount);
+        for (int i = 0; i < lotCount; i++) {
+            ParkingLot lot = new ParkingLot("L" + i, "Lot " + i, i + " Bench St");
+            lot.setLatitude(MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT));
+            lot.setLongitude(MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON));
+            int slots = 2 + random.nextInt(4);
+            for (int s = 0; s < slots; s++) {
+                String type = s == 0 && random.nextInt(5) == 0 ? "EV" : "Standard";
+                ParkingSlot slot = new ParkingSlot(i + "-" + s, "S" + s, type, new BigDecimal("5.00"));
+                if (random.nextInt(3) == 0) slot.reserve();
+                lot.getSlots().add(slot);
+            }
+            store.saveParkingLot(lot);
+            lots.add(lot);
+        }
+
+        long t0 = System.nanoTime();
+        LotSpatialIndex index = new LotSpatialIndex(store);
+        long buildMillis = (System.nanoTime() - t0) / 1_000_000;
+
+        double[][] points = new double[queries][2];
+        for (int q = 0; q < queries; q++) {
+            points[q][0] = MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT);
+            points[q][1] = MIN_LON + random.nextDouble() * (MAX_LON - MIN_LON);
+        }
+
+        // warm up both paths, checking the index against the scan
+        for (int q = 0; q < queries; q++) {
+            List<NearbyLot> expected = scan(lots, points[q][0], points[q][1], "EV");
+            List<NearbyLot> actual = index.findNearest(points[q][0], points[q][1], "EV", K);
+            for (int i = 0; i < K; i++) {
+                if (!expected.get(i).getLotId().equals(actual.get(i).getLotId())) {
+                    throw new IllegalStateException("Mismatch at query " + q + ": " + expected + " vs " + actual);
+                }
+            }
+        }
+
+        long indexNanos = time(() -> {
+            for (double[] p : points) index.findNearest(p[0], p[1], "EV", K);
+        });
+        long scanNanos = time(() -> {
+            for (double[] p : points) scan(lots, p[0], p[1], "EV");
+        });
+
+        System.out.printf("lots=%d  indexed=%d  build=%d ms%n", lotCount, index.size(), buildMillis);
+        System.out.printf("k=%d EV   index: %.1f us/query   scan: %.1f us/query   (%d queries, results verified)%n",
+                K, indexNanos / 1e3 / queries, scanNanos / 1e3 / queries, queries);
+    }
+
+    private static List<NearbyLot> scan(List<ParkingLot> lots, double lat, double lon, String type) {
+        List<NearbyLot> result = new ArrayList<>();
+        for (ParkingLot lot : lots) {
+            int available = 0;
+            for (ParkingSlot s : lot.getSlots()) {
+                if (s.isAvailable() && type.equalsIgnoreCase(s.getSlotType())) available++;
+            }
+            if (available == 0) continue;
+            double d = GeoDistance.meters(lat, lon, lot.getLatitude(), lot.getLongitude());
+            result.add(new NearbyLot(lot.getLotId(), lot.getName(), lot.getAddress(), lot.getLatitude(), lot.getLongitude(), d, available));
+        }
+        result.sort((a, b) -> Double.compare(a.getDistanceMeters(), b.getDistanceMeters()));
+        return result.subList(0, Math.min(K, result.size()));
+    }
+
+    private static long time(Runnable r) {
+        long t0 = System.nanoTime();
+        r.run();
+        return System.nanoTime() - t0;
+    }
+}
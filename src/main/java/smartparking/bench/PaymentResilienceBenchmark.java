@@ -0,0 +1,78 @@
+package smartparking.bench;
+
+import smartparking.gateway.FaultInjectingPaymentGateway;
+import smartparking.gateway.ResilientPaymentGateway;
+import smartparking.model.PaymentGateway;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ResilientPaymentGateway against local fault-injecting gateways. Each scenario sends the same
+ * number of payments from a few concurrent callers and prints end-to-end metrics (approvals,
+ * timeouts, hedges, late approvals, p50/p99) and per-gateway metrics (calls, errors, breaker state).
+ * The stubs deduplicate by idempotency key, so the hedged scenario charges each payment once;
+ * "charged" counts the approvals the stubs actually took.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.PaymentResilienceBenchmark [-Dexec.args="payments"]
+ */
+public class PaymentResilienceBenchmark {
+
+    private static final int CALLERS = 8;
+    private static final long TIMEOUT_MILLIS = 300;
+
+    public static void main(String[] args) throws InterruptedException {
+        int payments = args.length > 0 ? Integer.parseInt(args[0]) : 800;
+
+        run("healthy primary", payments, 0,
+                gw("A", 1).latency(5, 5),
+                gw("B", 2).latency(8, 5));
+        run("slow tail (5% at 250 ms), no hedging", payments, 0,
+                gw("A", 3).latency(5, 5).hangRate(0.05, 250),
+                gw("B", 4).latency(8, 5));
+        run("slow tail (5% at 250 ms), hedge after 30 ms", payments, 30,
+                gw("A", 3).latency(5, 5).hangRate(0.05, 250),
+                gw("B", 4).latency(8, 5));
+        run("slow tail past the deadline (5% at 400 ms)", payments, 0,
+                gw("A", 5).latency(5, 5).hangRate(0.05, 400),
+                gw("B", 6).latency(8, 5));
+        run("primary failing (60% errors)", payments, 0,
+                gw("A", 7).latency(5, 5).errorRate(0.6),
+                gw("B", 8).latency(8, 5));
+        run("primary hanging, single gateway", payments / 8, 0,
+                gw("A", 9).latency(5, 0).hangRate(1.0, 2_000));
+    }
+
+    private static FaultInjectingPaymentGateway gw(String id, long seed) {
+        return new FaultInjectingPaymentGateway(id, seed);
+    }
+
+    private static void run(String name, int payments, long hedgeMillis, FaultInjectingPaymentGateway... gateways)
+            throws InterruptedException {
+        try (ResilientPaymentGateway resilient = new ResilientPaymentGateway(
+                List.<PaymentGateway>of(gateways), TIMEOUT_MILLIS, hedgeMillis, 5, 1_000)) {
+            LongAdder approved = new LongAdder();
+            ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+            long start = System.nanoTime();
+            for (int i = 0; i < payments; i++) {
+                pool.execute(() -> {
+                    if (resilient.processTransaction(10.0)) approved.increment();
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long charged = 0;
+            for (FaultInjectingPaymentGateway g : gateways) charged += g.getCharges();
+            System.out.printf("%n%s: %d/%d approved, %d charged in %.2f s%n", name, approved.sum(), payments, charged, seconds);
+            System.out.println("  total: " + resilient.getMetrics());
+            for (int i = 0; i < gateways.length; i++) {
+                System.out.printf("  %s [%s]: %s%n", gateways[i].getGatewayId(), resilient.getBreakerState(i), resilient.getMetrics(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package smartparking.bench;
+
+import smartparking.model.ParkingLot;
+import smartparking.navigation.RoadGraph;
+import smartparking.navigation.RouteEngine;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route query throughput on a synthetic city: a square street grid (default 300 x 300 nodes, about
+ * 200 m apart, every tenth street an arterial at 70 km/h, others at 30 km/h) with 200 lots.
+ * Measures uncached A* queries, then cached queries from random origins, on all cores.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.RouteBenchmark [-Dexec.args="side queries"]
+ */
+public class RouteBenchmark {
+
+    private static final double SPACING_DEGREES = 0.0018;
+    private static final double LAT0 = 42.30, LON0 = 13.30;
+    private static final int LOTS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Random random = new Random(7);
+
+        long t0 = System.nanoTime();
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                builder.node(r + "_" + c, LAT0 + r * SPACING_DEGREES, LON0 + c * SPACING_DEGREES);
+            }
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) builder.edge(r + "_" + c, r + "_" + (c + 1), r % 10 == 0 ? 70 : 30, -1, false);
+                if (r + 1 < side) builder.edge(r + "_" + c, (r + 1) + "_" + c, c % 10 == 0 ? 70 : 30, -1, false);
+            }
+        }
+        RoadGraph graph = builder.build();
+        System.out.printf("graph: %d nodes, %d edges, built in %d ms%n",
+                graph.nodeCount(), graph.edgeCount(), (System.nanoTime() - t0) / 1_000_000);
+
+        double extent = (side - 1) * SPACING_DEGREES;
+        List<ParkingLot> lots = new ArrayList<>();
+        for (int i = 0; i < LOTS; i++) {
+            ParkingLot lot = new ParkingLot("L" + i, "Lot " + i, i + " Bench St");
+            lot.setLatitude(LAT0 + random.nextDouble() * extent);
+            lot.setLongitude(LON0 + random.nextDouble() * extent);
+            lots.add(lot);
+        }
+        double[][] origins = new double[queries][2];
+        for (int q = 0; q < queries; q++) {
+            origins[q][0] = LAT0 + random.nextDouble() * extent;
+            origins[q][1] = LON0 + random.nextDouble() * extent;
+        }
+
+        RouteEngine uncached = new RouteEngine(graph, 0);
+        int uncachedQueries = Math.min(queries, 2_000);
+        run(uncached, lots, origins, uncachedQueries, threads, "uncached A*");
+
+        RouteEngine cached = new RouteEngine(graph);
+        run(cached, lots, origins, queries, threads, "cache warm-up");
+        run(cached, lots, origins, queries, threads, "cached");
+        System.out.printf("cache: %d hits, %d misses%n", cached.getCacheHits(), cached.getCacheMisses());
+    }
+
+    private static void run(RouteEngine engine, List<ParkingLot> lots, double[][] origins, int queries,
+                            int threads, String label) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            futures.add(pool.submit(() -> {
+                int found = 0;
+                for (int q = first; q < queries; q += threads) {
+                    if (engine.routeToLot(origins[q][0], origins[q][1], lots.get(q % lots.size())).isPresent()) found++;
+                }
+                return found;
+            }));
+        }
+        int found = 0;
+        for (Future<Integer> f : futures) found += f.get();
+        long elapsed = System.nanoTime() - t0;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf("%-14s %6d queries on %d threads: %,.0f queries/s (%d routed)%n",
+                label, queries, threads, queries / (elapsed / 1e9), found);
+    }
+}
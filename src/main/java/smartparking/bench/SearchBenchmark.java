@@ -0,0 +1,112 @@
+package smartparking.bench;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.Reservation;
+import smartparking.model.User;
+import smartparking.search.SearchIndex;
+import smartparking.search.SearchQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * SearchIndex over generated users, lots and reservations: indexing time and heap, then per query
+ * shape the median and 99th-percentile latency and the hit count. Shapes cover an exact id, a user
+ * name, a short (broad) prefix, two words, and facet-only queries.
+ *
+ * Run: mvn -q compile exec:java -Dexec.mainClass=smartparking.bench.SearchBenchmark [-Dexec.args="reservations users rounds"]
+ */
+public class SearchBenchmark {
+
+    private static final String[] FIRST = {"Ali", "Sara", "Omar", "Ayesha", "Bilal", "Hina", "Usman", "Zara", "Hamza", "Fatima",
+            "Imran", "Nadia", "Kamran", "Sana", "Tariq", "Mehwish", "Junaid", "Rabia", "Faisal", "Amna"};
+    private static final String[] LAST = {"Khan", "Ahmed", "Malik", "Sheikh", "Qureshi", "Butt", "Chaudhry", "Raza", "Siddiqui", "Iqbal"};
+    private static final String[] TYPES = {"Standard", "EV", "Handicap", "Compact"};
+
+    public static void main(String[] args) {
+        int reservations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        Random random = new Random(42);
+
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+        long t0 = System.nanoTime();
+        SearchIndex index = new SearchIndex();
+        int lots = 200;
+        for (int l = 0; l < lots; l++) {
+            ParkingLot lot = new ParkingLot(String.format("L%04d", l), "Lot " + LAST[l % LAST.length] + " Plaza " + l,
+                    (l + 1) + " Main Boulevard, Block " + (char) ('A' + l % 26));
+            for (int s = 0; s < 50; s++) {
+                lot.getSlots().add(new ParkingSlot(String.format("S%04d-%02d", l, s), "P" + s, TYPES[s % TYPES.length],
+                        new BigDecimal("5.00")));
+            }
+            index.indexLot(lot);
+        }
+        for (int u = 0; u < users; u++) {
+            User user = new User();
+            user.setUserId(String.format("U%06d", u));
+            String first = FIRST[random.nextInt(FIRST.length)];
+            String last = LAST[random.nextInt(LAST.length)];
+            user.setName(first + " " + last);
+            user.setEmail((first + "." + last + u).toLowerCase() + "@example.com");
+            user.setPhoneNumber(String.format("0300-%07d", random.nextInt(10_000_000)));
+            index.indexUser(user);
+        }
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 8, 0);
+        String sampleId = null;
+        for (int i = 0; i < reservations; i++) {
+            Reservation r = new Reservation();
+            r.setReservationId(String.format("RES-%08x", i * 2654435761L & 0xffffffffL));
+            r.setUserId(String.format("U%06d", random.nextInt(users)));
+            r.setSlotId(String.format("S%04d-%02d", random.nextInt(lots), random.nextInt(50)));
+            r.setStartTime(base.plusMinutes(random.nextInt(365 * 24 * 60)));
+            r.setEndTime(r.getStartTime().plusHours(2));
+            int status = random.nextInt(10);
+            r.setReservationStatus(status < 6 ? Reservation.STATUS_CONFIRMED : status < 8 ? Reservation.STATUS_CANCELLED : Reservation.STATUS_PENDING);
+            index.indexReservation(r);
+            if (i == reservations / 2) sampleId = r.getReservationId();
+        }
+        long buildMs = (System.nanoTime() - t0) / 1_000_000;
+        System.gc();
+        long heapAfter = rt.totalMemory() - rt.freeMemory();
+        System.out.printf("indexed %d documents in %d ms, ~%d MB heap%n", index.size(), buildMs, (heapAfter - heapBefore) >> 20);
+
+        List<Object[]> shapes = new ArrayList<>();
+        String id = sampleId;
+        shapes.add(new Object[] {"exact reservation id", (Supplier<SearchQuery>) () -> SearchQuery.reservations(id)});
+        shapes.add(new Object[] {"user prefix 'junaid qur'", (Supplier<SearchQuery>) () -> SearchQuery.users("junaid qur")});
+        shapes.add(new Object[] {"broad prefix 'a', all kinds", (Supplier<SearchQuery>) () -> SearchQuery.of("a")});
+        shapes.add(new Object[] {"name + lot, active only", (Supplier<SearchQuery>) () ->
+                SearchQuery.reservations("fatima plaza").status(Reservation.STATUS_PENDING, Reservation.STATUS_CONFIRMED)});
+        shapes.add(new Object[] {"facets only: EV on one day", (Supplier<SearchQuery>) () ->
+                SearchQuery.reservations("").slotType("EV").on(LocalDate.of(2026, 3, 14))});
+        shapes.add(new Object[] {"facets only: all pending", (Supplier<SearchQuery>) () ->
+                SearchQuery.reservations("").status(Reservation.STATUS_PENDING)});
+
+        System.out.printf("%-30s %10s %10s %10s%n", "query", "p50 (ms)", "p99 (ms)", "hits");
+        for (Object[] shape : shapes) {
+            @SuppressWarnings("unchecked")
+            Supplier<SearchQuery> query = (Supplier<SearchQuery>) shape[1];
+            for (int i = 0; i < 20; i++) index.search(query.get());   // warm-up
+            long[] nanos = new long[rounds];
+            int hits = 0;
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                hits = index.search(query.get()).totalHits();
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%-30s %10.2f %10.2f %10d%n", shape[0], nanos[rounds / 2] / 1e6,
+                    nanos[Math.min(rounds - 1, (int) (rounds * 0.99))] / 1e6, hits);
+        }
+    }
+}
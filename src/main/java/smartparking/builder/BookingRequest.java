@@ -12,13 +12,21 @@ public class BookingRequest {
     private final LocalDateTime startTime;
     private final LocalDateTime endTime;
     private final String paymentMethod;
+    private final String idempotencyKey;
 
     public BookingRequest(String userId, String slotId, LocalDateTime startTime, LocalDateTime endTime, String paymentMethod) {
+        this(userId, slotId, startTime, endTime, paymentMethod, null);
+    }
+
+    /** @param idempotencyKey client-chosen key reused on retries of the same request; may be null */
+    public BookingRequest(String userId, String slotId, LocalDateTime startTime, LocalDateTime endTime,
+                          String paymentMethod, String idempotencyKey) {
         this.userId = userId;
         this.slotId = slotId;
         this.startTime = startTime;
         this.endTime = endTime;
         this.paymentMethod = paymentMethod;
+        this.idempotencyKey = idempotencyKey;
     }
 
     public String getUserId() { return userId; }
@@ -26,4 +34,5 @@ public class BookingRequest {
     public LocalDateTime getStartTime() { return startTime; }
     public LocalDateTime getEndTime() { return endTime; }
     public String getPaymentMethod() { return paymentMethod; }
+    public String getIdempotencyKey() { return idempotencyKey; }
 }
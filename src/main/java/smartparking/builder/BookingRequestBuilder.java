@@ -13,6 +13,7 @@ public class BookingRequestBuilder {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private String paymentMethod = "Credit Card";
+    private String idempotencyKey;
 
     public BookingRequestBuilder userId(String userId) {
         this.userId = userId;
@@ -39,6 +40,12 @@ public class BookingRequestBuilder {
         return this;
     }
 
+    /** Key that identifies this request across client retries (e.g. a UUID generated once per booking attempt). */
+    public BookingRequestBuilder idempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+        return this;
+    }
+
     /**
      * Build the request. Validates required fields and times.
      * @return built BookingRequest
@@ -57,6 +64,6 @@ public class BookingRequestBuilder {
         if (!endTime.isAfter(startTime)) {
             throw new IllegalStateException("endTime must be after startTime");
         }
-        return new BookingRequest(userId, slotId, startTime, endTime, paymentMethod);
+        return new BookingRequest(userId, slotId, startTime, endTime, paymentMethod, idempotencyKey);
     }
 }
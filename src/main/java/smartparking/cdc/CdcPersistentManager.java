@@ -0,0 +1,121 @@
+package smartparking.cdc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import smartparking.model.ParkingLot;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+import smartparking.model.User;
+import smartparking.persistence.ForwardingPersistentManager;
+import smartparking.persistence.PersistentManager;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Change-data-capture decorator: every save* that succeeds on the delegate is appended to a
+ * ChangeLog, so downstream views (search, caches, analytics) follow the store incrementally instead
+ * of re-reading the data files. Only saves of the same entity are serialized here (a striped lock
+ * on type and id, held across the delegate save and the append), so that entity's events are in
+ * commit order; saves of different entities reach the delegate concurrently and can share a group
+ * commit. The sequence itself is assigned inside ChangeLog.append.
+ */
+public class CdcPersistentManager extends ForwardingPersistentManager implements AutoCloseable {
+
+    private static final int STRIPES = 64;
+
+    private final ChangeLog log;
+    private final ObjectMapper mapper;
+    private final Object[] stripes = new Object[STRIPES];
+
+    public CdcPersistentManager(PersistentManager delegate, ChangeLog log) {
+        super(delegate);
+        this.log = log;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+    }
+
+    public ChangeLog getChangeLog() {
+        return log;
+    }
+
+    @Override
+    public void saveUser(User user) {
+        synchronized (stripeFor(ChangeEvent.USER, user.getUserId())) {
+            super.saveUser(user);
+            append(ChangeEvent.USER, user.getUserId(), user);
+        }
+    }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) {
+        synchronized (stripeFor(ChangeEvent.PARKING_LOT, lot.getLotId())) {
+            super.saveParkingLot(lot);
+            append(ChangeEvent.PARKING_LOT, lot.getLotId(), lot);
+        }
+    }
+
+    @Override
+    public void saveReservation(Reservation reservation) {
+        synchronized (stripeFor(ChangeEvent.RESERVATION, reservation.getReservationId())) {
+            super.saveReservation(reservation);
+            append(ChangeEvent.RESERVATION, reservation.getReservationId(), reservation);
+        }
+    }
+
+    @Override
+    public void savePayment(Payment payment) {
+        synchronized (stripeFor(ChangeEvent.PAYMENT, payment.getPaymentId())) {
+            super.savePayment(payment);
+            append(ChangeEvent.PAYMENT, payment.getPaymentId(), payment);
+        }
+    }
+
+    private Object stripeFor(String type, String id) {
+        return stripes[Math.floorMod(Objects.hash(type, id), STRIPES)];
+    }
+
+    private void append(String type, String id, Object entity) {
+        try {
+            log.append(type, id, mapper.writeValueAsString(entity));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode change", e);
+        }
+    }
+
+    /** Subscribe to the change stream (see ChangeLog.subscribe). */
+    public ChangeSubscription subscribe(String name, long after, Consumer<ChangeEvent> consumer) {
+        return log.subscribe(name, after, consumer);
+    }
+
+    /**
+     * Run bootstrap (typically a full load from this store), then subscribe from the position taken
+     * just before it. Saves are not held off: every change whose event is past that position is
+     * delivered, so nothing the bootstrap missed is lost. Changes that landed while it ran may be
+     * delivered although it already loaded them; events carry full entity state and arrive in order
+     * per entity, so applying them again leaves the consumer on the latest state.
+     */
+    public ChangeSubscription subscribeAfter(Runnable bootstrap, Consumer<ChangeEvent> consumer) {
+        long after = log.getLastSequence();
+        bootstrap.run();
+        return log.subscribe(null, after, consumer);
+    }
+
+    /** The entity carried by an event. */
+    public <T> T decode(ChangeEvent event, Class<T> type) {
+        try {
+            return mapper.readValue(event.getEntityJson(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot decode " + event + " as " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -0,0 +1,47 @@
+package smartparking.cdc;
+
+/**
+ * One entity change captured from a save* call: its position in the change stream, when it was
+ * committed, and the saved entity as JSON (the full new state, not a diff). Serialized as one JSON
+ * line when spilled to disk.
+ */
+public class ChangeEvent {
+
+    public static final String USER = "User";
+    public static final String PARKING_LOT = "ParkingLot";
+    public static final String RESERVATION = "Reservation";
+    public static final String PAYMENT = "Payment";
+
+    private long sequence;
+    private long committedAt;     // epoch millis
+    private String entityType;
+    private String entityId;
+    private String entityJson;
+
+    public ChangeEvent() {
+    }
+
+    public ChangeEvent(long sequence, long committedAt, String entityType, String entityId, String entityJson) {
+        this.sequence = sequence;
+        this.committedAt = committedAt;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.entityJson = entityJson;
+    }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+    public long getCommittedAt() { return committedAt; }
+    public void setCommittedAt(long committedAt) { this.committedAt = committedAt; }
+    public String getEntityType() { return entityType; }
+    public void setEntityType(String entityType) { this.entityType = entityType; }
+    public String getEntityId() { return entityId; }
+    public void setEntityId(String entityId) { this.entityId = entityId; }
+    public String getEntityJson() { return entityJson; }
+    public void setEntityJson(String entityJson) { this.entityJson = entityJson; }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{#" + sequence + " " + entityType + " " + entityId + "}";
+    }
+}
@@ -0,0 +1,370 @@
+package smartparking.cdc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ordered, sequence-numbered stream of entity changes. The newest events live in a bounded ring
+ * buffer; when it is full the oldest event spills to an append-only segment file on disk
+ * (changes-&lt;first sequence&gt;.ndjson, one JSON line per event), so a lagging or replaying
+ * subscriber reads from disk and a fast one never touches it. Without a spill directory the log is
+ * memory-only and overflowed events are gone (subscribers see a gap).
+ * <p>
+ * Sequences start at 1 and never repeat, across restarts and crashes too: numbers are reserved in
+ * blocks of SEQUENCE_BLOCK by an fsynced high-water mark (sequence.hwm), and on open the log continues
+ * after the highest of that mark, the last spilled event and the stored subscriber offsets. After
+ * a crash this leaves a gap up to the end of the reserved block. Spilled segments are kept while a
+ * subscriber still needs them and, beyond that, the newest few are retained for replay. close()
+ * spills the ring and stores the offsets of named subscribers. Spilled lines are buffered, not
+ * fsynced, so events in the ring or the spill buffer at a crash are lost, and delivery is
+ * at-least-once only for what reached disk.
+ */
+public class ChangeLog implements AutoCloseable {
+
+    private static final int DEFAULT_RING_CAPACITY = 8192;
+    private static final int EVENTS_PER_SEGMENT = 65_536;
+    private static final int RETAIN_SEGMENTS = 8;
+    private static final int SEQUENCE_BLOCK = 4096;
+    private static final String OFFSETS_FILE = "offsets.properties";
+    private static final String HIGH_WATER_FILE = "sequence.hwm";
+    private static final Pattern SEGMENT = Pattern.compile("changes-(\\d{19})\\.ndjson");
+
+    private final Path dir;   // null: memory only
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ChangeEvent[] ring;
+    private int head;         // index of the oldest event in the ring
+    private int size;
+    private long lastSequence;
+    private long reservedUntil;    // sequences up to this are covered by the stored high-water mark
+    private long firstAvailable;   // oldest sequence still readable (disk or ring)
+
+    private final TreeMap<Long, Path> segments = new TreeMap<>();   // first sequence -> file
+    private BufferedWriter spill;
+    private int spilledInSegment;
+
+    private final Map<String, Long> storedOffsets = new ConcurrentHashMap<>();
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Memory-only log with the default ring size. */
+    public ChangeLog() {
+        this(null, DEFAULT_RING_CAPACITY);
+    }
+
+    /** @param spillDir directory for spilled segments and subscriber offsets; null for memory only */
+    public ChangeLog(Path spillDir, int ringCapacity) {
+        if (ringCapacity < 1) throw new IllegalArgumentException("ringCapacity must be positive");
+        this.dir = spillDir != null ? spillDir.toAbsolutePath() : null;
+        this.ring = new ChangeEvent[ringCapacity];
+        if (dir != null) open();
+        this.reservedUntil = lastSequence;
+        this.firstAvailable = segments.isEmpty() ? lastSequence + 1 : segments.firstKey();
+    }
+
+    // --- Writing ---
+
+    /** Append a change; returns it with its sequence number. */
+    public synchronized ChangeEvent append(String entityType, String entityId, String entityJson) {
+        if (dir != null && lastSequence >= reservedUntil) reserve(lastSequence + SEQUENCE_BLOCK);
+        ChangeEvent event = new ChangeEvent(++lastSequence, System.currentTimeMillis(), entityType, entityId, entityJson);
+        if (size == ring.length) {
+            spill(ring[head]);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            size--;
+        }
+        ring[(head + size) % ring.length] = event;
+        size++;
+        notifyAll();
+        return event;
+    }
+
+    /** Durably record that sequences up to {@code until} may be in use, before handing any of them out. */
+    private void reserve(long until) {
+        Path tmp = dir.resolve(HIGH_WATER_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(Long.toString(until).getBytes(StandardCharsets.US_ASCII)));
+            out.force(true);
+            Files.move(tmp, dir.resolve(HIGH_WATER_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reserve change sequences in " + dir, e);
+        }
+        reservedUntil = until;
+    }
+
+    private void spill(ChangeEvent event) {
+        if (dir == null) {
+            firstAvailable = event.getSequence() + 1;
+            return;
+        }
+        try {
+            if (spill == null || spilledInSegment >= EVENTS_PER_SEGMENT) roll(event.getSequence());
+            spill.write(mapper.writeValueAsString(event));
+            spill.write('\n');   // flushed when a reader needs the segment (see read)
+            spilledInSegment++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill change " + event.getSequence() + " to " + dir, e);
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        if (spill != null) spill.close();
+        Path file = dir.resolve(String.format("changes-%019d.ndjson", firstSequence));
+        spill = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        spilledInSegment = 0;
+        segments.put(firstSequence, file);
+        if (segments.size() == 1) firstAvailable = firstSequence;
+        writeOffsets();
+        prune();
+    }
+
+    /** Drop the oldest segments no subscriber needs, keeping the newest RETAIN_SEGMENTS for replay. */
+    private void prune() throws IOException {
+        long needed = Long.MAX_VALUE;
+        for (ChangeSubscription s : subscriptions) needed = Math.min(needed, s.getOffset());
+        for (long offset : storedOffsets.values()) needed = Math.min(needed, offset);
+        while (segments.size() > RETAIN_SEGMENTS) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            Long next = segments.higherKey(oldest.getKey());
+            if (next - 1 > needed) break;
+            Files.deleteIfExists(oldest.getValue());
+            segments.remove(oldest.getKey());
+            firstAvailable = next;
+        }
+    }
+
+    // --- Reading ---
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /** Oldest sequence that can still be read (replays from earlier start here). */
+    public synchronized long getFirstAvailableSequence() {
+        return firstAvailable;
+    }
+
+    /** Events currently buffered in memory. */
+    public synchronized int getBufferedCount() {
+        return size;
+    }
+
+    /**
+     * Up to max events with sequence greater than {@code after}, in order. Served from the ring when
+     * it still holds them, otherwise from the spilled segments. If events after {@code after} are
+     * no longer available the result starts at the oldest available one.
+     */
+    public List<ChangeEvent> read(long after, int max) {
+        TreeMap<Long, Path> files;
+        long ringFirst;
+        synchronized (this) {
+            ringFirst = size > 0 ? ring[head].getSequence() : lastSequence + 1;
+            long from = Math.max(after + 1, firstAvailable);
+            if (from >= ringFirst || dir == null) {
+                List<ChangeEvent> result = new ArrayList<>();
+                for (int i = (int) Math.max(0, from - ringFirst); i < size && result.size() < max; i++) {
+                    result.add(ring[(head + i) % ring.length]);
+                }
+                return result;
+            }
+            files = new TreeMap<>(segments);
+            try {
+                if (spill != null) spill.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not flush change log " + dir, e);
+            }
+        }
+        return readSpilled(files, Math.max(after + 1, files.firstKey()), ringFirst, max);
+    }
+
+    /** Read spilled events [from, until) without holding the log lock (segments are append-only). */
+    private List<ChangeEvent> readSpilled(TreeMap<Long, Path> files, long from, long until, int max) {
+        List<ChangeEvent> result = new ArrayList<>();
+        Long first = files.floorKey(from);
+        if (first == null) first = files.firstKey();
+        for (Map.Entry<Long, Path> segment : files.tailMap(first, true).entrySet()) {
+            long sequence = segment.getKey();   // line i of a segment holds sequence first + i
+            try (BufferedReader in = Files.newBufferedReader(segment.getValue(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null && sequence < until && result.size() < max) {
+                    if (sequence++ < from) continue;
+                    result.add(mapper.readValue(line, ChangeEvent.class));
+                }
+            } catch (NoSuchFileException e) {
+                continue;   // pruned meanwhile; the caller's next read starts later
+            } catch (JsonProcessingException e) {
+                break;      // line still being written
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read change segment " + segment.getValue(), e);
+            }
+            if (result.size() >= max || sequence >= until) break;
+        }
+        if (result.isEmpty()) {
+            return read(until - 1, max);   // nothing on disk at or after from (a gap left by a crash): go on in the ring
+        }
+        if (result.size() < max && result.get(result.size() - 1).getSequence() + 1 >= until) {
+            result.addAll(read(result.get(result.size() - 1).getSequence(), max - result.size()));   // continue in the ring
+        }
+        return result;
+    }
+
+    /** Wait until an event after {@code after} exists or the timeout elapses. */
+    public synchronized void awaitAfter(long after, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long left;
+        while (lastSequence <= after && (left = deadline - System.currentTimeMillis()) > 0) {
+            wait(left);
+        }
+    }
+
+    // --- Subscriptions ---
+
+    /**
+     * Deliver events with sequence greater than {@code after} to the consumer, in order, on a
+     * dedicated thread. A named subscription resumes from its stored offset instead when it has one,
+     * and stores its offset on close (and whenever a segment rolls). Pass a null name for a
+     * subscription that always starts at {@code after}.
+     */
+    public ChangeSubscription subscribe(String name, long after, Consumer<ChangeEvent> consumer) {
+        long start = name != null ? storedOffsets.getOrDefault(name, after) : after;
+        ChangeSubscription subscription = new ChangeSubscription(this, name, start, consumer);
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    void unsubscribe(ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+        if (subscription.getName() != null) storedOffsets.put(subscription.getName(), subscription.getOffset());
+    }
+
+    public List<ChangeSubscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    // --- Lifecycle ---
+
+    /**
+     * Load segments and offsets; continue numbering after the high-water mark, the last spilled
+     * event or the highest stored offset, whichever is highest.
+     */
+    private void open() {
+        try {
+            Files.createDirectories(dir);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "changes-*.ndjson")) {
+                for (Path file : files) {
+                    Matcher m = SEGMENT.matcher(file.getFileName().toString());
+                    if (m.matches()) segments.put(Long.parseLong(m.group(1)), file);
+                }
+            }
+            if (!segments.isEmpty()) {
+                Map.Entry<Long, Path> last = segments.lastEntry();
+                lastSequence = last.getKey() + completeLines(last.getValue()) - 1;
+            }
+            Path highWater = dir.resolve(HIGH_WATER_FILE);
+            if (Files.exists(highWater)) {
+                String mark = Files.readString(highWater, StandardCharsets.US_ASCII).trim();
+                if (!mark.isEmpty()) lastSequence = Math.max(lastSequence, Long.parseLong(mark));
+            }
+            Path offsets = dir.resolve(OFFSETS_FILE);
+            if (Files.exists(offsets)) {
+                Properties p = new Properties();
+                try (BufferedReader in = Files.newBufferedReader(offsets, StandardCharsets.UTF_8)) {
+                    p.load(in);
+                }
+                for (String name : p.stringPropertyNames()) {
+                    long offset = Long.parseLong(p.getProperty(name));
+                    storedOffsets.put(name, offset);
+                    lastSequence = Math.max(lastSequence, offset);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open change log " + dir, e);
+        }
+    }
+
+    /** Number of complete lines; a torn last line (crash during a spill) is cut off. */
+    private static long completeLines(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = raf.length();
+            long lines = 0;
+            long lastNewline = -1;
+            byte[] buf = new byte[1 << 16];
+            int n;
+            long pos = 0;
+            while ((n = raf.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buf[i] == '\n') {
+                        lines++;
+                        lastNewline = pos + i;
+                    }
+                }
+                pos += n;
+            }
+            if (lastNewline + 1 < length) raf.setLength(lastNewline + 1);
+            return lines;
+        }
+    }
+
+    private void writeOffsets() throws IOException {
+        if (dir == null) return;
+        for (ChangeSubscription s : subscriptions) {
+            if (s.getName() != null) storedOffsets.put(s.getName(), s.getOffset());
+        }
+        Properties p = new Properties();
+        storedOffsets.forEach((name, offset) -> p.setProperty(name, Long.toString(offset)));
+        Path tmp = dir.resolve(OFFSETS_FILE + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            p.store(out, "change log subscriber offsets (last delivered sequence)");
+        }
+        Files.move(tmp, dir.resolve(OFFSETS_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Stop all subscriptions, spill the buffered events and store the subscriber offsets. */
+    @Override
+    public void close() {
+        for (ChangeSubscription s : subscriptions) s.close();
+        synchronized (this) {
+            if (dir == null) return;
+            try {
+                while (size > 0) {
+                    spill(ring[head]);
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                }
+                writeOffsets();
+                if (spill != null) spill.close();
+                spill = null;
+                reserve(lastSequence);   // clean shutdown: the next start continues without a gap
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close change log " + dir, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package smartparking.cdc;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * One consumer of a ChangeLog, fed in sequence order by its own daemon thread. The offset is the
+ * sequence of the last event the consumer accepted; seek() moves it (back, to replay). A consumer
+ * that throws gets the same event again after a pause, so one bad event stops that subscriber
+ * only, never the writers or the other subscribers.
+ */
+public class ChangeSubscription implements AutoCloseable {
+
+    private static final int BATCH = 256;
+    private static final long IDLE_WAIT_MILLIS = 500;
+    private static final long RETRY_MILLIS = 1_000;
+
+    private final ChangeLog log;
+    private final String name;
+    private final Consumer<ChangeEvent> consumer;
+    private final Thread thread;
+    private volatile long offset;
+    private volatile long seekTo = -1;
+    private volatile long missed;
+    private volatile long failures;
+    private volatile boolean running = true;
+
+    ChangeSubscription(ChangeLog log, String name, long offset, Consumer<ChangeEvent> consumer) {
+        this.log = log;
+        this.name = name;
+        this.offset = offset;
+        this.consumer = consumer;
+        this.thread = new Thread(this::run, "cdc-" + (name != null ? name : "subscriber"));
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /** Null for an unnamed subscription (offset not stored). */
+    public String getName() {
+        return name;
+    }
+
+    /** Sequence of the last delivered event. */
+    public long getOffset() {
+        return offset;
+    }
+
+    /** Events written but not yet delivered. */
+    public long getLag() {
+        return Math.max(0, log.getLastSequence() - offset);
+    }
+
+    /** Events that were no longer available when this subscriber reached them (memory-only overflow or pruning). */
+    public long getMissed() {
+        return missed;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    /** Redeliver from the event after {@code sequence} (0: from the oldest available event). */
+    public void seek(long sequence) {
+        seekTo = Math.max(0, sequence);   // picked up before the next batch (idle waits are short)
+    }
+
+    /** Wait until every event written so far has been delivered; false on timeout. */
+    public boolean awaitCaughtUp(long timeoutMillis) throws InterruptedException {
+        long target = log.getLastSequence();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (offset < target) {
+            if (System.currentTimeMillis() >= deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (seekTo >= 0) {
+                    offset = seekTo;
+                    seekTo = -1;
+                }
+                List<ChangeEvent> batch = log.read(offset, BATCH);
+                if (batch.isEmpty()) {
+                    log.awaitAfter(offset, IDLE_WAIT_MILLIS);
+                    continue;
+                }
+                for (ChangeEvent event : batch) {
+                    if (!running || seekTo >= 0) break;
+                    if (event.getSequence() > offset + 1) missed += event.getSequence() - offset - 1;
+                    if (!deliver(event)) break;
+                    offset = event.getSequence();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Hand the event to the consumer, retrying while it throws; false if closed meanwhile. */
+    private boolean deliver(ChangeEvent event) throws InterruptedException {
+        while (true) {
+            try {
+                consumer.accept(event);
+                return true;
+            } catch (RuntimeException e) {
+                failures++;
+                Thread.sleep(RETRY_MILLIS);
+                if (!running) return false;
+            }
+        }
+    }
+
+    /** Stop delivering; a named subscription's offset is kept for the next subscribe(). */
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;   // the thread stops after the current event
+        log.unsubscribe(this);
+    }
+}
@@ -13,4 +13,20 @@ public interface BookingCommand {
     default String getDescription() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Optional: client-chosen key identifying this logical request across retries. Commands with the
+     * same key run at most once through an IdempotencyTable. Null means no deduplication.
+     */
+    default String getIdempotencyKey() {
+        return null;
+    }
+
+    /**
+     * The request's parameters, compared when an idempotency key is reused: a retry must carry the
+     * same fingerprint, otherwise it is a different request and is rejected.
+     */
+    default String getRequestFingerprint() {
+        return getDescription();
+    }
 }
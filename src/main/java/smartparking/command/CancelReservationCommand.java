@@ -1,6 +1,8 @@
 package smartparking.command;
 
+import smartparking.model.ParkingLot;
 import smartparking.model.Reservation;
+import smartparking.persistence.LotLocks;
 import smartparking.persistence.PersistentManager;
 
 import java.util.Optional;
@@ -25,22 +27,26 @@ public class CancelReservationCommand implements BookingCommand {
         if (opt.isEmpty()) {
             return CommandResult.failure("Reservation not found: " + reservationId);
         }
-        Reservation r = opt.get();
-        if (Reservation.STATUS_CANCELLED.equals(r.getReservationStatus())) {
-            return CommandResult.failure("Reservation is already cancelled.");
-        }
-        r.cancelReservation();
-        // Release the slot
-        persistence.findAllParkingLots().stream()
-                .filter(lot -> lot.getSlotById(r.getSlotId()) != null)
-                .findFirst()
-                .ifPresent(lot -> {
+        String lotId = persistence.findParkingLotBySlotId(opt.get().getSlotId()).map(ParkingLot::getLotId).orElse(null);
+        // Re-read, cancel and release under the lot lock: a concurrent booking's lot save is not undone,
+        // and a second cancel of the same reservation cannot release a slot someone else has taken since
+        synchronized (LotLocks.forLot(lotId)) {
+            Reservation r = persistence.findReservationById(reservationId).orElse(opt.get());
+            if (Reservation.STATUS_CANCELLED.equals(r.getReservationStatus())) {
+                return CommandResult.failure("Reservation is already cancelled.");
+            }
+            r.cancelReservation();
+            // Release the slot
+            if (lotId != null) {
+                persistence.findParkingLotById(lotId).ifPresent(lot -> {
                     var slot = lot.getSlotById(r.getSlotId());
                     if (slot != null) slot.release();
                     persistence.saveParkingLot(lot);
                 });
-        persistence.saveReservation(r);
-        return CommandResult.success("Reservation cancelled.", r, null);
+            }
+            persistence.saveReservation(r);
+            return CommandResult.success("Reservation cancelled.", r, null);
+        }
     }
 
     @Override
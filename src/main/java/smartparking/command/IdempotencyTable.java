@@ -0,0 +1,135 @@
+package smartparking.command;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded, expiring dedup table for commands that carry an idempotency key. The first execution of
+ * a key runs the command and records its CommandResult; a retry with the same key, while the entry
+ * lives, gets that same result without running the command again (so no second reservation and no
+ * second payment). A retry that arrives while the first execution is still running waits for it.
+ * If the command throws, the key is released so the client can retry. A key reused with different
+ * parameters (another user, slot, time or payment method) is rejected rather than answered with the
+ * first request's result. Commands without a key run normally.
+ */
+public class IdempotencyTable {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final class Entry {
+        final CompletableFuture<CommandResult> result = new CompletableFuture<>();
+        final String fingerprint;
+        final long createdAt = System.currentTimeMillis();
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();   // insertion order = age order
+
+    public IdempotencyTable() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    public IdempotencyTable(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /** Run the command at most once per idempotency key (see class comment). */
+    public CommandResult execute(BookingCommand command) {
+        String key = command.getIdempotencyKey();
+        if (key == null || key.isBlank()) return command.execute();
+
+        String fingerprint = command.getRequestFingerprint();
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            evictExpired(System.currentTimeMillis());
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(fingerprint);
+                entries.put(key, entry);
+                owner = true;
+                if (entries.size() > maxEntries) {
+                    Iterator<Entry> eldest = entries.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        if (!owner) {
+            if (!Objects.equals(entry.fingerprint, fingerprint)) {
+                return CommandResult.failure("Idempotency key " + key + " was already used for a different request.");
+            }
+            try {
+                return entry.result.join();
+            } catch (CompletionException e) {
+                return CommandResult.failure("Original request failed: " + e.getCause().getMessage());
+            }
+        }
+        CommandResult result = null;
+        Throwable failure = null;
+        try {
+            result = command.execute();
+            return result;
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            // Always complete, even on an Error, so waiting retries never block forever
+            if (result != null) {
+                entry.result.complete(result);
+            } else {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.result.completeExceptionally(failure != null ? failure
+                        : new IllegalStateException("Command returned no result"));
+            }
+        }
+    }
+
+    /** Command that runs through this table when executed. */
+    public BookingCommand wrap(BookingCommand command) {
+        return new BookingCommand() {
+            @Override
+            public CommandResult execute() {
+                return IdempotencyTable.this.execute(command);
+            }
+
+            @Override
+            public String getDescription() {
+                return command.getDescription();
+            }
+
+            @Override
+            public String getIdempotencyKey() {
+                return command.getIdempotencyKey();
+            }
+        };
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next().getValue();
+            if (now - e.createdAt <= ttlMillis) break;
+            it.remove();
+        }
+    }
+}
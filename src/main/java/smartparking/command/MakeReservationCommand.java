@@ -19,17 +19,26 @@ public class MakeReservationCommand implements BookingCommand {
     private final LocalDateTime startTime;
     private final LocalDateTime endTime;
     private final String paymentMethod;
+    private final String idempotencyKey;
 
     public MakeReservationCommand(MakeReservationService service,
                                   String userId, String slotId,
                                   LocalDateTime startTime, LocalDateTime endTime,
                                   String paymentMethod) {
+        this(service, userId, slotId, startTime, endTime, paymentMethod, null);
+    }
+
+    public MakeReservationCommand(MakeReservationService service,
+                                  String userId, String slotId,
+                                  LocalDateTime startTime, LocalDateTime endTime,
+                                  String paymentMethod, String idempotencyKey) {
         this.service = service;
         this.userId = userId;
         this.slotId = slotId;
         this.startTime = startTime;
         this.endTime = endTime;
         this.paymentMethod = paymentMethod != null ? paymentMethod : "Credit Card";
+        this.idempotencyKey = idempotencyKey;
     }
 
     @Override
@@ -41,6 +50,16 @@ public class MakeReservationCommand implements BookingCommand {
         return CommandResult.failure(result.getMessage());
     }
 
+    @Override
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public String getRequestFingerprint() {
+        return userId + "|" + slotId + "|" + startTime + "|" + endTime + "|" + paymentMethod;
+    }
+
     @Override
     public String getDescription() {
         return "MakeReservation(user=" + userId + ", slot=" + slotId + ")";
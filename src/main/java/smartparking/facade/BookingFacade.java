@@ -1,18 +1,33 @@
 package smartparking.facade;
 
+import smartparking.builder.BookingRequest;
 import smartparking.command.BookingCommand;
 import smartparking.command.CancelReservationCommand;
 import smartparking.command.CommandResult;
+import smartparking.command.IdempotencyTable;
 import smartparking.command.MakeReservationCommand;
+import smartparking.forecast.OccupancyForecaster;
+import smartparking.geo.GeoDistance;
+import smartparking.geo.LotSpatialIndex;
+import smartparking.geo.NearbyLot;
+import smartparking.model.Navigation;
 import smartparking.model.ParkingLot;
 import smartparking.model.ParkingSlot;
 import smartparking.model.Reservation;
 import smartparking.model.User;
+import smartparking.navigation.RouteEngine;
 import smartparking.persistence.PersistentManager;
+import smartparking.search.SearchIndex;
+import smartparking.search.SearchQuery;
 import smartparking.service.MakeReservationService;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
 
 /**
  * Facade pattern: provides a unified, simplified interface to the booking subsystem
@@ -22,27 +37,164 @@ import java.util.List;
 public class BookingFacade {
 
     private final PersistentManager persistence;
+    private final PersistentManager readPersistence;
     private final MakeReservationService makeReservationService;
+    private final LotSpatialIndex lotIndex;
+    private final RouteEngine routeEngine;
+    private final OccupancyForecaster forecaster;
+    private final SearchIndex searchIndex;
+    private final IdempotencyTable idempotency = new IdempotencyTable();
 
     public BookingFacade(PersistentManager persistence, MakeReservationService makeReservationService) {
-        this.persistence = persistence;
-        this.makeReservationService = makeReservationService;
+        this(builder(persistence, makeReservationService));
+    }
+
+    protected BookingFacade(Builder builder) {
+        this.persistence = builder.persistence;
+        this.readPersistence = builder.readPersistence != null ? builder.readPersistence : builder.persistence;
+        this.makeReservationService = builder.makeReservationService;
+        this.lotIndex = builder.lotIndex;
+        this.routeEngine = builder.routeEngine;
+        this.forecaster = builder.forecaster;
+        this.searchIndex = builder.searchIndex;
+    }
+
+    /** A builder for a facade over persistence and the booking service; every other part is optional. */
+    public static Builder builder(PersistentManager persistence, MakeReservationService makeReservationService) {
+        return new Builder(persistence, makeReservationService);
+    }
+
+    /**
+     * Builder pattern: collects the facade's optional collaborators. Each one left unset keeps the
+     * facade's plain behaviour (reads from persistence, lot scans, no navigation or forecasts).
+     */
+    public static class Builder {
+        private final PersistentManager persistence;
+        private final MakeReservationService makeReservationService;
+        private PersistentManager readPersistence;
+        private LotSpatialIndex lotIndex;
+        private RouteEngine routeEngine;
+        private OccupancyForecaster forecaster;
+        private SearchIndex searchIndex;
+
+        protected Builder(PersistentManager persistence, MakeReservationService makeReservationService) {
+            this.persistence = persistence;
+            this.makeReservationService = makeReservationService;
+        }
+
+        /** Serves availability and history queries (e.g. a ReadReplica); commands always go through persistence. */
+        public Builder readPersistence(PersistentManager readPersistence) {
+            this.readPersistence = readPersistence;
+            return this;
+        }
+
+        /** Answers nearest-lot queries; without it they fall back to a scan of all lots. */
+        public Builder lotIndex(LotSpatialIndex lotIndex) {
+            this.lotIndex = lotIndex;
+            return this;
+        }
+
+        /** Computes driving routes and ETAs to lots; without it navigation is disabled. */
+        public Builder routeEngine(RouteEngine routeEngine) {
+            this.routeEngine = routeEngine;
+            return this;
+        }
+
+        /** Predicts slot availability from reservation history; without it forecasts are disabled. */
+        public Builder forecaster(OccupancyForecaster forecaster) {
+            this.forecaster = forecaster;
+            return this;
+        }
+
+        /** Answers user, lot and reservation searches; without it each search indexes readPersistence from scratch. */
+        public Builder searchIndex(SearchIndex searchIndex) {
+            this.searchIndex = searchIndex;
+            return this;
+        }
+
+        public BookingFacade build() {
+            return new BookingFacade(this);
+        }
+    }
+
+    /** Where commands and writes go. */
+    protected PersistentManager getPersistence() {
+        return persistence;
+    }
+
+    /** Where availability and history queries are read from (persistence unless a read store was set). */
+    protected PersistentManager getReadPersistence() {
+        return readPersistence;
     }
 
     public List<User> getUsers() {
-        return persistence.findAllUsers();
+        return readPersistence.findAllUsers();
     }
 
     public List<ParkingLot> getParkingLots() {
-        return persistence.findAllParkingLots();
+        return readPersistence.findAllParkingLots();
     }
 
     public List<ParkingSlot> getAvailableSlots() {
-        return makeReservationService.getAvailableSlots();
+        if (readPersistence == persistence) return makeReservationService.getAvailableSlots();
+        List<ParkingSlot> result = new ArrayList<>();
+        for (ParkingLot lot : readPersistence.findAllParkingLots()) {
+            result.addAll(lot.getAvailableSlots());
+        }
+        return result;
     }
 
     public List<ParkingSlot> getAvailableSlotsByType(String type) {
-        return makeReservationService.getAvailableSlotsByType(type);
+        if (readPersistence == persistence) return makeReservationService.getAvailableSlotsByType(type);
+        List<ParkingSlot> result = new ArrayList<>();
+        for (ParkingSlot s : getAvailableSlots()) {
+            if (type != null && type.equalsIgnoreCase(s.getSlotType())) result.add(s);
+        }
+        return result;
+    }
+
+    /** Up to k lots nearest to the point with an available slot of the type (null for any), nearest first. */
+    public List<NearbyLot> findNearestLots(double latitude, double longitude, String slotType, int k) {
+        if (lotIndex != null) return lotIndex.findNearest(latitude, longitude, slotType, k);
+        List<NearbyLot> result = new ArrayList<>();
+        for (ParkingLot lot : readPersistence.findAllParkingLots()) {
+            if (!lot.hasLocation()) continue;
+            int available = 0;
+            for (ParkingSlot s : lot.getSlots()) {
+                if (s.isAvailable() && (slotType == null || slotType.equalsIgnoreCase(s.getSlotType()))) available++;
+            }
+            if (available == 0) continue;
+            double d = GeoDistance.meters(latitude, longitude, lot.getLatitude(), lot.getLongitude());
+            result.add(new NearbyLot(lot.getLotId(), lot.getName(), lot.getAddress(),
+                    lot.getLatitude(), lot.getLongitude(), d, available));
+        }
+        result.sort(Comparator.comparingDouble(NearbyLot::getDistanceMeters));
+        return result.size() > k ? new ArrayList<>(result.subList(0, Math.max(0, k))) : result;
+    }
+
+    /** Route and ETA from the position to the lot; empty without a road graph or if the lot is unreachable. */
+    public Optional<Navigation> navigateToLot(double latitude, double longitude, String lotId) {
+        if (routeEngine == null) return Optional.empty();
+        return readPersistence.findParkingLotById(lotId)
+                .flatMap(lot -> routeEngine.navigate(latitude, longitude, lot));
+    }
+
+    /** Forecast probability that a slot of the type is free at the lot at the given time; empty without a forecaster. */
+    public OptionalDouble forecastSlotFree(String lotId, String slotType, LocalDateTime time) {
+        if (forecaster == null) return OptionalDouble.empty();
+        return OptionalDouble.of(forecaster.probabilityFree(lotId, slotType, time));
+    }
+
+    /**
+     * Current hourly rate for the slot (dynamic price when enabled, otherwise list price). Reading from
+     * a separate store (a replica), it is the list price there: dynamic rates follow the local store.
+     */
+    public BigDecimal quoteHourlyRate(String slotId) {
+        if (readPersistence == persistence) return makeReservationService.quoteHourlyRate(slotId);
+        return readPersistence.findParkingLotBySlotId(slotId)
+                .map(lot -> lot.getSlotById(slotId))
+                .map(ParkingSlot::getPricePerHour)
+                .orElse(null);
     }
 
     public List<String> getPaymentMethodNames() {
@@ -50,11 +202,23 @@ public class BookingFacade {
     }
 
     public List<Reservation> getReservationsByUser(String userId) {
-        return persistence.findReservationsByUserId(userId);
+        return readPersistence.findReservationsByUserId(userId);
     }
 
     public List<Reservation> getAllReservations() {
-        return persistence.findAllReservations();
+        return readPersistence.findAllReservations();
+    }
+
+    /** Prefix search over users, lots and reservations with status / slot type / date facets. */
+    public SearchIndex.Result search(SearchQuery query) {
+        if (searchIndex != null) return searchIndex.search(query);
+        SearchIndex scratch = new SearchIndex();
+        scratch.load(readPersistence);
+        return scratch.search(query);
+    }
+
+    public Optional<User> getUser(String userId) {
+        return readPersistence.findUserById(userId);
     }
 
     /** Create and return a MakeReservation command (Command pattern). Caller invokes command.execute(). */
@@ -64,6 +228,17 @@ public class BookingFacade {
         return new MakeReservationCommand(makeReservationService, userId, slotId, startTime, endTime, paymentMethod);
     }
 
+    /**
+     * Make-reservation command deduplicated by idempotency key: executing it again (or another command
+     * with the same key) returns the first result without booking or charging again.
+     */
+    public BookingCommand createMakeReservationCommand(String userId, String slotId,
+                                                        LocalDateTime startTime, LocalDateTime endTime,
+                                                        String paymentMethod, String idempotencyKey) {
+        return idempotency.wrap(new MakeReservationCommand(makeReservationService, userId, slotId,
+                startTime, endTime, paymentMethod, idempotencyKey));
+    }
+
     /** Create and return a CancelReservation command. */
     public BookingCommand createCancelReservationCommand(String reservationId) {
         return new CancelReservationCommand(persistence, reservationId);
@@ -76,6 +251,19 @@ public class BookingFacade {
         return createMakeReservationCommand(userId, slotId, startTime, endTime, paymentMethod).execute();
     }
 
+    /** Convenience: execute make reservation; retries with the same idempotency key return the original result. */
+    public CommandResult makeReservation(String userId, String slotId,
+                                         LocalDateTime startTime, LocalDateTime endTime,
+                                         String paymentMethod, String idempotencyKey) {
+        return createMakeReservationCommand(userId, slotId, startTime, endTime, paymentMethod, idempotencyKey).execute();
+    }
+
+    /** Convenience: execute a built booking request (deduplicated if it carries an idempotency key). */
+    public CommandResult makeReservation(BookingRequest request) {
+        return makeReservation(request.getUserId(), request.getSlotId(), request.getStartTime(), request.getEndTime(),
+                request.getPaymentMethod(), request.getIdempotencyKey());
+    }
+
     /** Convenience: execute cancel reservation and return result. */
     public CommandResult cancelReservation(String reservationId) {
         return createCancelReservationCommand(reservationId).execute();
@@ -0,0 +1,35 @@
+package smartparking.feed;
+
+/**
+ * Compact availability delta for displays and apps: one slot became free or taken. Immutable.
+ */
+public final class AvailabilityEvent {
+
+    private final String lotId;
+    private final String slotId;
+    private final boolean available;
+
+    public AvailabilityEvent(String lotId, String slotId, boolean available) {
+        this.lotId = lotId;
+        this.slotId = slotId;
+        this.available = available;
+    }
+
+    public String getLotId() { return lotId; }
+    public String getSlotId() { return slotId; }
+    public boolean isAvailable() { return available; }
+
+    /** JSON object form used on the wire, e.g. {"lotId":"L001","slotId":"S001","available":false}. */
+    public String toJson() {
+        return "{\"lotId\":\"" + escape(lotId) + "\",\"slotId\":\"" + escape(slotId) + "\",\"available\":" + available + "}";
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" : s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AvailabilityEvent{lotId='%s', slotId='%s', available=%s}", lotId, slotId, available);
+    }
+}
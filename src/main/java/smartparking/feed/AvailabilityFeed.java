@@ -0,0 +1,134 @@
+package smartparking.feed;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.persistence.ForwardingPersistentManager;
+import smartparking.persistence.LotLocks;
+import smartparking.persistence.PersistentManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe availability feed. Decorates the PersistentManager and, when saveParkingLot
+ * commits slot reserve()/release() transitions, records a delta per changed slot. Deltas are
+ * coalesced per tick: only the latest state of each slot is delivered, and a slot that flipped back
+ * within the tick produces no event. Subscribers receive one batch per tick. A save and its deltas
+ * happen under the lot's LotLocks monitor, so deltas of one lot are recorded in commit order.
+ */
+public class AvailabilityFeed extends ForwardingPersistentManager implements AutoCloseable {
+
+    private static final long DEFAULT_TICK_MILLIS = 250;
+
+    private final Map<String, Boolean> committed = new HashMap<>();     // lotId/slotId -> last saved state
+    private final Map<String, Boolean> published = new HashMap<>();     // lotId/slotId -> last delivered state
+    private Map<String, AvailabilityEvent> pending = new LinkedHashMap<>();
+    private final List<Consumer<List<AvailabilityEvent>>> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService ticker;
+
+    public AvailabilityFeed(PersistentManager delegate) {
+        this(delegate, DEFAULT_TICK_MILLIS);
+    }
+
+    public AvailabilityFeed(PersistentManager delegate, long tickMillis) {
+        super(delegate);
+        for (ParkingLot lot : delegate.findAllParkingLots()) {
+            for (ParkingSlot s : lot.getSlots()) {
+                committed.put(key(lot.getLotId(), s.getSlotId()), s.isAvailable());
+            }
+        }
+        published.putAll(committed);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "availability-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static String key(String lotId, String slotId) {
+        return lotId + "/" + slotId;
+    }
+
+    /** Register a subscriber for per-tick batches. Returns a handle that unsubscribes on close. */
+    public AutoCloseable subscribe(Consumer<List<AvailabilityEvent>> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Run the callback with the state delivered to subscribers so far, under the feed lock. A subscriber
+     * registered inside the callback misses no later change; a batch already in flight may repeat part
+     * of the snapshot, which is harmless since events carry absolute state.
+     */
+    public synchronized void withSnapshot(Consumer<List<AvailabilityEvent>> callback) {
+        callback.accept(toEvents(published));
+    }
+
+    /** Current availability of every known slot, including changes not yet delivered. */
+    public synchronized List<AvailabilityEvent> snapshot() {
+        return toEvents(committed);
+    }
+
+    private static List<AvailabilityEvent> toEvents(Map<String, Boolean> states) {
+        List<AvailabilityEvent> result = new ArrayList<>(states.size());
+        for (Map.Entry<String, Boolean> e : states.entrySet()) {
+            int slash = e.getKey().indexOf('/');
+            result.add(new AvailabilityEvent(e.getKey().substring(0, slash), e.getKey().substring(slash + 1), e.getValue()));
+        }
+        return result;
+    }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) {
+        synchronized (LotLocks.forLot(lot.getLotId())) {
+            super.saveParkingLot(lot);
+            synchronized (this) {
+                for (ParkingSlot s : lot.getSlots()) {
+                    String key = key(lot.getLotId(), s.getSlotId());
+                    Boolean previous = committed.put(key, s.isAvailable());
+                    if (previous == null || previous != s.isAvailable()) {
+                        pending.put(key, new AvailabilityEvent(lot.getLotId(), s.getSlotId(), s.isAvailable()));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Deliver coalesced deltas accumulated since the previous tick. */
+    void tick() {
+        List<AvailabilityEvent> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            Map<String, AvailabilityEvent> drained = pending;
+            pending = new LinkedHashMap<>();
+            batch = new ArrayList<>(drained.size());
+            for (Map.Entry<String, AvailabilityEvent> e : drained.entrySet()) {
+                Boolean last = published.put(e.getKey(), e.getValue().isAvailable());
+                if (last == null || last != e.getValue().isAvailable()) batch.add(e.getValue());
+            }
+        }
+        if (batch.isEmpty()) return;
+        List<AvailabilityEvent> readOnly = List.copyOf(batch);
+        for (Consumer<List<AvailabilityEvent>> subscriber : subscribers) {
+            try {
+                subscriber.accept(readOnly);
+            } catch (RuntimeException e) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdown();
+    }
+}
@@ -0,0 +1,151 @@
+package smartparking.feed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-Sent Events endpoint for the AvailabilityFeed (JDK built-in HTTP server).
+ * GET /availability opens a stream: first a "snapshot" event with every slot, then one
+ * "delta" event per tick carrying a JSON array of changed slots. Each batch is encoded once and
+ * queued to every open stream; each stream has its own bounded queue and sender thread, so a slow
+ * display never stalls the feed or the other displays. A display whose queue overflows is dropped
+ * (it reconnects and starts again from a snapshot). Listens on the loopback interface unless
+ * given another bind address.
+ */
+public class AvailabilitySseServer implements AutoCloseable {
+
+    public static final String PATH = "/availability";
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long POLL_MILLIS = 1_000;
+
+    private final HttpServer server;
+    private final AvailabilityFeed feed;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AutoCloseable subscription;
+
+    public AvailabilitySseServer(AvailabilityFeed feed, int port) {
+        this(feed, InetAddress.getLoopbackAddress(), port);
+    }
+
+    public AvailabilitySseServer(AvailabilityFeed feed, InetAddress bindAddress, int port) {
+        this.feed = feed;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open availability feed port " + port, e);
+        }
+        server.createContext(PATH, this::open);
+        server.start();
+        this.subscription = feed.subscribe(this::broadcast);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private void open(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        Client client = new Client(exchange);
+        // Snapshot queued and client registered under the feed lock: no delta can fall in between
+        feed.withSnapshot(snapshot -> {
+            client.offer(encode("snapshot", snapshot));
+            clients.add(client);
+        });
+        client.start();
+    }
+
+    private void broadcast(List<AvailabilityEvent> batch) {
+        byte[] message = encode("delta", batch);
+        for (Client client : clients) {
+            client.offer(message);
+        }
+    }
+
+    private static byte[] encode(String eventName, List<AvailabilityEvent> events) {
+        StringBuilder sb = new StringBuilder(32 + events.size() * 64);
+        sb.append("event: ").append(eventName).append("\ndata: [");
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(events.get(i).toJson());
+        }
+        sb.append("]\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        try {
+            subscription.close();
+        } catch (Exception ignored) { }
+        for (Client client : clients) client.disconnect();
+        server.stop(0);
+    }
+
+    /** One open stream: a bounded queue of encoded events, written by its own thread. */
+    private final class Client {
+        private final HttpExchange exchange;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean connected = true;
+
+        Client(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        void offer(byte[] message) {
+            if (connected && !queue.offer(message)) {
+                disconnect();   // too far behind: the sender closes the stream
+            }
+        }
+
+        void start() {
+            Thread t = new Thread(this::sendLoop, "availability-sse-sender");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private void sendLoop() {
+            try {
+                OutputStream out = exchange.getResponseBody();
+                while (connected) {
+                    byte[] message = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (message == null) continue;
+                    out.write(message);
+                    if (queue.isEmpty()) out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // display went away
+            } finally {
+                disconnect();
+                exchange.close();
+            }
+        }
+
+        /** Stop delivery; never blocks, so it is safe on the feed thread. */
+        void disconnect() {
+            connected = false;
+            clients.remove(this);
+        }
+    }
+}
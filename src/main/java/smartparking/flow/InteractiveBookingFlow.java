@@ -5,8 +5,12 @@ import smartparking.command.MakeReservationCommand;
 import smartparking.facade.BookingFacade;
 import smartparking.model.ParkingSlot;
 import smartparking.model.User;
+import smartparking.search.SearchIndex;
+import smartparking.search.SearchQuery;
 import smartparking.ui.ConsoleInput;
+import smartparking.ui.OptionSource;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -33,13 +37,11 @@ public class InteractiveBookingFlow extends AbstractBookingFlow {
 
     @Override
     protected ParkingSlot displayAndSelectSlot(List<ParkingSlot> slots) {
-        List<String> options = new ArrayList<>();
-        for (ParkingSlot s : slots) {
-            options.add(String.format("%s | %s | %s | $%s/hr", s.getSlotId(), s.getSlotNumber(), s.getSlotType(), s.getPricePerHour()));
-        }
-        int choice = console.selectOption("Available slots (select by number):", options, true);
-        if (choice == 0) return null;
-        return slots.get(choice - 1);
+        // filter on the slot's own fields; the quoted rate is looked up only for the rows on screen
+        OptionSource<ParkingSlot> source = OptionSource.of(slots,
+                s -> s.getSlotId() + " " + s.getSlotNumber() + " " + s.getSlotType(),
+                s -> String.format("%s | %s | %s | $%s/hr", s.getSlotId(), s.getSlotNumber(), s.getSlotType(), rateOf(s)));
+        return console.selectPaged("Available slots (select by number):", source, true);
     }
 
     @Override
@@ -58,13 +60,19 @@ public class InteractiveBookingFlow extends AbstractBookingFlow {
     protected boolean confirmBooking(ParkingSlot slot, LocalDateTime start, LocalDateTime end) {
         long hours = ChronoUnit.HOURS.between(start, end);
         if (hours < 1) hours = 1;
-        double cost = slot.calculatePrice((int) hours);
+        double cost = rateOf(slot).multiply(BigDecimal.valueOf(hours)).doubleValue();
         console.println(String.format("Summary: Slot %s (%s), %s to %s, ~%.0f hour(s), Total: $%.2f",
                 slot.getSlotId(), slot.getSlotType(), start, end, (double) hours, cost));
         int confirm = console.readIntInRange("Confirm? (1=Yes, 2=No): ", 1, 2);
         return confirm == 1;
     }
 
+    /** Quoted hourly rate (dynamic pricing), falling back to the slot's list price. */
+    private BigDecimal rateOf(ParkingSlot slot) {
+        BigDecimal rate = facade.quoteHourlyRate(slot.getSlotId());
+        return rate != null ? rate : slot.getPricePerHour() != null ? slot.getPricePerHour() : BigDecimal.ZERO;
+    }
+
     @Override
     protected String selectPaymentMethod() {
         List<String> methods = facade.getPaymentMethodNames();
@@ -76,18 +84,17 @@ public class InteractiveBookingFlow extends AbstractBookingFlow {
 
     @Override
     protected User selectUser() {
-        List<User> users = facade.getUsers();
-        if (users.isEmpty()) {
+        OptionSource<SearchIndex.Hit> users = (filter, offset, limit) -> {
+            SearchIndex.Result found = facade.search(SearchQuery.users(filter).offset(offset).limit(limit));
+            return OptionSource.Page.of(found.hits(), SearchIndex.Hit::label, found.totalHits());
+        };
+        if (users.page("", 0, 1).total() == 0) {
             console.println("No users. Please add a user first.");
             return null;
         }
-        List<String> options = new ArrayList<>();
-        for (User u : users) {
-            options.add(u.getUserId() + " - " + u.getName() + " (" + u.getEmail() + ")");
-        }
-        int choice = console.selectOption("Select user (login):", options, true);
-        if (choice == 0) return null;
-        return users.get(choice - 1);
+        SearchIndex.Hit hit = console.selectPaged("Select user (login; type a name, email or phone to filter):", users, true);
+        if (hit == null) return null;
+        return facade.getUser(hit.id()).orElse(null);
     }
 
     @Override
@@ -0,0 +1,232 @@
+package smartparking.forecast;
+
+import smartparking.cdc.CdcPersistentManager;
+import smartparking.cdc.ChangeEvent;
+import smartparking.cdc.ChangeSubscription;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.persistence.PersistentManager;
+import smartparking.persistence.ReservationEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Occupancy forecasts from reservation history. For every (lot, slot type) it keeps 168
+ * hour-of-week buckets of occupied slot-hours, updated incrementally from the reservation event
+ * stream: a confirmed reservation adds its overlap with each hour it spans, a cancellation removes
+ * it and an extension adds the extra hours. Dividing by the slot-hours observed in that bucket gives
+ * the mean occupancy, and assuming slots are occupied independently, P(at least one slot free) is
+ * 1 - occupancy^slots. A query is two map lookups and arithmetic. Thread-safe (synchronized).
+ *
+ * Feed it with {@code EventSourcedPersistentManager.subscribe(forecaster::apply)}, and keep its
+ * lots current with {@link #followLots} (otherwise lots and slots added later are only picked up
+ * when one of their reservations arrives).
+ */
+public class OccupancyForecaster {
+
+    static final int HOURS_PER_WEEK = 168;
+    private static final long MAX_RESERVATION_HOURS = 31L * 24;   // longer stays are counted up to a month
+    /** Prior: half occupied, weighted as one observed slot-hour (so empty buckets answer 0.5). */
+    private static final double PRIOR_OCCUPANCY = 0.5;
+    private static final double PRIOR_WEIGHT = 1.0;
+
+    /** Occupied slot-hours per hour-of-week bucket for one lot and slot type. */
+    private static final class Histogram {
+        final double[] occupiedHours = new double[HOURS_PER_WEEK];
+        int slots;
+    }
+
+    private record SlotInfo(String lotId, String type) { }
+
+    private record Stay(String slotId, LocalDateTime start, LocalDateTime end) { }
+
+    private final PersistentManager persistence;
+    private final Map<String, SlotInfo> slots = new HashMap<>();          // slotId -> lot and type
+    private final Map<String, Histogram> histograms = new HashMap<>();    // lotId|type -> histogram
+    private final Map<String, Set<String>> typesByLot = new HashMap<>();  // lotId -> slot types indexed
+    private final Map<String, Stay> pending = new HashMap<>();            // created, not yet confirmed
+    private final Map<String, Stay> counted = new HashMap<>();            // confirmed and in the histograms
+    private LocalDateTime observedFrom;
+    private LocalDateTime observedUntil;
+
+    /** @param persistence resolves slots to their lot and type (lots are indexed on first use) */
+    public OccupancyForecaster(PersistentManager persistence) {
+        this.persistence = persistence;
+        for (ParkingLot lot : persistence.findAllParkingLots()) {
+            indexLot(lot);
+        }
+    }
+
+    /** Re-index every lot saved from now on (slots added, removed or retyped), as the change stream delivers it. */
+    public ChangeSubscription followLots(CdcPersistentManager cdc) {
+        return cdc.subscribeAfter(() -> {
+            for (ParkingLot lot : cdc.findAllParkingLots()) indexLot(lot);
+        }, event -> {
+            if (ChangeEvent.PARKING_LOT.equals(event.getEntityType())) indexLot(cdc.decode(event, ParkingLot.class));
+        });
+    }
+
+    // --- Event stream ---
+
+    public synchronized void apply(ReservationEvent e) {
+        String id = e.getReservationId();
+        switch (e.getType()) {
+            case CREATED -> {
+                Stay old = counted.remove(id);
+                if (old != null) add(old, -1);
+                if (e.getSlotId() != null && e.getStartTime() != null && e.getEndTime() != null) {
+                    pending.put(id, new Stay(e.getSlotId(), e.getStartTime(), e.getEndTime()));
+                }
+            }
+            case CONFIRMED -> {
+                Stay stay = pending.remove(id);
+                if (stay != null) {
+                    counted.put(id, stay);
+                    add(stay, +1);
+                }
+            }
+            case CANCELLED -> {
+                pending.remove(id);
+                Stay stay = counted.remove(id);
+                if (stay != null) add(stay, -1);
+            }
+            case EXTENDED -> {
+                if (e.getEndTime() == null) break;
+                Stay stay = counted.get(id);
+                if (stay != null && e.getEndTime().isAfter(stay.end())) {
+                    add(new Stay(stay.slotId(), stay.end(), e.getEndTime()), +1);
+                    counted.put(id, new Stay(stay.slotId(), stay.start(), e.getEndTime()));
+                } else {
+                    pending.computeIfPresent(id, (k, p) -> new Stay(p.slotId(), p.start(), e.getEndTime()));
+                }
+            }
+            default -> { }
+        }
+    }
+
+    /** Refresh slot-to-lot mapping and slot counts after a lot's slots changed. */
+    public synchronized void indexLot(ParkingLot lot) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ParkingSlot s : lot.getSlots()) {
+            String type = normalize(s.getSlotType());
+            slots.put(s.getSlotId(), new SlotInfo(lot.getLotId(), type));
+            counts.merge(type, 1, Integer::sum);
+        }
+        Set<String> previousTypes = typesByLot.put(lot.getLotId(), counts.keySet());
+        if (previousTypes != null) {
+            for (String type : previousTypes) {
+                Histogram h = histograms.get(key(lot.getLotId(), type));
+                if (h != null && !counts.containsKey(type)) h.slots = 0;
+            }
+        }
+        counts.forEach((type, n) -> histogram(lot.getLotId(), type).slots = n);
+    }
+
+    // --- Queries ---
+
+    /**
+     * Probability that at least one slot of the type is free at the lot at the given time, or 0 if
+     * the lot has no slot of that type.
+     */
+    public synchronized double probabilityFree(String lotId, String slotType, LocalDateTime time) {
+        Histogram h = histograms.get(key(lotId, normalize(slotType)));
+        if (h == null || h.slots == 0) return 0.0;
+        return 1.0 - Math.pow(occupancy(h, bucket(time)), h.slots);
+    }
+
+    /** Expected fraction of the lot's slots of the type occupied at the given time (0..1). */
+    public synchronized double expectedOccupancy(String lotId, String slotType, LocalDateTime time) {
+        Histogram h = histograms.get(key(lotId, normalize(slotType)));
+        if (h == null || h.slots == 0) return PRIOR_OCCUPANCY;
+        return occupancy(h, bucket(time));
+    }
+
+    /**
+     * Whether the forecast for the lot, type and hour of week rests on observed history; if not,
+     * expectedOccupancy only echoes the prior.
+     */
+    public synchronized boolean hasObservations(String lotId, String slotType, LocalDateTime time) {
+        Histogram h = histograms.get(key(lotId, normalize(slotType)));
+        return h != null && h.slots > 0 && exposureHours(bucket(time)) > 0;
+    }
+
+    private double occupancy(Histogram h, int bucket) {
+        double capacityHours = (double) h.slots * exposureHours(bucket);
+        double rate = (h.occupiedHours[bucket] + PRIOR_OCCUPANCY * PRIOR_WEIGHT) / (capacityHours + PRIOR_WEIGHT);
+        return Math.max(0.0, Math.min(1.0, rate));
+    }
+
+    /**
+     * How many times this hour of the week occurs in the observed window, i.e. how many slot-hours
+     * of capacity each slot contributed to the bucket. O(1): full weeks plus the partial week.
+     */
+    private long exposureHours(int bucket) {
+        if (observedFrom == null) return 0;
+        LocalDateTime from = observedFrom.truncatedTo(ChronoUnit.HOURS);
+        long hours = Math.max(1, Duration.between(from, observedUntil).toHours() + 1);
+        long occurrences = hours / HOURS_PER_WEEK;
+        long remainder = hours % HOURS_PER_WEEK;
+        long offset = Math.floorMod(bucket - bucket(from), HOURS_PER_WEEK);
+        return occurrences + (offset < remainder ? 1 : 0);
+    }
+
+    // --- Histogram updates ---
+
+    private void add(Stay stay, int sign) {
+        SlotInfo info = resolve(stay.slotId());
+        if (info == null || !stay.end().isAfter(stay.start())) return;
+        Histogram h = histogram(info.lotId(), info.type());
+        LocalDateTime end = stay.end();
+        LocalDateTime limit = stay.start().plusHours(MAX_RESERVATION_HOURS);
+        if (end.isAfter(limit)) end = limit;
+        if (sign > 0) observe(stay.start(), end);
+
+        LocalDateTime hourStart = stay.start().truncatedTo(ChronoUnit.HOURS);
+        while (hourStart.isBefore(end)) {
+            LocalDateTime hourEnd = hourStart.plusHours(1);
+            LocalDateTime from = stay.start().isAfter(hourStart) ? stay.start() : hourStart;
+            LocalDateTime to = end.isBefore(hourEnd) ? end : hourEnd;
+            double fraction = Duration.between(from, to).toMillis() / 3_600_000.0;
+            int b = bucket(hourStart);
+            h.occupiedHours[b] = Math.max(0.0, h.occupiedHours[b] + sign * fraction);
+            hourStart = hourEnd;
+        }
+    }
+
+    private void observe(LocalDateTime start, LocalDateTime end) {
+        if (observedFrom == null || start.isBefore(observedFrom)) observedFrom = start;
+        if (observedUntil == null || end.isAfter(observedUntil)) observedUntil = end;
+    }
+
+    private SlotInfo resolve(String slotId) {
+        SlotInfo info = slots.get(slotId);
+        if (info == null) {
+            persistence.findParkingLotBySlotId(slotId).ifPresent(this::indexLot);
+            info = slots.get(slotId);
+        }
+        return info;
+    }
+
+    private Histogram histogram(String lotId, String type) {
+        return histograms.computeIfAbsent(key(lotId, type), k -> new Histogram());
+    }
+
+    /** Hour of the week, Monday 00:00 = 0 .. Sunday 23:00 = 167. */
+    static int bucket(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * 24 + time.getHour();
+    }
+
+    private static String key(String lotId, String type) {
+        return lotId + "|" + type;
+    }
+
+    private static String normalize(String type) {
+        return type != null ? type.toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -0,0 +1,72 @@
+package smartparking.gateway;
+
+/**
+ * Circuit breaker for one payment gateway. CLOSED lets calls through and counts consecutive
+ * failures (errors and timeouts); at the threshold it trips to OPEN and short-circuits every call
+ * for the open interval. After that a single trial call is let through (HALF_OPEN): success closes
+ * the breaker, failure opens it again. A gateway that answers, even with a decline, is healthy.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long trips;
+
+    /**
+     * @param failureThreshold consecutive failures that trip the breaker
+     * @param openMillis       how long it stays open before a trial call
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold < 1 || openMillis < 0) throw new IllegalArgumentException("failureThreshold >= 1 and openMillis >= 0 required");
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    /** Whether a call may go to the gateway now. A true answer must be followed by onSuccess or onFailure. */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) return false;
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) return false;
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) trips++;
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Number of times the breaker has opened. */
+    public synchronized long getTrips() {
+        return trips;
+    }
+}
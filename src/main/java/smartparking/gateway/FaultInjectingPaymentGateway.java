@@ -0,0 +1,124 @@
+package smartparking.gateway;
+
+import smartparking.model.PaymentGateway;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a remote payment provider with configurable latency and faults, for exercising
+ * ResilientPaymentGateway (timeouts, breakers, failover, hedging) without a network. Each call sleeps
+ * for the base latency plus uniform jitter, then may throw (error rate), hang for the hang time (hang
+ * rate) or decline (decline rate); otherwise it approves. Faults can be changed while calls are running.
+ *
+ * Like a real provider it deduplicates by idempotency key: the delay models the request's trip, and
+ * a key that was already processed returns its earlier outcome without charging again. The last
+ * KEYS_REMEMBERED keys are kept.
+ */
+public class FaultInjectingPaymentGateway extends PaymentGateway implements IdempotentPaymentGateway {
+
+    private static final int KEYS_REMEMBERED = 10_000;
+
+    private final Random random;
+    private volatile long latencyMillis;
+    private volatile long jitterMillis;
+    private volatile double errorRate;
+    private volatile double hangRate;
+    private volatile long hangMillis = 60_000;
+    private volatile double declineRate;
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong charges = new AtomicLong();
+    private final Map<String, Boolean> processed = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > KEYS_REMEMBERED;
+        }
+    };
+
+    public FaultInjectingPaymentGateway(String gatewayId, long seed) {
+        this.random = new Random(seed);
+        setGatewayId(gatewayId);
+        setGatewayName("Fault injector " + gatewayId);
+        setProvider("Local");
+        setStatus("Active");
+    }
+
+    public FaultInjectingPaymentGateway latency(long millis, long jitterMillis) {
+        this.latencyMillis = millis;
+        this.jitterMillis = jitterMillis;
+        return this;
+    }
+
+    public FaultInjectingPaymentGateway errorRate(double rate) {
+        this.errorRate = rate;
+        return this;
+    }
+
+    public FaultInjectingPaymentGateway hangRate(double rate, long hangMillis) {
+        this.hangRate = rate;
+        this.hangMillis = hangMillis;
+        return this;
+    }
+
+    public FaultInjectingPaymentGateway declineRate(double rate) {
+        this.declineRate = rate;
+        return this;
+    }
+
+    /** Calls received so far (including ones that failed or hung). */
+    public long getInvocations() {
+        return invocations.get();
+    }
+
+    /** Payments approved so far; a repeated idempotency key is not charged again. */
+    public long getCharges() {
+        return charges.get();
+    }
+
+    @Override
+    public boolean processTransaction(double amount) {
+        return processTransaction(amount, null);
+    }
+
+    @Override
+    public boolean processTransaction(double amount, String idempotencyKey) {
+        invocations.incrementAndGet();
+        double roll;
+        long sleep;
+        synchronized (random) {
+            roll = random.nextDouble();
+            sleep = latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+        }
+        if (roll < hangRate) sleep += hangMillis;
+        pause(sleep);
+        if (roll >= hangRate && roll < hangRate + errorRate) {
+            throw new IllegalStateException("Injected gateway error (" + getGatewayId() + ")");
+        }
+        if (idempotencyKey == null) return charge(roll, amount);
+        synchronized (processed) {
+            Boolean earlier = processed.get(idempotencyKey);
+            if (earlier != null) return earlier;
+            boolean approved = charge(roll, amount);
+            processed.put(idempotencyKey, approved);
+            return approved;
+        }
+    }
+
+    private boolean charge(double roll, double amount) {
+        if (roll >= hangRate + errorRate && roll < hangRate + errorRate + declineRate) return false;
+        boolean approved = super.processTransaction(amount);
+        if (approved) charges.incrementAndGet();
+        return approved;
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package smartparking.gateway;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and a latency histogram for payment calls. Latencies go into power-of-two microsecond
+ * buckets, so percentiles are reported as the bucket's upper bound (at most 2x the true value).
+ * Recording is lock-free.
+ */
+public class GatewayMetrics {
+
+    private static final int BUCKETS = 40;   // up to 2^39 us, about six days
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder declines = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder lateApprovals = new LongAdder();
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+
+    void recordCall() { calls.increment(); }
+    void recordSuccess(long nanos) { successes.increment(); recordLatency(nanos); }
+    void recordDecline(long nanos) { declines.increment(); recordLatency(nanos); }
+    void recordError(long nanos) { errors.increment(); recordLatency(nanos); }
+    void recordTimeout() { timeouts.increment(); }
+    void recordShortCircuit() { shortCircuited.increment(); }
+    void recordHedge() { hedges.increment(); }
+    void recordHedgeWin() { hedgeWins.increment(); }
+    void recordLateApproval() { lateApprovals.increment(); }
+
+    public long getCalls() { return calls.sum(); }
+    public long getSuccesses() { return successes.sum(); }
+    public long getDeclines() { return declines.sum(); }
+    public long getErrors() { return errors.sum(); }
+    public long getTimeouts() { return timeouts.sum(); }
+    public long getShortCircuited() { return shortCircuited.sum(); }
+    public long getHedges() { return hedges.sum(); }
+    public long getHedgeWins() { return hedgeWins.sum(); }
+    /** Calls that approved after the caller's deadline had already failed the payment. */
+    public long getLateApprovals() { return lateApprovals.sum(); }
+
+    /** Fraction of calls that ended in an error or timeout (0 if none yet). */
+    public double getFailureRate() {
+        long n = getCalls();
+        return n == 0 ? 0.0 : (double) (getErrors() + getTimeouts()) / n;
+    }
+
+    /** Latency at the given percentile (0..100) in milliseconds, or 0 if nothing was recorded. */
+    public double percentileMillis(double percentile) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latency.get(i);
+            total += counts[i];
+        }
+        if (total == 0) return 0.0;
+        long rank = (long) Math.ceil(total * Math.max(0.0, Math.min(100.0, percentile)) / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) return (1L << i) / 1000.0;
+        }
+        return (1L << (BUCKETS - 1)) / 1000.0;
+    }
+
+    private void recordLatency(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+        latency.incrementAndGet(bucket);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("calls=%d ok=%d declined=%d errors=%d timeouts=%d shortCircuited=%d hedges=%d hedgeWins=%d lateApprovals=%d p50=%.1fms p99=%.1fms",
+                getCalls(), getSuccesses(), getDeclines(), getErrors(), getTimeouts(), getShortCircuited(),
+                getHedges(), getHedgeWins(), getLateApprovals(), percentileMillis(50), percentileMillis(99));
+    }
+}
@@ -0,0 +1,162 @@
+package smartparking.gateway;
+
+import smartparking.model.PaymentGateway;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Several payment gateways ranked by expected cost per transaction:
+ * <pre>
+ *   score = fee + latencyCostPerMs * ewmaLatencyMs + failurePenalty * (1 - ewmaSuccessRate)
+ * </pre>
+ * Latency and success rate are exponentially weighted moving averages of recent calls, seeded by
+ * each gateway's first call. Each recorded outcome updates its gateway's averages (CAS, no locks)
+ * and re-ranks the pool; routing a transaction reads one volatile field. Every PROBE_INTERVAL-th
+ * transaction goes to the next gateway in turn instead, so the averages of gateways that are not
+ * winning stay current and a recovered gateway can win back traffic (a few thousand transactions
+ * at the default weights). Inactive gateways are never chosen.
+ */
+public class GatewayPool {
+
+    private static final double DEFAULT_ALPHA = 0.1;
+    private static final double DEFAULT_LATENCY_COST_PER_MS = 0.002;   // 100 ms slower = 0.20 more
+    private static final double DEFAULT_FAILURE_PENALTY = 5.0;         // 10% more failures = 0.50 more
+    private static final double INITIAL_LATENCY_MS = 100;
+    static final int PROBE_INTERVAL = 32;
+
+    /** One gateway and its live averages. */
+    public static final class Member {
+        private final PaymentGateway gateway;
+        private final double fee;
+        private final AtomicLong latencyMs = new AtomicLong(Double.doubleToLongBits(INITIAL_LATENCY_MS));
+        private final AtomicLong successRate = new AtomicLong(Double.doubleToLongBits(1.0));
+        private final AtomicLong transactions = new AtomicLong();
+
+        Member(PaymentGateway gateway) {
+            this.gateway = gateway;
+            this.fee = gateway.getTransactionFee() != null ? gateway.getTransactionFee().doubleValue() : 0.0;
+        }
+
+        public PaymentGateway getGateway() { return gateway; }
+        public double getFee() { return fee; }
+        public double getLatencyMs() { return Double.longBitsToDouble(latencyMs.get()); }
+        public double getSuccessRate() { return Double.longBitsToDouble(successRate.get()); }
+        public long getTransactions() { return transactions.get(); }
+
+        @Override
+        public String toString() {
+            return String.format("%s{fee=%.2f, latency=%.1fms, success=%.3f, transactions=%d}",
+                    gateway.getGatewayId(), fee, getLatencyMs(), getSuccessRate(), getTransactions());
+        }
+    }
+
+    private final Member[] members;
+    private final double alpha;
+    private final double latencyCostPerMs;
+    private final double failurePenalty;
+    private final AtomicLong routed = new AtomicLong();
+    private volatile Member best;
+
+    public GatewayPool(List<PaymentGateway> gateways) {
+        this(gateways, DEFAULT_ALPHA, DEFAULT_LATENCY_COST_PER_MS, DEFAULT_FAILURE_PENALTY);
+    }
+
+    /**
+     * @param alpha            EWMA weight of the newest observation (0..1]
+     * @param latencyCostPerMs cost of one millisecond of latency, in fee units
+     * @param failurePenalty   cost of a failed transaction, in fee units
+     */
+    public GatewayPool(List<PaymentGateway> gateways, double alpha, double latencyCostPerMs, double failurePenalty) {
+        if (gateways == null || gateways.isEmpty()) throw new IllegalArgumentException("At least one gateway required");
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        this.members = gateways.stream().map(Member::new).toArray(Member[]::new);
+        this.alpha = alpha;
+        this.latencyCostPerMs = latencyCostPerMs;
+        this.failurePenalty = failurePenalty;
+        rerank();
+    }
+
+    /** Gateway for the next transaction: the current best, or a probe every PROBE_INTERVAL calls. */
+    public Member select() {
+        long n = routed.incrementAndGet();
+        if (members.length > 1 && n % PROBE_INTERVAL == 0) {
+            Member probe = members[(int) ((n / PROBE_INTERVAL) % members.length)];
+            if (isActive(probe)) return probe;
+        }
+        return best;
+    }
+
+    /**
+     * Fold one call's outcome into the member's averages and re-rank the pool. {@code success} means
+     * the gateway answered (approved or declined); errors and timeouts are failures.
+     */
+    public void record(Member member, long latencyNanos, boolean success) {
+        double latencyMs = latencyNanos / 1e6;
+        if (member.transactions.getAndIncrement() == 0) {
+            // first observation replaces the prior instead of being averaged into it
+            member.latencyMs.set(Double.doubleToLongBits(latencyMs));
+            member.successRate.set(Double.doubleToLongBits(success ? 1.0 : 0.0));
+        } else {
+            update(member.latencyMs, latencyMs);
+            update(member.successRate, success ? 1.0 : 0.0);
+        }
+        rerank();
+    }
+
+    /** Expected cost of sending a transaction to the member (lower is better). */
+    public double score(Member m) {
+        if (!isActive(m)) return Double.POSITIVE_INFINITY;
+        return m.fee + latencyCostPerMs * m.getLatencyMs() + failurePenalty * (1.0 - m.getSuccessRate());
+    }
+
+    /** Best-ranked active member not in {@code tried}, for failing over; null if none is left. */
+    public Member selectExcluding(List<Member> tried) {
+        Member winner = null;
+        double winnerScore = Double.POSITIVE_INFINITY;
+        for (Member m : members) {
+            if (tried.contains(m)) continue;
+            double s = score(m);
+            if (s < winnerScore) {
+                winner = m;
+                winnerScore = s;
+            }
+        }
+        return winner;
+    }
+
+    public Member getBest() {
+        return best;
+    }
+
+    public List<Member> getMembers() {
+        return List.of(members);
+    }
+
+    private void update(AtomicLong average, double sample) {
+        long prev, next;
+        do {
+            prev = average.get();
+            double old = Double.longBitsToDouble(prev);
+            next = Double.doubleToLongBits(old + alpha * (sample - old));
+        } while (!average.compareAndSet(prev, next));
+    }
+
+    /** Concurrent re-ranks may race; the last one wins and the next outcome corrects any staleness. */
+    private void rerank() {
+        Member winner = members[0];
+        double winnerScore = score(winner);
+        for (int i = 1; i < members.length; i++) {
+            double s = score(members[i]);
+            if (s < winnerScore) {
+                winner = members[i];
+                winnerScore = s;
+            }
+        }
+        best = winner;
+    }
+
+    private static boolean isActive(Member m) {
+        return "Active".equalsIgnoreCase(m.gateway.getStatus());
+    }
+}
@@ -0,0 +1,16 @@
+package smartparking.gateway;
+
+/**
+ * A payment gateway that deduplicates transactions by key: every call with the same key is one
+ * payment, charged at most once, and each call answers with that payment's outcome. Only such
+ * gateways are hedged by ResilientPaymentGateway, since a second copy of the call cannot charge
+ * the customer again. Implemented by PaymentGateway subclasses (e.g. FaultInjectingPaymentGateway).
+ */
+public interface IdempotentPaymentGateway {
+
+    /**
+     * Process the payment identified by idempotencyKey; a repeated key returns the first outcome
+     * without charging again. A call that throws charged nothing, so the key may be retried.
+     */
+    boolean processTransaction(double amount, String idempotencyKey);
+}
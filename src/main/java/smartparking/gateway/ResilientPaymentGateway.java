@@ -0,0 +1,370 @@
+package smartparking.gateway;
+
+import smartparking.model.PaymentGateway;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PaymentGateway that fronts one or more real gateways (first = preferred) so a slow or failing
+ * provider cannot stall booking threads:
+ * <ul>
+ *   <li>every transaction has a deadline; the caller gets a failed payment when it passes</li>
+ *   <li>each gateway has a CircuitBreaker; an open breaker is skipped without a call</li>
+ *   <li>a call that throws fails over to the next gateway whose breaker is closed</li>
+ *   <li>with a hedge delay (opt-in), a call to an {@link IdempotentPaymentGateway} still pending
+ *       after the delay is sent again to the same gateway under the same idempotency key, and the
+ *       first answer wins</li>
+ * </ul>
+ * A gateway that returns false has declined the payment; that answer is final and is not retried.
+ * A call that misses the deadline is not cancelled and may still approve, charging a customer
+ * whose booking has already failed. The gateway API has no refund, so such late approvals are
+ * kept as {@link LateApproval}s for reconciliation (see {@link #drainLateApprovals()}). A hedge
+ * never goes to a different gateway or to one without idempotency keys: the same payment could
+ * then be taken twice. Both copies of a hedged call are one payment, so an error from one waits
+ * for the other before failing over.
+ *
+ * Drop-in replacement: pass it wherever a PaymentGateway is expected (e.g. the strategy registry).
+ */
+public class ResilientPaymentGateway extends PaymentGateway implements AutoCloseable {
+
+    private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_OPEN_MILLIS = 10_000;
+    private static final int MAX_CALL_THREADS = 64;
+
+    private record Outcome(int gateway, boolean approved, boolean error) { }
+
+    /** How a transaction ended: a decline is an answer; UNAVAILABLE means no gateway answered in time. */
+    public enum Result { APPROVED, DECLINED, UNAVAILABLE }
+
+    /** A payment the caller was told failed (deadline passed) but the gateway approved afterwards. */
+    public record LateApproval(String gatewayId, double amount, LocalDateTime approvedAt) { }
+
+    private final List<PaymentGateway> gateways;
+    private final List<CircuitBreaker> breakers = new ArrayList<>();
+    private final List<GatewayMetrics> gatewayMetrics = new ArrayList<>();
+    private final GatewayMetrics metrics = new GatewayMetrics();
+    private final long timeoutNanos;
+    private final long hedgeDelayNanos;
+    private final ExecutorService callers;
+    private final ConcurrentLinkedQueue<LateApproval> lateApprovals = new ConcurrentLinkedQueue<>();
+
+    public ResilientPaymentGateway(List<PaymentGateway> gateways, long timeoutMillis) {
+        this(gateways, timeoutMillis, 0);
+    }
+
+    public ResilientPaymentGateway(List<PaymentGateway> gateways, long timeoutMillis, long hedgeDelayMillis) {
+        this(gateways, timeoutMillis, hedgeDelayMillis, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * @param gateways         gateways in order of preference (at least one)
+     * @param timeoutMillis    deadline per transaction, including failover and hedges
+     * @param hedgeDelayMillis hedge a call to an IdempotentPaymentGateway after this long without an
+     *                         answer; 0 disables hedging
+     * @param failureThreshold consecutive failures that open a gateway's breaker
+     * @param openMillis       how long an open breaker short-circuits calls
+     */
+    public ResilientPaymentGateway(List<PaymentGateway> gateways, long timeoutMillis, long hedgeDelayMillis,
+                                   int failureThreshold, long openMillis) {
+        if (gateways == null || gateways.isEmpty()) throw new IllegalArgumentException("At least one gateway required");
+        if (timeoutMillis <= 0) throw new IllegalArgumentException("timeoutMillis must be positive");
+        if (hedgeDelayMillis < 0) throw new IllegalArgumentException("hedgeDelayMillis must not be negative");
+        this.gateways = List.copyOf(gateways);
+        for (int i = 0; i < this.gateways.size(); i++) {
+            breakers.add(new CircuitBreaker(failureThreshold, openMillis));
+            gatewayMetrics.add(new GatewayMetrics());
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.hedgeDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.callers = new ThreadPoolExecutor(0, MAX_CALL_THREADS, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "payment-call-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        PaymentGateway first = this.gateways.get(0);
+        setGatewayId("RESILIENT-" + first.getGatewayId());
+        setGatewayName("Resilient " + first.getGatewayName());
+        setProvider(first.getProvider());
+        setStatus("Active");
+    }
+
+    @Override
+    public boolean processTransaction(double amount) {
+        return authorize(amount) == Result.APPROVED;
+    }
+
+    /** Like {@link #processTransaction(double)}, but tells a decline apart from errors, timeouts and open breakers. */
+    public Result authorize(double amount) {
+        if (!"Active".equalsIgnoreCase(getStatus()) || amount <= 0) return Result.DECLINED;
+        metrics.recordCall();
+        long start = System.nanoTime();
+        long deadline = start + timeoutNanos;
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        Attempt attempt = launchNext(0, amount, idempotencyKey, outcomes);
+        if (attempt == null) {
+            metrics.recordShortCircuit();
+            return Result.UNAVAILABLE;
+        }
+        Outcome o;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                boolean hedgeFirst = attempt.hedgeable() && attempt.start + hedgeDelayNanos - deadline < 0;
+                long until = hedgeFirst ? attempt.start + hedgeDelayNanos : deadline;
+                o = until - now > 0 ? outcomes.poll(until - now, TimeUnit.NANOSECONDS) : null;
+                if (o == null && hedgeFirst) {
+                    hedge(attempt);
+                    continue;
+                }
+                if (o == null) {
+                    if (attempt.expire()) return timedOut();
+                    o = awaitOutcome(outcomes);   // answered just as the deadline passed
+                }
+                if (!o.error()) break;
+                Attempt next = launchNext(o.gateway() + 1, amount, idempotencyKey, outcomes);
+                if (next == null) break;
+                attempt = next;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (attempt.expire()) return timedOut();
+            o = awaitOutcome(outcomes);
+        }
+        long nanos = System.nanoTime() - start;
+        if (o.error()) {
+            metrics.recordError(nanos);
+            return Result.UNAVAILABLE;
+        }
+        if (o.approved()) {
+            metrics.recordSuccess(nanos);
+            return Result.APPROVED;
+        }
+        metrics.recordDecline(nanos);
+        return Result.DECLINED;
+    }
+
+    /**
+     * One payment on one gateway: a call, plus a hedge copy under the same idempotency key if the
+     * first is slow. Its result goes to exactly one place: to the waiting caller if a copy answers
+     * first (or the last copy fails), or, once the caller's deadline has expired it, to the
+     * late-outcome bookkeeping (where an approval is kept for reconciliation, once per payment).
+     */
+    private final class Attempt {
+        final int gateway;
+        final double amount;
+        final String idempotencyKey;
+        final BlockingQueue<Outcome> outcomes;
+        final long start = System.nanoTime();
+        private int running = 1;
+        private boolean hedged;
+        private boolean settled;
+        private boolean expired;
+        private boolean lateRecorded;
+
+        Attempt(int gateway, double amount, String idempotencyKey, BlockingQueue<Outcome> outcomes) {
+            this.gateway = gateway;
+            this.amount = amount;
+            this.idempotencyKey = idempotencyKey;
+            this.outcomes = outcomes;
+        }
+
+        /** Whether a hedge may still be sent: hedging is on, the gateway dedups and none was sent yet. */
+        synchronized boolean hedgeable() {
+            return hedgeDelayNanos > 0 && !hedged && !settled && gateways.get(gateway) instanceof IdempotentPaymentGateway;
+        }
+
+        /** Count a hedge copy as running; false if the payment has already settled. */
+        synchronized boolean startHedge() {
+            hedged = true;
+            if (settled) return false;
+            running++;
+            return true;
+        }
+
+        /**
+         * Record one copy's result; true if it settles the attempt and must be handed to the caller.
+         * An error settles only when no other copy is still running, since that copy may yet approve.
+         */
+        boolean settle(boolean failed, boolean approved, boolean hedge) {
+            synchronized (this) {
+                running--;
+                if (settled) {
+                    if (expired && !failed && approved && !lateRecorded) {
+                        lateRecorded = true;
+                        lateApproval(this);
+                    }
+                    return false;
+                }
+                if (failed && running > 0) return false;
+                settled = true;
+            }
+            long nanos = System.nanoTime() - start;
+            GatewayMetrics m = gatewayMetrics.get(gateway);
+            if (failed) {
+                breakers.get(gateway).onFailure();
+                m.recordError(nanos);
+            } else {
+                breakers.get(gateway).onSuccess();
+                if (approved) m.recordSuccess(nanos);
+                else m.recordDecline(nanos);
+                if (hedge) {
+                    m.recordHedgeWin();
+                    metrics.recordHedgeWin();
+                }
+            }
+            return true;
+        }
+
+        /** Give up on the call; false if it has already settled (its outcome is queued or about to be). */
+        boolean expire() {
+            synchronized (this) {
+                if (settled) return false;
+                settled = true;
+                expired = true;
+            }
+            breakers.get(gateway).onFailure();
+            gatewayMetrics.get(gateway).recordTimeout();
+            return true;
+        }
+    }
+
+    /** Start a call on the first gateway at or after index {@code from} whose breaker admits it; null if none. */
+    private Attempt launchNext(int from, double amount, String idempotencyKey, BlockingQueue<Outcome> outcomes) {
+        for (int i = from; i < gateways.size(); i++) {
+            if (!breakers.get(i).tryAcquire()) {
+                gatewayMetrics.get(i).recordShortCircuit();
+                continue;
+            }
+            Attempt attempt = new Attempt(i, amount, idempotencyKey, outcomes);
+            gatewayMetrics.get(i).recordCall();
+            if (call(attempt, false)) return attempt;
+        }
+        return null;
+    }
+
+    /** Send a hedge copy of a slow attempt to the same gateway, under the same idempotency key. */
+    private void hedge(Attempt attempt) {
+        if (!attempt.startHedge()) return;
+        gatewayMetrics.get(attempt.gateway).recordHedge();
+        metrics.recordHedge();
+        call(attempt, true);
+    }
+
+    /**
+     * Run one copy of the attempt on a call thread; the copy that settles the attempt queues its
+     * outcome. False if the first copy found no free thread, which settles the attempt as failed.
+     */
+    private boolean call(Attempt attempt, boolean hedge) {
+        PaymentGateway gateway = gateways.get(attempt.gateway);
+        try {
+            callers.execute(() -> {
+                boolean approved = false;
+                boolean failed = false;
+                try {
+                    approved = gateway instanceof IdempotentPaymentGateway idempotent
+                            ? idempotent.processTransaction(attempt.amount, attempt.idempotencyKey)
+                            : gateway.processTransaction(attempt.amount);
+                } catch (RuntimeException e) {
+                    failed = true;
+                }
+                if (attempt.settle(failed, approved, hedge)) {
+                    attempt.outcomes.add(new Outcome(attempt.gateway, approved, failed));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // every call thread is stuck on a gateway: treat this copy as failed
+            if (attempt.settle(true, false, hedge) && hedge) {
+                attempt.outcomes.add(new Outcome(attempt.gateway, false, true));
+            }
+            return hedge;
+        }
+        return true;
+    }
+
+    /** Take the outcome of an attempt that settled before it could be expired; it is enqueued right after settling. */
+    private static Outcome awaitOutcome(BlockingQueue<Outcome> outcomes) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return outcomes.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private Result timedOut() {
+        metrics.recordTimeout();
+        return Result.UNAVAILABLE;
+    }
+
+    private void lateApproval(Attempt attempt) {
+        gatewayMetrics.get(attempt.gateway).recordLateApproval();
+        metrics.recordLateApproval();
+        lateApprovals.add(new LateApproval(gateways.get(attempt.gateway).getGatewayId(), attempt.amount, LocalDateTime.now()));
+    }
+
+    @Override
+    public boolean connect() {
+        for (PaymentGateway g : gateways) g.connect();
+        return super.connect();
+    }
+
+    @Override
+    public void disconnect() {
+        for (PaymentGateway g : gateways) g.disconnect();
+        super.disconnect();
+    }
+
+    /** Totals per transaction (end-to-end latency, timeouts, late approvals). */
+    public GatewayMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Per-call metrics for the gateway at the given position. */
+    public GatewayMetrics getMetrics(int gatewayIndex) {
+        return gatewayMetrics.get(gatewayIndex);
+    }
+
+    public CircuitBreaker.State getBreakerState(int gatewayIndex) {
+        return breakers.get(gatewayIndex).getState();
+    }
+
+    /**
+     * Late approvals recorded since the last drain, oldest first. Each one charged a customer who
+     * was told the payment failed, so it must be refunded or matched to a booking by hand.
+     */
+    public List<LateApproval> drainLateApprovals() {
+        List<LateApproval> drained = new ArrayList<>();
+        for (LateApproval a; (a = lateApprovals.poll()) != null; ) drained.add(a);
+        return drained;
+    }
+
+    public List<PaymentGateway> getGateways() {
+        return gateways;
+    }
+
+    @Override
+    public void close() {
+        callers.shutdownNow();
+    }
+}
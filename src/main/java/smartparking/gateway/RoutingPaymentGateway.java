@@ -0,0 +1,84 @@
+package smartparking.gateway;
+
+import smartparking.model.PaymentGateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PaymentGateway that sends each transaction to the gateway the GatewayPool currently ranks best
+ * and feeds the call's latency and outcome back into the pool. Only a gateway that fails to answer
+ * counts as a failure for ranking: a call that throws, or a ResilientPaymentGateway that errored,
+ * timed out or short-circuited. A decline is an answer, so it counts as healthy, as in CircuitBreaker.
+ *
+ * A gateway that fails to answer fails over to the next-best active member, each member tried at
+ * most once per transaction; if none answers, the last exception is passed on to the caller (or
+ * the payment fails). A ResilientPaymentGateway that timed out may still approve late; it keeps
+ * that approval for reconciliation, as the payment may then have been taken twice.
+ */
+public class RoutingPaymentGateway extends PaymentGateway {
+
+    private final GatewayPool pool;
+    private final LongAdder failovers = new LongAdder();
+
+    public RoutingPaymentGateway(GatewayPool pool) {
+        this.pool = pool;
+        setGatewayId("POOL");
+        setGatewayName("Gateway pool");
+        setProvider("Routed");
+        setStatus("Active");
+    }
+
+    @Override
+    public boolean processTransaction(double amount) {
+        if (!"Active".equalsIgnoreCase(getStatus()) || amount <= 0) return false;
+        List<GatewayPool.Member> tried = new ArrayList<>(2);
+        RuntimeException failure = null;
+        for (GatewayPool.Member member = pool.select(); member != null; member = pool.selectExcluding(tried)) {
+            if (!tried.isEmpty()) failovers.increment();
+            tried.add(member);
+            try {
+                Boolean approved = call(member, amount);
+                if (approved != null) return approved;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+        return false;
+    }
+
+    /** The member's answer, or null if it did not answer (error, timeout or open breaker). */
+    private Boolean call(GatewayPool.Member member, double amount) {
+        long start = System.nanoTime();
+        boolean answered = false;
+        try {
+            if (member.getGateway() instanceof ResilientPaymentGateway resilient) {
+                ResilientPaymentGateway.Result result = resilient.authorize(amount);
+                answered = result != ResilientPaymentGateway.Result.UNAVAILABLE;
+                return answered ? result == ResilientPaymentGateway.Result.APPROVED : null;
+            }
+            boolean approved = member.getGateway().processTransaction(amount);
+            answered = true;
+            return approved;
+        } finally {
+            pool.record(member, System.nanoTime() - start, answered);
+        }
+    }
+
+    /** Transactions retried on another member because the one tried before did not answer. */
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    @Override
+    public boolean connect() {
+        for (GatewayPool.Member m : pool.getMembers()) m.getGateway().connect();
+        return super.connect();
+    }
+
+    public GatewayPool getPool() {
+        return pool;
+    }
+}
@@ -0,0 +1,212 @@
+package smartparking.geo;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.persistence.ForwardingPersistentManager;
+import smartparking.persistence.PersistentManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spatial index of parking lots for "nearest lot with a free slot of type X" queries. Lots are
+ * bucketed in a fixed lat/lon grid (default 0.01 degrees, about 1.1 km); each entry carries the
+ * lot's available-slot counts per type, refreshed on every saveParkingLot, so a query joins location
+ * and availability without touching slots. A k-nearest query scans rings of cells outward from the
+ * query cell and stops once no unvisited cell can hold a nearer lot. Lots without coordinates are
+ * not indexed.
+ */
+public class LotSpatialIndex extends ForwardingPersistentManager {
+
+    private static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    /** Indexed state of one lot; immutable, replaced on every save. */
+    private static final class Entry {
+        final String lotId;
+        final String name;
+        final String address;
+        final double latitude;
+        final double longitude;
+        final long cell;
+        final int available;
+        final Map<String, Integer> availableByType;
+
+        Entry(ParkingLot lot, long cell) {
+            this.lotId = lot.getLotId();
+            this.name = lot.getName();
+            this.address = lot.getAddress();
+            this.latitude = lot.getLatitude();
+            this.longitude = lot.getLongitude();
+            this.cell = cell;
+            Map<String, Integer> byType = new HashMap<>();
+            int count = 0;
+            for (ParkingSlot s : lot.getSlots()) {
+                if (!s.isAvailable()) continue;
+                count++;
+                if (s.getSlotType() != null) byType.merge(s.getSlotType().toLowerCase(Locale.ROOT), 1, Integer::sum);
+            }
+            this.available = count;
+            this.availableByType = byType;
+        }
+
+        int available(String slotType) {
+            return slotType == null ? available : availableByType.getOrDefault(slotType, 0);
+        }
+    }
+
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> cells = new ConcurrentHashMap<>();
+
+    public LotSpatialIndex(PersistentManager delegate) {
+        this(delegate, DEFAULT_CELL_DEGREES);
+    }
+
+    public LotSpatialIndex(PersistentManager delegate, double cellDegrees) {
+        super(delegate);
+        if (cellDegrees <= 0 || cellDegrees > 90) throw new IllegalArgumentException("cellDegrees must be in (0, 90]");
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180.0 / cellDegrees);
+        this.columns = (int) Math.ceil(360.0 / cellDegrees);
+        for (ParkingLot lot : delegate.findAllParkingLots()) {
+            index(lot);
+        }
+    }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) {
+        super.saveParkingLot(lot);
+        index(lot);
+    }
+
+    /** Number of indexed (geocoded) lots. */
+    public int size() {
+        return entries.size();
+    }
+
+    /** Add or refresh a lot (location and available counts). A lot without coordinates is removed. */
+    public synchronized void index(ParkingLot lot) {
+        if (!lot.hasLocation()) {
+            remove(lot.getLotId());
+            return;
+        }
+        Entry entry = new Entry(lot, cellOf(lot.getLatitude(), lot.getLongitude()));
+        Entry old = entries.put(entry.lotId, entry);
+        if (old == null || old.cell != entry.cell) {
+            if (old != null) removeFromCell(old);
+            cells.computeIfAbsent(entry.cell, k -> ConcurrentHashMap.newKeySet()).add(entry.lotId);
+        }
+    }
+
+    public synchronized void remove(String lotId) {
+        Entry old = entries.remove(lotId);
+        if (old != null) removeFromCell(old);
+    }
+
+    private void removeFromCell(Entry entry) {
+        Set<String> members = cells.get(entry.cell);
+        if (members == null) return;
+        members.remove(entry.lotId);
+        if (members.isEmpty()) cells.remove(entry.cell);
+    }
+
+    /**
+     * Up to k lots nearest to the point that have at least one available slot of the given type,
+     * nearest first.
+     *
+     * @param slotType e.g. "EV" (case-insensitive), or null for any type
+     */
+    public List<NearbyLot> findNearest(double latitude, double longitude, String slotType, int k) {
+        if (k <= 0 || entries.isEmpty()) return List.of();
+        String type = slotType != null ? slotType.toLowerCase(Locale.ROOT) : null;
+        PriorityQueue<NearbyLot> best = new PriorityQueue<>(k,
+                Comparator.comparingDouble(NearbyLot::getDistanceMeters).reversed());
+        int row0 = row(latitude);
+        int col0 = column(longitude);
+        for (int r = 0; ; r++) {
+            if (8L * r > cells.size() || 2 * r + 1 >= columns) {
+                // the ring is larger than the set of occupied cells: visit those outside the square directly
+                for (Map.Entry<Long, Set<String>> cell : cells.entrySet()) {
+                    if (ringDistance(cell.getKey(), row0, col0) >= r) visit(cell.getValue(), latitude, longitude, type, k, best);
+                }
+                break;
+            }
+            visitRing(r, row0, col0, latitude, longitude, type, k, best);
+            if (best.size() == k && best.peek().getDistanceMeters() <= minDistanceOutside(latitude, r)) break;
+        }
+        List<NearbyLot> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(NearbyLot::getDistanceMeters));
+        return result;
+    }
+
+    private void visitRing(int r, int row0, int col0, double lat, double lon, String type, int k,
+                           PriorityQueue<NearbyLot> best) {
+        for (int row = row0 - r; row <= row0 + r; row++) {
+            if (row < 0 || row >= rows) continue;
+            boolean edgeRow = row == row0 - r || row == row0 + r;
+            int step = edgeRow || r == 0 ? 1 : 2 * r;
+            for (int col = col0 - r; col <= col0 + r; col += step) {
+                Set<String> members = cells.get(key(row, Math.floorMod(col, columns)));
+                if (members != null) visit(members, lat, lon, type, k, best);
+            }
+        }
+    }
+
+    private void visit(Set<String> members, double lat, double lon, String type, int k,
+                       PriorityQueue<NearbyLot> best) {
+        for (String lotId : members) {
+            Entry e = entries.get(lotId);
+            if (e == null) continue;
+            int available = e.available(type);
+            if (available == 0) continue;
+            double d = GeoDistance.meters(lat, lon, e.latitude, e.longitude);
+            if (best.size() < k) {
+                best.add(new NearbyLot(e.lotId, e.name, e.address, e.latitude, e.longitude, d, available));
+            } else if (d < best.peek().getDistanceMeters()) {
+                best.poll();
+                best.add(new NearbyLot(e.lotId, e.name, e.address, e.latitude, e.longitude, d, available));
+            }
+        }
+    }
+
+    /**
+     * Lower bound on the distance from the query point to any cell outside the square of radius r:
+     * at least r cells along one axis; east-west cells are narrowest at the highest latitude reached.
+     */
+    private double minDistanceOutside(double lat, int r) {
+        double maxLat = Math.min(90.0, Math.abs(lat) + (r + 1) * cellDegrees);
+        return r * cellDegrees * GeoDistance.METERS_PER_DEGREE * Math.cos(Math.toRadians(maxLat));
+    }
+
+    private int ringDistance(long cell, int row0, int col0) {
+        int row = (int) (cell >>> 32);
+        int col = (int) cell;
+        int dc = Math.abs(col - col0);
+        return Math.max(Math.abs(row - row0), Math.min(dc, columns - dc));
+    }
+
+    private int row(double lat) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((lat + 90.0) / cellDegrees)));
+    }
+
+    private int column(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180.0) / cellDegrees), columns);
+    }
+
+    private long cellOf(double lat, double lon) {
+        return key(row(lat), column(lon));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,40 @@
+package smartparking.geo;
+
+/**
+ * Result of a nearest-lot query: the lot, its distance from the query point and how many slots
+ * of the requested type (or of any type) were available when the lot was last saved.
+ */
+public class NearbyLot {
+    private final String lotId;
+    private final String name;
+    private final String address;
+    private final double latitude;
+    private final double longitude;
+    private final double distanceMeters;
+    private final int availableSlots;
+
+    public NearbyLot(String lotId, String name, String address, double latitude, double longitude,
+                     double distanceMeters, int availableSlots) {
+        this.lotId = lotId;
+        this.name = name;
+        this.address = address;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.distanceMeters = distanceMeters;
+        this.availableSlots = availableSlots;
+    }
+
+    public String getLotId() { return lotId; }
+    public String getName() { return name; }
+    public String getAddress() { return address; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public double getDistanceMeters() { return distanceMeters; }
+    public int getAvailableSlots() { return availableSlots; }
+
+    @Override
+    public String toString() {
+        return String.format("NearbyLot{lotId='%s', name='%s', distance=%.0f m, available=%d}",
+                lotId, name, distanceMeters, availableSlots);
+    }
+}
@@ -12,6 +12,8 @@ public class ParkingLot {
     private String lotId;
     private String name;
     private String address;
+    private Double latitude;    // WGS84 degrees; null if the lot has not been geocoded
+    private Double longitude;
     private List<ParkingSlot> slots;
 
     public ParkingLot() {
@@ -31,6 +33,15 @@ public class ParkingLot {
     public void setName(String name) { this.name = name; }
     public String getAddress() { return address; }
     public void setAddress(String address) { this.address = address; }
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    /** True if both coordinates are set (the lot can be found by location). */
+    public boolean hasLocation() {
+        return latitude != null && longitude != null;
+    }
     public List<ParkingSlot> getSlots() { return slots; }
     public void setSlots(List<ParkingSlot> slots) { this.slots = slots != null ? slots : new ArrayList<>(); }
 
@@ -50,10 +61,12 @@ public class ParkingLot {
     }
 
     public ParkingSlot getSlotById(String slotId) {
-        return slots.stream()
-                .filter(s -> slotId != null && slotId.equals(s.getSlotId()))
-                .findFirst()
-                .orElse(null);
+        if (slotId == null) return null;
+        for (int i = 0, n = slots.size(); i < n; i++) {
+            ParkingSlot s = slots.get(i);
+            if (slotId.equals(s.getSlotId())) return s;
+        }
+        return null;
     }
 
     @Override
@@ -1,5 +1,7 @@
 package smartparking.model;
 
+import java.math.BigDecimal;
+
 /**
  * Domain model: PaymentGateway. Processes transactions (simulated for filing-only persistence).
  */
@@ -8,6 +10,7 @@ public class PaymentGateway {
     private String gatewayName;
     private String provider;   // e.g. Stripe, PayPal
     private String status;     // Active, Inactive
+    private BigDecimal transactionFee;   // fixed fee charged per transaction (null = unknown)
 
     public String getGatewayId() { return gatewayId; }
     public void setGatewayId(String gatewayId) { this.gatewayId = gatewayId; }
@@ -17,6 +20,8 @@ public class PaymentGateway {
     public void setProvider(String provider) { this.provider = provider; }
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
+    public BigDecimal getTransactionFee() { return transactionFee; }
+    public void setTransactionFee(BigDecimal transactionFee) { this.transactionFee = transactionFee; }
 
     public boolean connect() {
         if ("Active".equalsIgnoreCase(status)) return true;
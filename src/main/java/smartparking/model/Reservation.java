@@ -65,14 +65,27 @@ public class Reservation {
     /** Calculate cost based on duration and slot price (slot and hours must be set). */
     public double calculateCost(ParkingSlot slot) {
         if (slot == null || startTime == null || endTime == null) return 0.0;
-        long minutes = ChronoUnit.MINUTES.between(startTime, endTime);
-        int hours = (int) Math.ceil(minutes / 60.0);
-        if (hours <= 0) hours = 1;
-        double cost = slot.calculatePrice(hours);
+        double cost = slot.calculatePrice(billableHours());
         this.totalCost = BigDecimal.valueOf(cost);
         return cost;
     }
 
+    /** Calculate cost at a quoted hourly rate (e.g. a dynamic price) instead of the slot's list price. */
+    public double calculateCost(ParkingSlot slot, BigDecimal hourlyRate) {
+        if (hourlyRate == null) return calculateCost(slot);
+        if (slot == null || startTime == null || endTime == null) return 0.0;
+        double cost = hourlyRate.multiply(BigDecimal.valueOf(billableHours())).doubleValue();
+        this.totalCost = BigDecimal.valueOf(cost);
+        return cost;
+    }
+
+    /** Started hours between start and end, at least 1. */
+    private int billableHours() {
+        long minutes = ChronoUnit.MINUTES.between(startTime, endTime);
+        int hours = (int) Math.ceil(minutes / 60.0);
+        return hours <= 0 ? 1 : hours;
+    }
+
     /** Extend reservation by given minutes. Returns true if extended. */
     public boolean extendTime(int minutes) {
         if (minutes <= 0 || endTime == null) return false;
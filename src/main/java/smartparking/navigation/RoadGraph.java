@@ -0,0 +1,235 @@
+package smartparking.navigation;
+
+import smartparking.geo.GeoDistance;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Directed road graph in compressed adjacency form (edges of node i are firstEdge[i]..firstEdge[i+1]),
+ * with a coarse grid over node positions for snapping coordinates to the road network. Immutable.
+ *
+ * Edge-list file format (whitespace separated, '#' starts a comment):
+ * <pre>
+ * node &lt;id&gt; &lt;latitude&gt; &lt;longitude&gt;
+ * edge &lt;fromId&gt; &lt;toId&gt; &lt;speedKmh&gt; [oneway]      # length is the straight-line distance
+ * edge &lt;fromId&gt; &lt;toId&gt; &lt;speedKmh&gt; &lt;lengthMeters&gt; [oneway]
+ * </pre>
+ * Edges are two-way unless marked oneway.
+ */
+public class RoadGraph {
+
+    private static final double SNAP_CELL_DEGREES = 0.01;
+
+    private final String[] nodeIds;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final float[] edgeMeters;
+    private final float[] edgeSeconds;
+    private final int[] firstInEdge;      // reverse adjacency (incoming edges), for searches towards a node
+    private final int[] inEdgeSource;
+    private final float[] inEdgeSeconds;
+    private final double maxSpeedMetersPerSecond;
+    private final Map<Long, int[]> snapCells = new HashMap<>();
+
+    private RoadGraph(Builder b) {
+        int n = b.ids.size();
+        int m = b.from.size();
+        this.nodeIds = b.ids.toArray(new String[0]);
+        this.latitudes = Arrays.copyOf(b.lats, n);
+        this.longitudes = Arrays.copyOf(b.lons, n);
+        this.firstEdge = new int[n + 1];
+        for (int e = 0; e < m; e++) firstEdge[b.from.get(e) + 1]++;
+        for (int i = 0; i < n; i++) firstEdge[i + 1] += firstEdge[i];
+        this.edgeTarget = new int[m];
+        this.edgeMeters = new float[m];
+        this.edgeSeconds = new float[m];
+        int[] next = Arrays.copyOf(firstEdge, n);
+        double maxSpeed = 1.0;
+        for (int e = 0; e < m; e++) {
+            int slot = next[b.from.get(e)]++;
+            edgeTarget[slot] = b.to.get(e);
+            edgeMeters[slot] = b.meters.get(e);
+            double mps = b.speedKmh.get(e) / 3.6;
+            edgeSeconds[slot] = (float) (b.meters.get(e) / mps);
+            maxSpeed = Math.max(maxSpeed, mps);
+        }
+        this.maxSpeedMetersPerSecond = maxSpeed;
+
+        this.firstInEdge = new int[n + 1];
+        for (int e = 0; e < m; e++) firstInEdge[b.to.get(e) + 1]++;
+        for (int i = 0; i < n; i++) firstInEdge[i + 1] += firstInEdge[i];
+        this.inEdgeSource = new int[m];
+        this.inEdgeSeconds = new float[m];
+        next = Arrays.copyOf(firstInEdge, n);
+        for (int u = 0; u < n; u++) {
+            for (int e = firstEdge[u]; e < firstEdge[u + 1]; e++) {
+                int slot = next[edgeTarget[e]]++;
+                inEdgeSource[slot] = u;
+                inEdgeSeconds[slot] = edgeSeconds[e];
+            }
+        }
+
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            cells.computeIfAbsent(cell(row(latitudes[i]), column(longitudes[i])), k -> new ArrayList<>()).add(i);
+        }
+        cells.forEach((k, v) -> snapCells.put(k, v.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /** Load an edge-list file (format in the class comment). */
+    public static RoadGraph load(Path file) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) line = line.substring(0, hash);
+                String[] f = line.trim().split("\\s+");
+                if (f.length == 0 || f[0].isEmpty()) continue;
+                try {
+                    switch (f[0]) {
+                        case "node" -> builder.node(f[1], Double.parseDouble(f[2]), Double.parseDouble(f[3]));
+                        case "edge" -> {
+                            boolean oneway = "oneway".equalsIgnoreCase(f[f.length - 1]);
+                            int fields = oneway ? f.length - 1 : f.length;
+                            double speed = Double.parseDouble(f[3]);
+                            double length = fields > 4 ? Double.parseDouble(f[4]) : -1;
+                            builder.edge(f[1], f[2], speed, length, oneway);
+                        }
+                        default -> throw new IllegalArgumentException("unknown record '" + f[0] + "'");
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int nodeCount() { return nodeIds.length; }
+    public int edgeCount() { return edgeTarget.length; }
+    public String nodeId(int node) { return nodeIds[node]; }
+    public double latitude(int node) { return latitudes[node]; }
+    public double longitude(int node) { return longitudes[node]; }
+
+    int firstEdge(int node) { return firstEdge[node]; }
+    int endEdge(int node) { return firstEdge[node + 1]; }
+    int edgeTarget(int edge) { return edgeTarget[edge]; }
+    float edgeMeters(int edge) { return edgeMeters[edge]; }
+    float edgeSeconds(int edge) { return edgeSeconds[edge]; }
+    double maxSpeedMetersPerSecond() { return maxSpeedMetersPerSecond; }
+    int firstInEdge(int node) { return firstInEdge[node]; }
+    int endInEdge(int node) { return firstInEdge[node + 1]; }
+    int inEdgeSource(int edge) { return inEdgeSource[edge]; }
+    float inEdgeSeconds(int edge) { return inEdgeSeconds[edge]; }
+
+    /** Nearest node to the point (searching outward cell by cell), or -1 if the graph is empty. */
+    public int nearestNode(double lat, double lon) {
+        if (nodeIds.length == 0) return -1;
+        int row0 = row(lat);
+        int col0 = column(lon);
+        int best = -1;
+        double bestMeters = Double.MAX_VALUE;
+        int maxRing = (int) Math.ceil(180.0 / SNAP_CELL_DEGREES);
+        for (int r = 0; r <= maxRing; r++) {
+            if (8L * r > snapCells.size()) {
+                // sparse graph: check every node rather than walking empty rings
+                for (int i = 0; i < nodeIds.length; i++) {
+                    double d = GeoDistance.meters(lat, lon, latitudes[i], longitudes[i]);
+                    if (d < bestMeters) { bestMeters = d; best = i; }
+                }
+                return best;
+            }
+            for (int row = row0 - r; row <= row0 + r; row++) {
+                int step = row == row0 - r || row == row0 + r || r == 0 ? 1 : 2 * r;
+                for (int col = col0 - r; col <= col0 + r; col += step) {
+                    int[] nodes = snapCells.get(cell(row, col));
+                    if (nodes == null) continue;
+                    for (int i : nodes) {
+                        double d = GeoDistance.meters(lat, lon, latitudes[i], longitudes[i]);
+                        if (d < bestMeters) { bestMeters = d; best = i; }
+                    }
+                }
+            }
+            // a node beyond ring r is at least r cells away (east-west cells shrink with latitude)
+            double bound = r * SNAP_CELL_DEGREES * GeoDistance.METERS_PER_DEGREE
+                    * Math.cos(Math.toRadians(Math.min(90.0, Math.abs(lat) + (r + 1) * SNAP_CELL_DEGREES)));
+            if (best >= 0 && bestMeters <= bound) return best;
+        }
+        return best;
+    }
+
+    static int row(double lat) {
+        return (int) Math.floor((lat + 90.0) / SNAP_CELL_DEGREES);
+    }
+
+    static int column(double lon) {
+        return (int) Math.floor((lon + 180.0) / SNAP_CELL_DEGREES);
+    }
+
+    static long cell(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /** Incremental construction (used by the loader and by synthetic benchmarks). */
+    public static class Builder {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private double[] lats = new double[1024];
+        private double[] lons = new double[1024];
+        private final List<Integer> from = new ArrayList<>();
+        private final List<Integer> to = new ArrayList<>();
+        private final List<Float> meters = new ArrayList<>();
+        private final List<Double> speedKmh = new ArrayList<>();
+
+        public Builder node(String id, double lat, double lon) {
+            if (index.containsKey(id)) throw new IllegalArgumentException("duplicate node " + id);
+            int i = ids.size();
+            if (i == lats.length) {
+                lats = Arrays.copyOf(lats, i * 2);
+                lons = Arrays.copyOf(lons, i * 2);
+            }
+            index.put(id, i);
+            ids.add(id);
+            lats[i] = lat;
+            lons[i] = lon;
+            return this;
+        }
+
+        /** @param lengthMeters negative to use the straight-line distance between the nodes */
+        public Builder edge(String fromId, String toId, double speedKmh, double lengthMeters, boolean oneway) {
+            Integer a = index.get(fromId);
+            Integer b = index.get(toId);
+            if (a == null || b == null) throw new IllegalArgumentException("edge references unknown node " + (a == null ? fromId : toId));
+            if (speedKmh <= 0) throw new IllegalArgumentException("speed must be positive");
+            double length = lengthMeters >= 0 ? lengthMeters : GeoDistance.meters(lats[a], lons[a], lats[b], lons[b]);
+            add(a, b, length, speedKmh);
+            if (!oneway) add(b, a, length, speedKmh);
+            return this;
+        }
+
+        private void add(int a, int b, double length, double speed) {
+            from.add(a);
+            to.add(b);
+            meters.add((float) length);
+            speedKmh.add(speed);
+        }
+
+        public RoadGraph build() {
+            return new RoadGraph(this);
+        }
+    }
+}
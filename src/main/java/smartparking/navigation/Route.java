@@ -0,0 +1,39 @@
+package smartparking.navigation;
+
+import java.util.List;
+
+/**
+ * Driving route over the road graph: node ids from origin to destination, length and travel time.
+ * Immutable (shared through the route cache).
+ */
+public class Route {
+    private final List<String> nodeIds;
+    private final double distanceMeters;
+    private final double travelSeconds;
+
+    public Route(List<String> nodeIds, double distanceMeters, double travelSeconds) {
+        this.nodeIds = List.copyOf(nodeIds);
+        this.distanceMeters = distanceMeters;
+        this.travelSeconds = travelSeconds;
+    }
+
+    public List<String> getNodeIds() { return nodeIds; }
+    public double getDistanceMeters() { return distanceMeters; }
+    public double getTravelSeconds() { return travelSeconds; }
+
+    /** Number of road segments driven. */
+    public int getSegments() {
+        return Math.max(0, nodeIds.size() - 1);
+    }
+
+    /** Travel time rounded up to whole minutes (as stored in Navigation.estimatedTime). */
+    public int getEstimatedMinutes() {
+        return (int) Math.ceil(travelSeconds / 60.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Route{%.1f km, %d min, %d segments}",
+                distanceMeters / 1000.0, getEstimatedMinutes(), getSegments());
+    }
+}
@@ -0,0 +1,328 @@
+package smartparking.navigation;
+
+import smartparking.geo.GeoDistance;
+import smartparking.model.Navigation;
+import smartparking.model.ParkingLot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline routing over a RoadGraph: A* on travel time with landmark (ALT) lower bounds. At start-up
+ * a few far-apart landmark nodes are chosen and travel times to and from each are precomputed; by the
+ * triangle inequality they bound the remaining time far more tightly than straight-line distance at
+ * top speed, so a query settles a narrow corridor instead of a wide ellipse. Routes are cached per
+ * (origin cell, lot): origins are snapped to a 0.005-degree cell (about 500 m) and routed from the
+ * road node nearest the cell centre, so every request from the same neighbourhood to the same lot is
+ * a cache hit. Search arrays are per thread and reused, so concurrent queries do not allocate per
+ * visited node. Thread-safe.
+ */
+public class RouteEngine {
+
+    private static final double ORIGIN_CELL_DEGREES = 0.005;
+    private static final int DEFAULT_CACHE_SIZE = 100_000;
+    private static final int DEFAULT_LANDMARKS = 12;
+
+    private final RoadGraph graph;
+    private final Map<String, Optional<Route>> cache;
+    private final ThreadLocal<SearchState> searchState;
+    private final int landmarkCount;
+    private final float[] fromLandmark;   // [node * landmarkCount + i] = time from landmark i to node
+    private final float[] toLandmark;     // [node * landmarkCount + i] = time from node to landmark i
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public RouteEngine(RoadGraph graph) {
+        this(graph, DEFAULT_CACHE_SIZE);
+    }
+
+    public RouteEngine(RoadGraph graph, int cacheSize) {
+        this(graph, cacheSize, DEFAULT_LANDMARKS);
+    }
+
+    /** @param landmarks number of ALT landmarks (0 uses the straight-line heuristic only) */
+    public RouteEngine(RoadGraph graph, int cacheSize, int landmarks) {
+        this.graph = graph;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<Route>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.searchState = ThreadLocal.withInitial(() -> new SearchState(graph.nodeCount()));
+        this.landmarkCount = Math.min(landmarks, graph.nodeCount());
+        this.fromLandmark = new float[graph.nodeCount() * landmarkCount];
+        this.toLandmark = new float[graph.nodeCount() * landmarkCount];
+        selectLandmarks();
+    }
+
+    public RoadGraph getGraph() { return graph; }
+    public long getCacheHits() { return cacheHits.sum(); }
+    public long getCacheMisses() { return cacheMisses.sum(); }
+
+    /**
+     * Navigation to the lot from the given position, with routeDetails, estimatedTime (minutes) and
+     * mapLink filled in; empty if the lot has no coordinates or is unreachable on the road graph.
+     */
+    public Optional<Navigation> navigate(double latitude, double longitude, ParkingLot lot) {
+        return routeToLot(latitude, longitude, lot).map(route -> {
+            Navigation navigation = new Navigation();
+            navigation.generateRoute(lot.getAddress());
+            navigation.setRouteDetails(String.format("Drive %.1f km (%d road segments) to %s, %s",
+                    route.getDistanceMeters() / 1000.0, route.getSegments(), lot.getName(), lot.getAddress()));
+            navigation.setEstimatedTime(route.getEstimatedMinutes());
+            return navigation;
+        });
+    }
+
+    /** Cached route from the origin's cell to the lot. */
+    public Optional<Route> routeToLot(double latitude, double longitude, ParkingLot lot) {
+        if (!lot.hasLocation()) return Optional.empty();
+        long row = (long) Math.floor((latitude + 90.0) / ORIGIN_CELL_DEGREES);
+        long col = (long) Math.floor((longitude + 180.0) / ORIGIN_CELL_DEGREES);
+        String key = row + ":" + col + "|" + lot.getLotId();
+        Optional<Route> cached = cache.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
+        double cellLat = (row + 0.5) * ORIGIN_CELL_DEGREES - 90.0;
+        double cellLon = (col + 0.5) * ORIGIN_CELL_DEGREES - 180.0;
+        Optional<Route> route = route(graph.nearestNode(cellLat, cellLon),
+                graph.nearestNode(lot.getLatitude(), lot.getLongitude()));
+        cache.put(key, route);
+        return route;
+    }
+
+    /** Uncached fastest route between two coordinates, each snapped to its nearest road node. */
+    public Optional<Route> route(double fromLat, double fromLon, double toLat, double toLon) {
+        return route(graph.nearestNode(fromLat, fromLon), graph.nearestNode(toLat, toLon));
+    }
+
+    /** A* between two graph nodes; empty if either is missing or the target is unreachable. */
+    Optional<Route> route(int source, int target) {
+        if (source < 0 || target < 0) return Optional.empty();
+        SearchState s = searchState.get();
+        s.begin();
+        Heuristic h = new Heuristic(target);
+
+        s.reach(source, 0.0, -1, -1);
+        s.push(source, h.estimate(source));
+        while (s.heapSize > 0) {
+            int u = s.pop();
+            if (s.isClosed(u)) continue;
+            s.close(u);
+            if (u == target) return Optional.of(path(s, source, target));
+            double gu = s.g[u];
+            for (int e = graph.firstEdge(u), end = graph.endEdge(u); e < end; e++) {
+                int v = graph.edgeTarget(e);
+                if (s.isClosed(v)) continue;
+                double g = gu + graph.edgeSeconds(e);
+                if (!s.isReached(v) || g < s.g[v]) {
+                    s.reach(v, g, u, e);
+                    s.push(v, g + h.estimate(v));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Lower bound on travel time to one target. With landmarks: max over landmarks L of
+     * d(L,t) - d(L,v) and d(v,L) - d(t,L) (unreachable pairs skipped); otherwise straight-line
+     * distance at the graph's top speed.
+     */
+    private final class Heuristic {
+        private final int target;
+        private final float[] targetFrom;
+        private final float[] targetTo;
+
+        Heuristic(int target) {
+            this.target = target;
+            this.targetFrom = new float[landmarkCount];
+            this.targetTo = new float[landmarkCount];
+            for (int i = 0; i < landmarkCount; i++) {
+                targetFrom[i] = fromLandmark[target * landmarkCount + i];
+                targetTo[i] = toLandmark[target * landmarkCount + i];
+            }
+        }
+
+        double estimate(int node) {
+            if (landmarkCount == 0) {
+                return GeoDistance.meters(graph.latitude(node), graph.longitude(node),
+                        graph.latitude(target), graph.longitude(target)) / graph.maxSpeedMetersPerSecond();
+            }
+            float best = 0f;
+            int base = node * landmarkCount;
+            for (int i = 0; i < landmarkCount; i++) {
+                float forward = targetFrom[i] - fromLandmark[base + i];
+                float backward = toLandmark[base + i] - targetTo[i];
+                if (forward > best && forward != Float.POSITIVE_INFINITY && !Float.isNaN(forward)) best = forward;
+                if (backward > best && backward != Float.POSITIVE_INFINITY && !Float.isNaN(backward)) best = backward;
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Farthest-point landmark selection: each new landmark is the node farthest (by travel time)
+     * from those already chosen, which spreads landmarks around the edge of the network.
+     */
+    private void selectLandmarks() {
+        if (landmarkCount == 0) return;
+        int n = graph.nodeCount();
+        float[] nearestLandmark = new float[n];
+        Arrays.fill(nearestLandmark, Float.POSITIVE_INFINITY);
+        int next = farthest(travelTimes(0, false), null);
+        for (int i = 0; i < landmarkCount; i++) {
+            float[] from = travelTimes(next, false);
+            float[] to = travelTimes(next, true);
+            for (int v = 0; v < n; v++) {
+                fromLandmark[v * landmarkCount + i] = from[v];
+                toLandmark[v * landmarkCount + i] = to[v];
+                nearestLandmark[v] = Math.min(nearestLandmark[v], from[v]);
+            }
+            next = farthest(nearestLandmark, from);
+        }
+    }
+
+    private static int farthest(float[] times, float[] reachable) {
+        int best = 0;
+        float bestTime = -1f;
+        for (int v = 0; v < times.length; v++) {
+            float t = times[v];
+            if (t == Float.POSITIVE_INFINITY || (reachable != null && reachable[v] == Float.POSITIVE_INFINITY)) continue;
+            if (t > bestTime) { bestTime = t; best = v; }
+        }
+        return best;
+    }
+
+    /** Dijkstra from (or, with reverse, towards) a node; unreachable nodes get +infinity. */
+    private float[] travelTimes(int origin, boolean reverse) {
+        int n = graph.nodeCount();
+        float[] times = new float[n];
+        Arrays.fill(times, Float.POSITIVE_INFINITY);
+        SearchState s = new SearchState(n);
+        s.begin();
+        s.reach(origin, 0.0, -1, -1);
+        s.push(origin, 0.0);
+        while (s.heapSize > 0) {
+            int u = s.pop();
+            if (s.isClosed(u)) continue;
+            s.close(u);
+            times[u] = (float) s.g[u];
+            int first = reverse ? graph.firstInEdge(u) : graph.firstEdge(u);
+            int end = reverse ? graph.endInEdge(u) : graph.endEdge(u);
+            for (int e = first; e < end; e++) {
+                int v = reverse ? graph.inEdgeSource(e) : graph.edgeTarget(e);
+                if (s.isClosed(v)) continue;
+                double g = s.g[u] + (reverse ? graph.inEdgeSeconds(e) : graph.edgeSeconds(e));
+                if (!s.isReached(v) || g < s.g[v]) {
+                    s.reach(v, g, u, e);
+                    s.push(v, g);
+                }
+            }
+        }
+        return times;
+    }
+
+    private Route path(SearchState s, int source, int target) {
+        List<String> nodes = new ArrayList<>();
+        double meters = 0;
+        for (int v = target; v != source; v = s.parent[v]) {
+            nodes.add(graph.nodeId(v));
+            meters += graph.edgeMeters(s.parentEdge[v]);
+        }
+        nodes.add(graph.nodeId(source));
+        Collections.reverse(nodes);
+        return new Route(nodes, meters, s.g[target]);
+    }
+
+    /**
+     * Per-thread A* state. Stamps mark which entries belong to the current search, so arrays are
+     * never cleared between queries. The open set is a binary heap allowing duplicate entries
+     * (stale ones are skipped when popped).
+     */
+    private static final class SearchState {
+        final double[] g;
+        final int[] parent;
+        final int[] parentEdge;
+        final int[] reachedStamp;
+        final int[] closedStamp;
+        int stamp;
+        int[] heapNodes = new int[256];
+        double[] heapKeys = new double[256];
+        int heapSize;
+
+        SearchState(int nodes) {
+            g = new double[nodes];
+            parent = new int[nodes];
+            parentEdge = new int[nodes];
+            reachedStamp = new int[nodes];
+            closedStamp = new int[nodes];
+        }
+
+        void begin() {
+            heapSize = 0;
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(reachedStamp, 0);
+                Arrays.fill(closedStamp, 0);
+                stamp = 1;
+            }
+        }
+
+        boolean isReached(int v) { return reachedStamp[v] == stamp; }
+        boolean isClosed(int v) { return closedStamp[v] == stamp; }
+        void close(int v) { closedStamp[v] = stamp; }
+
+        void reach(int v, double cost, int from, int edge) {
+            reachedStamp[v] = stamp;
+            g[v] = cost;
+            parent[v] = from;
+            parentEdge[v] = edge;
+        }
+
+        void push(int node, double key) {
+            if (heapSize == heapNodes.length) {
+                heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+                heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            }
+            int i = heapSize++;
+            while (i > 0) {
+                int p = (i - 1) >>> 1;
+                if (heapKeys[p] <= key) break;
+                heapNodes[i] = heapNodes[p];
+                heapKeys[i] = heapKeys[p];
+                i = p;
+            }
+            heapNodes[i] = node;
+            heapKeys[i] = key;
+        }
+
+        int pop() {
+            int top = heapNodes[0];
+            int lastNode = heapNodes[--heapSize];
+            double lastKey = heapKeys[heapSize];
+            int i = 0;
+            while (true) {
+                int c = 2 * i + 1;
+                if (c >= heapSize) break;
+                if (c + 1 < heapSize && heapKeys[c + 1] < heapKeys[c]) c++;
+                if (heapKeys[c] >= lastKey) break;
+                heapNodes[i] = heapNodes[c];
+                heapKeys[i] = heapKeys[c];
+                i = c;
+            }
+            heapNodes[i] = lastNode;
+            heapKeys[i] = lastKey;
+            return top;
+        }
+    }
+}
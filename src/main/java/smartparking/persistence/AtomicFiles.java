@@ -0,0 +1,188 @@
+package smartparking.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Crash-safe whole-file writes for the JSON data files. A write goes to name.tmp (fsynced), the
+ * checksum sidecar name.crc is updated, the current file is kept as name.bak and the temp file is
+ * renamed into place. The sidecar lists the checksum of the new content and of the content it
+ * replaces, so at every point of a crash the data file (or, if the crash hit between the two
+ * renames, the backup) matches one of them. A file matching neither was damaged or edited by hand;
+ * callers use it if it still parses and fall back to the backup otherwise.
+ */
+final class AtomicFiles {
+
+    static final String TMP = ".tmp";
+    static final String BAK = ".bak";
+    static final String CRC = ".crc";
+
+    /** Outcome of reading a data file. */
+    enum Status { OK, MISSING, UNVERIFIED, MODIFIED, RESTORED_FROM_BACKUP, CORRUPT }
+
+    /**
+     * Bytes read from a data file (null if missing or corrupt) and how they were obtained. For
+     * MODIFIED, backup holds the verified backup to use if the bytes do not parse (or null).
+     */
+    record Content(byte[] bytes, Status status, byte[] backup) { }
+
+    private AtomicFiles() { }
+
+    static void write(Path path, byte[] data) throws IOException {
+        Path tmp = sibling(path, TMP);
+        Path crcTmp = sibling(path, CRC + TMP);
+        writeSynced(tmp, data);
+        // checksum of the bytes actually on disk: after a crash between the sidecar move and the
+        // rename, the sidecar's first entry describes content that never reached the file
+        byte[] current = Files.exists(path) ? Files.readAllBytes(path) : null;
+        String sidecar = checksumLine(checksum(data), data.length)
+                + (current != null ? checksumLine(checksum(current), current.length) : "");
+        writeSynced(crcTmp, sidecar.getBytes(StandardCharsets.US_ASCII));
+        move(crcTmp, sibling(path, CRC));
+        if (Files.exists(path)) move(path, sibling(path, BAK));
+        move(tmp, path);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Create or replace a file that needs no checksum sidecar or backup (it carries its own
+     * integrity check, e.g. gzip): temp file, fsync, rename, directory fsync.
+     */
+    static void publish(Path path, byte[] data) throws IOException {
+        Path tmp = sibling(path, TMP);
+        writeSynced(tmp, data);
+        move(tmp, path);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Read a data file, verified against its sidecar. A file that fails verification is returned as
+     * MODIFIED together with the backup, if the backup verifies; a file missing after an interrupted
+     * write is replaced by its backup. Files written before checksums existed (no sidecar) are
+     * returned as UNVERIFIED.
+     */
+    static Content read(Path path) throws IOException {
+        Path bak = sibling(path, BAK);
+        long[] known = knownChecksums(path);
+        byte[] bytes = Files.exists(path) ? Files.readAllBytes(path) : null;
+        if (bytes != null) {
+            if (known == null) return new Content(bytes, Status.UNVERIFIED, null);
+            if (matches(bytes, known)) return new Content(bytes, Status.OK, null);
+        }
+        byte[] backup = Files.exists(bak) ? Files.readAllBytes(bak) : null;
+        if (backup != null && known != null && !matches(backup, known)) backup = null;
+        if (bytes != null) return new Content(bytes, Status.MODIFIED, backup);
+        if (backup != null) return new Content(backup, Status.RESTORED_FROM_BACKUP, null);
+        return new Content(null, Files.exists(bak) ? Status.CORRUPT : Status.MISSING, null);
+    }
+
+    /**
+     * Put the backup back in place of a missing or corrupt file (copy, so the backup survives a
+     * crash during the restore). The sidecar is reset to the restored content only.
+     */
+    static void restoreBackup(Path path) throws IOException {
+        Path tmp = sibling(path, TMP);
+        Path crcTmp = sibling(path, CRC + TMP);
+        CRC32C crc = new CRC32C();
+        long size = 0;
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(sibling(path, BAK)), crc);
+             FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] chunk = new byte[1 << 16];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                ByteBuffer buf = ByteBuffer.wrap(chunk, 0, n);
+                while (buf.hasRemaining()) out.write(buf);
+                size += n;
+            }
+            out.force(true);
+        }
+        writeSynced(crcTmp, checksumLine(crc.getValue(), size).getBytes(StandardCharsets.US_ASCII));
+        move(crcTmp, sibling(path, CRC));
+        move(tmp, path);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /** Create the sidecar for a file written before checksums existed. */
+    static void writeChecksum(Path path, long crc, long size) throws IOException {
+        Path crcTmp = sibling(path, CRC + TMP);
+        writeSynced(crcTmp, checksumLine(crc, size).getBytes(StandardCharsets.US_ASCII));
+        move(crcTmp, sibling(path, CRC));
+    }
+
+    /** Checksum of the bytes (CRC-32C). */
+    static long checksum(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    /** Checksums listed in the sidecar (new content first), or null if there is no usable sidecar. */
+    static long[] knownChecksums(Path path) throws IOException {
+        Path sidecar = sibling(path, CRC);
+        if (!Files.exists(sidecar)) return null;
+        String[] lines = Files.readString(sidecar, StandardCharsets.US_ASCII).trim().split("\n");
+        long[] sums = new long[lines.length];
+        try {
+            for (int i = 0; i < lines.length; i++) {
+                sums[i] = Long.parseLong(lines[i].trim().split(" ")[0], 16);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return sums;
+    }
+
+    static boolean matches(byte[] data, long[] known) {
+        return matches(checksum(data), known);
+    }
+
+    static boolean matches(long sum, long[] known) {
+        for (long k : known) if (k == sum) return true;
+        return false;
+    }
+
+    static Path sibling(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    private static String checksumLine(long crc, long length) {
+        return String.format("%08x %d%n", crc, length);
+    }
+
+    private static void writeSynced(Path path, byte[] data) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Make the renames durable (not supported on every platform; best effort). */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // e.g. Windows cannot open directories; the renames are still atomic
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package smartparking.persistence;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-level cache of available slots, kept as a PersistentManager decorator so it sees every
+ * saveParkingLot. Level 1 holds an immutable view per lot (available slots, per type, counts);
+ * level 2 is a global view (all lots) derived from the lot views. Saving a lot replaces only that
+ * lot's view and drops the global view, which is rebuilt on the next read. Reads are a volatile
+ * read plus a map lookup; invalidation and rebuilds are serialized on this cache's monitor. A lot
+ * view reloaded on a miss is installed only if no invalidation ran while it was read, so a reload
+ * never replaces a view from a concurrent save with an older one. A save and its view update run
+ * under the lot's LotLocks monitor, so views of one lot are installed in commit order. Returned
+ * slots are snapshots and must be treated as read-only.
+ */
+public class AvailabilityCache extends ForwardingPersistentManager {
+
+    /** Immutable availability view of one lot or of all lots. */
+    public static final class View {
+        private final List<ParkingSlot> available;
+        private final Map<String, List<ParkingSlot>> availableByType;
+        private final int totalSlots;
+        private final long builtAt;
+
+        private View(List<ParkingSlot> available, int totalSlots) {
+            Map<String, List<ParkingSlot>> byType = new HashMap<>();
+            for (ParkingSlot s : available) {
+                String type = s.getSlotType() != null ? s.getSlotType().toLowerCase(Locale.ROOT) : "";
+                byType.computeIfAbsent(type, k -> new ArrayList<>()).add(s);
+            }
+            byType.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            this.available = Collections.unmodifiableList(available);
+            this.availableByType = byType;
+            this.totalSlots = totalSlots;
+            this.builtAt = System.currentTimeMillis();
+        }
+
+        static View of(ParkingLot lot) {
+            List<ParkingSlot> available = new ArrayList<>();
+            for (ParkingSlot s : lot.getSlots()) {
+                if (s.isAvailable()) available.add(copy(s));
+            }
+            return new View(available, lot.getSlots().size());
+        }
+
+        public List<ParkingSlot> getAvailable() { return available; }
+
+        public List<ParkingSlot> getAvailableByType(String type) {
+            if (type == null) return List.of();
+            List<ParkingSlot> list = availableByType.get(type.toLowerCase(Locale.ROOT));
+            return list != null ? list : List.of();
+        }
+
+        public int getAvailableCount() { return available.size(); }
+        public int getTotalSlots() { return totalSlots; }
+        public long getBuiltAt() { return builtAt; }
+    }
+
+    /** Counters since creation. Staleness is the age of the oldest lot view currently served. */
+    public record Stats(long hits, long misses, long invalidations, long oldestViewAgeMillis) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    private final Map<String, View> lotViews = new ConcurrentHashMap<>();
+    private final Map<String, String> lotIdBySlotId = new ConcurrentHashMap<>();
+    private final long maxAgeMillis;
+    private volatile View globalView;
+    private volatile boolean loaded;
+    private long clearCount;   // guarded by this: bumped by invalidateAll
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public AvailabilityCache(PersistentManager delegate) {
+        this(delegate, 0L);
+    }
+
+    /**
+     * @param maxAgeMillis if positive, views older than this are reloaded from the delegate
+     *                     (only needed when other processes write the same store)
+     */
+    public AvailabilityCache(PersistentManager delegate, long maxAgeMillis) {
+        super(delegate);
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    // --- Reads ---
+
+    /** Available slots across all lots. */
+    public List<ParkingSlot> getAvailableSlots() {
+        return global().getAvailable();
+    }
+
+    /** Available slots of a type across all lots. */
+    public List<ParkingSlot> getAvailableSlotsByType(String type) {
+        return global().getAvailableByType(type);
+    }
+
+    /** Available slot count across all lots. */
+    public int countAvailable() {
+        return global().getAvailableCount();
+    }
+
+    /** View of one lot, or null if the lot does not exist. */
+    public View getLotView(String lotId) {
+        ensureLoaded();
+        View view = lotViews.get(lotId);
+        if (view != null && !expired(view)) {
+            hits.increment();
+            return view;
+        }
+        misses.increment();
+        long clears;
+        synchronized (this) {
+            clears = clearCount;
+        }
+        View fresh = delegate().findParkingLotById(lotId).map(View::of).orElse(null);
+        if (fresh == null) return null;
+        synchronized (this) {
+            // Install only if no invalidate ran during the read; otherwise its view is newer than ours
+            View current = lotViews.get(lotId);
+            if (current != view || clearCount != clears) return current != null ? current : fresh;
+            lotViews.put(lotId, fresh);
+            globalView = null;
+        }
+        return fresh;
+    }
+
+    /** Lot that holds the slot, from memory (no store read once loaded); null if unknown. */
+    public String lotIdOfSlot(String slotId) {
+        if (slotId == null) return null;
+        ensureLoaded();
+        return lotIdBySlotId.get(slotId);
+    }
+
+    public Stats getStats() {
+        long now = System.currentTimeMillis();
+        long oldest = 0L;
+        for (View v : lotViews.values()) {
+            oldest = Math.max(oldest, now - v.getBuiltAt());
+        }
+        return new Stats(hits.sum(), misses.sum(), invalidations.sum(), oldest);
+    }
+
+    // --- Invalidation ---
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) {
+        synchronized (LotLocks.forLot(lot.getLotId())) {
+            super.saveParkingLot(lot);
+            invalidate(lot);
+        }
+    }
+
+    /** Replace the cached view of a lot after a reserve/release that was saved elsewhere. */
+    public synchronized void invalidate(ParkingLot lot) {
+        invalidations.increment();
+        lotViews.put(lot.getLotId(), View.of(lot));
+        indexSlots(lot);
+        globalView = null;
+    }
+
+    /** Drop everything; the next read reloads all lots. */
+    public synchronized void invalidateAll() {
+        invalidations.increment();
+        clearCount++;
+        loaded = false;
+        lotViews.clear();
+        globalView = null;
+    }
+
+    // --- Internals ---
+
+    private View global() {
+        View view = globalView;
+        if (view != null && !expired(view)) {
+            hits.increment();
+            return view;
+        }
+        misses.increment();
+        synchronized (this) {
+            view = globalView;
+            if (view != null && !expired(view)) return view;
+            if (view != null) invalidateAll();
+            ensureLoaded();
+            List<ParkingSlot> all = new ArrayList<>();
+            int total = 0;
+            for (View lotView : lotViews.values()) {
+                all.addAll(lotView.getAvailable());
+                total += lotView.getTotalSlots();
+            }
+            view = new View(all, total);
+            globalView = view;
+            return view;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            for (ParkingLot lot : delegate().findAllParkingLots()) {
+                lotViews.put(lot.getLotId(), View.of(lot));
+                indexSlots(lot);
+            }
+            loaded = true;
+        }
+    }
+
+    private void indexSlots(ParkingLot lot) {
+        for (ParkingSlot s : lot.getSlots()) {
+            if (s.getSlotId() != null) lotIdBySlotId.put(s.getSlotId(), lot.getLotId());
+        }
+    }
+
+    private boolean expired(View view) {
+        return maxAgeMillis > 0 && System.currentTimeMillis() - view.getBuiltAt() > maxAgeMillis;
+    }
+
+    private static ParkingSlot copy(ParkingSlot s) {
+        ParkingSlot c = new ParkingSlot(s.getSlotId(), s.getSlotNumber(), s.getSlotType(), s.getPricePerHour());
+        c.setAvailable(s.isAvailable());
+        return c;
+    }
+}
@@ -0,0 +1,51 @@
+package smartparking.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring with virtual nodes. Keys map to the first node clockwise from their hash,
+ * so adding or removing a node only moves the keys of its neighbouring ranges. Virtual nodes are
+ * placed by each node's stable id (not its position), so the other nodes keep their ranges when one
+ * is removed. Immutable.
+ */
+public class ConsistentHashRing<T> {
+
+    private static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    /** Nodes keyed by a stable id (e.g. the shard directory name). */
+    public ConsistentHashRing(Map<String, T> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes == null || nodes.isEmpty()) throw new IllegalArgumentException("At least one node is required");
+        for (Map.Entry<String, T> node : nodes.entrySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.put(hash(node.getKey() + "#" + v), node.getValue());
+            }
+        }
+    }
+
+    /** Node responsible for the key. */
+    public T nodeFor(String key) {
+        Map.Entry<Long, T> e = ring.ceilingEntry(hash(key != null ? key : ""));
+        return e != null ? e.getValue() : ring.firstEntry().getValue();
+    }
+
+    /** 64-bit FNV-1a over UTF-8 bytes, with a final avalanche so similar keys spread over the ring. */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
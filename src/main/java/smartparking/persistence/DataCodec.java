@@ -0,0 +1,65 @@
+package smartparking.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk encoding of data and report files. PLAIN keeps the readable, pretty-printed JSON; GZIP
+ * stores compact JSON through a streaming gzip codec (java.util.zip, no extra dependency) under the
+ * same name plus ".gz". Checksums and backups (AtomicFiles) cover the bytes as stored.
+ */
+public enum DataCodec {
+
+    PLAIN(""),
+    GZIP(".gz");
+
+    private static final int BUFFER = 1 << 16;
+
+    private final String suffix;
+
+    DataCodec(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /** Codec by name: "gzip", or "plain"/"none"/null for uncompressed files. */
+    public static DataCodec of(String name) {
+        if (name == null || name.isBlank() || name.equalsIgnoreCase("none")) return PLAIN;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown compression '" + name + "' (use gzip or none)");
+        }
+    }
+
+    /** Codec of the file stored for the logical name in dir (compressed preferred), or null if none exists. */
+    static DataCodec detect(Path dir, String fileName) {
+        for (DataCodec codec : new DataCodec[] {GZIP, PLAIN}) {
+            Path path = dir.resolve(codec.fileName(fileName));
+            if (Files.exists(path) || Files.exists(AtomicFiles.sibling(path, AtomicFiles.BAK))) return codec;
+        }
+        return null;
+    }
+
+    public String fileName(String logicalName) {
+        return logicalName + suffix;
+    }
+
+    /** Whether JSON written with this codec is pretty-printed (only where people read the files). */
+    boolean prettyPrint() {
+        return this == PLAIN;
+    }
+
+    public OutputStream encoding(OutputStream out) throws IOException {
+        return this == GZIP ? new GZIPOutputStream(out, BUFFER) : out;
+    }
+
+    public InputStream decoding(InputStream in) throws IOException {
+        return this == GZIP ? new GZIPInputStream(in, BUFFER) : in;
+    }
+}
@@ -0,0 +1,417 @@
+package smartparking.persistence;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Startup check and repair of FilePersistentManager data directories. For each directory:
+ * <ul>
+ *   <li>removes temp files left by an interrupted write</li>
+ *   <li>verifies each data file against its checksum; a missing or unparseable file is restored
+ *       from its backup, a file that parses but fails its checksum (edited by hand) is accepted
+ *       and reported, and files written before checksums existed get a checksum</li>
+ *   <li>reconciles slot {@code available} flags with confirmed reservations (a slot is reserved
+ *       exactly when a confirmed reservation holds it) and reports double-booked slots,
+ *       reservations for unknown users or slots, confirmed reservations without a successful
+ *       payment, payments for unknown reservations and duplicate ids</li>
+ * </ul>
+ * Files are streamed, not loaded: one pass per file parses the records and computes the checksum,
+ * keeping only ids and slot counts in memory (lots, which are small and may be rewritten, are
+ * kept whole); compressed data files (DataCodec.GZIP) are decompressed on the fly, their checksums
+ * covering the stored bytes. The four files of a directory, and all directories
+ * (shards), are scanned in parallel. Repairs use the same atomic writes as FilePersistentManager.
+ */
+public class DataDirectoryRecovery {
+
+    private static final int SAMPLES = 5;   // ids listed per issue; the rest are counted
+
+    private final ObjectMapper mapper = FilePersistentManager.createMapper();
+    private final boolean repair;
+
+    /** @param repair false: report only, change nothing */
+    public DataDirectoryRecovery(boolean repair) {
+        this.repair = repair;
+    }
+
+    public RecoveryReport run(Path dataDir) {
+        return run(List.of(dataDir));
+    }
+
+    public RecoveryReport run(List<Path> dataDirs) {
+        long start = System.nanoTime();
+        RecoveryReport report = new RecoveryReport(repair);
+        int threads = Math.max(2, Math.min(4 * dataDirs.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "data-recovery");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<CompletableFuture<Void>> dirs = new ArrayList<>();
+            for (Path dir : dataDirs) {
+                if (Files.isDirectory(dir)) dirs.add(checkDirectory(dir.toAbsolutePath(), report, pool));
+            }
+            CompletableFuture.allOf(dirs.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    private CompletableFuture<Void> checkDirectory(Path dir, RecoveryReport report, ExecutorService pool) {
+        removeTempFiles(dir, report);
+        UserScan users = new UserScan(dataFile(dir, FilePersistentManager.USERS_FILE));
+        LotScan lots = new LotScan(dataFile(dir, FilePersistentManager.LOTS_FILE));
+        ReservationScan reservations = new ReservationScan(dataFile(dir, FilePersistentManager.RESERVATIONS_FILE));
+        PaymentScan payments = new PaymentScan(dataFile(dir, FilePersistentManager.PAYMENTS_FILE));
+        List<CompletableFuture<Void>> scans = new ArrayList<>();
+        for (FileScan scan : List.of(users, lots, reservations, payments)) {
+            scans.add(CompletableFuture.runAsync(() -> verify(scan, report), pool));
+        }
+        return CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[0]))
+                .thenRunAsync(() -> reconcile(users, lots, reservations, payments, report), pool);
+    }
+
+    // --- Files ---
+
+    /** The stored file for a logical name (plain or compressed, whichever exists). */
+    private static Path dataFile(Path dir, String name) {
+        DataCodec codec = DataCodec.detect(dir, name);
+        return dir.resolve((codec != null ? codec : DataCodec.PLAIN).fileName(name));
+    }
+
+    private static DataCodec codecOf(Path file) {
+        return file.getFileName().toString().endsWith(DataCodec.GZIP.fileName("")) ? DataCodec.GZIP : DataCodec.PLAIN;
+    }
+
+    private void removeTempFiles(Path dir, RecoveryReport report) {
+        try (DirectoryStream<Path> tmps = Files.newDirectoryStream(dir, "*" + AtomicFiles.TMP)) {
+            for (Path tmp : tmps) {
+                if (repair) {
+                    Files.deleteIfExists(tmp);
+                    report.add(RecoveryReport.Severity.REPAIRED, "Removed leftover temp file " + tmp);
+                } else {
+                    report.add(RecoveryReport.Severity.WARNING, "Leftover temp file " + tmp);
+                }
+            }
+        } catch (IOException e) {
+            report.add(RecoveryReport.Severity.ERROR, "Cannot list " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /** Verify the file (falling back to its backup) while streaming its records into the scan. */
+    private void verify(FileScan scan, RecoveryReport report) {
+        Path path = scan.path;
+        Path bak = AtomicFiles.sibling(path, AtomicFiles.BAK);
+        try {
+            long[] known = AtomicFiles.knownChecksums(path);
+            boolean exists = Files.exists(path);
+            if (exists) {
+                Long crc = stream(path, scan);
+                if (crc != null && known == null) {
+                    if (repair) {
+                        AtomicFiles.writeChecksum(path, crc, Files.size(path));
+                        report.add(RecoveryReport.Severity.REPAIRED, "Added checksum for " + path);
+                    }
+                    report.addScanned(scan.records, Files.size(path));
+                    return;
+                }
+                if (crc != null && AtomicFiles.matches(crc, known)) {
+                    report.addScanned(scan.records, Files.size(path));
+                    return;
+                }
+                if (crc != null) {
+                    // parses but does not match: changed outside the application (e.g. edited by hand)
+                    if (repair) {
+                        AtomicFiles.writeChecksum(path, crc, Files.size(path));
+                        report.add(RecoveryReport.Severity.REPAIRED, path + " was changed outside the application; accepted and re-checksummed");
+                    } else {
+                        report.add(RecoveryReport.Severity.WARNING, path + " was changed outside the application (checksum mismatch)");
+                    }
+                    report.addScanned(scan.records, Files.size(path));
+                    return;
+                }
+            }
+            if (Files.exists(bak)) {
+                scan.reset();
+                Long crc = stream(bak, scan);
+                if (crc != null && (known == null || AtomicFiles.matches(crc, known))) {
+                    String what = (exists ? "Corrupt " : "Missing ") + path + " (interrupted write or damage)";
+                    if (repair) {
+                        AtomicFiles.restoreBackup(path);
+                        report.add(RecoveryReport.Severity.REPAIRED, what + ": restored from backup");
+                    } else {
+                        report.add(RecoveryReport.Severity.ERROR, what + ": backup is valid, run with repair");
+                    }
+                    report.addScanned(scan.records, Files.size(bak));
+                    return;
+                }
+            }
+            scan.reset();
+            scan.unusable = exists;
+            if (exists) report.add(RecoveryReport.Severity.ERROR, "Corrupt " + path + " and no valid backup");
+        } catch (IOException e) {
+            scan.reset();
+            scan.unusable = true;
+            report.add(RecoveryReport.Severity.ERROR, "Cannot read " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse the JSON array record by record (decompressing if the data file is compressed); returns
+     * the file's CRC-32C over the stored bytes, or null if it does not parse.
+     */
+    private Long stream(Path file, FileScan scan) throws IOException {
+        CRC32C crc = new CRC32C();
+        DataCodec codec = codecOf(scan.path);
+        try (CheckedInputStream in = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc);
+             InputStream data = codec.decoding(in);
+             JsonParser parser = mapper.getFactory().createParser(data)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            JsonToken token = parser.nextToken();
+            if (token != null) {
+                if (token != JsonToken.START_ARRAY) return null;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    scan.records++;
+                    scan.read(parser, mapper);
+                }
+                if (parser.currentToken() != JsonToken.END_ARRAY || parser.nextToken() != null) return null;
+            }
+            in.transferTo(OutputStream.nullOutputStream());   // a decompressor may stop before the last stored byte
+            return crc.getValue();
+        } catch (JsonProcessingException | ZipException | EOFException e) {
+            return null;   // unparseable JSON, or a damaged or truncated compressed file
+        }
+    }
+
+    // --- Cross-file consistency ---
+
+    private void reconcile(UserScan users, LotScan lots, ReservationScan reservations, PaymentScan payments,
+                           RecoveryReport report) {
+        for (FileScan scan : List.of(users, lots, reservations, payments)) {
+            if (!scan.duplicates.isEmpty()) {
+                report.add(RecoveryReport.Severity.WARNING, describe("Duplicate ids in " + scan.path.getFileName(), scan.duplicates));
+            }
+        }
+        if (users.unusable || lots.unusable || reservations.unusable || payments.unusable) {
+            report.add(RecoveryReport.Severity.WARNING, "Skipped consistency checks for " + lots.path.getParent() + " (unreadable file)");
+            return;
+        }
+
+        List<String> freed = new ArrayList<>();
+        List<String> reserved = new ArrayList<>();
+        List<String> doubleBooked = new ArrayList<>();
+        Set<String> knownSlots = new HashSet<>();
+        for (ParkingLot lot : lots.lots) {
+            for (ParkingSlot slot : lot.getSlots()) {
+                knownSlots.add(slot.getSlotId());
+                int holders = reservations.confirmedBySlot.getOrDefault(slot.getSlotId(), 0);
+                if (holders > 1) doubleBooked.add(slot.getSlotId() + " (" + holders + ")");
+                boolean shouldBeAvailable = holders == 0;
+                if (slot.isAvailable() != shouldBeAvailable) {
+                    (shouldBeAvailable ? freed : reserved).add(lot.getLotId() + "/" + slot.getSlotId());
+                    slot.setAvailable(shouldBeAvailable);
+                }
+            }
+        }
+        RecoveryReport.Severity fixed = repair ? RecoveryReport.Severity.REPAIRED : RecoveryReport.Severity.WARNING;
+        if (!reserved.isEmpty()) {
+            report.add(fixed, describe("Slots marked available but held by a confirmed reservation"
+                    + (repair ? ", now reserved" : ""), reserved));
+        }
+        if (!freed.isEmpty()) {
+            report.add(fixed, describe("Slots marked reserved without a confirmed reservation"
+                    + (repair ? ", now available" : ""), freed));
+        }
+        if (repair && (!reserved.isEmpty() || !freed.isEmpty())) {
+            try {
+                AtomicFiles.write(lots.path, encode(codecOf(lots.path), lots.lots));
+            } catch (IOException e) {
+                report.add(RecoveryReport.Severity.ERROR, "Could not rewrite " + lots.path + ": " + e.getMessage());
+            }
+        }
+        if (!doubleBooked.isEmpty()) {
+            report.add(RecoveryReport.Severity.WARNING, describe("Slots held by more than one confirmed reservation", doubleBooked));
+        }
+
+        List<String> unknownSlot = new ArrayList<>();
+        reservations.sampleBySlot.forEach((slotId, reservationId) -> {
+            if (!knownSlots.contains(slotId)) unknownSlot.add(reservationId + " -> " + slotId);
+        });
+        if (!unknownSlot.isEmpty()) report.add(RecoveryReport.Severity.WARNING, describe("Reservations for unknown slots", unknownSlot));
+
+        List<String> unknownUser = new ArrayList<>();
+        reservations.sampleByUser.forEach((userId, reservationId) -> {
+            if (!users.ids.contains(userId)) unknownUser.add(reservationId + " -> " + userId);
+        });
+        if (!unknownUser.isEmpty()) report.add(RecoveryReport.Severity.WARNING, describe("Reservations for unknown users", unknownUser));
+
+        List<String> unpaid = new ArrayList<>();
+        for (String id : reservations.confirmed) {
+            if (!payments.paidReservations.contains(id)) unpaid.add(id);
+        }
+        if (!unpaid.isEmpty()) report.add(RecoveryReport.Severity.WARNING, describe("Confirmed reservations without a successful payment", unpaid));
+
+        List<String> orphanPayments = new ArrayList<>();
+        payments.reservationByPayment.forEach((paymentId, reservationId) -> {
+            if (!reservations.ids.contains(reservationId)) orphanPayments.add(paymentId + " -> " + reservationId);
+        });
+        if (!orphanPayments.isEmpty()) report.add(RecoveryReport.Severity.WARNING, describe("Payments for unknown reservations", orphanPayments));
+    }
+
+    private byte[] encode(DataCodec codec, Object rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encoding(bytes)) {
+            (codec.prettyPrint() ? mapper.writerWithDefaultPrettyPrinter() : mapper.writer()).writeValue(out, rows);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String describe(String what, List<String> ids) {
+        StringBuilder sb = new StringBuilder(what).append(": ");
+        sb.append(String.join(", ", ids.subList(0, Math.min(SAMPLES, ids.size()))));
+        if (ids.size() > SAMPLES) sb.append(" and ").append(ids.size() - SAMPLES).append(" more");
+        return sb.toString();
+    }
+
+    // --- Per-file accumulators ---
+
+    /**
+     * What a scan keeps from one file; reset() discards it before re-reading from the backup. Scans
+     * that only need a few fields read them straight from the token stream (no data binding).
+     */
+    private abstract static class FileScan {
+        final Path path;
+        final Set<String> ids = new HashSet<>();
+        final List<String> duplicates = new ArrayList<>();
+        long records;
+        boolean unusable;
+
+        FileScan(Path path) {
+            this.path = path;
+        }
+
+        /** Consume one record; the parser is on its START_OBJECT. */
+        abstract void read(JsonParser parser, ObjectMapper mapper) throws IOException;
+
+        abstract void clear();
+
+        void id(String id) {
+            if (id != null && !ids.add(id)) duplicates.add(id);
+        }
+
+        void reset() {
+            ids.clear();
+            duplicates.clear();
+            records = 0;
+            clear();
+        }
+
+        /** Top-level scalar fields of the current object, by position in names; other values skipped. */
+        static String[] fields(JsonParser parser, String... names) throws IOException {
+            String[] values = new String[names.length];
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                int i = 0;
+                while (i < names.length && !names[i].equals(name)) i++;
+                if (i < names.length && value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+                    values[i] = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return values;
+        }
+    }
+
+    private static final class UserScan extends FileScan {
+        UserScan(Path path) { super(path); }
+        @Override void read(JsonParser parser, ObjectMapper mapper) throws IOException {
+            id(fields(parser, "userId")[0]);
+        }
+        @Override void clear() { }
+    }
+
+    private static final class LotScan extends FileScan {
+        final List<ParkingLot> lots = new ArrayList<>();   // kept whole: slot flags may be rewritten
+        LotScan(Path path) { super(path); }
+        @Override void read(JsonParser parser, ObjectMapper mapper) throws IOException {
+            ParkingLot lot = mapper.readValue(parser, ParkingLot.class);
+            id(lot.getLotId());
+            lots.add(lot);
+        }
+        @Override void clear() { lots.clear(); }
+    }
+
+    private static final class ReservationScan extends FileScan {
+        final Map<String, Integer> confirmedBySlot = new HashMap<>();
+        final Map<String, String> sampleBySlot = new HashMap<>();   // slotId -> a reservation holding it
+        final Map<String, String> sampleByUser = new HashMap<>();   // userId -> a reservation of the user
+        final List<String> confirmed = new ArrayList<>();
+        ReservationScan(Path path) { super(path); }
+        @Override void read(JsonParser parser, ObjectMapper mapper) throws IOException {
+            String[] f = fields(parser, "reservationId", "userId", "slotId", "reservationStatus");
+            String id = f[0], userId = f[1], slotId = f[2];
+            id(id);
+            if (slotId != null) sampleBySlot.putIfAbsent(slotId, id);
+            if (userId != null) sampleByUser.putIfAbsent(userId, id);
+            if (Reservation.STATUS_CONFIRMED.equals(f[3])) {
+                confirmed.add(id);
+                if (slotId != null) confirmedBySlot.merge(slotId, 1, Integer::sum);
+            }
+        }
+        @Override void clear() {
+            confirmedBySlot.clear();
+            sampleBySlot.clear();
+            sampleByUser.clear();
+            confirmed.clear();
+        }
+    }
+
+    private static final class PaymentScan extends FileScan {
+        final Set<String> paidReservations = new HashSet<>();
+        final Map<String, String> reservationByPayment = new HashMap<>();
+        PaymentScan(Path path) { super(path); }
+        @Override void read(JsonParser parser, ObjectMapper mapper) throws IOException {
+            String[] f = fields(parser, "paymentId", "reservationId", "paymentStatus");
+            id(f[0]);
+            if (f[1] == null) return;
+            reservationByPayment.put(f[0], f[1]);
+            if (Payment.STATUS_SUCCESS.equals(f[2])) paidReservations.add(f[1]);
+        }
+        @Override void clear() {
+            paidReservations.clear();
+            reservationByPayment.clear();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package smartparking.persistence;
+
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Decorator that records every reservation state change as an event in a ReservationEventStore
+ * and keeps a ReservationProjection up to date. The delegate still stores the current snapshot;
+ * the event log keeps the full history and rebuilds the projection on startup.
+ */
+public class EventSourcedPersistentManager extends ForwardingPersistentManager {
+
+    private final ReservationEventStore store;
+    private final ReservationProjection projection = new ReservationProjection();
+    private final List<Consumer<ReservationEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public EventSourcedPersistentManager(PersistentManager delegate, ReservationEventStore store) {
+        super(delegate);
+        this.store = store;
+        if (store.getLastSequence() == 0) {
+            migrateExistingReservations();
+        } else {
+            store.replay(projection::apply);
+        }
+    }
+
+    public ReservationProjection getProjection() {
+        return projection;
+    }
+
+    public ReservationEventStore getEventStore() {
+        return store;
+    }
+
+    /**
+     * Replay the whole log to the listener, then deliver each new event as it is recorded (in
+     * sequence order, on the writing thread). Used by derived views such as occupancy forecasts.
+     */
+    public synchronized void subscribe(Consumer<ReservationEvent> listener) {
+        store.replay(listener);
+        listeners.add(listener);
+    }
+
+    @Override
+    public synchronized void saveReservation(Reservation reservation) {
+        Reservation previous = projection.findReservation(reservation.getReservationId()).orElse(null);
+        String previousStatus = previous != null ? previous.getReservationStatus() : null;
+        LocalDateTime previousEnd = previous != null ? previous.getEndTime() : null;
+
+        super.saveReservation(reservation);
+
+        if (previous == null) {
+            record(ReservationEvent.created(reservation));
+        }
+        String status = reservation.getReservationStatus();
+        if (Reservation.STATUS_CONFIRMED.equals(status) && !Objects.equals(status, previousStatus)) {
+            record(ReservationEvent.confirmed(reservation, reservation.getPayment()));
+        }
+        if (Reservation.STATUS_CANCELLED.equals(status) && !Objects.equals(status, previousStatus)) {
+            record(ReservationEvent.cancelled(reservation));
+        }
+        if (previousEnd != null && reservation.getEndTime() != null && reservation.getEndTime().isAfter(previousEnd)) {
+            record(ReservationEvent.extended(reservation));
+        }
+    }
+
+    @Override
+    public synchronized void savePayment(Payment payment) {
+        super.savePayment(payment);
+        if (Payment.STATUS_REFUNDED.equals(payment.getPaymentStatus())
+                && !projection.isPaymentRefunded(payment.getPaymentId())) {
+            record(ReservationEvent.refunded(payment));
+        }
+    }
+
+    private void record(ReservationEvent event) {
+        ReservationEvent stored = store.append(event);
+        projection.apply(stored);
+        for (Consumer<ReservationEvent> listener : listeners) {
+            listener.accept(stored);
+        }
+    }
+
+    /**
+     * First start with an empty log: seed it from the reservations and payments already on file.
+     * A reservation counts as confirmed only if it has a successful payment (refunded ones were
+     * successful first); one cancelled while still pending is never confirmed.
+     */
+    private void migrateExistingReservations() {
+        List<Payment> payments = delegate().findAllPayments();
+        Map<String, Payment> paidByReservation = new HashMap<>();
+        for (Payment p : payments) {
+            if (p.getReservationId() != null && (Payment.STATUS_SUCCESS.equals(p.getPaymentStatus())
+                    || Payment.STATUS_REFUNDED.equals(p.getPaymentStatus()))) {
+                paidByReservation.putIfAbsent(p.getReservationId(), p);
+            }
+        }
+        for (Reservation r : delegate().findAllReservations()) {
+            record(ReservationEvent.created(r));
+            Payment paid = paidByReservation.get(r.getReservationId());
+            if (paid != null && !Reservation.STATUS_PENDING.equals(r.getReservationStatus())) {
+                record(ReservationEvent.confirmed(r, paid));
+            }
+            if (Reservation.STATUS_CANCELLED.equals(r.getReservationStatus())) {
+                record(ReservationEvent.cancelled(r));
+            }
+        }
+        for (Payment p : payments) {
+            if (Payment.STATUS_REFUNDED.equals(p.getPaymentStatus())) {
+                record(ReservationEvent.refunded(p));
+            }
+        }
+    }
+}
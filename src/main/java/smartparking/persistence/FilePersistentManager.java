@@ -1,47 +1,119 @@
 package smartparking.persistence;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import smartparking.model.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * File-based implementation of PersistentManager. Uses JSON files in a "data" directory.
  * Suitable for Iteration 1 (no database). Supports reporting via readable file contents.
+ *
+ * By default every save rewrites its file before returning; a per-file read-write lock serializes
+ * the read-modify-write of concurrent saves and keeps reads off a file that is being replaced.
+ * With group commit, each file is kept as an in-memory image (loaded on first use, served to reads)
+ * and saves only update the image; a GroupCommitWriter rewrites and fsyncs each dirty file once per
+ * batch. save* still returns only when the change is durable; save*Async returns that durability
+ * future instead (ignore it for fire-and-forget). Call close() to flush pending writes.
+ *
+ * With DataCodec.GZIP the files are stored compressed (users.json.gz, ...). Opening a directory with
+ * a different codec than its files were written with converts them once.
  */
-public class FilePersistentManager implements PersistentManager {
+public class FilePersistentManager implements PersistentManager, AutoCloseable {
 
     private static final String DATA_DIR = "data";
-    private static final String USERS_FILE = "users.json";
-    private static final String LOTS_FILE = "parkinglots.json";
-    private static final String RESERVATIONS_FILE = "reservations.json";
-    private static final String PAYMENTS_FILE = "payments.json";
+    static final String USERS_FILE = "users.json";
+    static final String LOTS_FILE = "parkinglots.json";
+    static final String RESERVATIONS_FILE = "reservations.json";
+    static final String PAYMENTS_FILE = "payments.json";
 
     private final Path dataPath;
     private final ObjectMapper mapper;
-    private final ConcurrentHashMap<String, PaymentGateway> gatewayCache = new ConcurrentHashMap<>();
+    private final DataCodec codec;
+    private final PaymentGatewayCatalog gateways = new PaymentGatewayCatalog();
+    private final ConcurrentHashMap<Path, ReentrantReadWriteLock> fileLocks = new ConcurrentHashMap<>();
+    private final GroupCommitWriter writer;   // null: synchronous writes
+    private final Table<User> users;
+    private final Table<ParkingLot> lots;
+    private final Table<Reservation> reservations;
+    private final Table<Payment> payments;
 
     public FilePersistentManager() {
         this(DATA_DIR);
     }
 
     public FilePersistentManager(String dataDir) {
+        this(dataDir, -1, 0);
+    }
+
+    /**
+     * @param flushIntervalMillis group commit: how long the first pending save waits for others to
+     *                            join its batch; negative for synchronous writes
+     * @param maxBatch            group commit: flush early once this many saves are pending
+     */
+    public FilePersistentManager(String dataDir, long flushIntervalMillis, int maxBatch) {
+        this(dataDir, flushIntervalMillis, maxBatch, DataCodec.PLAIN);
+    }
+
+    /** @param codec on-disk encoding of the data files (existing files in another encoding are converted) */
+    public FilePersistentManager(String dataDir, long flushIntervalMillis, int maxBatch, DataCodec codec) {
         this.dataPath = Paths.get(dataDir).toAbsolutePath();
-        this.mapper = new ObjectMapper();
-        this.mapper.registerModule(new JavaTimeModule());
-        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.mapper = createMapper();
+        this.codec = codec;
         ensureDataDir();
+        for (String file : List.of(USERS_FILE, LOTS_FILE, RESERVATIONS_FILE, PAYMENTS_FILE)) {
+            convertIfNeeded(file);
+        }
+        if (flushIntervalMillis >= 0) {
+            this.writer = new GroupCommitWriter("group-commit-" + dataPath.getFileName(), flushIntervalMillis, maxBatch);
+            this.users = new Table<>(usersPath(), User.class, "userId", User::getUserId);
+            this.lots = new Table<>(lotsPath(), ParkingLot.class, "lotId", ParkingLot::getLotId);
+            this.reservations = new Table<>(reservationsPath(), Reservation.class, "reservationId", Reservation::getReservationId);
+            this.payments = new Table<>(paymentsPath(), Payment.class, "paymentId", Payment::getPaymentId);
+        } else {
+            this.writer = null;
+            this.users = null;
+            this.lots = null;
+            this.reservations = null;
+            this.payments = null;
+        }
+    }
+
+    /** Mapper for the data files (shared with DataDirectoryRecovery). */
+    static ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // group-commit images hold rows as trees: keep amounts exactly as written (e.g. 9.00, not 9)
+        mapper.enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        mapper.configure(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES, false);
+        return mapper;
     }
 
     private void ensureDataDir() {
@@ -52,86 +124,297 @@ public class FilePersistentManager implements PersistentManager {
         }
     }
 
-    private Path usersPath() { return dataPath.resolve(USERS_FILE); }
-    private Path lotsPath() { return dataPath.resolve(LOTS_FILE); }
-    private Path reservationsPath() { return dataPath.resolve(RESERVATIONS_FILE); }
-    private Path paymentsPath() { return dataPath.resolve(PAYMENTS_FILE); }
+    private Path usersPath() { return dataPath.resolve(codec.fileName(USERS_FILE)); }
+    private Path lotsPath() { return dataPath.resolve(codec.fileName(LOTS_FILE)); }
+    private Path reservationsPath() { return dataPath.resolve(codec.fileName(RESERVATIONS_FILE)); }
+    private Path paymentsPath() { return dataPath.resolve(codec.fileName(PAYMENTS_FILE)); }
+
+    /**
+     * Rewrite a file stored with the other codec in this one. The new file is complete before the
+     * old one is deleted, so an interrupted conversion just runs again.
+     */
+    private void convertIfNeeded(String file) {
+        DataCodec stored = DataCodec.detect(dataPath, file);
+        if (stored == null || stored == codec) return;
+        Path from = dataPath.resolve(stored.fileName(file));
+        List<JsonNode> rows = readList(from, stored, new TypeReference<>() {});
+        try {
+            AtomicFiles.write(dataPath.resolve(codec.fileName(file)), serialize(rows));
+            for (String suffix : new String[] {"", AtomicFiles.BAK, AtomicFiles.CRC}) {
+                Files.deleteIfExists(AtomicFiles.sibling(from, suffix));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not convert " + from + " to " + codec, e);
+        }
+    }
 
+    /**
+     * Read a data file, verified against its checksum (see AtomicFiles). A missing file is an empty
+     * list; a damaged file falls back to its backup, and with no usable backup it is an error rather
+     * than an empty list, so the next save cannot silently overwrite the data.
+     */
     private <T> List<T> readList(Path path, TypeReference<List<T>> typeRef) {
-        if (!Files.exists(path)) return new ArrayList<>();
+        return readList(path, codec, typeRef);
+    }
+
+    private <T> List<T> readList(Path path, DataCodec codec, TypeReference<List<T>> typeRef) {
+        AtomicFiles.Content content;
+        ReentrantReadWriteLock.ReadLock lock = lockFor(path).readLock();
+        lock.lock();
+        try {
+            content = AtomicFiles.read(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + path, e);
+        } finally {
+            lock.unlock();
+        }
+        if (content.status() == AtomicFiles.Status.MISSING) return new ArrayList<>();
+        if (content.status() == AtomicFiles.Status.CORRUPT) {
+            throw new RuntimeException("Corrupt data file (no valid backup): " + path);
+        }
+        try {
+            return parseList(content.bytes(), codec, typeRef);
+        } catch (IOException e) {
+            if (content.backup() == null) throw new RuntimeException("Unreadable data file (no valid backup): " + path, e);
+        }
         try {
-            String json = Files.readString(path);
-            if (json.isBlank()) return new ArrayList<>();
-            return mapper.readValue(json, typeRef);
+            return parseList(content.backup(), codec, typeRef);   // damaged file, verified backup
         } catch (IOException e) {
-            return new ArrayList<>();
+            throw new RuntimeException("Unreadable data file: " + path, e);
+        }
+    }
+
+    private <T> List<T> parseList(byte[] bytes, DataCodec codec, TypeReference<List<T>> typeRef) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(codec.decoding(new ByteArrayInputStream(bytes)))) {
+            if (parser.nextToken() == null) return new ArrayList<>();   // empty or blank file
+            return mapper.readValue(parser, typeRef);
         }
     }
 
+    private ReentrantReadWriteLock lockFor(Path path) {
+        return fileLocks.computeIfAbsent(path, p -> new ReentrantReadWriteLock());
+    }
+
     private <T> void writeList(Path path, List<T> list) throws IOException {
-        mapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), list);
+        AtomicFiles.write(path, serialize(list));
+    }
+
+    /** Encoded file content: streamed through the codec into the buffer that AtomicFiles writes. */
+    private byte[] serialize(Object list) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encoding(bytes)) {
+            (codec.prettyPrint() ? mapper.writerWithDefaultPrettyPrinter() : mapper.writer()).writeValue(out, list);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * In-memory image of one JSON file for group commit. Rows are stored as JSON trees, so callers
+     * never share mutable entities with the image (same as reading the file), and kept in file
+     * order: a saved row moves to the end, as with the synchronous remove-and-append.
+     */
+    private final class Table<T> implements GroupCommitWriter.DirtyFile {
+        private final Path path;
+        private final Class<T> type;
+        private final String idField;
+        private final Function<T, String> idOf;
+        private LinkedHashMap<String, JsonNode> rows;
+
+        Table(Path path, Class<T> type, String idField, Function<T, String> idOf) {
+            this.path = path;
+            this.type = type;
+            this.idField = idField;
+            this.idOf = idOf;
+        }
+
+        synchronized List<T> list() {
+            List<T> result = new ArrayList<>(rows().size());
+            for (JsonNode row : rows.values()) result.add(convert(row));
+            return result;
+        }
+
+        synchronized Optional<T> find(String id) {
+            JsonNode row = id != null ? rows().get(id) : null;
+            return row != null ? Optional.of(convert(row)) : Optional.empty();
+        }
+
+        CompletableFuture<Void> save(T entity) {
+            JsonNode row = mapper.valueToTree(entity);
+            String id = idOf.apply(entity);
+            synchronized (this) {
+                rows().remove(id);
+                rows.put(id != null ? id : "~" + UUID.randomUUID(), row);
+            }
+            return writer.submit(this);
+        }
+
+        CompletableFuture<Void> remove(Set<String> ids) {
+            synchronized (this) {
+                rows().keySet().removeAll(ids);
+            }
+            return writer.submit(this);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            List<JsonNode> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(rows().values());
+            }
+            AtomicFiles.write(path, serialize(snapshot));
+        }
+
+        private LinkedHashMap<String, JsonNode> rows() {
+            if (rows == null) {
+                rows = new LinkedHashMap<>();
+                for (JsonNode row : readList(path, new TypeReference<List<JsonNode>>() {})) {
+                    JsonNode id = row.get(idField);
+                    rows.put(id != null && !id.isNull() ? id.asText() : "~" + UUID.randomUUID(), row);
+                }
+            }
+            return rows;
+        }
+
+        private T convert(JsonNode row) {
+            try {
+                return mapper.treeToValue(row, type);
+            } catch (IOException e) {
+                throw new RuntimeException("Corrupt record in " + path.getFileName(), e);
+            }
+        }
+    }
+
+    private static void awaitDurable(CompletableFuture<Void> durable, String message) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(message, e.getCause());
+        }
+    }
+
+    /** Flush pending group-commit writes and stop the writer (no-op for synchronous writes). */
+    @Override
+    public void close() {
+        if (writer != null) writer.close();
+    }
+
+    /** Group commit: {batches written, saves covered}; null for synchronous writes. */
+    public long[] getGroupCommitStats() {
+        return writer != null ? writer.getStats() : null;
     }
 
     @Override
     public Optional<User> findUserById(String userId) {
+        if (writer != null) return users.find(userId);
         List<User> list = readList(usersPath(), new TypeReference<>() {});
         return list.stream().filter(u -> userId != null && userId.equals(u.getUserId())).findFirst();
     }
 
     @Override
     public Optional<User> findUserByEmail(String email) {
-        List<User> list = readList(usersPath(), new TypeReference<>() {});
+        List<User> list = findAllUsers();
         return list.stream().filter(u -> email != null && email.equals(u.getEmail())).findFirst();
     }
 
     @Override
     public List<User> findAllUsers() {
+        if (writer != null) return users.list();
         return readList(usersPath(), new TypeReference<>() {});
     }
 
     @Override
     public void saveUser(User user) {
-        List<User> list = findAllUsers();
-        list.removeIf(u -> user.getUserId() != null && user.getUserId().equals(u.getUserId()));
-        list.add(user);
+        if (writer != null) {
+            awaitDurable(users.save(user), "Failed to save user");
+            return;
+        }
+        ReentrantReadWriteLock.WriteLock lock = lockFor(usersPath()).writeLock();
+        lock.lock();
         try {
-            writeList(usersPath(), list);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save user", e);
+            List<User> list = findAllUsers();
+            list.removeIf(u -> user.getUserId() != null && user.getUserId().equals(u.getUserId()));
+            list.add(user);
+            try {
+                writeList(usersPath(), list);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save user", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Save without waiting for the disk. With group commit the future completes once the batch
+     * holding this save is written and fsynced; without it the save is synchronous and the future
+     * is already complete.
+     */
+    public CompletableFuture<Void> saveUserAsync(User user) {
+        if (writer != null) return users.save(user);
+        try {
+            saveUser(user);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     @Override
     public Optional<ParkingLot> findParkingLotById(String lotId) {
+        if (writer != null) return lots.find(lotId);
         List<ParkingLot> list = readList(lotsPath(), new TypeReference<>() {});
         return list.stream().filter(l -> lotId != null && lotId.equals(l.getLotId())).findFirst();
     }
 
     @Override
     public List<ParkingLot> findAllParkingLots() {
+        if (writer != null) return lots.list();
         return readList(lotsPath(), new TypeReference<>() {});
     }
 
     @Override
     public void saveParkingLot(ParkingLot lot) {
-        List<ParkingLot> list = findAllParkingLots();
-        list.removeIf(l -> lot.getLotId() != null && lot.getLotId().equals(l.getLotId()));
-        list.add(lot);
+        if (writer != null) {
+            awaitDurable(lots.save(lot), "Failed to save parking lot");
+            return;
+        }
+        ReentrantReadWriteLock.WriteLock lock = lockFor(lotsPath()).writeLock();
+        lock.lock();
         try {
-            writeList(lotsPath(), list);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save parking lot", e);
+            List<ParkingLot> list = findAllParkingLots();
+            list.removeIf(l -> lot.getLotId() != null && lot.getLotId().equals(l.getLotId()));
+            list.add(lot);
+            try {
+                writeList(lotsPath(), list);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save parking lot", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Asynchronous saveParkingLot (see saveUserAsync). */
+    public CompletableFuture<Void> saveParkingLotAsync(ParkingLot lot) {
+        if (writer != null) return lots.save(lot);
+        try {
+            saveParkingLot(lot);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     @Override
     public Optional<Reservation> findReservationById(String reservationId) {
+        if (writer != null) return reservations.find(reservationId);
         List<Reservation> list = readList(reservationsPath(), new TypeReference<>() {});
         return list.stream().filter(r -> reservationId != null && reservationId.equals(r.getReservationId())).findFirst();
     }
 
     @Override
     public List<Reservation> findAllReservations() {
+        if (writer != null) return reservations.list();
         return readList(reservationsPath(), new TypeReference<>() {});
     }
 
@@ -143,50 +426,119 @@ public class FilePersistentManager implements PersistentManager {
 
     @Override
     public void saveReservation(Reservation reservation) {
-        List<Reservation> list = findAllReservations();
-        list.removeIf(r -> reservation.getReservationId() != null && reservation.getReservationId().equals(r.getReservationId()));
-        list.add(reservation);
+        if (writer != null) {
+            awaitDurable(reservations.save(reservation), "Failed to save reservation");
+            return;
+        }
+        ReentrantReadWriteLock.WriteLock lock = lockFor(reservationsPath()).writeLock();
+        lock.lock();
         try {
-            writeList(reservationsPath(), list);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save reservation", e);
+            List<Reservation> list = findAllReservations();
+            list.removeIf(r -> reservation.getReservationId() != null && reservation.getReservationId().equals(r.getReservationId()));
+            list.add(reservation);
+            try {
+                writeList(reservationsPath(), list);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save reservation", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Asynchronous saveReservation (see saveUserAsync). */
+    public CompletableFuture<Void> saveReservationAsync(Reservation reservation) {
+        if (writer != null) return reservations.save(reservation);
+        try {
+            saveReservation(reservation);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     @Override
     public Optional<Payment> findPaymentById(String paymentId) {
+        if (writer != null) return payments.find(paymentId);
         List<Payment> list = readList(paymentsPath(), new TypeReference<>() {});
         return list.stream().filter(p -> paymentId != null && paymentId.equals(p.getPaymentId())).findFirst();
     }
 
     @Override
     public List<Payment> findAllPayments() {
+        if (writer != null) return payments.list();
         return readList(paymentsPath(), new TypeReference<>() {});
     }
 
     @Override
     public void savePayment(Payment payment) {
-        List<Payment> list = findAllPayments();
-        list.removeIf(p -> payment.getPaymentId() != null && payment.getPaymentId().equals(p.getPaymentId()));
-        list.add(payment);
+        if (writer != null) {
+            awaitDurable(payments.save(payment), "Failed to save payment");
+            return;
+        }
+        ReentrantReadWriteLock.WriteLock lock = lockFor(paymentsPath()).writeLock();
+        lock.lock();
+        try {
+            List<Payment> list = findAllPayments();
+            list.removeIf(p -> payment.getPaymentId() != null && payment.getPaymentId().equals(p.getPaymentId()));
+            list.add(payment);
+            try {
+                writeList(paymentsPath(), list);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save payment", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Asynchronous savePayment (see saveUserAsync). */
+    public CompletableFuture<Void> savePaymentAsync(Payment payment) {
+        if (writer != null) return payments.save(payment);
         try {
-            writeList(paymentsPath(), list);
+            savePayment(payment);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Delete reservations and payments by id (used when they move to the archive tier). Payments go
+     * first, so a crash in between never leaves a payment whose reservation is gone from both tiers.
+     */
+    void removeReservationsAndPayments(Set<String> reservationIds, Set<String> paymentIds) {
+        if (writer != null) {
+            awaitDurable(payments.remove(paymentIds), "Failed to remove archived payments");
+            awaitDurable(reservations.remove(reservationIds), "Failed to remove archived reservations");
+            return;
+        }
+        try {
+            removeWhere(paymentsPath(), this::findAllPayments, p -> paymentIds.contains(p.getPaymentId()));
+            removeWhere(reservationsPath(), this::findAllReservations, r -> reservationIds.contains(r.getReservationId()));
         } catch (IOException e) {
-            throw new RuntimeException("Failed to save payment", e);
+            throw new RuntimeException("Failed to remove archived records", e);
+        }
+    }
+
+    private <T> void removeWhere(Path path, Supplier<List<T>> read, Predicate<T> remove) throws IOException {
+        ReentrantReadWriteLock.WriteLock lock = lockFor(path).writeLock();
+        lock.lock();
+        try {
+            List<T> list = read.get();
+            if (list.removeIf(remove)) writeList(path, list);
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public Optional<PaymentGateway> getDefaultPaymentGateway() {
-        PaymentGateway gw = gatewayCache.computeIfAbsent("default", k -> {
-            PaymentGateway g = new PaymentGateway();
-            g.setGatewayId("GW-001");
-            g.setGatewayName("Default Gateway");
-            g.setProvider("Stripe");
-            g.setStatus("Active");
-            g.connect();
-            return g;
-        });
-        return Optional.of(gw);
+        return Optional.of(gateways.getDefault());
+    }
+
+    @Override
+    public List<PaymentGateway> getPaymentGateways() {
+        return gateways.getAll();
     }
 }
@@ -0,0 +1,75 @@
+package smartparking.persistence;
+
+import smartparking.model.*;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Decorator base for PersistentManager: forwards every operation to a delegate.
+ * Subclasses override only the operations they enrich (event log, caching, ...).
+ */
+public abstract class ForwardingPersistentManager implements PersistentManager {
+
+    private final PersistentManager delegate;
+
+    protected ForwardingPersistentManager(PersistentManager delegate) {
+        if (delegate == null) throw new IllegalArgumentException("delegate is required");
+        this.delegate = delegate;
+    }
+
+    protected PersistentManager delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Optional<User> findUserById(String userId) { return delegate.findUserById(userId); }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) { return delegate.findUserByEmail(email); }
+
+    @Override
+    public List<User> findAllUsers() { return delegate.findAllUsers(); }
+
+    @Override
+    public void saveUser(User user) { delegate.saveUser(user); }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotById(String lotId) { return delegate.findParkingLotById(lotId); }
+
+    @Override
+    public List<ParkingLot> findAllParkingLots() { return delegate.findAllParkingLots(); }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) { delegate.saveParkingLot(lot); }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotBySlotId(String slotId) { return delegate.findParkingLotBySlotId(slotId); }
+
+    @Override
+    public Optional<Reservation> findReservationById(String reservationId) { return delegate.findReservationById(reservationId); }
+
+    @Override
+    public List<Reservation> findAllReservations() { return delegate.findAllReservations(); }
+
+    @Override
+    public List<Reservation> findReservationsByUserId(String userId) { return delegate.findReservationsByUserId(userId); }
+
+    @Override
+    public void saveReservation(Reservation reservation) { delegate.saveReservation(reservation); }
+
+    @Override
+    public Optional<Payment> findPaymentById(String paymentId) { return delegate.findPaymentById(paymentId); }
+
+    @Override
+    public List<Payment> findAllPayments() { return delegate.findAllPayments(); }
+
+    @Override
+    public void savePayment(Payment payment) { delegate.savePayment(payment); }
+
+    @Override
+    public Optional<PaymentGateway> getDefaultPaymentGateway() { return delegate.getDefaultPaymentGateway(); }
+
+    @Override
+    public List<PaymentGateway> getPaymentGateways() { return delegate.getPaymentGateways(); }
+}
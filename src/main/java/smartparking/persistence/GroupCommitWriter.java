@@ -0,0 +1,117 @@
+package smartparking.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer for group commit. Callers change an in-memory file image, then submit it; the
+ * writer thread waits until the first pending change is flushIntervalMillis old or maxBatch changes
+ * are pending, and writes each dirty file once for the whole batch. Every future submitted before
+ * a batch is taken completes when its file from that batch is on disk (exceptionally if that write
+ * failed for any reason; the writer keeps running), so one file write and one fsync cover many saves from many threads.
+ */
+final class GroupCommitWriter implements AutoCloseable {
+
+    /** An in-memory file image that can write its current contents to disk. */
+    interface DirtyFile {
+        void flush() throws IOException;
+    }
+
+    private final long flushIntervalNanos;
+    private final int maxBatch;
+    private final Object lock = new Object();
+    private final Thread thread;
+    private Map<DirtyFile, List<CompletableFuture<Void>>> dirty = new LinkedHashMap<>();
+    private int pending;
+    private boolean closed;
+    private long batches;
+    private long records;
+
+    GroupCommitWriter(String name, long flushIntervalMillis, int maxBatch) {
+        if (flushIntervalMillis < 0 || maxBatch < 1) throw new IllegalArgumentException("flushIntervalMillis >= 0 and maxBatch >= 1 required");
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxBatch = maxBatch;
+        this.thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Mark the file dirty; the future completes once a write that includes the change is durable. */
+    CompletableFuture<Void> submit(DirtyFile file) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (lock) {
+            if (closed) {
+                durable.completeExceptionally(new IllegalStateException("Writer is closed"));
+                return durable;
+            }
+            dirty.computeIfAbsent(file, f -> new ArrayList<>()).add(durable);
+            pending++;
+            if (pending == 1 || pending >= maxBatch) lock.notifyAll();
+        }
+        return durable;
+    }
+
+    /** Batches written so far and the saves they covered. */
+    long[] getStats() {
+        synchronized (lock) {
+            return new long[] { batches, records };
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Map<DirtyFile, List<CompletableFuture<Void>>> batch;
+            synchronized (lock) {
+                try {
+                    while (pending == 0 && !closed) lock.wait();
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    long remaining;
+                    while (pending < maxBatch && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                if (pending == 0 && closed) return;
+                batch = dirty;
+                dirty = new LinkedHashMap<>();
+                batches++;
+                records += pending;
+                pending = 0;
+            }
+            for (Map.Entry<DirtyFile, List<CompletableFuture<Void>>> e : batch.entrySet()) {
+                Throwable failure = null;
+                try {
+                    e.getKey().flush();
+                } catch (Throwable ex) {
+                    // anything, not just I/O (a corrupt file image, serialization): the thread must
+                    // survive, or every later save would wait forever
+                    failure = ex;
+                }
+                for (CompletableFuture<Void> d : e.getValue()) {
+                    if (failure == null) d.complete(null);
+                    else d.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    /** Write everything still pending, then stop the writer thread. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
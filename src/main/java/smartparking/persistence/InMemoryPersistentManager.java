@@ -0,0 +1,148 @@
+package smartparking.persistence;
+
+import smartparking.model.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of PersistentManager (no files). Objects are stored by reference, so
+ * callers see their own instances back. Intended for benchmarks, load replay and read replicas.
+ */
+public class InMemoryPersistentManager implements PersistentManager {
+
+    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final Map<String, ParkingLot> lots = new ConcurrentHashMap<>();
+    private final Map<String, String> lotIdBySlotId = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> slotIdsByLotId = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final Map<String, Payment> payments = new ConcurrentHashMap<>();
+    private final PaymentGatewayCatalog gateways = new PaymentGatewayCatalog();
+
+    @Override
+    public Optional<User> findUserById(String userId) {
+        return userId != null ? Optional.ofNullable(users.get(userId)) : Optional.empty();
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        if (email == null) return Optional.empty();
+        for (User u : users.values()) {
+            if (email.equals(u.getEmail())) return Optional.of(u);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<User> findAllUsers() {
+        return new ArrayList<>(users.values());
+    }
+
+    @Override
+    public void saveUser(User user) {
+        users.put(user.getUserId(), user);
+    }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotById(String lotId) {
+        return lotId != null ? Optional.ofNullable(lots.get(lotId)) : Optional.empty();
+    }
+
+    @Override
+    public List<ParkingLot> findAllParkingLots() {
+        return new ArrayList<>(lots.values());
+    }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) {
+        lots.put(lot.getLotId(), lot);
+        // Reserve/release saves keep the same slots: check in place (no allocation), re-index only on change
+        Set<String> indexed = slotIdsByLotId.get(lot.getLotId());
+        if (indexed != null && hasSlotIds(lot, indexed)) return;
+        Set<String> slotIds = new HashSet<>();
+        for (ParkingSlot s : lot.getSlots()) {
+            if (s.getSlotId() == null) continue;
+            slotIds.add(s.getSlotId());
+            lotIdBySlotId.put(s.getSlotId(), lot.getLotId());
+        }
+        Set<String> previous = slotIdsByLotId.put(lot.getLotId(), slotIds);
+        if (previous != null) {
+            for (String slotId : previous) {
+                if (!slotIds.contains(slotId)) lotIdBySlotId.remove(slotId, lot.getLotId());
+            }
+        }
+    }
+
+    /** Whether the lot's slot ids are exactly the indexed ones. */
+    private static boolean hasSlotIds(ParkingLot lot, Set<String> indexed) {
+        int count = 0;
+        for (ParkingSlot s : lot.getSlots()) {
+            if (s.getSlotId() == null) continue;
+            if (!indexed.contains(s.getSlotId())) return false;
+            count++;
+        }
+        return count == indexed.size();
+    }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotBySlotId(String slotId) {
+        String lotId = slotId != null ? lotIdBySlotId.get(slotId) : null;
+        ParkingLot lot = lotId != null ? lots.get(lotId) : null;
+        return lot != null && lot.getSlotById(slotId) != null ? Optional.of(lot) : Optional.empty();
+    }
+
+    @Override
+    public Optional<Reservation> findReservationById(String reservationId) {
+        return reservationId != null ? Optional.ofNullable(reservations.get(reservationId)) : Optional.empty();
+    }
+
+    @Override
+    public List<Reservation> findAllReservations() {
+        return new ArrayList<>(reservations.values());
+    }
+
+    @Override
+    public List<Reservation> findReservationsByUserId(String userId) {
+        List<Reservation> result = new ArrayList<>();
+        if (userId == null) return result;
+        for (Reservation r : reservations.values()) {
+            if (userId.equals(r.getUserId())) result.add(r);
+        }
+        return result;
+    }
+
+    @Override
+    public void saveReservation(Reservation reservation) {
+        reservations.put(reservation.getReservationId(), reservation);
+    }
+
+    @Override
+    public Optional<Payment> findPaymentById(String paymentId) {
+        return paymentId != null ? Optional.ofNullable(payments.get(paymentId)) : Optional.empty();
+    }
+
+    @Override
+    public List<Payment> findAllPayments() {
+        return new ArrayList<>(payments.values());
+    }
+
+    @Override
+    public void savePayment(Payment payment) {
+        payments.put(payment.getPaymentId(), payment);
+    }
+
+    @Override
+    public Optional<PaymentGateway> getDefaultPaymentGateway() {
+        return Optional.of(gateways.getDefault());
+    }
+
+    @Override
+    public List<PaymentGateway> getPaymentGateways() {
+        return gateways.getAll();
+    }
+}
@@ -0,0 +1,27 @@
+package smartparking.persistence;
+
+import java.util.Objects;
+
+/**
+ * Monitors for read-modify-write sequences on a parking lot (read the lot, change its slots,
+ * saveParkingLot). saveParkingLot replaces the whole lot, and file-backed stores hand out a fresh
+ * copy per read, so two such sequences on one lot must not interleave: the second would check a
+ * stale slot and its save would undo the first one's change. Striped by lot id, so lots sharing a
+ * stripe wait for each other and other lots do not.
+ */
+public final class LotLocks {
+
+    private static final int STRIPES = 256;
+    private static final Object[] LOCKS = new Object[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) LOCKS[i] = new Object();
+    }
+
+    private LotLocks() { }
+
+    /** The monitor to hold while reading, changing and saving the lot. */
+    public static Object forLot(String lotId) {
+        return LOCKS[Math.floorMod(Objects.hashCode(lotId), STRIPES)];
+    }
+}
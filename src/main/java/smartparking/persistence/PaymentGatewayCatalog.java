@@ -0,0 +1,47 @@
+package smartparking.persistence;
+
+import smartparking.model.PaymentGateway;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The payment gateways a store offers, in order of preference (the first is the default). Each
+ * store keeps one catalog, so its gateways are created and connected once and shared by all callers.
+ */
+final class PaymentGatewayCatalog {
+
+    private record Entry(String gatewayId, String gatewayName, String provider, String transactionFee) { }
+
+    private static final List<Entry> GATEWAYS = List.of(
+            new Entry("GW-001", "Default Gateway", "Stripe", "0.30"),
+            new Entry("GW-002", "Backup Gateway", "Adyen", "0.35"));
+
+    private volatile List<PaymentGateway> gateways;
+
+    PaymentGateway getDefault() {
+        return getAll().get(0);
+    }
+
+    List<PaymentGateway> getAll() {
+        List<PaymentGateway> result = gateways;
+        if (result == null) {
+            synchronized (this) {
+                result = gateways;
+                if (result == null) gateways = result = GATEWAYS.stream().map(PaymentGatewayCatalog::open).toList();
+            }
+        }
+        return result;
+    }
+
+    private static PaymentGateway open(Entry e) {
+        PaymentGateway g = new PaymentGateway();
+        g.setGatewayId(e.gatewayId());
+        g.setGatewayName(e.gatewayName());
+        g.setProvider(e.provider());
+        g.setStatus("Active");
+        g.setTransactionFee(new BigDecimal(e.transactionFee()));
+        g.connect();
+        return g;
+    }
+}
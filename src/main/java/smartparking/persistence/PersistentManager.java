@@ -22,6 +22,15 @@ public interface PersistentManager {
     List<ParkingLot> findAllParkingLots();
     void saveParkingLot(ParkingLot lot);
 
+    /** Lot that contains the given slot. Implementations with a slot index should override the scan. */
+    default Optional<ParkingLot> findParkingLotBySlotId(String slotId) {
+        if (slotId == null) return Optional.empty();
+        for (ParkingLot lot : findAllParkingLots()) {
+            if (lot.getSlotById(slotId) != null) return Optional.of(lot);
+        }
+        return Optional.empty();
+    }
+
     // --- Reservations ---
     Optional<Reservation> findReservationById(String reservationId);
     List<Reservation> findAllReservations();
@@ -35,4 +44,9 @@ public interface PersistentManager {
 
     // --- Gateway (in-memory or single config for demo) ---
     Optional<PaymentGateway> getDefaultPaymentGateway();
+
+    /** All configured gateways, default first (routing picks among them). */
+    default List<PaymentGateway> getPaymentGateways() {
+        return getDefaultPaymentGateway().map(List::of).orElse(List.of());
+    }
 }
@@ -0,0 +1,89 @@
+package smartparking.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a DataDirectoryRecovery scan: what was checked and every inconsistency found, with
+ * whether it was repaired. Issues of one kind beyond a sample are counted, not listed.
+ */
+public class RecoveryReport {
+
+    public enum Severity {
+        /** Fixed in place (only when the scan runs with repair). */
+        REPAIRED,
+        /** Inconsistent data that needs a decision (e.g. a double-booked slot); left as is. */
+        WARNING,
+        /** Data that could not be read or restored. */
+        ERROR
+    }
+
+    public record Issue(Severity severity, String message) {
+        @Override
+        public String toString() {
+            return severity + ": " + message;
+        }
+    }
+
+    private final List<Issue> issues = new ArrayList<>();
+    private final boolean repair;
+    private int files;
+    private long records;
+    private long bytes;
+    private long elapsedMillis;
+
+    RecoveryReport(boolean repair) {
+        this.repair = repair;
+    }
+
+    synchronized void add(Severity severity, String message) {
+        issues.add(new Issue(severity, message));
+    }
+
+    synchronized void addScanned(long fileRecords, long fileBytes) {
+        files++;
+        records += fileRecords;
+        bytes += fileBytes;
+    }
+
+    void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isRepair() { return repair; }
+    public synchronized int getFiles() { return files; }
+    public synchronized long getRecords() { return records; }
+    public synchronized long getBytes() { return bytes; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public synchronized List<Issue> getIssues() {
+        return Collections.unmodifiableList(new ArrayList<>(issues));
+    }
+
+    public synchronized long count(Severity severity) {
+        return issues.stream().filter(i -> i.severity() == severity).count();
+    }
+
+    /** No inconsistencies found (repaired ones count as found). */
+    public synchronized boolean isClean() {
+        return issues.isEmpty();
+    }
+
+    /** Data directories are safe to open: nothing left unreadable. */
+    public boolean isUsable() {
+        return count(Severity.ERROR) == 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "Data recovery (%s): %d files, %d records, %.1f MB in %d ms; %d repaired, %d warnings, %d errors",
+                repair ? "repair" : "check only", files, records, bytes / 1e6, elapsedMillis,
+                count(Severity.REPAIRED), count(Severity.WARNING), count(Severity.ERROR)));
+        for (Issue issue : issues) {
+            sb.append(System.lineSeparator()).append("  ").append(issue);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,282 @@
+package smartparking.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold tier for reservations and payments that are no longer active. Records are partitioned by the
+ * month in which the reservation ended (a payment goes with its reservation) and stored as
+ * gzip-compressed, newline-delimited JSON segments: archive/2026-03/reservations-000007.ndjson.gz.
+ * Segments are immutable; each archive run adds at most one segment per partition and type, and a
+ * partition that collects too many is compacted into one. If the same id appears in more than one
+ * segment (a run interrupted before the hot copy was removed), the newest segment wins.
+ * <p>
+ * Lookups use an in-memory index (id and user to partition) built on first use, so finding one
+ * reservation or a user's history decodes only the partitions that can contain it.
+ */
+public class ReservationArchive {
+
+    private static final String RESERVATIONS = "reservations";
+    private static final String PAYMENTS = "payments";
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final Pattern SEGMENT = Pattern.compile("(reservations|payments)-(\\d+)\\.ndjson\\.gz");
+    private static final Pattern PARTITION = Pattern.compile("\\d{4}-\\d{2}|undated");
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final int COMPACT_AFTER_SEGMENTS = 16;
+
+    private final Path dir;
+    private final ObjectMapper mapper = FilePersistentManager.createMapper();
+
+    // built lazily; guarded by this
+    private Map<String, String> reservationPartition;
+    private Map<String, String> paymentPartition;
+    private Map<String, Set<String>> userPartitions;
+    private long lastSegment;
+
+    public ReservationArchive(Path dir) {
+        this.dir = dir.toAbsolutePath();
+    }
+
+    /** Partition (yyyy-MM of the end time, else of the start time) a reservation is archived under. */
+    static String partitionOf(Reservation r) {
+        LocalDateTime t = r.getEndTime() != null ? r.getEndTime() : r.getStartTime();
+        return t != null ? t.format(MONTH) : "undated";
+    }
+
+    /**
+     * Durably append reservations and their payments (payments whose reservation is not in the list
+     * go to the current month). When this returns the records can be removed from the hot store.
+     */
+    public synchronized void append(List<Reservation> reservations, List<Payment> payments) throws IOException {
+        if (reservations.isEmpty() && payments.isEmpty()) return;
+        ensureIndex();
+        Map<String, List<Reservation>> reservationsByPartition = new TreeMap<>();
+        Map<String, String> partitionById = new HashMap<>();
+        for (Reservation r : reservations) {
+            String partition = partitionOf(r);
+            reservationsByPartition.computeIfAbsent(partition, k -> new ArrayList<>()).add(r);
+            partitionById.put(r.getReservationId(), partition);
+        }
+        Map<String, List<Payment>> paymentsByPartition = new TreeMap<>();
+        for (Payment p : payments) {
+            String partition = partitionById.getOrDefault(p.getReservationId(), LocalDateTime.now().format(MONTH));
+            paymentsByPartition.computeIfAbsent(partition, k -> new ArrayList<>()).add(p);
+        }
+
+        long segment = ++lastSegment;
+        Set<String> touched = new TreeSet<>(reservationsByPartition.keySet());
+        touched.addAll(paymentsByPartition.keySet());
+        for (String partition : touched) {
+            Path partitionDir = dir.resolve(partition);
+            Files.createDirectories(partitionDir);
+            List<Reservation> rs = reservationsByPartition.getOrDefault(partition, List.of());
+            List<Payment> ps = paymentsByPartition.getOrDefault(partition, List.of());
+            if (!rs.isEmpty()) writeSegment(partitionDir.resolve(segmentName(RESERVATIONS, segment)), rs);
+            if (!ps.isEmpty()) writeSegment(partitionDir.resolve(segmentName(PAYMENTS, segment)), ps);
+            for (Reservation r : rs) {
+                reservationPartition.put(r.getReservationId(), partition);
+                if (r.getUserId() != null) userPartitions.computeIfAbsent(r.getUserId(), k -> new TreeSet<>()).add(partition);
+            }
+            for (Payment p : ps) paymentPartition.put(p.getPaymentId(), partition);
+        }
+        for (String partition : touched) {
+            compactIfNeeded(dir.resolve(partition));
+        }
+    }
+
+    public synchronized Optional<Reservation> findReservationById(String reservationId) {
+        ensureIndex();
+        String partition = reservationPartition.get(reservationId);
+        if (partition == null) return Optional.empty();
+        return Optional.ofNullable(readPartition(partition, RESERVATIONS, Reservation.class, Reservation::getReservationId).get(reservationId));
+    }
+
+    public synchronized List<Reservation> findReservationsByUserId(String userId) {
+        ensureIndex();
+        List<Reservation> result = new ArrayList<>();
+        for (String partition : userPartitions.getOrDefault(userId, Set.of())) {
+            for (Reservation r : readPartition(partition, RESERVATIONS, Reservation.class, Reservation::getReservationId).values()) {
+                if (userId.equals(r.getUserId()) && partition.equals(reservationPartition.get(r.getReservationId()))) result.add(r);
+            }
+        }
+        return result;
+    }
+
+    public synchronized List<Reservation> findAllReservations() {
+        ensureIndex();
+        List<Reservation> result = new ArrayList<>();
+        for (String partition : partitions()) {
+            for (Reservation r : readPartition(partition, RESERVATIONS, Reservation.class, Reservation::getReservationId).values()) {
+                // archived again under another month after its end time changed: keep the indexed copy
+                if (partition.equals(reservationPartition.get(r.getReservationId()))) result.add(r);
+            }
+        }
+        return result;
+    }
+
+    public synchronized Optional<Payment> findPaymentById(String paymentId) {
+        ensureIndex();
+        String partition = paymentPartition.get(paymentId);
+        if (partition == null) return Optional.empty();
+        return Optional.ofNullable(readPartition(partition, PAYMENTS, Payment.class, Payment::getPaymentId).get(paymentId));
+    }
+
+    public synchronized List<Payment> findAllPayments() {
+        ensureIndex();
+        List<Payment> result = new ArrayList<>();
+        for (String partition : partitions()) {
+            for (Payment p : readPartition(partition, PAYMENTS, Payment.class, Payment::getPaymentId).values()) {
+                if (partition.equals(paymentPartition.get(p.getPaymentId()))) result.add(p);
+            }
+        }
+        return result;
+    }
+
+    /** Number of archived reservations (distinct ids). */
+    public synchronized int reservationCount() {
+        ensureIndex();
+        return reservationPartition.size();
+    }
+
+    // --- segments ---
+
+    private static String segmentName(String type, long segment) {
+        return String.format("%s-%06d%s", type, segment, SUFFIX);
+    }
+
+    private void writeSegment(Path path, List<?> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            for (Object record : records) {
+                out.write(mapper.writeValueAsString(record));
+                out.write('\n');
+            }
+        }
+        AtomicFiles.publish(path, bytes.toByteArray());
+    }
+
+    /** Segments of one type in a partition, oldest first. */
+    private TreeMap<Long, Path> segments(Path partitionDir, String type) {
+        TreeMap<Long, Path> result = new TreeMap<>();
+        if (!Files.isDirectory(partitionDir)) return result;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(partitionDir)) {
+            for (Path file : files) {
+                Matcher m = SEGMENT.matcher(file.getFileName().toString());
+                if (m.matches() && m.group(1).equals(type)) result.put(Long.parseLong(m.group(2)), file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list archive partition " + partitionDir, e);
+        }
+        return result;
+    }
+
+    /** Records of one type in a partition by id; a later segment overrides an earlier one. */
+    private <T> LinkedHashMap<String, T> readPartition(String partition, String type, Class<T> cls, Function<T, String> idOf) {
+        LinkedHashMap<String, T> rows = new LinkedHashMap<>();
+        for (Path segment : segments(dir.resolve(partition), type).values()) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    T row = mapper.readValue(line, cls);
+                    rows.put(idOf.apply(row), row);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read archive segment " + segment, e);
+            }
+        }
+        return rows;
+    }
+
+    /** Merge a partition's segments into one once it has accumulated many small ones. */
+    private void compactIfNeeded(Path partitionDir) throws IOException {
+        String partition = partitionDir.getFileName().toString();
+        for (String type : List.of(RESERVATIONS, PAYMENTS)) {
+            TreeMap<Long, Path> existing = segments(partitionDir, type);
+            if (existing.size() < COMPACT_AFTER_SEGMENTS) continue;
+            List<?> merged = RESERVATIONS.equals(type)
+                    ? new ArrayList<>(readPartition(partition, type, Reservation.class, Reservation::getReservationId).values())
+                    : new ArrayList<>(readPartition(partition, type, Payment.class, Payment::getPaymentId).values());
+            // the merged segment takes the newest number, so until the old ones are gone it wins
+            writeSegment(partitionDir.resolve(segmentName(type, ++lastSegment)), merged);
+            for (Path old : existing.values()) Files.delete(old);
+        }
+    }
+
+    private List<String> partitions() {
+        List<String> result = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return result;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (Files.isDirectory(entry) && PARTITION.matcher(name).matches()) result.add(name);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list archive " + dir, e);
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /** Scan all segments once: id and user index, highest segment number, leftover temp files removed. */
+    private void ensureIndex() {
+        if (reservationPartition != null) return;
+        Map<String, String> reservationsIndex = new HashMap<>();
+        Map<String, String> paymentsIndex = new HashMap<>();
+        Map<String, Set<String>> usersIndex = new HashMap<>();
+        long last = 0;
+        for (String partition : partitions()) {
+            Path partitionDir = dir.resolve(partition);
+            try (DirectoryStream<Path> tmps = Files.newDirectoryStream(partitionDir, "*" + AtomicFiles.TMP)) {
+                for (Path tmp : tmps) Files.deleteIfExists(tmp);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not clean archive partition " + partitionDir, e);
+            }
+            for (String type : List.of(RESERVATIONS, PAYMENTS)) {
+                TreeMap<Long, Path> existing = segments(partitionDir, type);
+                if (!existing.isEmpty()) last = Math.max(last, existing.lastKey());
+            }
+            for (Reservation r : readPartition(partition, RESERVATIONS, Reservation.class, Reservation::getReservationId).values()) {
+                reservationsIndex.put(r.getReservationId(), partition);
+                if (r.getUserId() != null) usersIndex.computeIfAbsent(r.getUserId(), k -> new TreeSet<>()).add(partition);
+            }
+            for (String paymentId : readPartition(partition, PAYMENTS, Payment.class, Payment::getPaymentId).keySet()) {
+                paymentsIndex.put(paymentId, partition);
+            }
+        }
+        this.reservationPartition = reservationsIndex;
+        this.paymentPartition = paymentsIndex;
+        this.userPartitions = usersIndex;
+        this.lastSegment = last;
+    }
+}
@@ -0,0 +1,94 @@
+package smartparking.persistence;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled job that keeps the hot tier small. Each run first releases the slots of confirmed
+ * reservations that have ended (unless another current reservation holds the slot), through the
+ * outermost persistence so caches and the availability feed see it, then moves cancelled and ended
+ * reservations to the archive. Slot flags therefore follow the same rule the startup recovery
+ * applies: a slot is reserved exactly when a confirmed reservation in the data directory holds it.
+ */
+public class ReservationArchiver implements AutoCloseable {
+
+    private final PersistentManager persistence;
+    private final TieredPersistentManager tiered;
+    private final ScheduledExecutorService scheduler;
+    private volatile TieredPersistentManager.ArchiveResult lastResult;
+
+    /**
+     * @param persistence   outermost store (slot releases go through it)
+     * @param periodMinutes interval between runs; 0 disables the schedule (call runOnce() explicitly)
+     */
+    public ReservationArchiver(PersistentManager persistence, TieredPersistentManager tiered, long periodMinutes) {
+        this.persistence = persistence;
+        this.tiered = tiered;
+        if (periodMinutes > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "reservation-archiver");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::runSafely, 0, periodMinutes, TimeUnit.MINUTES);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /** Release ended slots and archive everything archivable at {@code now}. */
+    public synchronized TieredPersistentManager.ArchiveResult runOnce(LocalDateTime now) {
+        releaseEndedSlots(now);
+        lastResult = tiered.archive(now);
+        return lastResult;
+    }
+
+    public TieredPersistentManager.ArchiveResult getLastResult() {
+        return lastResult;
+    }
+
+    private void runSafely() {
+        try {
+            runOnce(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // records stay hot; the next run retries
+        }
+    }
+
+    private void releaseEndedSlots(LocalDateTime now) {
+        Set<String> ended = new HashSet<>();
+        Set<String> held = new HashSet<>();
+        for (Reservation r : tiered.findHotReservations()) {
+            if (!Reservation.STATUS_CONFIRMED.equals(r.getReservationStatus()) || r.getSlotId() == null) continue;
+            (TieredPersistentManager.isArchivable(r, now) ? ended : held).add(r.getSlotId());
+        }
+        ended.removeAll(held);
+        Map<String, ParkingLot> changed = new LinkedHashMap<>();
+        for (String slotId : ended) {
+            ParkingLot lot = persistence.findParkingLotBySlotId(slotId).orElse(null);
+            if (lot == null) continue;
+            lot = changed.getOrDefault(lot.getLotId(), lot);
+            ParkingSlot slot = lot.getSlotById(slotId);
+            if (slot != null && !slot.isAvailable()) {
+                slot.release();
+                changed.put(lot.getLotId(), lot);
+            }
+        }
+        changed.values().forEach(persistence::saveParkingLot);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+}
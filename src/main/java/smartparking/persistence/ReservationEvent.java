@@ -0,0 +1,95 @@
+package smartparking.persistence;
+
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable reservation state change, appended to the ReservationEventStore.
+ * Only the fields relevant to the event type are set; the others are null.
+ */
+public final class ReservationEvent {
+
+    public enum Type { CREATED, CONFIRMED, CANCELLED, EXTENDED, REFUNDED }
+
+    private final long sequence;
+    private final Type type;
+    private final long timestamp;       // epoch millis when the event was recorded
+    private final String reservationId;
+    private final String userId;
+    private final String slotId;
+    private final String paymentId;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final BigDecimal amount;
+
+    ReservationEvent(long sequence, Type type, long timestamp, String reservationId, String userId, String slotId,
+                     String paymentId, LocalDateTime startTime, LocalDateTime endTime, BigDecimal amount) {
+        this.sequence = sequence;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.reservationId = reservationId;
+        this.userId = userId;
+        this.slotId = slotId;
+        this.paymentId = paymentId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.amount = amount;
+    }
+
+    private static ReservationEvent of(Type type, String reservationId, String userId, String slotId,
+                                       String paymentId, LocalDateTime start, LocalDateTime end, BigDecimal amount) {
+        return new ReservationEvent(0L, type, System.currentTimeMillis(), reservationId, userId, slotId,
+                paymentId, start, end, amount);
+    }
+
+    /** Reservation was created (times, user, slot and quoted cost). */
+    public static ReservationEvent created(Reservation r) {
+        return of(Type.CREATED, r.getReservationId(), r.getUserId(), r.getSlotId(), null,
+                r.getStartTime(), r.getEndTime(), r.getTotalCost());
+    }
+
+    /** Reservation was confirmed; payment may be null when unknown (e.g. migrated records). */
+    public static ReservationEvent confirmed(Reservation r, Payment payment) {
+        return of(Type.CONFIRMED, r.getReservationId(), null, r.getSlotId(),
+                payment != null ? payment.getPaymentId() : null, null, null,
+                payment != null ? payment.getAmount() : null);
+    }
+
+    public static ReservationEvent cancelled(Reservation r) {
+        return of(Type.CANCELLED, r.getReservationId(), null, r.getSlotId(), null, null, null, null);
+    }
+
+    /** Reservation end time was moved to the given value. */
+    public static ReservationEvent extended(Reservation r) {
+        return of(Type.EXTENDED, r.getReservationId(), null, null, null, null, r.getEndTime(), r.getTotalCost());
+    }
+
+    public static ReservationEvent refunded(Payment p) {
+        return of(Type.REFUNDED, p.getReservationId(), null, null, p.getPaymentId(), null, null, p.getAmount());
+    }
+
+    /** Copy carrying the sequence number assigned by the store. */
+    ReservationEvent withSequence(long seq) {
+        return new ReservationEvent(seq, type, timestamp, reservationId, userId, slotId, paymentId,
+                startTime, endTime, amount);
+    }
+
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public String getReservationId() { return reservationId; }
+    public String getUserId() { return userId; }
+    public String getSlotId() { return slotId; }
+    public String getPaymentId() { return paymentId; }
+    public LocalDateTime getStartTime() { return startTime; }
+    public LocalDateTime getEndTime() { return endTime; }
+    public BigDecimal getAmount() { return amount; }
+
+    @Override
+    public String toString() {
+        return String.format("ReservationEvent{seq=%d, type=%s, reservationId='%s'}", sequence, type, reservationId);
+    }
+}
@@ -0,0 +1,235 @@
+package smartparking.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of ReservationEvents. Records are length-prefixed binary so that appends are a
+ * single channel write and replay needs no JSON parsing. A torn record at the tail (crash during
+ * append) is truncated when the store is opened; so is everything from the first record that fails
+ * validation (bad length, unknown type, malformed fields or an out-of-order sequence) onwards.
+ */
+public class ReservationEventStore implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 4;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final ReservationEvent.Type[] TYPES = ReservationEvent.Type.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(512);
+    private long lastSequence;
+
+    public ReservationEventStore(Path path) {
+        this.path = path.toAbsolutePath();
+        try {
+            Files.createDirectories(this.path.getParent());
+            this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long[] validEnd = new long[1];
+            this.lastSequence = scan(e -> { }, validEnd);
+            if (channel.size() > validEnd[0]) {
+                channel.truncate(validEnd[0]);
+            }
+            channel.position(validEnd[0]);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open event store: " + this.path, e);
+        }
+    }
+
+    public Path getPath() { return path; }
+
+    /** Sequence number of the last appended event (0 when empty). */
+    public synchronized long getLastSequence() { return lastSequence; }
+
+    /** Append an event; returns the stored copy carrying its sequence number. */
+    public synchronized ReservationEvent append(ReservationEvent event) {
+        ReservationEvent stored = event.withSequence(lastSequence + 1);
+        encode(stored);
+        try {
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append reservation event", e);
+        }
+        lastSequence = stored.getSequence();
+        return stored;
+    }
+
+    /** Force appended events to the storage device. */
+    public synchronized void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sync event store", e);
+        }
+    }
+
+    /** Replay every stored event, in order, into the consumer. Returns the number of events read. */
+    public long replay(Consumer<ReservationEvent> consumer) {
+        long[] count = new long[1];
+        try {
+            scan(e -> {
+                count[0]++;
+                consumer.accept(e);
+            }, new long[1]);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to replay event store", e);
+        }
+        return count[0];
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close event store", e);
+        }
+    }
+
+    /** Read all complete, valid records; validEnd[0] receives the offset after the last good record. */
+    private long scan(Consumer<ReservationEvent> consumer, long[] validEnd) throws IOException {
+        long lastSeq = 0L;
+        long offset = 0L;
+        byte[] record = new byte[512];
+        try (InputStream raw = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) break;
+                    if (record.length < length) record = new byte[Math.max(length, record.length * 2)];
+                    in.readFully(record, 0, length);
+                } catch (EOFException eof) {
+                    break;
+                }
+                ReservationEvent event = decode(ByteBuffer.wrap(record, 0, length));
+                if (event == null || event.getSequence() <= lastSeq) break;
+                offset += HEADER_BYTES + length;
+                lastSeq = event.getSequence();
+                consumer.accept(event);
+            }
+        }
+        validEnd[0] = offset;
+        return lastSeq;
+    }
+
+    // --- Binary encoding ---
+
+    private void encode(ReservationEvent e) {
+        writeBuffer.clear();
+        writeBuffer.position(HEADER_BYTES);
+        putByte((byte) e.getType().ordinal());
+        putLong(e.getSequence());
+        putLong(e.getTimestamp());
+        putString(e.getReservationId());
+        putString(e.getUserId());
+        putString(e.getSlotId());
+        putString(e.getPaymentId());
+        putTime(e.getStartTime());
+        putTime(e.getEndTime());
+        putString(e.getAmount() != null ? e.getAmount().toPlainString() : null);
+        writeBuffer.putInt(0, writeBuffer.position() - HEADER_BYTES);
+        writeBuffer.flip();
+    }
+
+    /** Decoded event, or null if the record is malformed (the caller stops at the last good one). */
+    private static ReservationEvent decode(ByteBuffer in) {
+        try {
+            int typeIndex = in.get();
+            if (typeIndex < 0 || typeIndex >= TYPES.length) return null;
+            long seq = in.getLong();
+            long timestamp = in.getLong();
+            String reservationId = getString(in);
+            String userId = getString(in);
+            String slotId = getString(in);
+            String paymentId = getString(in);
+            LocalDateTime start = getTime(in);
+            LocalDateTime end = getTime(in);
+            String amount = getString(in);
+            if (in.hasRemaining()) return null;
+            return new ReservationEvent(seq, TYPES[typeIndex], timestamp, reservationId, userId, slotId, paymentId,
+                    start, end, amount != null ? new BigDecimal(amount) : null);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException
+                 | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (writeBuffer.remaining() >= bytes) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + bytes));
+        writeBuffer.flip();
+        bigger.put(writeBuffer);
+        writeBuffer = bigger;
+    }
+
+    private void putByte(byte b) {
+        ensureCapacity(1);
+        writeBuffer.put(b);
+    }
+
+    private void putLong(long v) {
+        ensureCapacity(8);
+        writeBuffer.putLong(v);
+    }
+
+    private void putString(String s) {
+        if (s == null) {
+            ensureCapacity(2);
+            writeBuffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(2 + bytes.length);
+        writeBuffer.putShort((short) bytes.length);
+        writeBuffer.put(bytes);
+    }
+
+    private void putTime(LocalDateTime t) {
+        ensureCapacity(1 + 8 + 4);
+        if (t == null) {
+            writeBuffer.put((byte) 0);
+            return;
+        }
+        writeBuffer.put((byte) 1);
+        writeBuffer.putLong(t.toEpochSecond(ZoneOffset.UTC));
+        writeBuffer.putInt(t.getNano());
+    }
+
+    private static String getString(ByteBuffer in) {
+        short len = in.getShort();
+        if (len == -1) return null;
+        if (len < 0 || len > in.remaining()) throw new BufferUnderflowException();
+        String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return s;
+    }
+
+    private static LocalDateTime getTime(ByteBuffer in) {
+        byte present = in.get();
+        if (present == 0) return null;
+        if (present != 1) throw new BufferUnderflowException();
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
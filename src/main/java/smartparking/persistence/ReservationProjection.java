@@ -0,0 +1,123 @@
+package smartparking.persistence;
+
+import smartparking.model.Reservation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-memory views rebuilt from ReservationEvents: current reservation state, slot occupancy
+ * and reporting totals. Events are applied in sequence order; all access is synchronized.
+ * Reservations handed out are copies, so callers cannot change the projected state.
+ */
+public class ReservationProjection {
+
+    private final Map<String, Reservation> reservations = new HashMap<>();
+    private final Map<String, String> occupiedSlots = new HashMap<>();   // slotId -> reservationId
+    private final Set<String> refundedPayments = new HashSet<>();
+    private final Map<String, Integer> countByStatus = new HashMap<>();
+    private BigDecimal confirmedRevenue = BigDecimal.ZERO;
+    private BigDecimal refundedAmount = BigDecimal.ZERO;
+    private long lastSequence;
+
+    /** Apply one event to all views. Events at or below the last applied sequence are ignored. */
+    public synchronized void apply(ReservationEvent e) {
+        if (e.getSequence() != 0 && e.getSequence() <= lastSequence) return;
+        Reservation r = reservations.get(e.getReservationId());
+        switch (e.getType()) {
+            case CREATED -> {
+                r = new Reservation();
+                r.setReservationId(e.getReservationId());
+                r.setUserId(e.getUserId());
+                r.setSlotId(e.getSlotId());
+                r.setStartTime(e.getStartTime());
+                r.setEndTime(e.getEndTime());
+                r.setTotalCost(e.getAmount());
+                Reservation previous = reservations.put(r.getReservationId(), r);
+                if (previous != null) changeStatus(previous.getReservationStatus(), null);
+                changeStatus(null, r.getReservationStatus());
+            }
+            case CONFIRMED -> {
+                if (r == null) break;
+                changeStatus(r.getReservationStatus(), Reservation.STATUS_CONFIRMED);
+                r.setReservationStatus(Reservation.STATUS_CONFIRMED);
+                if (r.getSlotId() != null) occupiedSlots.put(r.getSlotId(), r.getReservationId());
+                BigDecimal paid = e.getAmount() != null ? e.getAmount() : r.getTotalCost();
+                confirmedRevenue = confirmedRevenue.add(paid);
+            }
+            case CANCELLED -> {
+                if (r == null) break;
+                changeStatus(r.getReservationStatus(), Reservation.STATUS_CANCELLED);
+                r.setReservationStatus(Reservation.STATUS_CANCELLED);
+                occupiedSlots.remove(r.getSlotId(), r.getReservationId());
+            }
+            case EXTENDED -> {
+                if (r == null) break;
+                r.setEndTime(e.getEndTime());
+                if (e.getAmount() != null) r.setTotalCost(e.getAmount());
+            }
+            case REFUNDED -> {
+                if (e.getPaymentId() != null && refundedPayments.add(e.getPaymentId()) && e.getAmount() != null) {
+                    refundedAmount = refundedAmount.add(e.getAmount());
+                }
+            }
+        }
+        if (e.getSequence() != 0) lastSequence = e.getSequence();
+    }
+
+    private void changeStatus(String from, String to) {
+        if (from != null) countByStatus.merge(from, -1, Integer::sum);
+        if (to != null) countByStatus.merge(to, 1, Integer::sum);
+    }
+
+    public synchronized Optional<Reservation> findReservation(String reservationId) {
+        return Optional.ofNullable(reservations.get(reservationId)).map(ReservationProjection::copy);
+    }
+
+    public synchronized List<Reservation> getReservations() {
+        List<Reservation> list = new ArrayList<>(reservations.size());
+        for (Reservation r : reservations.values()) list.add(copy(r));
+        return list;
+    }
+
+    private static Reservation copy(Reservation r) {
+        Reservation c = new Reservation();
+        c.setReservationId(r.getReservationId());
+        c.setUserId(r.getUserId());
+        c.setSlotId(r.getSlotId());
+        c.setStartTime(r.getStartTime());
+        c.setEndTime(r.getEndTime());
+        c.setTotalCost(r.getTotalCost());
+        c.setReservationStatus(r.getReservationStatus());
+        return c;
+    }
+
+    /** True if a confirmed, non-cancelled reservation currently holds the slot. */
+    public synchronized boolean isSlotOccupied(String slotId) {
+        return occupiedSlots.containsKey(slotId);
+    }
+
+    public synchronized Set<String> getOccupiedSlotIds() {
+        return new HashSet<>(occupiedSlots.keySet());
+    }
+
+    public synchronized boolean isPaymentRefunded(String paymentId) {
+        return refundedPayments.contains(paymentId);
+    }
+
+    public synchronized Map<String, Integer> getCountByStatus() {
+        return new HashMap<>(countByStatus);
+    }
+
+    public synchronized BigDecimal getConfirmedRevenue() { return confirmedRevenue; }
+
+    public synchronized BigDecimal getRefundedAmount() { return refundedAmount; }
+
+    public synchronized long getLastSequence() { return lastSequence; }
+}
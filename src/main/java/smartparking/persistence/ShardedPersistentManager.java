@@ -0,0 +1,225 @@
+package smartparking.persistence;
+
+import smartparking.model.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * PersistentManager that partitions data across N shards by lotId using a ConsistentHashRing.
+ * A lot, its slots, its reservations and their payments live on the lot's shard; users are placed
+ * by userId. Queries without a lot key (e.g. findReservationsByUserId) fan out to all shards in
+ * parallel and merge. Each shard is itself a PersistentManager (e.g. a FilePersistentManager on
+ * its own directory), so a shard can be moved behind a remote implementation without changes here.
+ * Shards are placed on the ring by id (the directory name for onDirectories), so removing one only
+ * moves the lots it owned.
+ */
+public class ShardedPersistentManager implements PersistentManager, AutoCloseable {
+
+    private final List<PersistentManager> shards;
+    private final ConsistentHashRing<PersistentManager> ring;
+    private final ExecutorService fanOut;
+    private final Map<String, String> lotIdBySlotId = new ConcurrentHashMap<>();
+    private final Map<String, String> lotIdByReservationId = new ConcurrentHashMap<>();
+
+    /** Shards keyed by a stable id; iteration order is the fan-out order. */
+    public ShardedPersistentManager(Map<String, PersistentManager> shardsById) {
+        this.shards = List.copyOf(shardsById.values());
+        this.ring = new ConsistentHashRing<>(shardsById);
+        this.fanOut = Executors.newFixedThreadPool(this.shards.size(), r -> {
+            Thread t = new Thread(r, "shard-fanout");
+            t.setDaemon(true);
+            return t;
+        });
+        for (ParkingLot lot : findAllParkingLots()) {
+            indexSlots(lot);
+        }
+    }
+
+    /** One FilePersistentManager per directory base/shard-0 .. base/shard-(n-1). */
+    public static ShardedPersistentManager onDirectories(Path base, int shardCount) {
+        return onDirectories(base, shardCount, DataCodec.PLAIN);
+    }
+
+    /** As above, with the data files stored in the given encoding. */
+    public static ShardedPersistentManager onDirectories(Path base, int shardCount, DataCodec codec) {
+        Map<String, PersistentManager> shards = new LinkedHashMap<>();
+        for (int i = 0; i < shardCount; i++) {
+            String id = "shard-" + i;
+            shards.put(id, new FilePersistentManager(base.resolve(id).toString(), -1, 0, codec));
+        }
+        return new ShardedPersistentManager(shards);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /** Shard that owns the given lot. */
+    public PersistentManager shardForLot(String lotId) {
+        return ring.nodeFor(lotId);
+    }
+
+    // --- Routing helpers ---
+
+    private void indexSlots(ParkingLot lot) {
+        for (ParkingSlot s : lot.getSlots()) {
+            if (s.getSlotId() != null) lotIdBySlotId.put(s.getSlotId(), lot.getLotId());
+        }
+    }
+
+    /** Routing key for a reservation: its slot's lot, or the reservation id if the slot is unknown. */
+    private String routingKey(Reservation r) {
+        String lotId = r.getSlotId() != null ? lotIdBySlotId.get(r.getSlotId()) : null;
+        return lotId != null ? lotId : r.getReservationId();
+    }
+
+    private String routingKeyForReservationId(String reservationId) {
+        String key = lotIdByReservationId.get(reservationId);
+        if (key != null) return key;
+        Optional<Reservation> r = findReservationById(reservationId);
+        return r.map(this::routingKey).orElse(reservationId);
+    }
+
+    /** Run query on every shard in parallel and concatenate the results. */
+    private <T> List<T> fanOutList(Function<PersistentManager, List<T>> query) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(shards.size());
+        for (PersistentManager shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), fanOut));
+        }
+        List<T> result = new ArrayList<>();
+        for (CompletableFuture<List<T>> f : futures) {
+            result.addAll(f.join());
+        }
+        return result;
+    }
+
+    /** Run lookup on every shard in parallel; first present result in shard order wins. */
+    private <T> Optional<T> fanOutFind(Function<PersistentManager, Optional<T>> lookup) {
+        List<CompletableFuture<Optional<T>>> futures = new ArrayList<>(shards.size());
+        for (PersistentManager shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> lookup.apply(shard), fanOut));
+        }
+        for (CompletableFuture<Optional<T>> f : futures) {
+            Optional<T> found = f.join();
+            if (found.isPresent()) return found;
+        }
+        return Optional.empty();
+    }
+
+    // --- Users (placed by userId) ---
+
+    @Override
+    public Optional<User> findUserById(String userId) {
+        return ring.nodeFor(userId).findUserById(userId);
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        return fanOutFind(s -> s.findUserByEmail(email));
+    }
+
+    @Override
+    public List<User> findAllUsers() {
+        return fanOutList(PersistentManager::findAllUsers);
+    }
+
+    @Override
+    public void saveUser(User user) {
+        ring.nodeFor(user.getUserId()).saveUser(user);
+    }
+
+    // --- Lots (placed by lotId) ---
+
+    @Override
+    public Optional<ParkingLot> findParkingLotById(String lotId) {
+        return ring.nodeFor(lotId).findParkingLotById(lotId);
+    }
+
+    @Override
+    public List<ParkingLot> findAllParkingLots() {
+        return fanOutList(PersistentManager::findAllParkingLots);
+    }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) {
+        ring.nodeFor(lot.getLotId()).saveParkingLot(lot);
+        indexSlots(lot);
+    }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotBySlotId(String slotId) {
+        String lotId = slotId != null ? lotIdBySlotId.get(slotId) : null;
+        if (lotId != null) return findParkingLotById(lotId);
+        return fanOutFind(s -> s.findParkingLotBySlotId(slotId));
+    }
+
+    // --- Reservations and payments (placed with their lot) ---
+
+    @Override
+    public Optional<Reservation> findReservationById(String reservationId) {
+        String lotId = reservationId != null ? lotIdByReservationId.get(reservationId) : null;
+        if (lotId != null) return ring.nodeFor(lotId).findReservationById(reservationId);
+        Optional<Reservation> found = fanOutFind(s -> s.findReservationById(reservationId));
+        found.ifPresent(r -> lotIdByReservationId.put(reservationId, routingKey(r)));
+        return found;
+    }
+
+    @Override
+    public List<Reservation> findAllReservations() {
+        return fanOutList(PersistentManager::findAllReservations);
+    }
+
+    @Override
+    public List<Reservation> findReservationsByUserId(String userId) {
+        return fanOutList(s -> s.findReservationsByUserId(userId));
+    }
+
+    @Override
+    public void saveReservation(Reservation reservation) {
+        String key = routingKey(reservation);
+        ring.nodeFor(key).saveReservation(reservation);
+        lotIdByReservationId.put(reservation.getReservationId(), key);
+    }
+
+    @Override
+    public Optional<Payment> findPaymentById(String paymentId) {
+        return fanOutFind(s -> s.findPaymentById(paymentId));
+    }
+
+    @Override
+    public List<Payment> findAllPayments() {
+        return fanOutList(PersistentManager::findAllPayments);
+    }
+
+    @Override
+    public void savePayment(Payment payment) {
+        String key = payment.getReservationId() != null
+                ? routingKeyForReservationId(payment.getReservationId()) : payment.getPaymentId();
+        ring.nodeFor(key).savePayment(payment);
+    }
+
+    @Override
+    public Optional<PaymentGateway> getDefaultPaymentGateway() {
+        return shards.get(0).getDefaultPaymentGateway();
+    }
+
+    @Override
+    public List<PaymentGateway> getPaymentGateways() {
+        return shards.get(0).getPaymentGateways();
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+    }
+}
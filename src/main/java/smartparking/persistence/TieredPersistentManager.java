@@ -0,0 +1,175 @@
+package smartparking.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Two-tier reservation store: the data directory keeps active reservations and their payments (hot),
+ * a ReservationArchive keeps cancelled and ended ones (cold). Single-record lookups try the hot tier
+ * first; list queries (history, reports) return both tiers, the hot copy winning if an id is in both.
+ * archive() moves records from hot to cold: it writes them to the archive first and only then removes
+ * them from the data files, so a crash in between leaves a duplicate, never a loss. A record saved
+ * while it was being archived stays hot (its newer hot copy shadows the archived one).
+ */
+public class TieredPersistentManager extends ForwardingPersistentManager {
+
+    private final FilePersistentManager hot;
+    private final ReservationArchive archive;
+    private final ObjectMapper mapper = FilePersistentManager.createMapper();
+    private final ReentrantReadWriteLock removal = new ReentrantReadWriteLock();
+
+    public TieredPersistentManager(FilePersistentManager hot, Path archiveDir) {
+        super(hot);
+        this.hot = hot;
+        this.archive = new ReservationArchive(archiveDir);
+    }
+
+    public ReservationArchive getArchive() {
+        return archive;
+    }
+
+    /** Reservations still in the hot tier (every active one is there). */
+    public List<Reservation> findHotReservations() {
+        return hot.findAllReservations();
+    }
+
+    /** Result of one archive run. */
+    public record ArchiveResult(int reservations, int payments, int kept) {
+        @Override
+        public String toString() {
+            return "archived " + reservations + " reservations and " + payments + " payments"
+                    + (kept > 0 ? " (" + kept + " changed during the run, kept hot)" : "");
+        }
+    }
+
+    /** Whether a reservation belongs in the archive at the given time (cancelled, or its end time has passed). */
+    public static boolean isArchivable(Reservation r, LocalDateTime now) {
+        return Reservation.STATUS_CANCELLED.equals(r.getReservationStatus())
+                || (r.getEndTime() != null && !r.getEndTime().isAfter(now));
+    }
+
+    /** Move every reservation that is archivable at {@code now}, with its payments, to the archive. */
+    public synchronized ArchiveResult archive(LocalDateTime now) {
+        List<Reservation> reservations = new ArrayList<>();
+        Set<String> reservationIds = new HashSet<>();
+        for (Reservation r : hot.findAllReservations()) {
+            if (isArchivable(r, now)) {
+                reservations.add(r);
+                reservationIds.add(r.getReservationId());
+            }
+        }
+        if (reservations.isEmpty()) return new ArchiveResult(0, 0, 0);
+        List<Payment> payments = new ArrayList<>();
+        for (Payment p : hot.findAllPayments()) {
+            if (reservationIds.contains(p.getReservationId())) payments.add(p);
+        }
+        try {
+            archive.append(reservations, payments);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archive write failed; records stay in the hot store", e);
+        }
+
+        removal.writeLock().lock();
+        try {
+            // remove only what is unchanged since it was copied; anything saved meanwhile stays hot
+            Set<String> removeReservations = unchanged(reservations, hot.findAllReservations(), Reservation::getReservationId);
+            Set<String> removePayments = unchanged(payments, hot.findAllPayments(), Payment::getPaymentId);
+            hot.removeReservationsAndPayments(removeReservations, removePayments);
+            int kept = reservations.size() - removeReservations.size() + payments.size() - removePayments.size();
+            return new ArchiveResult(removeReservations.size(), removePayments.size(), kept);
+        } finally {
+            removal.writeLock().unlock();
+        }
+    }
+
+    private <T> Set<String> unchanged(List<T> archived, List<T> current, Function<T, String> idOf) {
+        Map<String, String> currentJson = new LinkedHashMap<>();
+        for (T row : current) currentJson.put(idOf.apply(row), json(row));
+        Set<String> ids = new HashSet<>();
+        for (T row : archived) {
+            String id = idOf.apply(row);
+            if (json(row).equals(currentJson.get(id))) ids.add(id);
+        }
+        return ids;
+    }
+
+    private String json(Object row) {
+        try {
+            return mapper.writeValueAsString(row);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void saveReservation(Reservation reservation) {
+        removal.readLock().lock();
+        try {
+            super.saveReservation(reservation);
+        } finally {
+            removal.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void savePayment(Payment payment) {
+        removal.readLock().lock();
+        try {
+            super.savePayment(payment);
+        } finally {
+            removal.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Reservation> findReservationById(String reservationId) {
+        Optional<Reservation> r = super.findReservationById(reservationId);
+        return r.isPresent() ? r : archive.findReservationById(reservationId);
+    }
+
+    @Override
+    public List<Reservation> findAllReservations() {
+        return merge(archive.findAllReservations(), super.findAllReservations(), Reservation::getReservationId);
+    }
+
+    @Override
+    public List<Reservation> findReservationsByUserId(String userId) {
+        return merge(archive.findReservationsByUserId(userId), super.findReservationsByUserId(userId), Reservation::getReservationId);
+    }
+
+    @Override
+    public Optional<Payment> findPaymentById(String paymentId) {
+        Optional<Payment> p = super.findPaymentById(paymentId);
+        return p.isPresent() ? p : archive.findPaymentById(paymentId);
+    }
+
+    @Override
+    public List<Payment> findAllPayments() {
+        return merge(archive.findAllPayments(), super.findAllPayments(), Payment::getPaymentId);
+    }
+
+    /** Cold rows first (older), then hot; a hot row replaces a cold one with the same id. */
+    private static <T> List<T> merge(List<T> cold, List<T> hotRows, Function<T, String> idOf) {
+        if (cold.isEmpty()) return hotRows;
+        Map<String, T> byId = new LinkedHashMap<>();
+        for (T row : cold) byId.put(idOf.apply(row), row);
+        for (T row : hotRows) byId.put(idOf.apply(row), row);
+        return new ArrayList<>(byId.values());
+    }
+}
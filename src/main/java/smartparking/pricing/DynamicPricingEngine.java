@@ -0,0 +1,135 @@
+package smartparking.pricing;
+
+import smartparking.forecast.OccupancyForecaster;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.persistence.PersistentManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Demand-based pricing. On a schedule, computes the occupancy of every lot and slot type (reserved
+ * vs. total slots, raised to the forecast occupancy for the next hour when a forecaster is given)
+ * and turns it into a multiplier on each slot's list price: a small discount when the lot is quiet,
+ * 1.0 at the target occupancy, rising linearly to the cap when full. Each run builds a new immutable
+ * RateSnapshot and swaps it in atomically; quotes only read the current snapshot, so they never wait
+ * for a repricing run and never see a half-updated price list.
+ */
+public class DynamicPricingEngine implements AutoCloseable {
+
+    private static final long DEFAULT_PERIOD_SECONDS = 60;
+    static final double TARGET_OCCUPANCY = 0.6;
+    static final double MIN_MULTIPLIER = 0.85;
+    static final double MAX_MULTIPLIER = 2.0;
+    private static final double MULTIPLIER_STEPS_PER_UNIT = 20;   // steps of 0.05 avoid prices jittering between runs
+
+    private final PersistentManager persistence;
+    private final OccupancyForecaster forecaster;
+    private final AtomicReference<RateSnapshot> current = new AtomicReference<>(RateSnapshot.EMPTY);
+    private final ScheduledExecutorService scheduler;
+
+    public DynamicPricingEngine(PersistentManager persistence) {
+        this(persistence, null, DEFAULT_PERIOD_SECONDS);
+    }
+
+    /**
+     * @param forecaster    optional; expected occupancy in the next hour raises the price ahead of demand
+     * @param periodSeconds repricing interval; 0 disables the schedule (call recompute() explicitly)
+     */
+    public DynamicPricingEngine(PersistentManager persistence, OccupancyForecaster forecaster, long periodSeconds) {
+        this.persistence = persistence;
+        this.forecaster = forecaster;
+        recompute();
+        if (periodSeconds > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "dynamic-pricing");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::recomputeSafely, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /** Current price list (lock-free read). */
+    public RateSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    /** Effective hourly rate for the slot from the current snapshot. */
+    public BigDecimal quote(ParkingSlot slot) {
+        return current.get().rateFor(slot);
+    }
+
+    /** Reprice all lots now and publish the new snapshot (runs are serialized; quotes are not blocked). */
+    public synchronized RateSnapshot recompute() {
+        LocalDateTime nextHour = LocalDateTime.now().plusHours(1);
+        Map<String, BigDecimal> rates = new HashMap<>();
+        Map<String, Double> multipliers = new HashMap<>();
+        for (ParkingLot lot : persistence.findAllParkingLots()) {
+            Map<String, int[]> counts = new HashMap<>();   // type -> {total, reserved}
+            for (ParkingSlot s : lot.getSlots()) {
+                int[] c = counts.computeIfAbsent(normalize(s.getSlotType()), k -> new int[2]);
+                c[0]++;
+                if (!s.isAvailable()) c[1]++;
+            }
+            for (Map.Entry<String, int[]> e : counts.entrySet()) {
+                double occupancy = (double) e.getValue()[1] / e.getValue()[0];
+                // without observed history the forecast is just the prior; it must not lift quiet lots
+                if (forecaster != null && forecaster.hasObservations(lot.getLotId(), e.getKey(), nextHour)) {
+                    occupancy = Math.max(occupancy, forecaster.expectedOccupancy(lot.getLotId(), e.getKey(), nextHour));
+                }
+                multipliers.put(key(lot.getLotId(), e.getKey()), multiplierFor(occupancy));
+            }
+            for (ParkingSlot s : lot.getSlots()) {
+                if (s.getPricePerHour() == null) continue;
+                double m = multipliers.get(key(lot.getLotId(), normalize(s.getSlotType())));
+                rates.put(s.getSlotId(), s.getPricePerHour().multiply(BigDecimal.valueOf(m)).setScale(2, RoundingMode.HALF_UP));
+            }
+        }
+        RateSnapshot previous = current.get();
+        RateSnapshot next = new RateSnapshot(previous.getVersion() + 1, System.currentTimeMillis(), rates, multipliers);
+        current.set(next);
+        return next;
+    }
+
+    private void recomputeSafely() {
+        try {
+            recompute();
+        } catch (RuntimeException e) {
+            // keep serving the previous snapshot; the next run retries
+        }
+    }
+
+    /** Price multiplier for an occupancy in [0, 1], in steps of 0.05. */
+    static double multiplierFor(double occupancy) {
+        double o = Math.max(0.0, Math.min(1.0, occupancy));
+        double m = o <= TARGET_OCCUPANCY
+                ? MIN_MULTIPLIER + (1.0 - MIN_MULTIPLIER) * (o / TARGET_OCCUPANCY)
+                : 1.0 + (MAX_MULTIPLIER - 1.0) * ((o - TARGET_OCCUPANCY) / (1.0 - TARGET_OCCUPANCY));
+        return Math.round(m * MULTIPLIER_STEPS_PER_UNIT) / MULTIPLIER_STEPS_PER_UNIT;
+    }
+
+    static String key(String lotId, String slotType) {
+        return lotId + "|" + normalize(slotType);
+    }
+
+    private static String normalize(String type) {
+        return type != null ? type.toLowerCase(Locale.ROOT) : "";
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) scheduler.shutdown();
+    }
+}
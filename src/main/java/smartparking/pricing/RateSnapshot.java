@@ -0,0 +1,52 @@
+package smartparking.pricing;
+
+import smartparking.model.ParkingSlot;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Immutable result of one repricing run: the effective hourly rate of every slot and the demand
+ * multiplier applied per lot and slot type. Published as a whole, so readers never see a partly
+ * updated price list.
+ */
+public final class RateSnapshot {
+
+    static final RateSnapshot EMPTY = new RateSnapshot(0L, 0L, Map.of(), Map.of());
+
+    private final long version;
+    private final long computedAt;
+    private final Map<String, BigDecimal> ratesBySlot;        // slotId -> effective hourly rate
+    private final Map<String, Double> multipliers;            // lotId|type -> multiplier
+
+    RateSnapshot(long version, long computedAt, Map<String, BigDecimal> ratesBySlot, Map<String, Double> multipliers) {
+        this.version = version;
+        this.computedAt = computedAt;
+        this.ratesBySlot = Map.copyOf(ratesBySlot);
+        this.multipliers = Map.copyOf(multipliers);
+    }
+
+    public long getVersion() { return version; }
+    public long getComputedAt() { return computedAt; }
+
+    /** Effective hourly rate of the slot, or its list price if it was not priced in this run. */
+    public BigDecimal rateFor(ParkingSlot slot) {
+        BigDecimal rate = ratesBySlot.get(slot.getSlotId());
+        return rate != null ? rate : slot.getPricePerHour();
+    }
+
+    /** Effective hourly rate of the slot, or null if it was not priced in this run. */
+    public BigDecimal rateFor(String slotId) {
+        return ratesBySlot.get(slotId);
+    }
+
+    /** Demand multiplier for a lot and slot type (1.0 if not priced). */
+    public double multiplier(String lotId, String slotType) {
+        return multipliers.getOrDefault(DynamicPricingEngine.key(lotId, slotType), 1.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RateSnapshot{version=%d, slots=%d}", version, ratesBySlot.size());
+    }
+}
@@ -0,0 +1,44 @@
+package smartparking.replication;
+
+/**
+ * One committed change streamed from the primary to replicas (one JSON line on the wire).
+ * The entity itself is carried as its JSON form so the line can be parsed without knowing the type.
+ * Sequences restart when the primary restarts, so they are only comparable within one epoch.
+ */
+public class ChangeRecord {
+
+    public static final String USER = "User";
+    public static final String PARKING_LOT = "ParkingLot";
+    public static final String RESERVATION = "Reservation";
+    public static final String PAYMENT = "Payment";
+    /** No entity: tells idle replicas the primary's current sequence. */
+    public static final String HEARTBEAT = "Heartbeat";
+
+    private long epoch;           // primary incarnation (its start time, epoch millis)
+    private long sequence;
+    private long committedAt;     // epoch millis on the primary
+    private String entityType;
+    private String entityJson;
+
+    public ChangeRecord() {
+    }
+
+    public ChangeRecord(long epoch, long sequence, long committedAt, String entityType, String entityJson) {
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.committedAt = committedAt;
+        this.entityType = entityType;
+        this.entityJson = entityJson;
+    }
+
+    public long getEpoch() { return epoch; }
+    public void setEpoch(long epoch) { this.epoch = epoch; }
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+    public long getCommittedAt() { return committedAt; }
+    public void setCommittedAt(long committedAt) { this.committedAt = committedAt; }
+    public String getEntityType() { return entityType; }
+    public void setEntityType(String entityType) { this.entityType = entityType; }
+    public String getEntityJson() { return entityJson; }
+    public void setEntityJson(String entityJson) { this.entityJson = entityJson; }
+}
@@ -0,0 +1,272 @@
+package smartparking.replication;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import smartparking.model.*;
+import smartparking.persistence.InMemoryPersistentManager;
+import smartparking.persistence.PersistentManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Read-only replica: connects to a ReplicationPublisher, applies the snapshot and the change stream
+ * to an in-memory copy and serves all find* queries from it. save* operations are rejected; writes
+ * go to the primary. Reconnects automatically (with a fresh snapshot) if the connection drops.
+ * Lag is tracked per primary epoch: when the primary restarts, its sequence numbers start over.
+ * Derived views (e.g. a SearchIndex) {@link #subscribe} to the changes applied to the served copy.
+ */
+public class ReadReplica implements PersistentManager, AutoCloseable {
+
+    private static final long RECONNECT_MILLIS = 1_000;
+
+    private final String host;
+    private final int port;
+    private final ObjectMapper mapper;
+    private volatile InMemoryPersistentManager store = new InMemoryPersistentManager();
+    private volatile Socket socket;
+    private volatile boolean running = true;
+
+    private volatile long primaryEpoch;
+    private volatile long appliedSequence;
+    private volatile long primarySequence;
+    private volatile long lastApplyDelayMillis;
+    private volatile boolean connected;
+    private final Object applyLock = new Object();   // switching the served copy, applying to it, subscribing
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public ReadReplica(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+        this.mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        Thread t = new Thread(this::receiveLoop, "replica-receiver");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // --- Replication metrics ---
+
+    public boolean isConnected() { return connected; }
+
+    /** Start time of the primary this replica follows (sequences are per epoch); 0 before the first record. */
+    public long getPrimaryEpoch() { return primaryEpoch; }
+
+    /** Sequence of the last change applied on this replica, within the primary's current epoch. */
+    public long getAppliedSequence() { return appliedSequence; }
+
+    /** Number of primary changes not yet applied here (as of the last record or heartbeat). */
+    public long getSequenceLag() {
+        return Math.max(0L, primarySequence - appliedSequence);
+    }
+
+    /** Replication lag: commit-to-apply delay of the last change, or 0 when caught up with the primary. */
+    public long getReplicationLagMillis() {
+        return getSequenceLag() == 0 ? 0L : lastApplyDelayMillis;
+    }
+
+    // --- Subscribers ---
+
+    /** A subscriber to the served copy; close it to stop receiving changes. */
+    public final class Subscription implements AutoCloseable {
+        private final Runnable onSnapshot;
+        private final Consumer<Object> onChange;
+
+        private Subscription(Runnable onSnapshot, Consumer<Object> onChange) {
+            this.onSnapshot = onSnapshot;
+            this.onChange = onChange;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * Run onSnapshot now, to load a view from this replica, and again whenever the replica switches
+     * to a fresh snapshot after reconnecting; between them, onChange gets each entity (User,
+     * ParkingLot, Reservation or Payment) saved to the served copy, in commit order. Callbacks run
+     * one at a time and exclude the receiver, so a view never misses or reorders a change; a
+     * callback that throws ends its subscription.
+     */
+    public Subscription subscribe(Runnable onSnapshot, Consumer<Object> onChange) {
+        Subscription subscription = new Subscription(onSnapshot, onChange);
+        synchronized (applyLock) {
+            onSnapshot.run();
+            subscriptions.add(subscription);
+        }
+        return subscription;
+    }
+
+    /** Caller holds applyLock. */
+    private void notifySubscribers(Object entity) {
+        for (Subscription s : subscriptions) {
+            try {
+                if (entity == null) s.onSnapshot.run();
+                else s.onChange.accept(entity);
+            } catch (RuntimeException e) {
+                subscriptions.remove(s);
+            }
+        }
+    }
+
+    // --- Change stream ---
+
+    private void receiveLoop() {
+        while (running) {
+            try (Socket s = new Socket(host, port);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8))) {
+                socket = s;
+                InMemoryPersistentManager fresh = new InMemoryPersistentManager();
+                boolean snapshotDone = false;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    ChangeRecord record = mapper.readValue(line, ChangeRecord.class);
+                    if (!snapshotDone && ChangeRecord.HEARTBEAT.equals(record.getEntityType())) {
+                        synchronized (applyLock) {
+                            store = fresh;   // snapshot complete: switch reads to the new copy
+                            notifySubscribers(null);
+                        }
+                        snapshotDone = true;
+                        connected = true;
+                    }
+                    if (!snapshotDone) {
+                        apply(fresh, record);
+                        continue;
+                    }
+                    synchronized (applyLock) {
+                        Object entity = apply(store, record);
+                        if (entity != null) notifySubscribers(entity);
+                    }
+                }
+            } catch (IOException e) {
+                // primary unavailable or connection lost: retry below
+            }
+            connected = false;
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Apply the record to target; the saved entity, or null for a heartbeat. */
+    private Object apply(InMemoryPersistentManager target, ChangeRecord record) throws IOException {
+        if (record.getEpoch() != primaryEpoch) {   // primary restarted: its sequence starts over
+            primaryEpoch = record.getEpoch();
+            primarySequence = 0;
+            appliedSequence = 0;
+        }
+        primarySequence = Math.max(primarySequence, record.getSequence());
+        Object entity;
+        switch (record.getEntityType()) {
+            case ChangeRecord.USER -> {
+                User user = mapper.readValue(record.getEntityJson(), User.class);
+                target.saveUser(user);
+                entity = user;
+            }
+            case ChangeRecord.PARKING_LOT -> {
+                ParkingLot lot = mapper.readValue(record.getEntityJson(), ParkingLot.class);
+                target.saveParkingLot(lot);
+                entity = lot;
+            }
+            case ChangeRecord.RESERVATION -> {
+                Reservation reservation = mapper.readValue(record.getEntityJson(), Reservation.class);
+                target.saveReservation(reservation);
+                entity = reservation;
+            }
+            case ChangeRecord.PAYMENT -> {
+                Payment payment = mapper.readValue(record.getEntityJson(), Payment.class);
+                target.savePayment(payment);
+                entity = payment;
+            }
+            default -> {
+                appliedSequence = Math.max(appliedSequence, record.getSequence());
+                return null;
+            }
+        }
+        appliedSequence = Math.max(appliedSequence, record.getSequence());
+        lastApplyDelayMillis = Math.max(0L, System.currentTimeMillis() - record.getCommittedAt());
+        return entity;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    // --- Reads (served from the in-memory copy) ---
+
+    @Override
+    public Optional<User> findUserById(String userId) { return store.findUserById(userId); }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) { return store.findUserByEmail(email); }
+
+    @Override
+    public List<User> findAllUsers() { return store.findAllUsers(); }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotById(String lotId) { return store.findParkingLotById(lotId); }
+
+    @Override
+    public List<ParkingLot> findAllParkingLots() { return store.findAllParkingLots(); }
+
+    @Override
+    public Optional<ParkingLot> findParkingLotBySlotId(String slotId) { return store.findParkingLotBySlotId(slotId); }
+
+    @Override
+    public Optional<Reservation> findReservationById(String reservationId) { return store.findReservationById(reservationId); }
+
+    @Override
+    public List<Reservation> findAllReservations() { return store.findAllReservations(); }
+
+    @Override
+    public List<Reservation> findReservationsByUserId(String userId) { return store.findReservationsByUserId(userId); }
+
+    @Override
+    public Optional<Payment> findPaymentById(String paymentId) { return store.findPaymentById(paymentId); }
+
+    @Override
+    public List<Payment> findAllPayments() { return store.findAllPayments(); }
+
+    @Override
+    public Optional<PaymentGateway> getDefaultPaymentGateway() { return Optional.empty(); }
+
+    // --- Writes go to the primary ---
+
+    @Override
+    public void saveUser(User user) { throw readOnly(); }
+
+    @Override
+    public void saveParkingLot(ParkingLot lot) { throw readOnly(); }
+
+    @Override
+    public void saveReservation(Reservation reservation) { throw readOnly(); }
+
+    @Override
+    public void savePayment(Payment payment) { throw readOnly(); }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Read replica is read-only; write to the primary");
+    }
+}
@@ -0,0 +1,242 @@
+package smartparking.replication;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import smartparking.model.ParkingLot;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+import smartparking.model.User;
+import smartparking.persistence.ForwardingPersistentManager;
+import smartparking.persistence.PersistentManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primary side of replication: decorates the primary PersistentManager and streams every committed
+ * save* to connected ReadReplicas over a local socket, as JSON lines. A new replica first receives a
+ * snapshot of the current state, then live changes in commit order. Each replica has its own bounded
+ * queue and sender thread, so a slow replica never blocks the booking path; a replica whose queue
+ * overflows is disconnected and resynchronises from a fresh snapshot when it reconnects.
+ *
+ * The snapshot is read by the replica's sender thread, not under this publisher's monitor, so saves
+ * keep committing meanwhile. The replica is registered first, so those saves are queued for it; the
+ * ones queued by the end of the snapshot are sent before the heartbeat that completes it. An entity
+ * may arrive twice (in the snapshot and as a change), which is harmless since every record carries
+ * the entity's whole state and changes arrive in commit order.
+ */
+public class ReplicationPublisher extends ForwardingPersistentManager implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final long HEARTBEAT_MILLIS = 1_000;
+
+    private final ObjectMapper mapper;
+    private final ServerSocket server;
+    private final List<ReplicaConnection> replicas = new CopyOnWriteArrayList<>();
+    private final long epoch = System.currentTimeMillis();
+    private long sequence;
+    private volatile boolean running = true;
+
+    public ReplicationPublisher(PersistentManager primary, int port) {
+        super(primary);
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        try {
+            this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open replication port " + port, e);
+        }
+        daemon(this::acceptLoop, "replication-accept").start();
+        daemon(this::heartbeatLoop, "replication-heartbeat").start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public synchronized long getLastSequence() {
+        return sequence;
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    @Override
+    public synchronized void saveUser(User user) {
+        super.saveUser(user);
+        publish(ChangeRecord.USER, user);
+    }
+
+    @Override
+    public synchronized void saveParkingLot(ParkingLot lot) {
+        super.saveParkingLot(lot);
+        publish(ChangeRecord.PARKING_LOT, lot);
+    }
+
+    @Override
+    public synchronized void saveReservation(Reservation reservation) {
+        super.saveReservation(reservation);
+        publish(ChangeRecord.RESERVATION, reservation);
+    }
+
+    @Override
+    public synchronized void savePayment(Payment payment) {
+        super.savePayment(payment);
+        publish(ChangeRecord.PAYMENT, payment);
+    }
+
+    /** Caller holds the monitor, so sequence order equals commit order. */
+    private void publish(String type, Object entity) {
+        String line = encode(new ChangeRecord(epoch, ++sequence, System.currentTimeMillis(), type, toJson(entity)));
+        for (ReplicaConnection replica : replicas) {
+            replica.offer(line);
+        }
+    }
+
+    private String toJson(Object entity) {
+        try {
+            return mapper.writeValueAsString(entity);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode change", e);
+        }
+    }
+
+    private String encode(ChangeRecord record) {
+        try {
+            return mapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode change", e);
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                ReplicaConnection replica = new ReplicaConnection(socket);
+                synchronized (this) {
+                    replica.joinedAt = sequence;
+                    replicas.add(replica);   // every later save is queued for it
+                }
+                replica.start();
+            } catch (IOException | RuntimeException e) {
+                if (!running) return;
+            }
+        }
+    }
+
+    private void heartbeatLoop() {
+        while (running) {
+            try {
+                Thread.sleep(HEARTBEAT_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                String line = encode(new ChangeRecord(epoch, sequence, System.currentTimeMillis(), ChangeRecord.HEARTBEAT, null));
+                for (ReplicaConnection replica : replicas) {
+                    if (replica.live) replica.offer(line);   // the snapshot ends with its own heartbeat
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            server.close();
+        } catch (IOException ignored) { }
+        for (ReplicaConnection replica : replicas) replica.disconnect();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    /** One connected replica: snapshot, then a bounded queue of live changes, sent by its own thread. */
+    private final class ReplicaConnection {
+        private final Socket socket;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean connected = true;
+        private volatile long joinedAt;   // sequence of the last save before this replica was registered
+        private volatile boolean live;    // snapshot sent
+
+        ReplicaConnection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void offer(String line) {
+            if (connected && !queue.offer(line)) {
+                disconnect();   // too far behind: replica will resync from a snapshot
+            }
+        }
+
+        void start() {
+            daemon(this::sendLoop, "replication-sender").start();
+        }
+
+        private void sendLoop() {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                writeSnapshot(out);
+                out.flush();
+                live = true;
+                while (connected) {
+                    String line = queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (line == null) continue;
+                    writeLine(out, line);
+                    if (queue.isEmpty()) out.flush();
+                }
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                // connection lost (or the snapshot could not be read: the replica reconnects for a new one)
+            } finally {
+                disconnect();
+            }
+        }
+
+        /** Current state, then the changes queued while it was read, then the heartbeat that ends the snapshot. */
+        private void writeSnapshot(Writer out) throws IOException {
+            long now = System.currentTimeMillis();
+            long at = joinedAt;
+            for (User u : delegate().findAllUsers()) writeLine(out, encode(new ChangeRecord(epoch, at, now, ChangeRecord.USER, toJson(u))));
+            for (ParkingLot l : delegate().findAllParkingLots()) writeLine(out, encode(new ChangeRecord(epoch, at, now, ChangeRecord.PARKING_LOT, toJson(l))));
+            for (Reservation r : delegate().findAllReservations()) writeLine(out, encode(new ChangeRecord(epoch, at, now, ChangeRecord.RESERVATION, toJson(r))));
+            for (Payment p : delegate().findAllPayments()) writeLine(out, encode(new ChangeRecord(epoch, at, now, ChangeRecord.PAYMENT, toJson(p))));
+            List<String> caughtUp = new ArrayList<>();
+            queue.drainTo(caughtUp);
+            for (String line : caughtUp) writeLine(out, line);
+            writeLine(out, encode(new ChangeRecord(epoch, at, now, ChangeRecord.HEARTBEAT, null)));
+        }
+
+        private void writeLine(Writer out, String line) throws IOException {
+            out.write(line);
+            out.write('\n');
+        }
+
+        void disconnect() {
+            connected = false;
+            replicas.remove(this);
+            try {
+                socket.close();
+            } catch (IOException ignored) { }
+        }
+    }
+}
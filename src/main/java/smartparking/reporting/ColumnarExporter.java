@@ -0,0 +1,175 @@
+package smartparking.reporting;
+
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+import smartparking.persistence.PersistentManager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Exports reservations and payments to columnar files for analytics (see ColumnarFormat).
+ * Ids, users, slots, statuses and methods are dictionary-encoded; timestamps are delta-encoded
+ * epoch millis (UTC); amounts are stored in cents. Read back with ColumnarTable.
+ */
+public class ColumnarExporter {
+
+    private static final String EXPORT_DIR = "data/export";
+    public static final String RESERVATIONS_FILE = "reservations.col";
+    public static final String PAYMENTS_FILE = "payments.col";
+
+    private final PersistentManager persistence;
+    private final Path exportDir;
+
+    public ColumnarExporter(PersistentManager persistence) {
+        this(persistence, Paths.get(EXPORT_DIR));
+    }
+
+    public ColumnarExporter(PersistentManager persistence, Path exportDir) {
+        this.persistence = persistence;
+        this.exportDir = exportDir;
+    }
+
+    /** Export reservations; returns the written file. */
+    public Path exportReservations() throws IOException {
+        List<Reservation> rows = persistence.findAllReservations();
+        Path file = exportDir.resolve(RESERVATIONS_FILE);
+        try (Writer w = new Writer(file, rows.size(), 7)) {
+            w.plain("reservationId", rows, Reservation::getReservationId);
+            w.dictionary("userId", rows, Reservation::getUserId);
+            w.dictionary("slotId", rows, Reservation::getSlotId);
+            w.dictionary("status", rows, Reservation::getReservationStatus);
+            w.delta("startTime", rows, r -> epochMillis(r.getStartTime()));
+            w.delta("endTime", rows, r -> epochMillis(r.getEndTime()));
+            w.longs("totalCost", rows, r -> cents(r.getTotalCost()));
+        }
+        return file;
+    }
+
+    /** Export payments; returns the written file. */
+    public Path exportPayments() throws IOException {
+        List<Payment> rows = persistence.findAllPayments();
+        Path file = exportDir.resolve(PAYMENTS_FILE);
+        try (Writer w = new Writer(file, rows.size(), 6)) {
+            w.plain("paymentId", rows, Payment::getPaymentId);
+            w.plain("reservationId", rows, Payment::getReservationId);
+            w.dictionary("status", rows, Payment::getPaymentStatus);
+            w.dictionary("method", rows, Payment::getPaymentMethod);
+            w.longs("amount", rows, p -> cents(p.getAmount()));
+            w.delta("paymentTime", rows, p -> epochMillis(p.getPaymentTime()));
+        }
+        return file;
+    }
+
+    static Long epochMillis(LocalDateTime t) {
+        return t != null ? t.toInstant(ZoneOffset.UTC).toEpochMilli() : null;
+    }
+
+    private static Long cents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : null;
+    }
+
+    /** Writes one file column by column. */
+    private final class Writer implements AutoCloseable {
+        private final DataOutputStream out;
+        private final int rowCount;
+
+        Writer(Path file, int rowCount, int columnCount) throws IOException {
+            Files.createDirectories(exportDir);
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            this.rowCount = rowCount;
+            out.writeInt(ColumnarFormat.MAGIC);
+            out.writeInt(rowCount);
+            out.writeInt(columnCount);
+        }
+
+        <T> void plain(String name, List<T> rows, Function<T, String> getter) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream col = new DataOutputStream(bytes);
+            for (T row : rows) {
+                String v = getter.apply(row);
+                col.writeBoolean(v != null);
+                if (v != null) col.writeUTF(v);
+            }
+            column(name, ColumnarFormat.PLAIN, bytes);
+        }
+
+        <T> void dictionary(String name, List<T> rows, Function<T, String> getter) throws IOException {
+            Map<String, Integer> codes = new HashMap<>();
+            List<String> values = new ArrayList<>();
+            ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+            DataOutputStream codeOut = new DataOutputStream(codeBytes);
+            for (T row : rows) {
+                String v = getter.apply(row);
+                int code = 0;
+                if (v != null) {
+                    code = codes.computeIfAbsent(v, k -> {
+                        values.add(k);
+                        return values.size();
+                    });
+                }
+                ColumnarFormat.writeVarLong(codeOut, code);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream col = new DataOutputStream(bytes);
+            col.writeInt(values.size());
+            for (String v : values) col.writeUTF(v);
+            codeBytes.writeTo(col);
+            column(name, ColumnarFormat.DICTIONARY, bytes);
+        }
+
+        <T> void delta(String name, List<T> rows, Function<T, Long> getter) throws IOException {
+            numeric(name, ColumnarFormat.DELTA, rows, getter);
+        }
+
+        <T> void longs(String name, List<T> rows, Function<T, Long> getter) throws IOException {
+            numeric(name, ColumnarFormat.LONG, rows, getter);
+        }
+
+        private <T> void numeric(String name, byte encoding, List<T> rows, Function<T, Long> getter) throws IOException {
+            byte[] nulls = new byte[(rowCount + 7) / 8];
+            ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+            DataOutputStream values = new DataOutputStream(valueBytes);
+            long previous = 0L;
+            for (int i = 0; i < rowCount; i++) {
+                Long v = getter.apply(rows.get(i));
+                if (v == null) {
+                    nulls[i >> 3] |= (byte) (1 << (i & 7));
+                    continue;
+                }
+                ColumnarFormat.writeVarLong(values, encoding == ColumnarFormat.DELTA ? v - previous : v);
+                previous = v;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(nulls);
+            valueBytes.writeTo(bytes);
+            column(name, encoding, bytes);
+        }
+
+        private void column(String name, byte encoding, ByteArrayOutputStream data) throws IOException {
+            out.writeUTF(name);
+            out.writeByte(encoding);
+            out.writeInt(data.size());
+            data.writeTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package smartparking.reporting;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the columnar export files (shared by ColumnarExporter and ColumnarTable).
+ *
+ * File: magic, row count, column count, then per column: name, encoding, byte length, data.
+ * Encodings: DICTIONARY (distinct values + varint codes), DELTA (zigzag varint deltas of epoch
+ * millis, for timestamps), LONG (zigzag varint, for amounts in cents), PLAIN (UTF strings).
+ * DELTA and LONG columns start with a null bitmap; DICTIONARY uses code 0 for null.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x5350434C;   // "SPCL"
+    static final byte DICTIONARY = 1;
+    static final byte DELTA = 2;
+    static final byte LONG = 3;
+    static final byte PLAIN = 4;
+
+    private ColumnarFormat() { }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);   // zigzag
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,247 @@
+package smartparking.reporting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read side of the columnar export. Columns are decoded on first use only, so a scan touches
+ * just the columns it filters or aggregates on. Example:
+ * <pre>
+ *   long cents = ColumnarTable.open(file).scan()
+ *           .whereEquals("status", "Confirmed")
+ *           .whereBetween("startTime", from, to)
+ *           .sum("totalCost");
+ * </pre>
+ */
+public class ColumnarTable {
+
+    private record ColumnRef(byte encoding, int offset, int length) { }
+
+    private final ByteBuffer data;
+    private final int rowCount;
+    private final Map<String, ColumnRef> columns = new LinkedHashMap<>();
+    private final Map<String, Object> decoded = new HashMap<>();
+
+    private ColumnarTable(ByteBuffer data) {
+        this.data = data;
+        if (data.getInt() != ColumnarFormat.MAGIC) {
+            throw new IllegalArgumentException("Not a columnar export file");
+        }
+        this.rowCount = data.getInt();
+        int columnCount = data.getInt();
+        for (int i = 0; i < columnCount; i++) {
+            String name = readUtf(data);
+            byte encoding = data.get();
+            int length = data.getInt();
+            columns.put(name, new ColumnRef(encoding, data.position(), length));
+            data.position(data.position() + length);
+        }
+    }
+
+    public static ColumnarTable open(Path file) throws IOException {
+        return new ColumnarTable(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    public int getRowCount() { return rowCount; }
+
+    public List<String> getColumnNames() { return List.copyOf(columns.keySet()); }
+
+    /** Start a scan over all rows. */
+    public Scan scan() {
+        BitSet all = new BitSet(rowCount);
+        all.set(0, rowCount);
+        return new Scan(all);
+    }
+
+    /** Filter/aggregate over a row selection. Filters narrow the selection in place. */
+    public final class Scan {
+        private final BitSet selected;
+
+        private Scan(BitSet selected) {
+            this.selected = selected;
+        }
+
+        /** Keep rows whose string column (dictionary or plain) equals value. */
+        public Scan whereEquals(String column, String value) {
+            Object col = column(column);
+            if (col instanceof DictColumn d) {
+                int code = d.codeOf(value);
+                for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                    if (d.codes[i] != code) selected.clear(i);
+                }
+            } else if (col instanceof String[] plain) {
+                for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                    if (value == null ? plain[i] != null : !value.equals(plain[i])) selected.clear(i);
+                }
+            } else {
+                throw new IllegalArgumentException("Not a string column: " + column);
+            }
+            return this;
+        }
+
+        /** Keep rows whose numeric column is in [from, to); null values are dropped. */
+        public Scan whereBetween(String column, long from, long to) {
+            LongColumn c = longColumn(column);
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                if (c.nulls.get(i) || c.values[i] < from || c.values[i] >= to) selected.clear(i);
+            }
+            return this;
+        }
+
+        /** Keep rows whose timestamp column is in [from, to). */
+        public Scan whereBetween(String column, LocalDateTime from, LocalDateTime to) {
+            return whereBetween(column, ColumnarExporter.epochMillis(from), ColumnarExporter.epochMillis(to));
+        }
+
+        public long count() {
+            return selected.cardinality();
+        }
+
+        /** Sum of a numeric column over selected rows (nulls skipped). */
+        public long sum(String column) {
+            LongColumn c = longColumn(column);
+            long sum = 0L;
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                if (!c.nulls.get(i)) sum += c.values[i];
+            }
+            return sum;
+        }
+
+        /** Row count per value of a dictionary column. */
+        public Map<String, Long> countBy(String column) {
+            DictColumn d = dictColumn(column);
+            long[] counts = new long[d.values.length];
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                counts[d.codes[i]]++;
+            }
+            return d.toMap(counts);
+        }
+
+        /** Sum of a numeric column per value of a dictionary column. */
+        public Map<String, Long> sumBy(String groupColumn, String valueColumn) {
+            DictColumn d = dictColumn(groupColumn);
+            LongColumn c = longColumn(valueColumn);
+            long[] sums = new long[d.values.length];
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                if (!c.nulls.get(i)) sums[d.codes[i]] += c.values[i];
+            }
+            return d.toMap(sums);
+        }
+    }
+
+    // --- Column decoding ---
+
+    private static final class DictColumn {
+        final String[] values;   // index 0 is null
+        final int[] codes;
+
+        DictColumn(String[] values, int[] codes) {
+            this.values = values;
+            this.codes = codes;
+        }
+
+        int codeOf(String value) {
+            if (value == null) return 0;
+            for (int i = 1; i < values.length; i++) {
+                if (value.equals(values[i])) return i;
+            }
+            return -1;
+        }
+
+        Map<String, Long> toMap(long[] perCode) {
+            Map<String, Long> result = new TreeMap<>();
+            for (int i = 1; i < values.length; i++) {
+                if (perCode[i] != 0) result.put(values[i], perCode[i]);
+            }
+            if (perCode[0] != 0) result.put("(none)", perCode[0]);
+            return result;
+        }
+    }
+
+    private static final class LongColumn {
+        final long[] values;
+        final BitSet nulls;
+
+        LongColumn(long[] values, BitSet nulls) {
+            this.values = values;
+            this.nulls = nulls;
+        }
+    }
+
+    private DictColumn dictColumn(String name) {
+        if (column(name) instanceof DictColumn d) return d;
+        throw new IllegalArgumentException("Not a dictionary column: " + name);
+    }
+
+    private LongColumn longColumn(String name) {
+        if (column(name) instanceof LongColumn c) return c;
+        throw new IllegalArgumentException("Not a numeric column: " + name);
+    }
+
+    private synchronized Object column(String name) {
+        Object col = decoded.get(name);
+        if (col != null) return col;
+        ColumnRef ref = columns.get(name);
+        if (ref == null) throw new IllegalArgumentException("Unknown column: " + name);
+        ByteBuffer in = data.duplicate();
+        in.position(ref.offset());
+        col = switch (ref.encoding()) {
+            case ColumnarFormat.DICTIONARY -> decodeDictionary(in);
+            case ColumnarFormat.DELTA, ColumnarFormat.LONG -> decodeLongs(in, ref.encoding() == ColumnarFormat.DELTA);
+            case ColumnarFormat.PLAIN -> decodePlain(in);
+            default -> throw new IllegalStateException("Unknown encoding for column " + name);
+        };
+        decoded.put(name, col);
+        return col;
+    }
+
+    private DictColumn decodeDictionary(ByteBuffer in) {
+        int size = in.getInt();
+        String[] values = new String[size + 1];
+        for (int i = 1; i <= size; i++) values[i] = readUtf(in);
+        int[] codes = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) codes[i] = (int) ColumnarFormat.readVarLong(in);
+        return new DictColumn(values, codes);
+    }
+
+    private LongColumn decodeLongs(ByteBuffer in, boolean delta) {
+        byte[] nullBytes = new byte[(rowCount + 7) / 8];
+        in.get(nullBytes);
+        BitSet nulls = BitSet.valueOf(nullBytes);
+        long[] values = new long[rowCount];
+        long previous = 0L;
+        for (int i = 0; i < rowCount; i++) {
+            if (nulls.get(i)) continue;
+            long v = ColumnarFormat.readVarLong(in);
+            values[i] = delta ? previous + v : v;
+            previous = values[i];
+        }
+        return new LongColumn(values, nulls);
+    }
+
+    private String[] decodePlain(ByteBuffer in) {
+        String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            if (in.get() != 0) values[i] = readUtf(in);
+        }
+        return values;
+    }
+
+    /** Reads a DataOutput.writeUTF string (plain ASCII/UTF-8 ids; modified-UTF-8 edge cases are not used). */
+    private static String readUtf(ByteBuffer in) {
+        int len = in.getShort() & 0xFFFF;
+        String s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return s;
+    }
+}
@@ -0,0 +1,128 @@
+package smartparking.reporting;
+
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join aggregation of reservations and payments into ReportAggregates.
+ * Input lists are split in halves until a partition is below the threshold; each leaf fills its
+ * own ReportAggregates and parents merge children, so partial results are never shared.
+ */
+public class ParallelReportAggregator {
+
+    private static final int DEFAULT_THRESHOLD = 8_192;
+    private static final String UNKNOWN = "Unknown";
+    private static final LocalDate NO_DATE = LocalDate.of(1970, 1, 1);
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelReportAggregator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public ParallelReportAggregator(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = Math.max(1, threshold);
+    }
+
+    /** Aggregate reservations (per lot, type, day) and payments (per day). Slot lookup comes from the lots. */
+    public ReportAggregates aggregate(List<ParkingLot> lots, List<Reservation> reservations, List<Payment> payments) {
+        Map<String, String[]> slotIndex = new HashMap<>();   // slotId -> {lotId, slotType}
+        for (ParkingLot lot : lots) {
+            for (ParkingSlot s : lot.getSlots()) {
+                slotIndex.put(s.getSlotId(), new String[] { lot.getLotId(), s.getSlotType() });
+            }
+        }
+        ReportAggregates fromReservations = pool.invoke(new ReservationTask(reservations, 0, reservations.size(), slotIndex));
+        ReportAggregates fromPayments = pool.invoke(new PaymentTask(payments, 0, payments.size()));
+        return fromReservations.merge(fromPayments);
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+    }
+
+    private final class ReservationTask extends RecursiveTask<ReportAggregates> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Reservation> list;
+        private final int from;
+        private final int to;
+        private final Map<String, String[]> slotIndex;
+
+        ReservationTask(List<Reservation> list, int from, int to, Map<String, String[]> slotIndex) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+            this.slotIndex = slotIndex;
+        }
+
+        @Override
+        protected ReportAggregates compute() {
+            if (to - from <= threshold) {
+                ReportAggregates acc = new ReportAggregates();
+                for (int i = from; i < to; i++) {
+                    Reservation r = list.get(i);
+                    String[] slot = slotIndex.get(r.getSlotId());
+                    String lotId = slot != null ? slot[0] : UNKNOWN;
+                    String type = slot != null && slot[1] != null ? slot[1] : UNKNOWN;
+                    LocalDate day = r.getStartTime() != null ? r.getStartTime().toLocalDate() : NO_DATE;
+                    long minutes = r.getStartTime() != null && r.getEndTime() != null
+                            ? ChronoUnit.MINUTES.between(r.getStartTime(), r.getEndTime()) : 0L;
+                    acc.addReservation(lotId, type, day, r.getReservationStatus(), minutes, cents(r.getTotalCost()));
+                }
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            ReservationTask left = new ReservationTask(list, from, mid, slotIndex);
+            left.fork();
+            ReportAggregates right = new ReservationTask(list, mid, to, slotIndex).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private final class PaymentTask extends RecursiveTask<ReportAggregates> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Payment> list;
+        private final int from;
+        private final int to;
+
+        PaymentTask(List<Payment> list, int from, int to) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ReportAggregates compute() {
+            if (to - from <= threshold) {
+                ReportAggregates acc = new ReportAggregates();
+                for (int i = from; i < to; i++) {
+                    Payment p = list.get(i);
+                    LocalDate day = p.getPaymentTime() != null ? p.getPaymentTime().toLocalDate() : NO_DATE;
+                    acc.addPayment(day, p.getPaymentStatus(), cents(p.getAmount()));
+                }
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            PaymentTask left = new PaymentTask(list, from, mid);
+            left.fork();
+            ReportAggregates right = new PaymentTask(list, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package smartparking.reporting;
+
+import smartparking.model.Payment;
+import smartparking.model.Reservation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates for the revenue/occupancy report: per lot, per slot type and per day.
+ * A partial result is owned by a single task while it is filled, then merged into its parent,
+ * so no locking is needed. Money is kept in cents to avoid BigDecimal arithmetic per record.
+ */
+public class ReportAggregates {
+
+    /** Reservation counters for one key (lot, type or day). */
+    public static final class Bucket {
+        private long reservations;
+        private long confirmed;
+        private long cancelled;
+        private long bookedMinutes;
+        private long revenueCents;
+
+        void add(String status, long minutes, long cents) {
+            reservations++;
+            if (Reservation.STATUS_CONFIRMED.equals(status)) {
+                confirmed++;
+                bookedMinutes += minutes;
+                revenueCents += cents;
+            } else if (Reservation.STATUS_CANCELLED.equals(status)) {
+                cancelled++;
+            }
+        }
+
+        void merge(Bucket o) {
+            reservations += o.reservations;
+            confirmed += o.confirmed;
+            cancelled += o.cancelled;
+            bookedMinutes += o.bookedMinutes;
+            revenueCents += o.revenueCents;
+        }
+
+        public long getReservations() { return reservations; }
+        public long getConfirmed() { return confirmed; }
+        public long getCancelled() { return cancelled; }
+        public long getBookedMinutes() { return bookedMinutes; }
+        public BigDecimal getRevenue() { return BigDecimal.valueOf(revenueCents, 2); }
+    }
+
+    /** Payment counters for one day. */
+    public static final class PaymentBucket {
+        private long payments;
+        private long collectedCents;
+        private long refundedCents;
+
+        void add(String status, long cents) {
+            payments++;
+            if (Payment.STATUS_SUCCESS.equals(status)) collectedCents += cents;
+            else if (Payment.STATUS_REFUNDED.equals(status)) refundedCents += cents;
+        }
+
+        void merge(PaymentBucket o) {
+            payments += o.payments;
+            collectedCents += o.collectedCents;
+            refundedCents += o.refundedCents;
+        }
+
+        public long getPayments() { return payments; }
+        public BigDecimal getCollected() { return BigDecimal.valueOf(collectedCents, 2); }
+        public BigDecimal getRefunded() { return BigDecimal.valueOf(refundedCents, 2); }
+    }
+
+    private final Map<String, Bucket> byLot = new TreeMap<>();
+    private final Map<String, Bucket> byType = new TreeMap<>();
+    private final Map<LocalDate, Bucket> byDay = new TreeMap<>();
+    private final Map<LocalDate, PaymentBucket> paymentsByDay = new TreeMap<>();
+
+    void addReservation(String lotId, String type, LocalDate day, String status, long minutes, long cents) {
+        byLot.computeIfAbsent(lotId, k -> new Bucket()).add(status, minutes, cents);
+        byType.computeIfAbsent(type, k -> new Bucket()).add(status, minutes, cents);
+        byDay.computeIfAbsent(day, k -> new Bucket()).add(status, minutes, cents);
+    }
+
+    void addPayment(LocalDate day, String status, long cents) {
+        paymentsByDay.computeIfAbsent(day, k -> new PaymentBucket()).add(status, cents);
+    }
+
+    /** Merge another partial result into this one. Returns this. */
+    ReportAggregates merge(ReportAggregates o) {
+        o.byLot.forEach((k, v) -> byLot.merge(k, v, (a, b) -> { a.merge(b); return a; }));
+        o.byType.forEach((k, v) -> byType.merge(k, v, (a, b) -> { a.merge(b); return a; }));
+        o.byDay.forEach((k, v) -> byDay.merge(k, v, (a, b) -> { a.merge(b); return a; }));
+        o.paymentsByDay.forEach((k, v) -> paymentsByDay.merge(k, v, (a, b) -> { a.merge(b); return a; }));
+        return this;
+    }
+
+    public Map<String, Bucket> getByLot() { return byLot; }
+    public Map<String, Bucket> getByType() { return byType; }
+    public Map<LocalDate, Bucket> getByDay() { return byDay; }
+    public Map<LocalDate, PaymentBucket> getPaymentsByDay() { return paymentsByDay; }
+}
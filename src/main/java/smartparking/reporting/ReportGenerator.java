@@ -1,9 +1,13 @@
 package smartparking.reporting;
 
 import smartparking.model.*;
+import smartparking.persistence.DataCodec;
 import smartparking.persistence.PersistentManager;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -12,7 +16,8 @@ import java.util.List;
 
 /**
  * Reporting perspective: generate text reports from persisted data.
- * Outputs to data/reports/ for iteration documentation and exam presentation.
+ * Outputs to data/reports/ for iteration documentation and exam presentation
+ * (gzip-compressed, name.txt.gz, when created with DataCodec.GZIP; see ReportRetention for cleanup).
  */
 public class ReportGenerator {
 
@@ -20,17 +25,31 @@ public class ReportGenerator {
     private static final DateTimeFormatter DT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     private final PersistentManager persistence;
+    private final ParallelReportAggregator aggregator;
+    private final DataCodec codec;
+    private final Path reportsDir;
 
     public ReportGenerator(PersistentManager persistence) {
+        this(persistence, new ParallelReportAggregator());
+    }
+
+    public ReportGenerator(PersistentManager persistence, ParallelReportAggregator aggregator) {
+        this(persistence, aggregator, DataCodec.PLAIN);
+    }
+
+    public ReportGenerator(PersistentManager persistence, ParallelReportAggregator aggregator, DataCodec codec) {
+        this(persistence, aggregator, codec, Paths.get(REPORTS_DIR));
+    }
+
+    public ReportGenerator(PersistentManager persistence, ParallelReportAggregator aggregator, DataCodec codec, Path reportsDir) {
         this.persistence = persistence;
+        this.aggregator = aggregator;
+        this.codec = codec;
+        this.reportsDir = reportsDir;
     }
 
     /** Generate a summary report (users, lots, reservations, payments) to a file. */
     public Path generateSummaryReport() throws IOException {
-        Path dir = Paths.get(REPORTS_DIR);
-        Files.createDirectories(dir);
-        Path file = dir.resolve("summary_report_" + System.currentTimeMillis() + ".txt");
-
         StringBuilder sb = new StringBuilder();
         sb.append("=== Smart Parking System - Summary Report (Iteration 1) ===\n\n");
 
@@ -55,16 +74,11 @@ public class ReportGenerator {
             sb.append("    ").append(p.generateReceipt()).append("\n");
         }
 
-        Files.writeString(file, sb.toString());
-        return file;
+        return write("summary_report", sb);
     }
 
     /** Generate reservations report with formatted details. */
     public Path generateReservationsReport() throws IOException {
-        Path dir = Paths.get(REPORTS_DIR);
-        Files.createDirectories(dir);
-        Path file = dir.resolve("reservations_report_" + System.currentTimeMillis() + ".txt");
-
         List<Reservation> list = persistence.findAllReservations();
         StringBuilder sb = new StringBuilder();
         sb.append("=== Reservations Report ===\n");
@@ -76,7 +90,45 @@ public class ReportGenerator {
             sb.append("  End: ").append(r.getEndTime() != null ? r.getEndTime().format(DT) : "-").append("\n");
             sb.append("  Status: ").append(r.getReservationStatus()).append(" | Total Cost: ").append(r.getTotalCost()).append("\n\n");
         }
-        Files.writeString(file, sb.toString());
+        return write("reservations_report", sb);
+    }
+
+    /** Generate revenue/occupancy report aggregated per lot, per slot type and per day (parallel). */
+    public Path generateAggregateReport() throws IOException {
+        ReportAggregates agg = aggregator.aggregate(persistence.findAllParkingLots(),
+                persistence.findAllReservations(), persistence.findAllPayments());
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Revenue and Occupancy Report ===\n");
+        sb.append("\n--- By Lot ---\n");
+        agg.getByLot().forEach((lotId, b) -> appendBucket(sb, lotId, b));
+        sb.append("\n--- By Slot Type ---\n");
+        agg.getByType().forEach((type, b) -> appendBucket(sb, type, b));
+        sb.append("\n--- By Day ---\n");
+        agg.getByDay().forEach((day, b) -> appendBucket(sb, day.toString(), b));
+        sb.append("\n--- Payments By Day ---\n");
+        agg.getPaymentsByDay().forEach((day, p) -> sb.append("  ").append(day)
+                .append(" | Payments: ").append(p.getPayments())
+                .append(" | Collected: ").append(p.getCollected())
+                .append(" | Refunded: ").append(p.getRefunded()).append("\n"));
+        return write("aggregate_report", sb);
+    }
+
+    /** Write a report as kind_millis.txt in the reports directory (through the codec) and return its path. */
+    private Path write(String kind, CharSequence text) throws IOException {
+        Files.createDirectories(reportsDir);
+        Path file = reportsDir.resolve(codec.fileName(kind + "_" + System.currentTimeMillis() + ".txt"));
+        try (Writer out = new OutputStreamWriter(codec.encoding(Files.newOutputStream(file)), StandardCharsets.UTF_8)) {
+            out.append(text);
+        }
         return file;
     }
+
+    private static void appendBucket(StringBuilder sb, String key, ReportAggregates.Bucket b) {
+        sb.append("  ").append(key)
+                .append(" | Reservations: ").append(b.getReservations())
+                .append(" | Confirmed: ").append(b.getConfirmed())
+                .append(" | Cancelled: ").append(b.getCancelled())
+                .append(" | Booked hours: ").append(String.format("%.1f", b.getBookedMinutes() / 60.0))
+                .append(" | Revenue: ").append(b.getRevenue()).append("\n");
+    }
 }
@@ -0,0 +1,109 @@
+package smartparking.reporting;
+
+import smartparking.persistence.DataCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Retention and rotation for the timestamped files in data/reports (kind_millis.txt, optionally .gz).
+ * Per report kind the newest file is always kept as written; older ones are deleted once there are
+ * more than keepPerKind of that kind or they are older than maxAge, and the survivors are
+ * gzip-compressed in place (rotation), so history stays available at a fraction of the space.
+ * Files that do not follow the naming scheme are left alone.
+ */
+public class ReportRetention {
+
+    private static final Pattern REPORT = Pattern.compile("(.+)_(\\d{10,})\\.txt(\\.gz)?");
+
+    private final Path dir;
+    private final int keepPerKind;
+    private final Duration maxAge;
+    private final boolean compressOlder;
+
+    /** Result of one run. */
+    public record Result(int deleted, int compressed, long bytesFreed) {
+        @Override
+        public String toString() {
+            return deleted + " deleted, " + compressed + " compressed, " + (bytesFreed / 1024) + " KB freed";
+        }
+    }
+
+    private record Report(Path path, String kind, long createdMillis, boolean compressed) { }
+
+    /**
+     * @param keepPerKind   maximum number of files per report kind (at least 1)
+     * @param maxAge        files older than this are deleted (the newest of each kind excepted); null: no limit
+     * @param compressOlder gzip every kept file except the newest of its kind
+     */
+    public ReportRetention(Path dir, int keepPerKind, Duration maxAge, boolean compressOlder) {
+        if (keepPerKind < 1) throw new IllegalArgumentException("keepPerKind must be at least 1");
+        this.dir = dir;
+        this.keepPerKind = keepPerKind;
+        this.maxAge = maxAge;
+        this.compressOlder = compressOlder;
+    }
+
+    public Result apply() throws IOException {
+        return apply(System.currentTimeMillis());
+    }
+
+    public Result apply(long nowMillis) throws IOException {
+        if (!Files.isDirectory(dir)) return new Result(0, 0, 0);
+        Map<String, List<Report>> byKind = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Matcher m = REPORT.matcher(file.getFileName().toString());
+                if (!m.matches() || !Files.isRegularFile(file)) continue;
+                Report report = new Report(file, m.group(1), Long.parseLong(m.group(2)), m.group(3) != null);
+                byKind.computeIfAbsent(report.kind(), k -> new ArrayList<>()).add(report);
+            }
+        }
+        int deleted = 0;
+        int compressed = 0;
+        long freed = 0;
+        for (List<Report> reports : byKind.values()) {
+            reports.sort(Comparator.comparingLong(Report::createdMillis).reversed());
+            for (int i = 1; i < reports.size(); i++) {
+                Report report = reports.get(i);
+                long size = Files.size(report.path());
+                boolean expired = maxAge != null && nowMillis - report.createdMillis() > maxAge.toMillis();
+                if (i >= keepPerKind || expired) {
+                    Files.deleteIfExists(report.path());
+                    deleted++;
+                    freed += size;
+                } else if (compressOlder && !report.compressed()) {
+                    freed += size - compress(report.path());
+                    compressed++;
+                }
+            }
+        }
+        return new Result(deleted, compressed, freed);
+    }
+
+    /** Replace file with file.gz (written to a temp name first); returns the compressed size. */
+    private static long compress(Path file) throws IOException {
+        Path target = file.resolveSibling(DataCodec.GZIP.fileName(file.getFileName().toString()));
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream out = DataCodec.GZIP.encoding(Files.newOutputStream(tmp))) {
+            in.transferTo(out);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(file);
+        return Files.size(target);
+    }
+}
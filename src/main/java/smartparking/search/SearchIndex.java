@@ -0,0 +1,491 @@
+package smartparking.search;
+
+import smartparking.cdc.CdcPersistentManager;
+import smartparking.cdc.ChangeEvent;
+import smartparking.cdc.ChangeSubscription;
+import smartparking.model.ParkingLot;
+import smartparking.model.ParkingSlot;
+import smartparking.model.Reservation;
+import smartparking.model.User;
+import smartparking.persistence.PersistentManager;
+import smartparking.replication.ReadReplica;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded inverted index over users (id, name, email, phone), parking lots (id, name, address) and
+ * reservations (id, user id and name, slot id, lot name, status). Each record is a document with a
+ * dense number; every lower-cased word maps to the sorted numbers of the documents containing it,
+ * and the words are kept in a sorted map so a prefix is a range of it. A query intersects, per query
+ * word (longest first), the union of the documents of all words with that prefix — or, when that
+ * union would dwarf the remaining candidates, checks each candidate's own sorted words — then walks the survivors newest
+ * first, applying facet filters (status, slot type, start date) from per-document columns, counting
+ * facets and keeping the top k — documents where a query word matched a whole word rank first.
+ * Reservations carry their user's name, lot name and slot type as of indexing.
+ *
+ * {@link #follow} loads the index from a store and keeps it current from the change-data-capture
+ * stream, so searches never read the data files; results trail a save by the subscriber's lag.
+ * {@link #follow(ReadReplica)} does the same over a read replica, from the changes it applies.
+ */
+public class SearchIndex implements AutoCloseable {
+
+    public enum Kind { USER, LOT, RESERVATION }
+
+    public static final String FACET_STATUS = "status";
+    public static final String FACET_SLOT_TYPE = "slotType";
+    public static final String FACET_DATE = "date";
+
+    /** One matching record; label is a one-line description for lists. */
+    public record Hit(Kind kind, String id, String label) {
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Result of a search: at most limit hits, best first (after skipping offset), the number of all
+     * matches, and per facet (status, slotType, date) the number of matching reservations with each value.
+     */
+    public record Result(List<Hit> hits, int totalHits, Map<String, Map<String, Integer>> facets, long tookMicros) {
+        public Map<String, Integer> facet(String name) {
+            return facets.getOrDefault(name, Map.of());
+        }
+    }
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int NONE = -1;
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final int VERIFY_THRESHOLD = 4096;
+    private static final int MAX_DAY_SPAN = 1 << 16;
+
+    /** Sorted document numbers of one word. */
+    private static final class Postings {
+        int[] docs = new int[2];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] >= doc) {
+                int at = Arrays.binarySearch(docs, 0, size, doc);
+                if (at >= 0) return;
+                insert(-at - 1, doc);
+            } else {
+                insert(size, doc);
+            }
+        }
+
+        private void insert(int at, int doc) {
+            if (size == docs.length) docs = Arrays.copyOf(docs, size * 2);
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at < 0) return;
+            System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+            size--;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) bits.set(docs[i]);
+        }
+    }
+
+    /** Facet values by ordinal; lookup is case-insensitive, the first spelling seen is reported. */
+    private static final class Dictionary {
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> ordinals = new HashMap<>();
+
+        int ordinal(String value) {
+            if (value == null || value.isBlank()) return NONE;
+            return ordinals.computeIfAbsent(normalize(value), k -> {
+                values.add(value.trim());
+                return values.size() - 1;
+            });
+        }
+
+        /** Allowed ordinals for a filter, or null for no filter. */
+        boolean[] allowed(Set<String> filter) {
+            if (filter.isEmpty()) return null;
+            boolean[] allowed = new boolean[values.size()];
+            for (String v : filter) {
+                Integer ordinal = ordinals.get(v);
+                if (ordinal != null) allowed[ordinal] = true;
+            }
+            return allowed;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    private final Map<Kind, Map<String, Integer>> docsById = new EnumMap<>(Kind.class);
+    private final Map<Kind, BitSet> docsByKind = new EnumMap<>(Kind.class);
+    private final Dictionary statuses = new Dictionary();
+    private final Dictionary slotTypes = new Dictionary();
+
+    // per document columns, indexed by document number
+    private int size;
+    private Kind[] kinds = new Kind[1024];
+    private String[] ids = new String[1024];
+    private String[] labels = new String[1024];
+    private String[][] terms = new String[1024][];
+    private int[] statusOf = new int[1024];
+    private int[] slotTypeOf = new int[1024];
+    private int[] dayOf = new int[1024];
+    private int firstDay = NO_DAY;
+    private int lastDay = NO_DAY;
+
+    // denormalized into reservation documents
+    private final Map<String, String> userNames = new HashMap<>();
+    private final Map<String, String> lotNameBySlotId = new HashMap<>();
+    private final Map<String, String> slotTypeBySlotId = new HashMap<>();
+
+    private volatile ChangeSubscription subscription;
+    private volatile ReadReplica.Subscription replicaSubscription;
+
+    public SearchIndex() {
+        for (Kind kind : Kind.values()) {
+            docsById.put(kind, new HashMap<>());
+            docsByKind.put(kind, new BitSet());
+        }
+    }
+
+    /**
+     * Index everything in the store, then follow its change stream: saves of users, lots and
+     * reservations are re-indexed as they are committed. Close the index to stop following.
+     */
+    public static SearchIndex follow(CdcPersistentManager cdc) {
+        SearchIndex index = new SearchIndex();
+        index.subscription = cdc.subscribeAfter(() -> index.load(cdc), event -> index.apply(cdc, event));
+        return index;
+    }
+
+    /**
+     * Index everything the replica serves, then re-index users, lots and reservations as the replica
+     * applies them; after a reconnect the replica's fresh snapshot is loaded again. Close the index
+     * to stop following.
+     */
+    public static SearchIndex follow(ReadReplica replica) {
+        SearchIndex index = new SearchIndex();
+        index.replicaSubscription = replica.subscribe(() -> index.load(replica), index::apply);
+        return index;
+    }
+
+    /** Index every user, lot and reservation of the store (lots and users first, for the reservation joins). */
+    public void load(PersistentManager persistence) {
+        for (ParkingLot lot : persistence.findAllParkingLots()) indexLot(lot);
+        for (User user : persistence.findAllUsers()) indexUser(user);
+        for (Reservation r : persistence.findAllReservations()) indexReservation(r);
+    }
+
+    private void apply(CdcPersistentManager cdc, ChangeEvent event) {
+        switch (event.getEntityType()) {
+            case ChangeEvent.USER -> indexUser(cdc.decode(event, User.class));
+            case ChangeEvent.PARKING_LOT -> indexLot(cdc.decode(event, ParkingLot.class));
+            case ChangeEvent.RESERVATION -> indexReservation(cdc.decode(event, Reservation.class));
+            default -> { }
+        }
+    }
+
+    private void apply(Object entity) {
+        if (entity instanceof User user) indexUser(user);
+        else if (entity instanceof ParkingLot lot) indexLot(lot);
+        else if (entity instanceof Reservation r) indexReservation(r);
+    }
+
+    public void indexUser(User user) {
+        String label = user.getUserId() + " - " + user.getName() + (user.getEmail() != null ? " (" + user.getEmail() + ")" : "");
+        String phone = user.getPhoneNumber();
+        Set<String> words = words(user.getUserId(), user.getName(), user.getEmail(), phone,
+                phone != null ? phone.replaceAll("\\D", "") : null);
+        lock.writeLock().lock();
+        try {
+            if (user.getName() != null) userNames.put(user.getUserId(), user.getName());
+            put(Kind.USER, user.getUserId(), label, words, NONE, NONE, NO_DAY);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexLot(ParkingLot lot) {
+        String label = lot.getLotId() + " - " + lot.getName() + (lot.getAddress() != null ? ", " + lot.getAddress() : "");
+        Set<String> words = words(lot.getLotId(), lot.getName(), lot.getAddress());
+        lock.writeLock().lock();
+        try {
+            for (ParkingSlot slot : lot.getSlots()) {
+                if (lot.getName() != null) lotNameBySlotId.put(slot.getSlotId(), lot.getName());
+                if (slot.getSlotType() != null) slotTypeBySlotId.put(slot.getSlotId(), slot.getSlotType());
+            }
+            put(Kind.LOT, lot.getLotId(), label, words, NONE, NONE, NO_DAY);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexReservation(Reservation r) {
+        lock.writeLock().lock();
+        try {
+            String userName = userNames.get(r.getUserId());
+            String slotType = slotTypeBySlotId.get(r.getSlotId());
+            String label = r.getReservationId() + " | " + r.getSlotId() + (slotType != null ? " (" + slotType + ")" : "")
+                    + " | " + r.getReservationStatus()
+                    + " | " + (r.getStartTime() != null ? r.getStartTime().truncatedTo(ChronoUnit.MINUTES) : "-")
+                    + " | " + (userName != null ? userName : r.getUserId());
+            Set<String> words = words(r.getReservationId(), r.getUserId(), userName, r.getSlotId(),
+                    lotNameBySlotId.get(r.getSlotId()), r.getReservationStatus());
+            int day = r.getStartTime() != null ? (int) r.getStartTime().toLocalDate().toEpochDay() : NO_DAY;
+            put(Kind.RESERVATION, r.getReservationId(), label, words,
+                    statuses.ordinal(r.getReservationStatus()), slotTypes.ordinal(slotType), day);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Insert or replace a document; postings change only for words added or dropped. Caller holds the write lock. */
+    private void put(Kind kind, String id, String label, Set<String> words, int status, int slotType, int day) {
+        if (id == null) return;
+        String[] newTerms = new String[words.size()];
+        int n = 0;
+        for (String word : words) {
+            String known = postings.ceilingKey(word);
+            newTerms[n++] = word.equals(known) ? known : word;   // share one String per distinct word
+        }
+        Arrays.sort(newTerms);
+        Integer existing = docsById.get(kind).get(id);
+        int doc;
+        if (existing == null) {
+            doc = size++;
+            ensureCapacity(size);
+            kinds[doc] = kind;
+            ids[doc] = id;
+            docsById.get(kind).put(id, doc);
+            docsByKind.get(kind).set(doc);
+            for (String term : newTerms) postings.computeIfAbsent(term, t -> new Postings()).add(doc);
+        } else {
+            doc = existing;
+            String[] oldTerms = terms[doc];
+            for (String term : oldTerms) {
+                if (Arrays.binarySearch(newTerms, term) >= 0) continue;
+                Postings p = postings.get(term);
+                p.remove(doc);
+                if (p.size == 0) postings.remove(term);
+            }
+            for (String term : newTerms) {
+                if (Arrays.binarySearch(oldTerms, term) < 0) postings.computeIfAbsent(term, t -> new Postings()).add(doc);
+            }
+        }
+        terms[doc] = newTerms;
+        labels[doc] = label;
+        statusOf[doc] = status;
+        slotTypeOf[doc] = slotType;
+        dayOf[doc] = day;
+        if (day != NO_DAY) {
+            firstDay = firstDay == NO_DAY ? day : Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= kinds.length) return;
+        int capacity = Math.max(n, kinds.length * 2);
+        kinds = Arrays.copyOf(kinds, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+        terms = Arrays.copyOf(terms, capacity);
+        statusOf = Arrays.copyOf(statusOf, capacity);
+        slotTypeOf = Arrays.copyOf(slotTypeOf, capacity);
+        dayOf = Arrays.copyOf(dayOf, capacity);
+    }
+
+    public Result search(SearchQuery query) {
+        long start = System.nanoTime();
+        List<String> tokens = new ArrayList<>(words(query.getText()));
+        lock.readLock().lock();
+        try {
+            BitSet candidates;
+            if (query.getKind() != null) {
+                candidates = (BitSet) docsByKind.get(query.getKind()).clone();
+            } else {
+                candidates = new BitSet(size);
+                candidates.set(0, size);
+            }
+            if (query.hasFacetFilter()) candidates.and(docsByKind.get(Kind.RESERVATION));
+            // longest (most selective) prefix first; once the candidates are few, or far fewer than the
+            // documents under the prefix, check their own words instead of unioning those postings
+            tokens.sort(Comparator.comparingInt(String::length).reversed());
+            for (String token : tokens) {
+                if (candidates.isEmpty()) break;
+                Map<String, Postings> range = postings.subMap(token, true, token + Character.MAX_VALUE, false);
+                int remaining = candidates.cardinality();
+                if (remaining <= VERIFY_THRESHOLD || exceeds(range, 4L * remaining)) {
+                    for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+                        if (match(terms[doc], token) == 0) candidates.clear(doc);
+                    }
+                } else {
+                    BitSet matches = new BitSet(size);
+                    for (Postings p : range.values()) {
+                        p.addTo(matches);
+                    }
+                    candidates.and(matches);
+                }
+            }
+
+            boolean[] allowedStatus = statuses.allowed(query.getStatuses());
+            boolean[] allowedType = slotTypes.allowed(query.getSlotTypes());
+            int fromDay = query.getFrom() != null ? (int) query.getFrom().toEpochDay() : Integer.MIN_VALUE;
+            int toDay = query.getTo() != null ? (int) query.getTo().toEpochDay() : Integer.MAX_VALUE;
+            boolean dateFilter = query.getFrom() != null || query.getTo() != null;
+
+            int offset = query.getOffset();
+            int limit = query.getLimit();
+            int keep = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+            List<List<Integer>> tiers = new ArrayList<>();
+            for (int i = 0; i <= tokens.size(); i++) tiers.add(new ArrayList<>());
+            int[] statusCounts = new int[statuses.values.size()];
+            int[] typeCounts = new int[slotTypes.values.size()];
+            int[] dayCounts = new int[firstDay == NO_DAY ? 0 : Math.min(lastDay - firstDay + 1, MAX_DAY_SPAN)];
+            Map<Integer, Integer> outlierDayCounts = new HashMap<>();
+            List<Integer> best = tiers.get(tokens.size());
+            int total = 0;
+            long[] bits = candidates.toLongArray();
+            for (int w = bits.length - 1; w >= 0; w--) {
+                for (long word = bits[w]; word != 0; ) {
+                    int bit = 63 - Long.numberOfLeadingZeros(word);
+                    word &= ~(1L << bit);
+                    int doc = (w << 6) + bit;
+                    if (allowedStatus != null && !allowed(allowedStatus, statusOf[doc])) continue;
+                    if (allowedType != null && !allowed(allowedType, slotTypeOf[doc])) continue;
+                    int day = dayOf[doc];
+                    if (dateFilter && (day == NO_DAY || day < fromDay || day > toDay)) continue;
+                    total++;
+                    if (kinds[doc] == Kind.RESERVATION) {
+                        if (statusOf[doc] != NONE) statusCounts[statusOf[doc]]++;
+                        if (slotTypeOf[doc] != NONE) typeCounts[slotTypeOf[doc]]++;
+                        if (day != NO_DAY) {
+                            if (day - firstDay < dayCounts.length) dayCounts[day - firstDay]++;
+                            else outlierDayCounts.merge(day, 1, Integer::sum);
+                        }
+                    }
+                    if (best.size() == keep) continue;   // top k settled; only counting from here on
+                    int score = 0;
+                    for (String token : tokens) {
+                        if (match(terms[doc], token) == 2) score++;
+                    }
+                    List<Integer> tier = tiers.get(score);
+                    if (tier.size() < keep) tier.add(doc);
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>();
+            int skip = offset;
+            for (int score = tokens.size(); score >= 0 && hits.size() < limit; score--) {
+                for (int doc : tiers.get(score)) {
+                    if (hits.size() == limit) break;
+                    if (skip > 0) {
+                        skip--;
+                        continue;
+                    }
+                    hits.add(new Hit(kinds[doc], ids[doc], labels[doc]));
+                }
+            }
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            putFacet(facets, FACET_STATUS, statuses, statusCounts);
+            putFacet(facets, FACET_SLOT_TYPE, slotTypes, typeCounts);
+            Map<Integer, Integer> byDay = new TreeMap<>(outlierDayCounts);
+            for (int i = 0; i < dayCounts.length; i++) {
+                if (dayCounts[i] > 0) byDay.put(firstDay + i, dayCounts[i]);
+            }
+            if (!byDay.isEmpty()) {
+                Map<String, Integer> byDate = new LinkedHashMap<>();
+                byDay.forEach((day, n) -> byDate.put(LocalDate.ofEpochDay(day).toString(), n));
+                facets.put(FACET_DATE, byDate);
+            }
+            return new Result(hits, total, facets, (System.nanoTime() - start) / 1000);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean exceeds(Map<String, Postings> range, long limit) {
+        long total = 0;
+        for (Postings p : range.values()) {
+            total += p.size;
+            if (total > limit) return true;
+        }
+        return false;
+    }
+
+    /** 2 if the sorted words contain token, 1 if one of them starts with it, else 0. */
+    private static int match(String[] words, String token) {
+        int at = Arrays.binarySearch(words, token);
+        if (at >= 0) return 2;
+        at = -at - 1;
+        return at < words.length && words[at].startsWith(token) ? 1 : 0;
+    }
+
+    private static boolean allowed(boolean[] allowed, int ordinal) {
+        return ordinal != NONE && ordinal < allowed.length && allowed[ordinal];
+    }
+
+    private static void putFacet(Map<String, Map<String, Integer>> facets, String name, Dictionary dictionary, int[] counts) {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) values.put(dictionary.values.get(i), counts[i]);
+        }
+        if (!values.isEmpty()) facets.put(name, values);
+    }
+
+    /** Number of indexed documents. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Distinct lower-cased words (letters and digits) of the given fields, in order. */
+    static Set<String> words(String... fields) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String field : fields) {
+            if (field == null) continue;
+            for (String word : NON_WORD.split(normalize(field))) {
+                if (!word.isEmpty()) words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /** Stop following the change stream or replica (the index keeps answering from what it has). */
+    @Override
+    public void close() {
+        ChangeSubscription s = subscription;
+        if (s != null) s.close();
+        ReadReplica.Subscription r = replicaSubscription;
+        if (r != null) r.close();
+    }
+}
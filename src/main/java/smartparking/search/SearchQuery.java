@@ -0,0 +1,105 @@
+package smartparking.search;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A search against a SearchIndex: free text (every word must be the prefix of some word of the record),
+ * an optional kind, and facet filters on reservation status, slot type and start date. Built fluently, e.g.
+ * {@code SearchQuery.reservations("ali 9166").status("Pending", "Confirmed").limit(20)}.
+ */
+public class SearchQuery {
+
+    private final SearchIndex.Kind kind;
+    private final String text;
+    private final Set<String> statuses = new LinkedHashSet<>();
+    private final Set<String> slotTypes = new LinkedHashSet<>();
+    private LocalDate from;
+    private LocalDate to;
+    private int offset;
+    private int limit = 20;
+
+    private SearchQuery(SearchIndex.Kind kind, String text) {
+        this.kind = kind;
+        this.text = text == null ? "" : text;
+    }
+
+    /** Search every kind of record. */
+    public static SearchQuery of(String text) {
+        return new SearchQuery(null, text);
+    }
+
+    public static SearchQuery users(String text) {
+        return new SearchQuery(SearchIndex.Kind.USER, text);
+    }
+
+    public static SearchQuery lots(String text) {
+        return new SearchQuery(SearchIndex.Kind.LOT, text);
+    }
+
+    public static SearchQuery reservations(String text) {
+        return new SearchQuery(SearchIndex.Kind.RESERVATION, text);
+    }
+
+    /** Keep reservations with any of these statuses (case-insensitive). */
+    public SearchQuery status(String... values) {
+        for (String v : values) statuses.add(SearchIndex.normalize(v));
+        return this;
+    }
+
+    /** Keep reservations whose slot has any of these types (case-insensitive). */
+    public SearchQuery slotType(String... values) {
+        for (String v : values) slotTypes.add(SearchIndex.normalize(v));
+        return this;
+    }
+
+    /** Keep reservations starting on one of the days in [from, to]; either bound may be null. */
+    public SearchQuery between(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public SearchQuery on(LocalDate day) {
+        return between(day, day);
+    }
+
+    /** Maximum number of hits returned (all matches are still counted). */
+    public SearchQuery limit(int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be at least 1");
+        this.limit = limit;
+        return this;
+    }
+
+    public SearchIndex.Kind getKind() { return kind; }
+    public String getText() { return text; }
+    public Set<String> getStatuses() { return statuses; }
+    public Set<String> getSlotTypes() { return slotTypes; }
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+    public int getOffset() { return offset; }
+    public int getLimit() { return limit; }
+
+    /** Skip the best offset hits (paging: offset = page * limit). */
+    public SearchQuery offset(int offset) {
+        if (offset < 0) throw new IllegalArgumentException("offset must not be negative");
+        this.offset = offset;
+        return this;
+    }
+
+    /** Whether the query restricts by status, slot type or date (only reservations carry those). */
+    boolean hasFacetFilter() {
+        return !statuses.isEmpty() || !slotTypes.isEmpty() || from != null || to != null;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchQuery{" + (kind != null ? kind + " " : "") + "'" + text + "'"
+                + (statuses.isEmpty() ? "" : " status=" + statuses)
+                + (slotTypes.isEmpty() ? "" : " slotType=" + slotTypes)
+                + (from != null || to != null ? " date=" + Arrays.asList(from, to) : "")
+                + (offset > 0 ? " offset=" + offset : "") + " limit=" + limit + "}";
+    }
+}
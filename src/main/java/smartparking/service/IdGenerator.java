@@ -0,0 +1,11 @@
+package smartparking.service;
+
+/**
+ * Generates unique ids for persisted entities (reservations, payments).
+ * Implementations must be safe for concurrent use.
+ */
+public interface IdGenerator {
+
+    /** Next id with the given prefix, e.g. "RES" gives "RES-...". */
+    String nextId(String prefix);
+}
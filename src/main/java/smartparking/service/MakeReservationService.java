@@ -1,7 +1,10 @@
 package smartparking.service;
 
 import smartparking.model.*;
+import smartparking.persistence.AvailabilityCache;
+import smartparking.persistence.LotLocks;
 import smartparking.persistence.PersistentManager;
+import smartparking.pricing.DynamicPricingEngine;
 import smartparking.strategy.PaymentContext;
 import smartparking.strategy.PaymentStrategy;
 import smartparking.strategy.PaymentStrategyRegistry;
@@ -10,7 +13,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Use Case 1: Reserve Parking Slot.
@@ -21,10 +24,42 @@ public class MakeReservationService {
 
     private final PersistentManager persistence;
     private final PaymentStrategyRegistry paymentRegistry;
+    private final IdGenerator idGenerator;
+    private final AvailabilityCache availabilityCache;
+    private final DynamicPricingEngine pricingEngine;
+    /** Payment contexts are stateless once bound to a strategy, so one is reused per strategy. */
+    private final ConcurrentHashMap<PaymentStrategy, PaymentContext> paymentContexts = new ConcurrentHashMap<>();
 
     public MakeReservationService(PersistentManager persistence, PaymentStrategyRegistry paymentRegistry) {
+        this(persistence, paymentRegistry, new SnowflakeIdGenerator());
+    }
+
+    public MakeReservationService(PersistentManager persistence, PaymentStrategyRegistry paymentRegistry,
+                                  IdGenerator idGenerator) {
+        this(persistence, paymentRegistry, idGenerator, null);
+    }
+
+    /**
+     * @param availabilityCache if not null, availability queries are answered from it; it should wrap
+     *                          (or be) persistence so that every saveParkingLot invalidates it
+     */
+    public MakeReservationService(PersistentManager persistence, PaymentStrategyRegistry paymentRegistry,
+                                  IdGenerator idGenerator, AvailabilityCache availabilityCache) {
+        this(persistence, paymentRegistry, idGenerator, availabilityCache, null);
+    }
+
+    /**
+     * @param pricingEngine if not null, reservations are charged at its current quote for the slot
+     *                      instead of the slot's list price
+     */
+    public MakeReservationService(PersistentManager persistence, PaymentStrategyRegistry paymentRegistry,
+                                  IdGenerator idGenerator, AvailabilityCache availabilityCache,
+                                  DynamicPricingEngine pricingEngine) {
         this.persistence = persistence;
         this.paymentRegistry = paymentRegistry;
+        this.idGenerator = idGenerator;
+        this.availabilityCache = availabilityCache;
+        this.pricingEngine = pricingEngine;
     }
 
     /**
@@ -47,28 +82,21 @@ public class MakeReservationService {
         }
         User user = userOpt.get();
 
-        // 2. Find slot (search in all lots)
-        ParkingSlot slot = null;
-        ParkingLot owningLot = null;
-        for (ParkingLot lot : persistence.findAllParkingLots()) {
-            slot = lot.getSlotById(slotId);
-            if (slot != null) {
-                owningLot = lot;
-                break;
-            }
-        }
-        if (slot == null || owningLot == null) {
+        // 2. Find slot (owning lot looked up by slot id)
+        ParkingLot owningLot = persistence.findParkingLotBySlotId(slotId).orElse(null);
+        ParkingSlot slot = owningLot != null ? owningLot.getSlotById(slotId) : null;
+        if (slot == null) {
             return MakeReservationResult.failure("Slot not found: " + slotId);
         }
 
-        // 3. Check availability
+        // 3. Check availability (early answer; re-checked under the lot lock in step 7)
         if (!slot.checkAvailability()) {
             return MakeReservationResult.failure("Slot is not available: " + slotId);
         }
 
         // 4. Create reservation
         Reservation reservation = new Reservation();
-        reservation.setReservationId("RES-" + UUID.randomUUID().toString().substring(0, 8));
+        reservation.setReservationId(idGenerator.nextId("RES"));
         reservation.setUserId(userId);
         reservation.setSlotId(slotId);
         reservation.setStartTime(startTime);
@@ -78,12 +106,12 @@ public class MakeReservationService {
         }
 
         // 5. Calculate cost
-        reservation.calculateCost(slot);
+        reservation.calculateCost(slot, pricingEngine != null ? pricingEngine.quote(slot) : slot.getPricePerHour());
         BigDecimal totalCost = reservation.getTotalCost();
 
-        // 6. Create and process payment (Strategy pattern: select strategy by payment method)
+        // 6. Create payment (Strategy pattern: select strategy by payment method)
         Payment payment = new Payment();
-        payment.setPaymentId("PAY-" + UUID.randomUUID().toString().substring(0, 8));
+        payment.setPaymentId(idGenerator.nextId("PAY"));
         payment.setReservationId(reservation.getReservationId());
         payment.setAmount(totalCost);
         String methodName = paymentMethod != null && !paymentMethod.isBlank() ? paymentMethod : "Credit Card";
@@ -93,30 +121,73 @@ public class MakeReservationService {
         if (strategyOpt.isEmpty()) {
             return MakeReservationResult.failure("Payment method not supported: " + methodName);
         }
-        PaymentContext paymentContext = new PaymentContext();
-        paymentContext.setStrategy(strategyOpt.get());
-        if (!paymentContext.executePayment(totalCost)) {
+
+        // 7. Hold the slot: read, check, reserve and save the lot as one step per lot, so concurrent
+        //    bookings of the lot cannot both take the slot or overwrite each other's lot save
+        String lotId = owningLot.getLotId();
+        if (!setSlotReserved(lotId, slotId, true)) {
+            return MakeReservationResult.failure("Slot is not available: " + slotId);
+        }
+
+        // 8. Process payment outside the lot lock; a failed payment gives the slot back
+        PaymentContext paymentContext = paymentContexts.computeIfAbsent(strategyOpt.get(), PaymentContext::new);
+        boolean paid = false;
+        try {
+            paid = paymentContext.executePayment(totalCost);
+        } finally {
+            if (!paid) setSlotReserved(lotId, slotId, false);
+        }
+        if (!paid) {
             payment.setPaymentStatus(Payment.STATUS_FAILED);
             return MakeReservationResult.failure("Payment failed");
         }
         payment.setPaymentStatus(Payment.STATUS_SUCCESS);
-        payment.setPaymentTime(java.time.LocalDateTime.now());
+        payment.setPaymentTime(LocalDateTime.now());
 
-        // 7. Reserve slot and confirm reservation
-        slot.reserve();
+        // 9. Confirm reservation and persist via PersistentManager
         reservation.setReservationStatus(Reservation.STATUS_CONFIRMED);
         reservation.setPayment(payment);
-
-        // 8. Persist via PersistentManager
         persistence.saveReservation(reservation);
         persistence.savePayment(payment);
-        persistence.saveParkingLot(owningLot);
 
         return MakeReservationResult.success(reservation, payment);
     }
 
+    /**
+     * Reserve (or release) the slot on the lot's current state under the lot's lock and save the
+     * lot. Returns false if the slot is gone or, when reserving, already taken.
+     */
+    private boolean setSlotReserved(String lotId, String slotId, boolean reserved) {
+        synchronized (LotLocks.forLot(lotId)) {
+            ParkingLot lot = persistence.findParkingLotById(lotId).orElse(null);
+            ParkingSlot slot = lot != null ? lot.getSlotById(slotId) : null;
+            if (slot == null) return false;
+            if (reserved) {
+                if (!slot.checkAvailability()) return false;
+                slot.reserve();
+            } else {
+                slot.release();
+            }
+            persistence.saveParkingLot(lot);
+            return true;
+        }
+    }
+
+    /** Current hourly rate for the slot (dynamic quote, or list price); null if the slot is unknown. */
+    public BigDecimal quoteHourlyRate(String slotId) {
+        if (pricingEngine != null) {
+            BigDecimal rate = pricingEngine.getSnapshot().rateFor(slotId);
+            if (rate != null) return rate;
+        }
+        return persistence.findParkingLotBySlotId(slotId)
+                .map(lot -> lot.getSlotById(slotId))
+                .map(ParkingSlot::getPricePerHour)
+                .orElse(null);
+    }
+
     /** List available slots across all lots (for reporting / UI). */
     public List<ParkingSlot> getAvailableSlots() {
+        if (availabilityCache != null) return availabilityCache.getAvailableSlots();
         return persistence.findAllParkingLots().stream()
                 .flatMap(lot -> lot.getAvailableSlots().stream())
                 .toList();
@@ -124,6 +195,7 @@ public class MakeReservationService {
 
     /** List available slots by type. */
     public List<ParkingSlot> getAvailableSlotsByType(String type) {
+        if (availabilityCache != null) return availabilityCache.getAvailableSlotsByType(type);
         return persistence.findAllParkingLots().stream()
                 .flatMap(lot -> lot.findSlotByType(type).stream())
                 .filter(ParkingSlot::isAvailable)
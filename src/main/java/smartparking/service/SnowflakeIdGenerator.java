@@ -0,0 +1,73 @@
+package smartparking.service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style IdGenerator: 41 bits of milliseconds since 2024-01-01, 10 bits of node id and a
+ * 12-bit per-millisecond sequence, rendered as 13 Crockford base32 characters. Ids are unique per
+ * node, sortable by creation time and strictly increasing on a node. Generation is a CAS loop on a
+ * single AtomicLong (no locks); when a millisecond's sequence is exhausted, or the clock moves
+ * backwards, the generator continues on the next logical millisecond instead of waiting.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final String NODE_ID_PROPERTY = "smartparking.nodeId";
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeId;
+    /** Last issued (millis since EPOCH << SEQUENCE_BITS | sequence). */
+    private final AtomicLong state = new AtomicLong();
+
+    /** Node id from system property smartparking.nodeId (default 0). */
+    public SnowflakeIdGenerator() {
+        this(Integer.getInteger(NODE_ID_PROPERTY, 0));
+    }
+
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE) {
+            throw new IllegalArgumentException("nodeId must be between 0 and " + MAX_NODE);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+
+    /** Next raw 63-bit id. */
+    public long nextLong() {
+        while (true) {
+            long last = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            long next = now > last ? now : last + 1;   // same or earlier millisecond: bump sequence/borrow ahead
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    @Override
+    public String nextId(String prefix) {
+        long id = nextLong();
+        int prefixLength = prefix != null ? prefix.length() + 1 : 0;
+        char[] chars = new char[prefixLength + 13];
+        if (prefix != null) {
+            prefix.getChars(0, prefix.length(), chars, 0);
+            chars[prefix.length()] = '-';
+        }
+        for (int i = chars.length - 1; i >= prefixLength; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,62 @@
+package smartparking.strategy;
+
+import java.math.BigDecimal;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator that caps how many payments one strategy may have in flight. When one payment method
+ * backs up (its provider is slow), only its own permits are used up; other methods keep working.
+ * A payment that cannot get a permit within the wait time fails instead of queueing.
+ */
+public class BulkheadPaymentStrategy implements PaymentStrategy {
+
+    private final PaymentStrategy delegate;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final LongAdder rejected = new LongAdder();
+
+    public BulkheadPaymentStrategy(PaymentStrategy delegate, int maxConcurrent, long maxWaitMillis) {
+        if (maxConcurrent < 1) throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return delegate.getDisplayName();
+    }
+
+    @Override
+    public boolean processPayment(BigDecimal amount) {
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try {
+            return delegate.processPayment(amount);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Payments refused because the bulkhead was full. */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public PaymentStrategy getDelegate() {
+        return delegate;
+    }
+}
@@ -3,17 +3,16 @@ package smartparking.strategy;
 import smartparking.model.PaymentGateway;
 
 import java.math.BigDecimal;
-import java.util.Optional;
 
 /**
  * Concrete strategy: Credit Card payment. Delegates to PaymentGateway.
  */
 public class CreditCardPaymentStrategy implements PaymentStrategy {
 
-    private final Optional<PaymentGateway> gateway;
+    private final PaymentGateway gateway;
 
     public CreditCardPaymentStrategy(PaymentGateway gateway) {
-        this.gateway = Optional.ofNullable(gateway);
+        this.gateway = gateway;
     }
 
     @Override
@@ -23,6 +22,6 @@ public class CreditCardPaymentStrategy implements PaymentStrategy {
 
     @Override
     public boolean processPayment(BigDecimal amount) {
-        return gateway.map(g -> g.processTransaction(amount.doubleValue())).orElse(false);
+        return gateway != null && gateway.processTransaction(amount.doubleValue());
     }
 }
@@ -1,5 +1,7 @@
 package smartparking.strategy;
 
+import smartparking.gateway.GatewayPool;
+import smartparking.gateway.RoutingPaymentGateway;
 import smartparking.model.PaymentGateway;
 
 import java.util.HashMap;
@@ -13,25 +15,48 @@ import java.util.Optional;
 public class DefaultPaymentStrategyRegistry implements PaymentStrategyRegistry {
 
     private final Map<String, PaymentStrategy> strategies = new HashMap<>();
+    /** Same strategies wrapped once, so lookups on the booking path do not allocate an Optional. */
+    private final Map<String, Optional<PaymentStrategy>> lookups = new HashMap<>();
+    private Optional<PaymentStrategy> fallback = Optional.empty();
 
     public DefaultPaymentStrategyRegistry(PaymentGateway gateway) {
         register(new CreditCardPaymentStrategy(gateway));
         register(new PayPalPaymentStrategy(gateway));
     }
 
+    /** Strategies whose payments are routed to the best gateway of the pool (see GatewayPool). */
+    public DefaultPaymentStrategyRegistry(GatewayPool pool) {
+        this(new RoutingPaymentGateway(pool));
+    }
+
+    /**
+     * Same strategies, each behind its own bulkhead of maxConcurrentPerStrategy payments, so a
+     * backed-up payment method cannot take every booking thread with it.
+     */
+    public DefaultPaymentStrategyRegistry(PaymentGateway gateway, int maxConcurrentPerStrategy, long maxWaitMillis) {
+        register(new BulkheadPaymentStrategy(new CreditCardPaymentStrategy(gateway), maxConcurrentPerStrategy, maxWaitMillis));
+        register(new BulkheadPaymentStrategy(new PayPalPaymentStrategy(gateway), maxConcurrentPerStrategy, maxWaitMillis));
+    }
+
     public void register(PaymentStrategy strategy) {
         if (strategy != null) {
-            strategies.put(strategy.getDisplayName().toLowerCase(), strategy);
+            String key = strategy.getDisplayName().toLowerCase();
+            strategies.put(key, strategy);
+            Optional<PaymentStrategy> lookup = Optional.of(strategy);
+            lookups.put(key, lookup);
+            lookups.put(strategy.getDisplayName(), lookup);
+            fallback = lookups.get(strategies.keySet().iterator().next());
         }
     }
 
     @Override
     public Optional<PaymentStrategy> getStrategy(String displayName) {
         if (displayName == null || displayName.isBlank()) return Optional.empty();
-        PaymentStrategy s = strategies.get(displayName.trim().toLowerCase());
-        if (s != null) return Optional.of(s);
+        Optional<PaymentStrategy> s = lookups.get(displayName);
+        if (s == null) s = lookups.get(displayName.trim().toLowerCase());
+        if (s != null) return s;
         // Fallback: first strategy (e.g. Credit Card)
-        return strategies.values().stream().findFirst();
+        return fallback;
     }
 
     @Override
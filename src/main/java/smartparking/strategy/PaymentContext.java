@@ -10,6 +10,14 @@ public class PaymentContext {
 
     private PaymentStrategy strategy;
 
+    public PaymentContext() {
+    }
+
+    /** Context bound to one strategy. Safe to share between threads as long as setStrategy is not called. */
+    public PaymentContext(PaymentStrategy strategy) {
+        this.strategy = strategy;
+    }
+
     public void setStrategy(PaymentStrategy strategy) {
         this.strategy = strategy;
     }
@@ -1,6 +1,7 @@
 package smartparking.ui;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +25,45 @@ public interface ConsoleInput {
     /** Display numbered options and return 1-based selection (or 0 for cancel). */
     int selectOption(String title, List<String> options, boolean allowCancel);
 
+    /**
+     * Paged selection: show one page of the source at a time; typed text filters (the source is
+     * queried again), other input pages or selects. Returns the selected value, or null if cancelled.
+     * The default shows each page through selectOption, with extra options to page and to filter.
+     */
+    default <T> T selectPaged(String title, OptionSource<T> source, boolean allowCancel) {
+        int pageSize = 10;
+        String filter = "";
+        int offset = 0;
+        while (true) {
+            OptionSource.Page<T> page = source.page(filter, offset, pageSize);
+            if (page.values().isEmpty() && offset > 0) {   // fewer matches than before: back to the first page
+                offset = 0;
+                continue;
+            }
+            int rows = page.values().size();
+            List<String> options = new ArrayList<>(page.labels());
+            int next = offset + rows < page.total() ? options.size() + 1 : -1;
+            if (next > 0) options.add("Next page");
+            int previous = offset > 0 ? options.size() + 1 : -1;
+            if (previous > 0) options.add("Previous page");
+            options.add(filter.isBlank() ? "Filter..." : "Filter... (now \"" + filter + "\")");
+            String heading = rows == 0 ? title + " (no matches)"
+                    : String.format("%s (%d-%d of %d)", title, offset + 1, offset + rows, page.total());
+
+            int choice = selectOption(heading, options, allowCancel);
+            if (choice == 0) return null;
+            if (choice <= rows) return page.values().get(choice - 1);
+            if (choice == next) {
+                offset += rows;
+            } else if (choice == previous) {
+                offset = Math.max(0, offset - pageSize);
+            } else {
+                filter = readLine("Filter (blank for all): ", true);
+                offset = 0;
+            }
+        }
+    }
+
     /** Read date-time (e.g. "now", "now+2h" or full format). Simplified for demo. */
     LocalDateTime readDateTime(String prompt, LocalDateTime defaultValue);
 }
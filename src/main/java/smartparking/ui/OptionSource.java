@@ -0,0 +1,50 @@
+package smartparking.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Lazily queried options for ConsoleInput.selectPaged: the input asks for one page at a time, with
+ * the filter the user has typed, so only the rows on screen are fetched and formatted. Back it with
+ * an index query (e.g. SearchIndex with offset/limit) or, for lists already in memory, use of().
+ */
+@FunctionalInterface
+public interface OptionSource<T> {
+
+    /** Options matching filter (blank: all), skipping offset of them; at most limit, plus the total count. */
+    Page<T> page(String filter, int offset, int limit);
+
+    /** One page of options: the values, their display labels (same order) and the number of matches. */
+    record Page<T>(List<T> values, List<String> labels, int total) {
+        public static <T> Page<T> of(List<T> values, Function<T, String> label, int total) {
+            List<String> labels = new ArrayList<>(values.size());
+            for (T value : values) labels.add(label.apply(value));
+            return new Page<>(values, labels, total);
+        }
+    }
+
+    /**
+     * Options over an in-memory list. The filter is a case-insensitive substring of searchText;
+     * label is applied only to the rows of the page returned.
+     */
+    static <T> OptionSource<T> of(List<T> items, Function<T, String> searchText, Function<T, String> label) {
+        return (filter, offset, limit) -> {
+            if (filter == null || filter.isBlank()) {
+                List<T> rows = items.subList(Math.min(offset, items.size()), Math.min(offset + limit, items.size()));
+                return Page.of(rows, label, items.size());
+            }
+            String needle = filter.trim().toLowerCase(Locale.ROOT);
+            List<T> rows = new ArrayList<>(limit);
+            int total = 0;
+            for (T item : items) {
+                String text = searchText.apply(item);
+                if (text == null || !text.toLowerCase(Locale.ROOT).contains(needle)) continue;
+                if (total >= offset && rows.size() < limit) rows.add(item);
+                total++;
+            }
+            return Page.of(rows, label, total);
+        };
+    }
+}
@@ -1,15 +1,33 @@
 package smartparking.ui;
 
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.Scanner;
 
 /**
- * Console input implementation using System.in and Scanner.
+ * Console input implementation using System.in and Scanner. Option lists longer than one page are
+ * shown a page at a time with a typed filter (see selectPaged), so a prompt over 100k users or 10k
+ * slots prints and formats only the rows on screen.
  */
 public class SystemConsoleInput implements ConsoleInput {
 
+    private static final int DEFAULT_PAGE_SIZE = 10;
+
     private final Scanner scanner = new Scanner(System.in);
+    private final int pageSize;
+
+    public SystemConsoleInput() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize rows per screen in paged selection; selectOption pages lists longer than this
+     */
+    public SystemConsoleInput(int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("pageSize must be at least 1");
+        this.pageSize = pageSize;
+    }
 
     @Override
     public void print(String message) {
@@ -46,6 +64,21 @@ public class SystemConsoleInput implements ConsoleInput {
 
     @Override
     public int selectOption(String title, List<String> options, boolean allowCancel) {
+        if (options.size() > pageSize) {
+            List<Integer> indexes = new AbstractList<>() {
+                @Override
+                public Integer get(int index) {
+                    return index;
+                }
+
+                @Override
+                public int size() {
+                    return options.size();
+                }
+            };
+            Integer choice = selectPaged(title, OptionSource.of(indexes, options::get, options::get), allowCancel);
+            return choice == null ? 0 : choice + 1;
+        }
         println(title);
         for (int i = 0; i < options.size(); i++) {
             println("  " + (i + 1) + ". " + options.get(i));
@@ -58,6 +91,64 @@ public class SystemConsoleInput implements ConsoleInput {
         return readIntInRange("Enter choice: ", min, max);
     }
 
+    /**
+     * Input per screen: a number selects that match, on this page or not (rows are numbered across
+     * pages; 0 cancels); Enter shows the next page, "-" the previous one; "*" clears the filter; any
+     * other text, or a number beyond the matches, becomes the filter ("/text" forces a filter, e.g.
+     * "/12" for ids starting with 12).
+     */
+    @Override
+    public <T> T selectPaged(String title, OptionSource<T> source, boolean allowCancel) {
+        String filter = "";
+        int offset = 0;
+        while (true) {
+            OptionSource.Page<T> page = source.page(filter, offset, pageSize);
+            if (page.values().isEmpty() && offset > 0) {   // fewer matches than before: back to the last page
+                offset = Math.max(0, (page.total() - 1) / pageSize * pageSize);
+                continue;
+            }
+            int pages = Math.max(1, (page.total() + pageSize - 1) / pageSize);
+            println(title + (filter.isEmpty() ? "" : " [filter: " + filter + "]")
+                    + " (" + page.total() + " match" + (page.total() == 1 ? "" : "es")
+                    + (pages > 1 ? ", page " + (offset / pageSize + 1) + " of " + pages : "") + ")");
+            for (int i = 0; i < page.labels().size(); i++) {
+                println("  " + (offset + i + 1) + ". " + page.labels().get(i));
+            }
+            if (allowCancel) {
+                println("  0. Cancel");
+            }
+            println("  (number = select, text = filter, Enter = next page, - = previous, * = clear filter)");
+            String line = readLine("Enter choice or filter: ", true);
+            if (line.isEmpty()) {
+                if (offset + pageSize < page.total()) offset += pageSize;
+                else println(pages > 1 ? "Last page." : "Type text to filter or a number to select.");
+                continue;
+            }
+            if (line.equals("-")) {
+                offset = Math.max(0, offset - pageSize);
+                continue;
+            }
+            if (line.equals("*")) {
+                filter = "";
+                offset = 0;
+                continue;
+            }
+            if (!line.startsWith("/")) {
+                try {
+                    int n = Integer.parseInt(line);
+                    if (n == 0 && allowCancel) return null;
+                    if (n > offset && n <= offset + page.values().size()) return page.values().get(n - offset - 1);
+                    if (n >= 1 && n <= page.total()) {
+                        List<T> picked = source.page(filter, n - 1, 1).values();
+                        if (!picked.isEmpty()) return picked.get(0);
+                    }
+                } catch (NumberFormatException ignored) { }
+            }
+            filter = line.startsWith("/") ? line.substring(1).trim() : line;
+            offset = 0;
+        }
+    }
+
     @Override
     public LocalDateTime readDateTime(String prompt, LocalDateTime defaultValue) {
         print(prompt + " (e.g. now, now+1, now+2 for hours; or press Enter for " + defaultValue + "): ");